@@ -0,0 +1,73 @@
+package io.scalecube.services.gateway.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import io.scalecube.services.gateway.ws.WebsocketEnvelope;
+import io.scalecube.services.gateway.ws.WebsocketServiceMessageCodec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decode of json request frames. Frames of {@code envelope} shape hold gateway fields only and go
+ * through envelope scanner, {@code unknownField} ones carry one more field, which makes codec fall
+ * back to json parser, so difference between the two is what scanning saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvelopeDecodeBenchmark {
+
+  private static final String DATA = "{\"text\":\"hello\",\"numbers\":[1,2,3],\"check\":true}";
+
+  @Param({"envelope", "unknownField"})
+  public String frame;
+
+  private final WebsocketServiceMessageCodec codec = new WebsocketServiceMessageCodec();
+
+  private ByteBuf input;
+
+  /** Prepares frame of the selected shape. */
+  @Setup
+  public void setup() {
+    String extra = "unknownField".equals(frame) ? "\"x\":\"y\"," : "";
+    byte[] bytes =
+        ("{\"q\":\"/benchmark/echo\",\"sid\":1," + extra + "\"d\":" + DATA + "}")
+            .getBytes(StandardCharsets.UTF_8);
+    input = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length).writeBytes(bytes);
+  }
+
+  @TearDown
+  public void tearDown() {
+    input.release();
+  }
+
+  /**
+   * Decodes frame the way gateway does, codec releases the frame and message data is released
+   * right after.
+   *
+   * @return decoded envelope
+   * @throws Exception in case of decode error
+   */
+  @Benchmark
+  public WebsocketEnvelope decode() throws Exception {
+    WebsocketEnvelope envelope = codec.decode(input.retainedDuplicate(), null);
+    ReferenceCountUtil.safestRelease(envelope.message().data());
+    return envelope;
+  }
+}
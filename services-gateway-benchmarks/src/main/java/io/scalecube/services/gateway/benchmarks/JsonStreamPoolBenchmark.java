@@ -0,0 +1,132 @@
+package io.scalecube.services.gateway.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.scalecube.services.gateway.common.JsonStreamPool;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write and read of one gateway envelope with generators and parsers taken from {@link
+ * JsonStreamPool} ({@code pooled}), against ones created per message over buffer streams ({@code
+ * fresh}), which is what codecs did before. Allocation per message shows up with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonStreamPoolBenchmark {
+
+  @Param({"pooled", "fresh"})
+  public String streams;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+  private final JsonStreamPool pool = new JsonStreamPool(jsonFactory);
+
+  private boolean pooled;
+  private ByteBuf buffer;
+
+  /** Allocates buffer reused by every operation. */
+  @Setup
+  public void setup() {
+    pooled = "pooled".equals(streams);
+    buffer = PooledByteBufAllocator.DEFAULT.directBuffer(256);
+  }
+
+  @TearDown
+  public void tearDown() {
+    buffer.release();
+  }
+
+  /**
+   * Writes envelope into the buffer.
+   *
+   * @return number of bytes written
+   * @throws IOException in case of write error
+   */
+  @Benchmark
+  public int write() throws IOException {
+    buffer.clear();
+    if (pooled) {
+      try (JsonStreamPool.Writer writer = pool.writer(buffer)) {
+        writeEnvelope(writer.generator());
+        writer.flush();
+      }
+    } else {
+      try (JsonGenerator generator =
+          jsonFactory.createGenerator((OutputStream) new ByteBufOutputStream(buffer))) {
+        writeEnvelope(generator);
+      }
+    }
+    return buffer.readableBytes();
+  }
+
+  /**
+   * Writes envelope into the buffer and reads it back.
+   *
+   * @return sum of numeric fields read
+   * @throws IOException in case of write or read error
+   */
+  @Benchmark
+  public long writeAndRead() throws IOException {
+    write();
+    if (pooled) {
+      try (JsonStreamPool.Reader reader = pool.reader(buffer)) {
+        long sum = readEnvelope(reader.parser());
+        reader.complete();
+        return sum;
+      }
+    }
+    try (JsonParser parser =
+        jsonFactory.createParser((InputStream) new ByteBufInputStream(buffer))) {
+      return readEnvelope(parser);
+    }
+  }
+
+  private static void writeEnvelope(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("q", "/benchmark/echo");
+    generator.writeNumberField("sid", 1);
+    generator.writeNumberField("sig", 1);
+    generator.writeObjectFieldStart("d");
+    generator.writeStringField("text", "hello");
+    generator.writeNumberField("number", 42);
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  private static long readEnvelope(JsonParser parser) throws IOException {
+    long sum = 0;
+    parser.nextToken();
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && !parser.getParsingContext().inRoot()) {
+      if (token.isNumeric()) {
+        sum += parser.getLongValue();
+      }
+    }
+    return sum;
+  }
+}
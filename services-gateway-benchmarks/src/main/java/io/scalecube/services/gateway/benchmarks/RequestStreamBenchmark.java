@@ -0,0 +1,137 @@
+package io.scalecube.services.gateway.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Round trip of one request through websocket gateway and its request stream, with a local
+ * service answering with one response ({@code one}) or several ({@code many}), followed by
+ * COMPLETE. Client runs in the same JVM, so allocation per request shown by {@code -prof gc}
+ * includes its share, which stays the same while request path of the gateway changes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestStreamBenchmark {
+
+  private static final int RESPONSES = 4;
+  // sids are reused round robin, long after their streams are over
+  private static final int SIDS = 1024;
+
+  private static final ByteBuf SIGNAL =
+      Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("\"sig\"", StandardCharsets.US_ASCII));
+
+  @Param({"one", "many"})
+  public String method;
+
+  private final Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+  private final Semaphore terminated = new Semaphore(0);
+
+  private Microservices gateway;
+  private Disposable connection;
+  private String[] requests;
+  private int next;
+
+  /** Starts gateway with local service and connects to it. */
+  @Setup
+  public void setup() {
+    gateway =
+        Microservices.builder()
+            .services(new EchoServiceImpl())
+            .gateway(options -> new WebsocketGateway(options.id("WS")))
+            .startAwait();
+
+    requests = new String[SIDS];
+    for (int i = 0; i < SIDS; i++) {
+      requests[i] =
+          "{\"q\":\"benchmark/" + method + "\",\"sid\":" + (i + 1) + ",\"d\":\"hello\"}";
+    }
+
+    connection =
+        HttpClient.create()
+            .port(gateway.gateway("WS").address().port())
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) -> {
+                  in.receive()
+                      .subscribe(
+                          frame -> {
+                            if (ByteBufUtil.indexOf(SIGNAL, frame) >= 0) {
+                              terminated.release();
+                            }
+                          });
+                  return out.sendString(outbound.asFlux()).neverComplete();
+                })
+            .subscribe();
+  }
+
+  /** Disconnects and stops gateway. */
+  @TearDown
+  public void tearDown() {
+    connection.dispose();
+    gateway.shutdown().block();
+  }
+
+  /**
+   * Sends request and waits for its terminal signal.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  @Benchmark
+  public void request() throws InterruptedException {
+    outbound.tryEmitNext(requests[next++ & (SIDS - 1)]);
+    terminated.acquire();
+  }
+
+  @Service("benchmark")
+  public interface EchoService {
+
+    @ServiceMethod
+    Mono<String> one(String request);
+
+    @ServiceMethod
+    Flux<String> many(String request);
+  }
+
+  public static class EchoServiceImpl implements EchoService {
+
+    @Override
+    public Mono<String> one(String request) {
+      return Mono.just(request);
+    }
+
+    @Override
+    public Flux<String> many(String request) {
+      return Flux.range(0, RESPONSES).map(i -> request);
+    }
+  }
+}
@@ -40,4 +40,14 @@ default ServiceMessage decodeData(ServiceMessage message, Type dataType)
    * @return decoded message represented by {@link ServiceMessage} type
    */
   ServiceMessage decode(T encodedMessage);
+
+  /**
+   * Returns websocket subprotocol this codec is negotiated by. Codecs of the gateway default
+   * (json) and of non-websocket transports have none.
+   *
+   * @return subprotocol, or null if none is negotiated
+   */
+  default String subprotocol() {
+    return null;
+  }
 }
@@ -14,6 +14,9 @@ public class GatewayClientSettings {
   private static final String DEFAULT_HOST = "localhost";
   private static final String DEFAULT_CONTENT_TYPE = "application/json";
   private static final Duration DEFAULT_KEEPALIVE_INTERVAL = Duration.ZERO;
+  private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+  private static final int DEFAULT_COMPRESSION_MIN_FRAME_SIZE = 256;
+  private static final Duration DEFAULT_RESUME_TIMEOUT = Duration.ofSeconds(30);
 
   private final String host;
   private final int port;
@@ -23,6 +26,14 @@ public class GatewayClientSettings {
   private final ServiceClientErrorMapper errorMapper;
   private final Duration keepAliveInterval;
   private final boolean wiretap;
+  private final boolean qualifierDictionary;
+  private final boolean singleFrameResponse;
+  private final boolean compression;
+  private final int compressionLevel;
+  private final int compressionMinFrameSize;
+  private final boolean compressionContextTakeover;
+  private final boolean resumable;
+  private final Duration resumeTimeout;
   private final Map<String, String> headers;
 
   private GatewayClientSettings(Builder builder) {
@@ -34,6 +45,14 @@ private GatewayClientSettings(Builder builder) {
     this.errorMapper = builder.errorMapper;
     this.keepAliveInterval = builder.keepAliveInterval;
     this.wiretap = builder.wiretap;
+    this.qualifierDictionary = builder.qualifierDictionary;
+    this.singleFrameResponse = builder.singleFrameResponse;
+    this.compression = builder.compression;
+    this.compressionLevel = builder.compressionLevel;
+    this.compressionMinFrameSize = builder.compressionMinFrameSize;
+    this.compressionContextTakeover = builder.compressionContextTakeover;
+    this.resumable = builder.resumable;
+    this.resumeTimeout = builder.resumeTimeout;
     this.headers = builder.headers;
   }
 
@@ -69,6 +88,38 @@ public boolean wiretap() {
     return this.wiretap;
   }
 
+  public boolean qualifierDictionary() {
+    return this.qualifierDictionary;
+  }
+
+  public boolean singleFrameResponse() {
+    return this.singleFrameResponse;
+  }
+
+  public boolean compression() {
+    return this.compression;
+  }
+
+  public int compressionLevel() {
+    return this.compressionLevel;
+  }
+
+  public int compressionMinFrameSize() {
+    return this.compressionMinFrameSize;
+  }
+
+  public boolean compressionContextTakeover() {
+    return this.compressionContextTakeover;
+  }
+
+  public boolean resumable() {
+    return this.resumable;
+  }
+
+  public Duration resumeTimeout() {
+    return this.resumeTimeout;
+  }
+
   public Map<String, String> headers() {
     return headers;
   }
@@ -90,6 +141,14 @@ public String toString() {
     sb.append(", followRedirect=").append(followRedirect);
     sb.append(", keepAliveInterval=").append(keepAliveInterval);
     sb.append(", wiretap=").append(wiretap);
+    sb.append(", qualifierDictionary=").append(qualifierDictionary);
+    sb.append(", singleFrameResponse=").append(singleFrameResponse);
+    sb.append(", compression=").append(compression);
+    sb.append(", compressionLevel=").append(compressionLevel);
+    sb.append(", compressionMinFrameSize=").append(compressionMinFrameSize);
+    sb.append(", compressionContextTakeover=").append(compressionContextTakeover);
+    sb.append(", resumable=").append(resumable);
+    sb.append(", resumeTimeout=").append(resumeTimeout);
     sb.append(", sslProvider=").append(sslProvider);
     sb.append('}');
     return sb.toString();
@@ -105,6 +164,14 @@ public static class Builder {
     private ServiceClientErrorMapper errorMapper = DefaultErrorMapper.INSTANCE;
     private Duration keepAliveInterval = DEFAULT_KEEPALIVE_INTERVAL;
     private boolean wiretap = false;
+    private boolean qualifierDictionary = false;
+    private boolean singleFrameResponse = false;
+    private boolean compression = false;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int compressionMinFrameSize = DEFAULT_COMPRESSION_MIN_FRAME_SIZE;
+    private boolean compressionContextTakeover = true;
+    private boolean resumable = false;
+    private Duration resumeTimeout = DEFAULT_RESUME_TIMEOUT;
     private Map<String, String> headers = Collections.emptyMap();
 
     private Builder() {}
@@ -118,6 +185,14 @@ private Builder(GatewayClientSettings originalSettings) {
       this.errorMapper = originalSettings.errorMapper;
       this.keepAliveInterval = originalSettings.keepAliveInterval;
       this.wiretap = originalSettings.wiretap;
+      this.qualifierDictionary = originalSettings.qualifierDictionary;
+      this.singleFrameResponse = originalSettings.singleFrameResponse;
+      this.compression = originalSettings.compression;
+      this.compressionLevel = originalSettings.compressionLevel;
+      this.compressionMinFrameSize = originalSettings.compressionMinFrameSize;
+      this.compressionContextTakeover = originalSettings.compressionContextTakeover;
+      this.resumable = originalSettings.resumable;
+      this.resumeTimeout = originalSettings.resumeTimeout;
       this.headers = Collections.unmodifiableMap(new HashMap<>(originalSettings.headers));
     }
 
@@ -196,6 +271,116 @@ public Builder wiretap(boolean wiretap) {
       return this;
     }
 
+    /**
+     * Specifies whether websocket client should register qualifiers in per-session dictionary of
+     * the gateway and then refer to them by small integer ids. Default is {@code false}
+     *
+     * @param qualifierDictionary whether to enable qualifier dictionary. Default - false
+     * @return builder
+     */
+    public Builder qualifierDictionary(boolean qualifierDictionary) {
+      this.qualifierDictionary = qualifierDictionary;
+      return this;
+    }
+
+    /**
+     * Specifies whether websocket client should ask gateway to send response of request-response
+     * call in a single frame along with completion signal, instead of response frame and separate
+     * complete frame. Gateway that doesn't support it sends two frames, client handles both.
+     *
+     * @param singleFrameResponse whether to ask for single frame responses. Default - false
+     * @return builder
+     */
+    public Builder singleFrameResponse(boolean singleFrameResponse) {
+      this.singleFrameResponse = singleFrameResponse;
+      return this;
+    }
+
+    /**
+     * Specifies whether websocket client should offer permessage-deflate extension to the gateway.
+     * Default is {@code false}
+     *
+     * @param compression whether to enable compression. Default - false
+     * @return builder
+     */
+    public Builder compression(boolean compression) {
+      this.compression = compression;
+      return this;
+    }
+
+    /**
+     * Deflate compression level of websocket client, from 0 (no compression) to 9 (best
+     * compression). Default is 6
+     *
+     * @param compressionLevel compression level. Default - 6
+     * @return builder
+     */
+    public Builder compressionLevel(int compressionLevel) {
+      if (compressionLevel < 0 || compressionLevel > 9) {
+        throw new IllegalArgumentException("Invalid compressionLevel: " + compressionLevel);
+      }
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Minimal payload size of a websocket frame to get compressed, smaller ones are sent as is.
+     * Default is 256
+     *
+     * @param compressionMinFrameSize minimal frame size in bytes. Default - 256
+     * @return builder
+     */
+    public Builder compressionMinFrameSize(int compressionMinFrameSize) {
+      if (compressionMinFrameSize < 0) {
+        throw new IllegalArgumentException(
+            "Invalid compressionMinFrameSize: " + compressionMinFrameSize);
+      }
+      this.compressionMinFrameSize = compressionMinFrameSize;
+      return this;
+    }
+
+    /**
+     * Specifies whether deflate context is kept between messages. If {@code false} client asks
+     * the gateway to reset context after each message, which saves memory at the cost of ratio.
+     * Default is {@code true}
+     *
+     * @param compressionContextTakeover whether to keep context between messages. Default - true
+     * @return builder
+     */
+    public Builder compressionContextTakeover(boolean compressionContextTakeover) {
+      this.compressionContextTakeover = compressionContextTakeover;
+      return this;
+    }
+
+    /**
+     * Specifies whether websocket client should ask gateway for a resumable session, and on
+     * connection loss reconnect and resume the session, so that its streams go on without losing
+     * or repeating messages. Gateway that doesn't support it makes a regular session. Default is
+     * {@code false}
+     *
+     * @param resumable whether to resume sessions. Default - false
+     * @return builder
+     */
+    public Builder resumable(boolean resumable) {
+      this.resumable = resumable;
+      return this;
+    }
+
+    /**
+     * Time websocket client keeps trying to resume a session before it fails its streams. Should
+     * not exceed grace period of the gateway. Default is 30 seconds
+     *
+     * @param resumeTimeout resume timeout. Default - 30 seconds
+     * @return builder
+     */
+    public Builder resumeTimeout(Duration resumeTimeout) {
+      if (resumeTimeout == null || resumeTimeout.isNegative() || resumeTimeout.isZero()) {
+        throw new IllegalArgumentException("Invalid resumeTimeout: " + resumeTimeout);
+      }
+      this.resumeTimeout = resumeTimeout;
+      return this;
+    }
+
     public Builder errorMapper(ServiceClientErrorMapper errorMapper) {
       this.errorMapper = errorMapper;
       return this;
@@ -5,7 +5,10 @@
 import io.scalecube.services.gateway.transport.rsocket.RSocketGatewayClient;
 import io.scalecube.services.gateway.transport.rsocket.RSocketGatewayClientCodec;
 import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClient;
+import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClientBinaryCodec;
+import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClientCborCodec;
 import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClientCodec;
+import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClientMessagePackCodec;
 import io.scalecube.services.transport.api.ClientTransport;
 import io.scalecube.services.transport.api.DataCodec;
 import io.scalecube.services.transport.api.HeadersCodec;
@@ -19,6 +22,15 @@ public class GatewayClientTransports {
   public static final WebsocketGatewayClientCodec WEBSOCKET_CLIENT_CODEC =
       new WebsocketGatewayClientCodec();
 
+  public static final WebsocketGatewayClientBinaryCodec WEBSOCKET_BINARY_CLIENT_CODEC =
+      new WebsocketGatewayClientBinaryCodec();
+
+  public static final WebsocketGatewayClientCborCodec WEBSOCKET_CBOR_CLIENT_CODEC =
+      new WebsocketGatewayClientCborCodec();
+
+  public static final WebsocketGatewayClientMessagePackCodec WEBSOCKET_MSGPACK_CLIENT_CODEC =
+      new WebsocketGatewayClientMessagePackCodec();
+
   public static final RSocketGatewayClientCodec RSOCKET_CLIENT_CODEC =
       new RSocketGatewayClientCodec(HEADERS_CODEC, DataCodec.getInstance(CONTENT_TYPE));
 
@@ -53,6 +65,46 @@ public static ClientTransport websocketGatewayClientTransport(GatewayClientSetti
     return new GatewayClientTransport(function.apply(cs));
   }
 
+  /**
+   * ClientTransport that is capable of communicating with Gateway over websocket with binary
+   * subprotocol.
+   *
+   * @param cs client settings for gateway client transport
+   * @return client transport
+   */
+  public static ClientTransport websocketBinaryGatewayClientTransport(GatewayClientSettings cs) {
+    final Function<GatewayClientSettings, GatewayClient> function =
+        settings -> new WebsocketGatewayClient(settings, WEBSOCKET_BINARY_CLIENT_CODEC);
+    return new GatewayClientTransport(function.apply(cs));
+  }
+
+  /**
+   * ClientTransport that is capable of communicating with Gateway over websocket with CBOR
+   * subprotocol.
+   *
+   * @param cs client settings for gateway client transport
+   * @return client transport
+   */
+  public static ClientTransport websocketCborGatewayClientTransport(GatewayClientSettings cs) {
+    final Function<GatewayClientSettings, GatewayClient> function =
+        settings -> new WebsocketGatewayClient(settings, WEBSOCKET_CBOR_CLIENT_CODEC);
+    return new GatewayClientTransport(function.apply(cs));
+  }
+
+  /**
+   * ClientTransport that is capable of communicating with Gateway over websocket with MessagePack
+   * subprotocol.
+   *
+   * @param cs client settings for gateway client transport
+   * @return client transport
+   */
+  public static ClientTransport websocketMessagePackGatewayClientTransport(
+      GatewayClientSettings cs) {
+    final Function<GatewayClientSettings, GatewayClient> function =
+        settings -> new WebsocketGatewayClient(settings, WEBSOCKET_MSGPACK_CLIENT_CODEC);
+    return new GatewayClientTransport(function.apply(cs));
+  }
+
   /**
    * ClientTransport that is capable of communicating with Gateway over http.
    *
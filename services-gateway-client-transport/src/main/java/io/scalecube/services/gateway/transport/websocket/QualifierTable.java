@@ -0,0 +1,80 @@
+package io.scalecube.services.gateway.transport.websocket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Client side of per-session qualifier dictionary. Qualifier gets id on first use and goes with
+ * both {@code q} and {@code qid} until gateway acknowledges registration by using {@code qid} in a
+ * response, only after that requests carry {@code qid} alone. That way there's no race between
+ * registering request and requests that follow it.
+ */
+final class QualifierTable {
+
+  static final int MAX_SIZE = 1024;
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<String> qualifiers = new AtomicReferenceArray<>(MAX_SIZE);
+  private final AtomicReferenceArray<String> acknowledged = new AtomicReferenceArray<>(MAX_SIZE);
+  private final AtomicInteger counter = new AtomicInteger();
+
+  /**
+   * Returns id of a given qualifier, assigns one if qualifier is new.
+   *
+   * @param qualifier qualifier
+   * @return qualifier id, or -1 if table is full
+   */
+  int idOf(String qualifier) {
+    Integer qid = ids.get(qualifier);
+    if (qid != null) {
+      return qid;
+    }
+    qid =
+        ids.computeIfAbsent(
+            qualifier,
+            q -> {
+              if (counter.get() >= MAX_SIZE) {
+                return null;
+              }
+              int next = counter.getAndIncrement();
+              if (next >= MAX_SIZE) {
+                return null;
+              }
+              qualifiers.set(next, q);
+              return next;
+            });
+    return qid != null ? qid : -1;
+  }
+
+  /**
+   * Returns whether gateway has acknowledged registration of a given qualifier id.
+   *
+   * @param qid qualifier id
+   * @return true if qualifier id can be sent alone
+   */
+  boolean isAcknowledged(int qid) {
+    return acknowledged.get(qid) != null;
+  }
+
+  /**
+   * Marks given qualifier id as acknowledged by gateway.
+   *
+   * @param qid qualifier id
+   * @return qualifier, or null if qualifier id is unknown
+   */
+  String acknowledge(long qid) {
+    if (qid < 0 || qid >= MAX_SIZE) {
+      return null;
+    }
+    String qualifier = acknowledged.get((int) qid);
+    if (qualifier == null) {
+      qualifier = qualifiers.get((int) qid);
+      if (qualifier != null) {
+        acknowledged.lazySet((int) qid, qualifier);
+      }
+    }
+    return qualifier;
+  }
+}
@@ -3,39 +3,72 @@
 import static io.scalecube.reactor.RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.netty.util.AttributeKey;
 import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.gateway.common.WebsocketCompressionStats;
 import io.scalecube.services.gateway.transport.GatewayClient;
 import io.scalecube.services.gateway.transport.GatewayClientCodec;
 import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.netty.Connection;
+import reactor.netty.NettyPipeline;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+import reactor.netty.http.client.WebsocketClientSpec;
 import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.resources.LoopResources;
+import reactor.util.retry.Retry;
 
 public final class WebsocketGatewayClient implements GatewayClient {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketGatewayClient.class);
 
-  private static final String STREAM_ID = "sid";
-
   @SuppressWarnings("rawtypes")
   private static final AtomicReferenceFieldUpdater<WebsocketGatewayClient, Mono>
       websocketMonoUpdater =
           AtomicReferenceFieldUpdater.newUpdater(
               WebsocketGatewayClient.class, Mono.class, "websocketMono");
 
+  private static final String COMPRESSED_COUNTER = "scalecube.wsCompressedCounter";
+  private static final String EXTENSION_HANDLER = "scalecube.wsExtensionHandler";
+  private static final String RAW_COUNTER = "scalecube.wsRawCounter";
+
+  static final AttributeKey<WebsocketCompressionStats> COMPRESSION_STATS_KEY =
+      AttributeKey.valueOf("scalecube.websocketCompressionStats");
+
+  // handshake headers of resumable sessions, see gateway's WebsocketResumption
+  private static final String RESUMABLE_HEADER = "X-Resumable";
+  private static final String RESUME_TOKEN_HEADER = "X-Resume-Token";
+  private static final String RESUME_POSITION_HEADER = "X-Resume-Position";
+
+  private static final Duration RESUME_MIN_BACKOFF = Duration.ofMillis(100);
+  private static final Duration RESUME_MAX_BACKOFF = Duration.ofSeconds(2);
+  private static final IllegalStateException RESUME_REJECTED =
+      new IllegalStateException("Gateway can't resume session");
+
   private final AtomicLong sidCounter = new AtomicLong();
 
   private final GatewayClientCodec<ByteBuf> codec;
+  private final String subprotocol;
+  private final boolean binary;
   private final GatewayClientSettings settings;
   private final HttpClient httpClient;
   private final LoopResources loopResources;
@@ -47,6 +80,8 @@ public final class WebsocketGatewayClient implements GatewayClient {
   @SuppressWarnings("unused")
   private volatile Mono<?> websocketMono;
 
+  private volatile boolean closed;
+
   /**
    * Creates instance of websocket client transport.
    *
@@ -79,6 +114,9 @@ private WebsocketGatewayClient(
 
     this.settings = settings;
     this.codec = codec;
+    // json is the gateway default, subprotocol is negotiated only for binary codecs
+    this.subprotocol = codec.subprotocol();
+    this.binary = subprotocol != null;
     this.loopResources = loopResources;
     this.ownsLoopResources = ownsLoopResources;
 
@@ -95,6 +133,12 @@ private WebsocketGatewayClient(
       httpClient = httpClient.secure(settings.sslProvider());
     }
 
+    if (settings.compression()) {
+      httpClient =
+          httpClient.doOnChannelInit(
+              (observer, channel, remoteAddress) -> setupCompression(channel));
+    }
+
     this.httpClient = httpClient;
 
     // Setup cleanup
@@ -113,7 +157,7 @@ public Mono<ServiceMessage> requestResponse(ServiceMessage request) {
             session -> {
               long sid = sidCounter.incrementAndGet();
               return session
-                  .send(encodeRequest(request, sid))
+                  .send(encodeRequest(session, request, sid, settings.singleFrameResponse()))
                   .doOnSubscribe(s -> LOGGER.debug("Sending request {}", request))
                   .then(session.<ServiceMessage>newMonoProcessor(sid).asMono())
                   .doOnCancel(() -> session.cancel(sid, request.qualifier()))
@@ -128,7 +172,7 @@ public Flux<ServiceMessage> requestStream(ServiceMessage request) {
             session -> {
               long sid = sidCounter.incrementAndGet();
               return session
-                  .send(encodeRequest(request, sid))
+                  .send(encodeRequest(session, request, sid, false))
                   .doOnSubscribe(s -> LOGGER.debug("Sending request {}", request))
                   .thenMany(session.<ServiceMessage>newUnicastProcessor(sid).asFlux())
                   .doOnCancel(() -> session.cancel(sid, request.qualifier()))
@@ -141,8 +185,23 @@ public Flux<ServiceMessage> requestChannel(Flux<ServiceMessage> requests) {
     return Flux.error(new UnsupportedOperationException("requestChannel is not supported"));
   }
 
+  /**
+   * Returns counters of raw and compressed payload bytes of current session.
+   *
+   * @return compression stats, or empty if client is not connected or compression is disabled
+   */
+  public Mono<WebsocketCompressionStats> compressionStats() {
+    @SuppressWarnings("unchecked")
+    Mono<WebsocketGatewayClientSession> websocketMono =
+        (Mono<WebsocketGatewayClientSession>) this.websocketMono;
+    return websocketMono != null
+        ? websocketMono.mapNotNull(WebsocketGatewayClientSession::compressionStats)
+        : Mono.empty();
+  }
+
   @Override
   public void close() {
+    closed = true;
     close.emitEmpty(RETRY_NON_SERIALIZED);
   }
 
@@ -166,23 +225,17 @@ private Mono<WebsocketGatewayClientSession> getOrConnect0(
       return prev;
     }
 
-    Duration keepAliveInterval = settings.keepAliveInterval();
-
-    return httpClient
-        .websocket()
-        .uri("/")
-        .connect()
-        .map(
-            connection ->
-                keepAliveInterval != Duration.ZERO
-                    ? connection
-                        .onReadIdle(keepAliveInterval.toMillis(), () -> onReadIdle(connection))
-                        .onWriteIdle(keepAliveInterval.toMillis(), () -> onWriteIdle(connection))
-                    : connection)
+    return connect(this::setupResumable)
         .map(
             connection -> {
               WebsocketGatewayClientSession session =
-                  new WebsocketGatewayClientSession(codec, connection);
+                  new WebsocketGatewayClientSession(
+                      codec,
+                      binary,
+                      settings.qualifierDictionary(),
+                      connection,
+                      responseHeaders(connection).get(RESUME_TOKEN_HEADER),
+                      settings.resumable() ? this::resume : null);
               LOGGER.info("Created session: {}", session);
               // setup shutdown hook
               session
@@ -210,6 +263,113 @@ private Mono<WebsocketGatewayClientSession> getOrConnect0(
         .cache();
   }
 
+  private Mono<Void> resume(WebsocketGatewayClientSession session) {
+    if (closed) {
+      return Mono.error(new ClosedChannelException());
+    }
+    return Mono.defer(() -> connect(headers -> setupResume(headers, session)))
+        .flatMap(
+            connection -> {
+              final HttpHeaders headers = responseHeaders(connection);
+              final String position = headers.get(RESUME_POSITION_HEADER);
+              if (!session.resumeToken().equals(headers.get(RESUME_TOKEN_HEADER))
+                  || position == null
+                  || !session.attach(connection, Long.parseLong(position))) {
+                connection.dispose();
+                return Mono.<Void>error(RESUME_REJECTED);
+              }
+              return Mono.<Void>empty();
+            })
+        .retryWhen(
+            Retry.backoff(Long.MAX_VALUE, RESUME_MIN_BACKOFF)
+                .maxBackoff(RESUME_MAX_BACKOFF)
+                .filter(th -> th != RESUME_REJECTED && !closed))
+        .timeout(settings.resumeTimeout());
+  }
+
+  private Mono<? extends Connection> connect(Consumer<HttpHeaders> headers) {
+    Duration keepAliveInterval = settings.keepAliveInterval();
+
+    WebsocketClientSpec websocketSpec =
+        subprotocol != null
+            ? WebsocketClientSpec.builder().protocols(subprotocol).build()
+            : WebsocketClientSpec.builder().build();
+
+    return httpClient
+        .headers(headers)
+        .websocket(websocketSpec)
+        .uri("/")
+        .connect()
+        .map(
+            connection ->
+                keepAliveInterval != Duration.ZERO
+                    ? connection
+                        .onReadIdle(keepAliveInterval.toMillis(), () -> onReadIdle(connection))
+                        .onWriteIdle(keepAliveInterval.toMillis(), () -> onWriteIdle(connection))
+                    : connection);
+  }
+
+  private void setupResumable(HttpHeaders headers) {
+    if (settings.resumable()) {
+      headers.set(RESUMABLE_HEADER, true);
+    }
+  }
+
+  private static void setupResume(HttpHeaders headers, WebsocketGatewayClientSession session) {
+    headers
+        .set(RESUME_TOKEN_HEADER, session.resumeToken())
+        .set(RESUME_POSITION_HEADER, session.received());
+  }
+
+  private static HttpHeaders responseHeaders(Connection connection) {
+    // connection of websocket client is its upgraded http response
+    return ((HttpClientResponse) connection).responseHeaders();
+  }
+
+  private void setupCompression(Channel channel) {
+    final ChannelPipeline pipeline = channel.pipeline();
+    if (pipeline.get(NettyPipeline.HttpCodec) == null) {
+      return;
+    }
+
+    final WebsocketCompressionStats stats = new WebsocketCompressionStats();
+    final int minFrameSize = settings.compressionMinFrameSize();
+    final WebSocketExtensionFilter encoderFilter =
+        frame -> frame.content().readableBytes() < minFrameSize;
+    final WebSocketExtensionFilterProvider filterProvider =
+        new WebSocketExtensionFilterProvider() {
+          @Override
+          public WebSocketExtensionFilter encoderFilter() {
+            return encoderFilter;
+          }
+
+          @Override
+          public WebSocketExtensionFilter decoderFilter() {
+            return WebSocketExtensionFilter.NEVER_SKIP;
+          }
+        };
+
+    // client always honors gateway's wish of no context takeover, and asks gateway for the same
+    // if configured so
+    final PerMessageDeflateClientExtensionHandshaker handshaker =
+        new PerMessageDeflateClientExtensionHandshaker(
+            settings.compressionLevel(),
+            false,
+            PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+            true,
+            !settings.compressionContextTakeover(),
+            filterProvider);
+
+    // deflate encoder and decoder get added right after extension handler on upgrade
+    pipeline
+        .addAfter(NettyPipeline.HttpCodec, COMPRESSED_COUNTER, stats.compressedCounter())
+        .addAfter(
+            COMPRESSED_COUNTER, EXTENSION_HANDLER, new WebSocketClientExtensionHandler(handshaker))
+        .addAfter(EXTENSION_HANDLER, RAW_COUNTER, stats.rawCounter());
+
+    channel.attr(COMPRESSION_STATS_KEY).set(stats);
+  }
+
   private void onWriteIdle(Connection connection) {
     LOGGER.debug("Sending keepalive on writeIdle");
     connection
@@ -228,7 +388,11 @@ private void onReadIdle(Connection connection) {
         .subscribe(null, ex -> LOGGER.warn("Can't send keepalive on readIdle: " + ex));
   }
 
-  private ByteBuf encodeRequest(ServiceMessage message, long sid) {
-    return codec.encode(ServiceMessage.from(message).header(STREAM_ID, sid).build());
+  private ByteBuf encodeRequest(
+      WebsocketGatewayClientSession session,
+      ServiceMessage message,
+      long sid,
+      boolean singleFrameResponse) {
+    return codec.encode(session.newRequest(message, sid, singleFrameResponse));
   }
 }
@@ -0,0 +1,185 @@
+package io.scalecube.services.gateway.transport.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.transport.GatewayClientCodec;
+import io.scalecube.services.transport.api.ReferenceCountUtil;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side of the binary gateway envelope, see {@code WebsocketBinaryServiceMessageCodec} on
+ * the gateway side for the layout. When this codec is given to {@link WebsocketGatewayClient} it
+ * negotiates {@link #SUBPROTOCOL} and sends binary frames.
+ */
+public final class WebsocketGatewayClientBinaryCodec implements GatewayClientCodec<ByteBuf> {
+
+  public static final String SUBPROTOCOL = "scalecube-binary";
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(WebsocketGatewayClientBinaryCodec.class);
+
+  private static final String QUALIFIER_FIELD = "q";
+  private static final String STREAM_ID_FIELD = "sid";
+  private static final String SIGNAL_FIELD = "sig";
+
+  private static final int MAX_VARINT_BYTES = 10;
+
+  private final boolean releaseDataOnEncode;
+
+  public WebsocketGatewayClientBinaryCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketGatewayClientBinaryCodec(boolean releaseDataOnEncode) {
+    this.releaseDataOnEncode = releaseDataOnEncode;
+  }
+
+  @Override
+  public String subprotocol() {
+    return SUBPROTOCOL;
+  }
+
+  @Override
+  public ByteBuf encode(ServiceMessage message) {
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+    ByteBuf dataBin = null;
+
+    try {
+      final Map<String, String> headers = message.headers();
+      final String signal = headers.get(SIGNAL_FIELD);
+      final String sid = headers.get(STREAM_ID_FIELD);
+      final String qualifier = headers.get(QUALIFIER_FIELD);
+
+      byteBuf.writeByte(signal != null ? Integer.parseInt(signal) : 0);
+      writeVarint(byteBuf, sid != null ? Long.parseLong(sid) + 1 : 0);
+      writeString(byteBuf, qualifier);
+
+      int count = headers.size();
+      count -= signal != null ? 1 : 0;
+      count -= sid != null ? 1 : 0;
+      count -= qualifier != null ? 1 : 0;
+      writeVarint(byteBuf, count);
+      for (Entry<String, String> header : headers.entrySet()) {
+        switch (header.getKey()) {
+          case SIGNAL_FIELD:
+          case STREAM_ID_FIELD:
+          case QUALIFIER_FIELD:
+            break;
+          default:
+            writeString(byteBuf, header.getKey());
+            writeString(byteBuf, header.getValue());
+        }
+      }
+
+      // data
+      Object data = message.data();
+      if (data != null) {
+        if (data instanceof ByteBuf) {
+          if (((ByteBuf) data).isReadable()) {
+            dataBin = (ByteBuf) data;
+          }
+        } else {
+          WebsocketGatewayClientCodec.objectMapper.writeValue(
+              (OutputStream) new ByteBufOutputStream(byteBuf), data);
+        }
+      }
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      Optional.ofNullable(message.data()).ifPresent(ReferenceCountUtil::safestRelease);
+      LOGGER.error("Failed to encode message: {}", message, ex);
+      throw new MessageCodecException("Failed to encode message", ex);
+    }
+
+    if (dataBin == null) {
+      return byteBuf;
+    }
+
+    // compose envelope with data instead of copying it
+    return ByteBufAllocator.DEFAULT
+        .compositeBuffer(2)
+        .addComponents(true, byteBuf, releaseDataOnEncode ? dataBin : dataBin.retain());
+  }
+
+  @Override
+  public ServiceMessage decode(ByteBuf encodedMessage) {
+    try {
+      ServiceMessage.Builder result = ServiceMessage.builder();
+
+      final int signal = encodedMessage.readUnsignedByte();
+      if (signal != 0) {
+        result.header(SIGNAL_FIELD, signal);
+      }
+      final long sid = readVarint(encodedMessage);
+      if (sid != 0) {
+        result.header(STREAM_ID_FIELD, sid - 1);
+      }
+      final String qualifier = readString(encodedMessage);
+      if (!qualifier.isEmpty()) {
+        result.header(QUALIFIER_FIELD, qualifier);
+      }
+      for (long i = readVarint(encodedMessage); i > 0; i--) {
+        result.header(readString(encodedMessage), readString(encodedMessage));
+      }
+
+      // data
+      if (encodedMessage.isReadable()) {
+        result.data(encodedMessage.retainedSlice());
+      }
+      return result.build();
+    } catch (Throwable ex) {
+      throw new MessageCodecException("Failed to decode message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(encodedMessage);
+    }
+  }
+
+  private static void writeString(ByteBuf byteBuf, String value) {
+    if (value == null || value.isEmpty()) {
+      byteBuf.writeByte(0);
+      return;
+    }
+    int length = ByteBufUtil.utf8Bytes(value);
+    writeVarint(byteBuf, length);
+    ByteBufUtil.reserveAndWriteUtf8(byteBuf, value, length);
+  }
+
+  private static String readString(ByteBuf byteBuf) {
+    long length = readVarint(byteBuf);
+    if (length > byteBuf.readableBytes()) {
+      throw new IndexOutOfBoundsException("String length exceeds frame: " + length);
+    }
+    return length == 0
+        ? ""
+        : byteBuf.readCharSequence((int) length, StandardCharsets.UTF_8).toString();
+  }
+
+  private static void writeVarint(ByteBuf byteBuf, long value) {
+    while ((value & ~0x7FL) != 0) {
+      byteBuf.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    byteBuf.writeByte((int) value);
+  }
+
+  private static long readVarint(ByteBuf byteBuf) {
+    long result = 0;
+    for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+      byte b = byteBuf.readByte();
+      result |= (long) (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
@@ -0,0 +1,21 @@
+package io.scalecube.services.gateway.transport.websocket;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Client side of the gateway envelope in CBOR, negotiated by {@link #SUBPROTOCOL}.
+ *
+ * @see WebsocketGatewayClientDataformatCodec
+ */
+public final class WebsocketGatewayClientCborCodec extends WebsocketGatewayClientDataformatCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-cbor";
+
+  public WebsocketGatewayClientCborCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketGatewayClientCborCodec(boolean releaseDataOnEncode) {
+    super(SUBPROTOCOL, new CBORFactory(), releaseDataOnEncode);
+  }
+}
@@ -5,7 +5,7 @@
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
@@ -16,14 +16,12 @@
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import io.scalecube.services.api.ServiceMessage;
 import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.common.JsonStreamPool;
 import io.scalecube.services.gateway.transport.GatewayClientCodec;
 import io.scalecube.services.transport.api.ReferenceCountUtil;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Map.Entry;
 import java.util.Optional;
 import org.slf4j.Logger;
@@ -31,15 +29,25 @@
 
 public final class WebsocketGatewayClientCodec implements GatewayClientCodec<ByteBuf> {
 
+  public static final String SUBPROTOCOL = "scalecube-json";
+
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketGatewayClientCodec.class);
 
-  private static final MappingJsonFactory jsonFactory = new MappingJsonFactory(objectMapper());
+  static final ObjectMapper objectMapper = objectMapper(null);
+
+  private static final MappingJsonFactory jsonFactory = new MappingJsonFactory(objectMapper);
+
+  private static final JsonStreamPool streamPool = new JsonStreamPool(jsonFactory);
+
+  private static final ByteBuf END_OBJECT =
+      Unpooled.unreleasableBuffer(Unpooled.directBuffer(1, 1).writeByte('}').asReadOnly());
 
   // special numeric fields
   private static final String STREAM_ID_FIELD = "sid";
   private static final String SIGNAL_FIELD = "sig";
   private static final String INACTIVITY_FIELD = "i";
   private static final String RATE_LIMIT_FIELD = "rlimit";
+  private static final String QUALIFIER_ID_FIELD = "qid";
   // data field
   private static final String DATA_FIELD = "d";
 
@@ -56,10 +64,10 @@ public WebsocketGatewayClientCodec(boolean releaseDataOnEncode) {
   @Override
   public ByteBuf encode(ServiceMessage message) {
     ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+    ByteBuf dataBin = null;
 
-    try (JsonGenerator generator =
-        jsonFactory.createGenerator(
-            (OutputStream) new ByteBufOutputStream(byteBuf), JsonEncoding.UTF8)) {
+    try (JsonStreamPool.Writer writer = streamPool.writer(byteBuf)) {
+      final JsonGenerator generator = writer.generator();
       generator.writeStartObject();
 
       // headers
@@ -71,6 +79,7 @@ public ByteBuf encode(ServiceMessage message) {
           case SIGNAL_FIELD:
           case INACTIVITY_FIELD:
           case RATE_LIMIT_FIELD:
+          case QUALIFIER_ID_FIELD:
             generator.writeNumberField(fieldName, Long.parseLong(value));
             break;
           default:
@@ -82,18 +91,10 @@ public ByteBuf encode(ServiceMessage message) {
       Object data = message.data();
       if (data != null) {
         if (data instanceof ByteBuf) {
-          ByteBuf dataBin = (ByteBuf) data;
-          if (dataBin.isReadable()) {
-            try {
-              generator.writeFieldName(DATA_FIELD);
-              generator.writeRaw(":");
-              generator.flush();
-              byteBuf.writeBytes(dataBin);
-            } finally {
-              if (releaseDataOnEncode) {
-                ReferenceCountUtil.safestRelease(dataBin);
-              }
-            }
+          if (((ByteBuf) data).isReadable()) {
+            generator.writeFieldName(DATA_FIELD);
+            generator.writeRaw(":");
+            dataBin = (ByteBuf) data;
           }
         } else {
           generator.writeObjectField(DATA_FIELD, data);
@@ -101,19 +102,38 @@ public ByteBuf encode(ServiceMessage message) {
       }
 
       generator.writeEndObject();
+      writer.flush();
+      if (dataBin != null) {
+        // closing brace goes after data
+        byteBuf.writerIndex(byteBuf.writerIndex() - 1);
+      }
     } catch (Throwable ex) {
       ReferenceCountUtil.safestRelease(byteBuf);
       Optional.ofNullable(message.data()).ifPresent(ReferenceCountUtil::safestRelease);
       LOGGER.error("Failed to encode message: {}", message, ex);
       throw new MessageCodecException("Failed to encode message", ex);
     }
-    return byteBuf;
+
+    if (dataBin == null) {
+      return byteBuf;
+    }
+
+    // compose envelope with data instead of copying it
+    return ByteBufAllocator.DEFAULT
+        .compositeBuffer(3)
+        .addComponents(
+            true,
+            byteBuf,
+            releaseDataOnEncode ? dataBin : dataBin.retain(),
+            END_OBJECT.duplicate());
   }
 
   @Override
   public ServiceMessage decode(ByteBuf encodedMessage) {
-    try (InputStream stream = new ByteBufInputStream(encodedMessage, true)) {
-      JsonParser jp = jsonFactory.createParser(stream);
+    // parser offsets are relative to the start of the message
+    final int readerIndex = encodedMessage.readerIndex();
+    try (JsonStreamPool.Reader reader = streamPool.reader(encodedMessage)) {
+      JsonParser jp = reader.parser();
       ServiceMessage.Builder result = ServiceMessage.builder();
 
       JsonToken current = jp.nextToken();
@@ -130,7 +150,7 @@ public ServiceMessage decode(ByteBuf encodedMessage) {
         }
 
         if (DATA_FIELD.equals(fieldName)) {
-          dataStart = jp.getTokenLocation().getByteOffset();
+          dataStart = reader.offset(jp.getTokenLocation());
           if (current.isScalarValue()) {
             if (!current.isNumeric() && !current.isBoolean()) {
               jp.getValueAsString();
@@ -138,24 +158,34 @@ public ServiceMessage decode(ByteBuf encodedMessage) {
           } else if (current.isStructStart()) {
             jp.skipChildren();
           }
-          dataEnd = jp.getCurrentLocation().getByteOffset();
+          dataEnd = reader.offset(jp.getCurrentLocation());
         } else {
           // headers
           result.header(fieldName, jp.getValueAsString());
         }
       }
+      reader.complete();
       // data
       if (dataEnd > dataStart) {
-        result.data(encodedMessage.copy((int) dataStart, (int) (dataEnd - dataStart)));
+        result.data(
+            encodedMessage.copy(readerIndex + (int) dataStart, (int) (dataEnd - dataStart)));
       }
       return result.build();
     } catch (Throwable ex) {
       throw new MessageCodecException("Failed to decode message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(encodedMessage);
     }
   }
 
-  private static ObjectMapper objectMapper() {
-    ObjectMapper mapper = new ObjectMapper();
+  /**
+   * Returns object mapper configured the way client encodes message data.
+   *
+   * @param jsonFactory factory of the dataformat, json if null
+   * @return object mapper
+   */
+  static ObjectMapper objectMapper(JsonFactory jsonFactory) {
+    ObjectMapper mapper = new ObjectMapper(jsonFactory);
     mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
     mapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
@@ -0,0 +1,184 @@
+package io.scalecube.services.gateway.transport.websocket;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.transport.GatewayClientCodec;
+import io.scalecube.services.transport.api.ReferenceCountUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map.Entry;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side of the gateway envelope encoded with one of jackson binary dataformats, see {@code
+ * WebsocketDataformatServiceMessageCodec} on the gateway side. When codec is given to {@link
+ * WebsocketGatewayClient} it negotiates {@link #subprotocol()} and sends binary frames.
+ *
+ * <p>Response data is transcoded into json, so it's decoded the same way as with json codec.
+ */
+public abstract class WebsocketGatewayClientDataformatCodec
+    implements GatewayClientCodec<ByteBuf> {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(WebsocketGatewayClientDataformatCodec.class);
+
+  private static final JsonFactory JSON_FACTORY =
+      WebsocketGatewayClientCodec.objectMapper.getFactory();
+
+  // special numeric fields
+  private static final String STREAM_ID_FIELD = "sid";
+  private static final String SIGNAL_FIELD = "sig";
+  private static final String INACTIVITY_FIELD = "i";
+  private static final String RATE_LIMIT_FIELD = "rlimit";
+  private static final String QUALIFIER_ID_FIELD = "qid";
+  // data field
+  private static final String DATA_FIELD = "d";
+
+  private final String subprotocol;
+  private final ObjectMapper objectMapper;
+  private final boolean releaseDataOnEncode;
+
+  /**
+   * Constructor.
+   *
+   * @param subprotocol websocket subprotocol of the dataformat
+   * @param jsonFactory factory of the dataformat
+   * @param releaseDataOnEncode whether to release message data on encode
+   */
+  protected WebsocketGatewayClientDataformatCodec(
+      String subprotocol, JsonFactory jsonFactory, boolean releaseDataOnEncode) {
+    this.subprotocol = subprotocol;
+    this.objectMapper = WebsocketGatewayClientCodec.objectMapper(jsonFactory);
+    this.releaseDataOnEncode = releaseDataOnEncode;
+  }
+
+  @Override
+  public String subprotocol() {
+    return subprotocol;
+  }
+
+  @Override
+  public ByteBuf encode(ServiceMessage message) {
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+
+    final JsonFactory jsonFactory = objectMapper.getFactory();
+    try (JsonGenerator generator =
+        jsonFactory.createGenerator((OutputStream) new ByteBufOutputStream(byteBuf))) {
+      generator.writeStartObject();
+
+      // headers
+      for (Entry<String, String> header : message.headers().entrySet()) {
+        String fieldName = header.getKey();
+        String value = header.getValue();
+        switch (fieldName) {
+          case STREAM_ID_FIELD:
+          case SIGNAL_FIELD:
+          case INACTIVITY_FIELD:
+          case RATE_LIMIT_FIELD:
+          case QUALIFIER_ID_FIELD:
+            generator.writeNumberField(fieldName, Long.parseLong(value));
+            break;
+          default:
+            generator.writeStringField(fieldName, value);
+        }
+      }
+
+      // data
+      Object data = message.data();
+      if (data instanceof ByteBuf) {
+        ByteBuf dataBin = (ByteBuf) data;
+        if (dataBin.isReadable()) {
+          generator.writeFieldName(DATA_FIELD);
+          InputStream dataStream = new ByteBufInputStream(dataBin.duplicate());
+          try (JsonParser parser = JSON_FACTORY.createParser(dataStream)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+          }
+        }
+      } else if (data != null) {
+        generator.writeObjectField(DATA_FIELD, data);
+      }
+
+      generator.writeEndObject();
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      Optional.ofNullable(message.data()).ifPresent(ReferenceCountUtil::safestRelease);
+      LOGGER.error("Failed to encode message: {}", message, ex);
+      throw new MessageCodecException("Failed to encode message", ex);
+    }
+
+    if (releaseDataOnEncode) {
+      Optional.ofNullable(message.data()).ifPresent(ReferenceCountUtil::safestRelease);
+    }
+    return byteBuf;
+  }
+
+  @Override
+  public ServiceMessage decode(ByteBuf encodedMessage) {
+    ByteBuf dataBin = null;
+    try (InputStream stream = new ByteBufInputStream(encodedMessage, true);
+        JsonParser parser = objectMapper.getFactory().createParser(stream)) {
+      ServiceMessage.Builder result = ServiceMessage.builder();
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new MessageCodecException("Root should be object", null);
+      }
+      JsonToken current;
+      while ((current = parser.nextToken()) != JsonToken.END_OBJECT) {
+        if (current != JsonToken.FIELD_NAME) {
+          throw new MessageCodecException("Unexpected token: " + current, null);
+        }
+        String fieldName = parser.getCurrentName();
+        current = parser.nextToken();
+        if (current == JsonToken.VALUE_NULL) {
+          continue;
+        }
+
+        if (DATA_FIELD.equals(fieldName)) {
+          if (dataBin == null) {
+            dataBin = toJson(parser);
+          } else {
+            parser.skipChildren();
+          }
+        } else {
+          // headers
+          result.header(fieldName, parser.getValueAsString());
+        }
+      }
+      // data
+      if (dataBin != null) {
+        result.data(dataBin);
+      }
+      return result.build();
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(dataBin);
+      throw new MessageCodecException("Failed to decode message", ex);
+    }
+  }
+
+  private static ByteBuf toJson(JsonParser parser) throws IOException {
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+    try (JsonGenerator generator =
+        JSON_FACTORY.createGenerator(
+            (OutputStream) new ByteBufOutputStream(byteBuf), JsonEncoding.UTF8)) {
+      generator.copyCurrentStructure(parser);
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      throw ex;
+    }
+    return byteBuf;
+  }
+}
@@ -0,0 +1,22 @@
+package io.scalecube.services.gateway.transport.websocket;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * Client side of the gateway envelope in MessagePack, negotiated by {@link #SUBPROTOCOL}.
+ *
+ * @see WebsocketGatewayClientDataformatCodec
+ */
+public final class WebsocketGatewayClientMessagePackCodec
+    extends WebsocketGatewayClientDataformatCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-msgpack";
+
+  public WebsocketGatewayClientMessagePackCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketGatewayClientMessagePackCodec(boolean releaseDataOnEncode) {
+    super(SUBPROTOCOL, new MessagePackFactory(), releaseDataOnEncode);
+  }
+}
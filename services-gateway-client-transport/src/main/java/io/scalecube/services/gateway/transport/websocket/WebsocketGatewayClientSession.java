@@ -3,15 +3,19 @@
 import static io.scalecube.reactor.RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.scalecube.services.api.ErrorData;
 import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.gateway.common.ReplayRing;
+import io.scalecube.services.gateway.common.StreamRegistry;
+import io.scalecube.services.gateway.common.WebsocketCompressionStats;
 import io.scalecube.services.gateway.transport.GatewayClientCodec;
 import io.scalecube.services.transport.api.ReferenceCountUtil;
 import java.nio.channels.ClosedChannelException;
-import java.util.Map;
 import java.util.StringJoiner;
-import org.jctools.maps.NonBlockingHashMapLong;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -22,6 +26,12 @@
 import reactor.netty.http.websocket.WebsocketInbound;
 import reactor.netty.http.websocket.WebsocketOutbound;
 
+/**
+ * Client side of a websocket session. Resumable session outlives its connection: once connection
+ * is lost, its streams wait for session to be resumed on a new connection, see {@link
+ * #attach(Connection, long)}, and fail only if it can't be. Both sides count data frames they have
+ * received and keep last ones they have sent, so that each resends what the other has missed.
+ */
 public final class WebsocketGatewayClientSession {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketGatewayClientSession.class);
@@ -29,21 +39,111 @@ public final class WebsocketGatewayClientSession {
   private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION =
       new ClosedChannelException();
 
+  private static final String QUALIFIER = "q";
+  private static final String QUALIFIER_ID = "qid";
   private static final String STREAM_ID = "sid";
   private static final String SIGNAL = "sig";
+  private static final String SINGLE_FRAME = "single";
+
+  // number and bytes of last sent frames resumable session keeps to resend on resumption
+  private static final int REPLAY_BUFFER_SIZE = 1024;
+  private static final long REPLAY_BUFFER_BYTES = 1024 * 1024;
 
   private final String id; // keep id for tracing
   private final GatewayClientCodec<ByteBuf> codec;
-  private final Connection connection;
+  private final boolean binary;
+  private final QualifierTable qualifiers;
+  private final String resumeToken;
+  private final Function<WebsocketGatewayClientSession, Mono<Void>> resumer;
+  private final ReplayRing replayRing;
+  private final Sinks.Empty<Void> onClose = Sinks.empty();
 
   // processor by sid mapping
-  private final Map<Long, Object> inboundProcessors = new NonBlockingHashMapLong<>(1024);
+  private final StreamRegistry<Object> inboundProcessors = new StreamRegistry<>();
+
+  // null while resumable session is being resumed, guarded by this
+  private volatile Connection connection;
+  // written only by inbound of current connection
+  private volatile long received;
+  private boolean closed;
+
+  WebsocketGatewayClientSession(
+      GatewayClientCodec<ByteBuf> codec,
+      boolean binary,
+      boolean qualifierDictionary,
+      Connection connection) {
+    this(codec, binary, qualifierDictionary, connection, null, null);
+  }
 
-  WebsocketGatewayClientSession(GatewayClientCodec<ByteBuf> codec, Connection connection) {
+  /**
+   * Creates session, resumable if gateway issued resume token for it.
+   *
+   * @param codec codec
+   * @param binary whether frames are binary
+   * @param qualifierDictionary whether qualifier dictionary is enabled
+   * @param connection connection
+   * @param resumeToken resume token issued by gateway (optional)
+   * @param resumer function that resumes session on a new connection (optional)
+   */
+  WebsocketGatewayClientSession(
+      GatewayClientCodec<ByteBuf> codec,
+      boolean binary,
+      boolean qualifierDictionary,
+      Connection connection,
+      String resumeToken,
+      Function<WebsocketGatewayClientSession, Mono<Void>> resumer) {
     this.id = Integer.toHexString(System.identityHashCode(this));
     this.codec = codec;
+    this.binary = binary;
+    this.qualifiers = qualifierDictionary ? new QualifierTable() : null;
+    this.resumeToken = resumer != null ? resumeToken : null;
+    this.resumer = resumer;
+    this.replayRing =
+        this.resumeToken != null ? new ReplayRing(REPLAY_BUFFER_SIZE, REPLAY_BUFFER_BYTES) : null;
     this.connection = connection;
+    receive(connection);
+  }
+
+  /**
+   * Returns resume token of this session.
+   *
+   * @return resume token, or null if session is not resumable
+   */
+  String resumeToken() {
+    return resumeToken;
+  }
+
+  /**
+   * Returns number of data frames received by this session.
+   *
+   * @return number of frames
+   */
+  long received() {
+    return received;
+  }
+
+  /**
+   * Resumes session on a new connection, resending frames gateway missed.
+   *
+   * @param connection new connection
+   * @param position number of data frames gateway has received
+   * @return true if resumed, false if frames gateway missed are gone or session is closed
+   */
+  boolean attach(Connection connection, long position) {
+    synchronized (this) {
+      if (closed || !replayRing.canReplayFrom(position)) {
+        return false;
+      }
+      this.connection = connection;
+      replayRing.replayFrom(position, content -> connection.channel().write(newFrame(content)));
+      connection.channel().flush();
+    }
+    LOGGER.info("Resumed session: {} on {}", this, connection);
+    receive(connection);
+    return true;
+  }
 
+  private void receive(Connection connection) {
     WebsocketInbound inbound = (WebsocketInbound) connection.inbound();
     inbound
         .receive()
@@ -55,6 +155,15 @@ public final class WebsocketGatewayClientSession {
                 return;
               }
 
+              if (replayRing != null) {
+                if (this.connection != connection) {
+                  ReferenceCountUtil.safestRelease(byteBuf);
+                  return;
+                }
+                //noinspection NonAtomicOperationOnVolatileField
+                received++;
+              }
+
               // decode message
               ServiceMessage message;
               try {
@@ -84,11 +193,51 @@ public final class WebsocketGatewayClientSession {
               }
 
               // handle response message
-              handleResponse(message, processor);
+              handleResponse(resolveQualifier(message), processor);
+            });
+
+    connection.onDispose(() -> onDispose(connection));
+  }
+
+  private void onDispose(Connection connection) {
+    final boolean resume;
+    synchronized (this) {
+      if (this.connection != connection) {
+        return;
+      }
+      resume = replayRing != null && !closed;
+      if (resume) {
+        this.connection = null;
+      } else {
+        closed = true;
+      }
+    }
+    if (!resume) {
+      fail();
+      return;
+    }
+    LOGGER.info("Lost connection of session: {}, resuming", this);
+    resumer
+        .apply(this)
+        .subscribe(
+            null,
+            th -> {
+              LOGGER.warn("Failed to resume session: {}, cause: {}", this, th.toString());
+              synchronized (this) {
+                closed = true;
+              }
+              fail();
             });
+  }
 
-    connection.onDispose(
-        () -> inboundProcessors.forEach((k, o) -> emitError(o, CLOSED_CHANNEL_EXCEPTION)));
+  private void fail() {
+    synchronized (this) {
+      if (replayRing != null) {
+        replayRing.release();
+      }
+    }
+    inboundProcessors.forEach(o -> emitError(o, CLOSED_CHANNEL_EXCEPTION));
+    onClose.emitEmpty(RETRY_NON_SERIALIZED);
   }
 
   @SuppressWarnings({"rawtypes", "unchecked"})
@@ -117,8 +266,60 @@ void removeProcessor(long sid) {
     }
   }
 
+  /**
+   * Prepares request to be sent on this session: sets sid and, if qualifier dictionary is enabled,
+   * qualifier id. Qualifier is omitted once gateway has acknowledged qualifier id.
+   *
+   * @param request request
+   * @param sid sid
+   * @param singleFrameResponse whether to ask gateway for response and complete in one frame
+   * @return request message
+   */
+  ServiceMessage newRequest(ServiceMessage request, long sid, boolean singleFrameResponse) {
+    final String qualifier = request.qualifier();
+    final int qid = qualifiers != null && qualifier != null ? qualifiers.idOf(qualifier) : -1;
+    final ServiceMessage.Builder builder;
+    if (qid < 0) {
+      builder = ServiceMessage.from(request).header(STREAM_ID, sid);
+    } else if (!qualifiers.isAcknowledged(qid)) {
+      builder = ServiceMessage.from(request).header(STREAM_ID, sid).header(QUALIFIER_ID, qid);
+    } else {
+      builder = copyWithout(request, QUALIFIER).header(STREAM_ID, sid).header(QUALIFIER_ID, qid);
+    }
+    if (singleFrameResponse) {
+      builder.header(SINGLE_FRAME, true);
+    }
+    return builder.build();
+  }
+
   Mono<Void> send(ByteBuf byteBuf) {
-    return connection.outbound().sendObject(new TextWebSocketFrame(byteBuf)).then();
+    if (replayRing != null) {
+      return Mono.defer(() -> write(newFrame(byteBuf)) ? Mono.empty() : closedError());
+    }
+    return connection.outbound().sendObject(newFrame(byteBuf)).then();
+  }
+
+  private synchronized boolean write(WebSocketFrame frame) {
+    if (closed) {
+      frame.release();
+      return false;
+    }
+    replayRing.append(frame.content());
+    if (connection != null) {
+      connection.channel().writeAndFlush(frame, connection.channel().voidPromise());
+    } else {
+      // goes on resumption
+      frame.release();
+    }
+    return true;
+  }
+
+  private WebSocketFrame newFrame(ByteBuf byteBuf) {
+    return binary ? new BinaryWebSocketFrame(byteBuf) : new TextWebSocketFrame(byteBuf);
+  }
+
+  private static Mono<Void> closedError() {
+    return Mono.error(CLOSED_CHANNEL_EXCEPTION);
   }
 
   void cancel(long sid, String qualifier) {
@@ -146,11 +347,67 @@ void cancel(long sid, String qualifier) {
    * @return mono void
    */
   public Mono<Void> close() {
+    final Connection connection;
+    synchronized (this) {
+      closed = true;
+      connection = this.connection;
+    }
+    if (connection == null) {
+      fail();
+      return Mono.empty();
+    }
     return ((WebsocketOutbound) connection.outbound()).sendClose().then();
   }
 
   public Mono<Void> onClose() {
-    return connection.onDispose();
+    return onClose.asMono();
+  }
+
+  /**
+   * Returns counters of raw and compressed payload bytes of this session.
+   *
+   * @return compression stats, or null if client was created without compression
+   */
+  public WebsocketCompressionStats compressionStats() {
+    final Connection connection = this.connection;
+    return connection != null
+        ? connection.channel().attr(WebsocketGatewayClient.COMPRESSION_STATS_KEY).get()
+        : null;
+  }
+
+  private ServiceMessage resolveQualifier(ServiceMessage message) {
+    final String header = qualifiers != null ? message.header(QUALIFIER_ID) : null;
+    if (header == null) {
+      return message;
+    }
+    final String qualifier = qualifiers.acknowledge(Long.parseLong(header));
+    if (qualifier == null) {
+      return message;
+    }
+    return copyWithout(message, QUALIFIER_ID).qualifier(qualifier).build();
+  }
+
+  private static ServiceMessage.Builder copyWithout(
+      ServiceMessage message, String headerName, String... otherNames) {
+    final ServiceMessage.Builder builder = ServiceMessage.builder().data(message.data());
+    message
+        .headers()
+        .forEach(
+            (name, value) -> {
+              if (!headerName.equals(name) && !contains(otherNames, name)) {
+                builder.header(name, value);
+              }
+            });
+    return builder;
+  }
+
+  private static boolean contains(String[] names, String name) {
+    for (String n : names) {
+      if (n.equals(name)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private void handleResponse(ServiceMessage response, Object processor) {
@@ -170,9 +427,14 @@ private void handleResponse(ServiceMessage response, Object processor) {
         // handle normal response
         emitNext(processor, response);
       } else {
-        // handle completion signal
+        // handle completion signal, it may come along with the last response, which is marked so
+        // (its data and headers could be absent)
         if (signal == Signal.COMPLETE) {
-          emitComplete(processor);
+          if (Boolean.parseBoolean(response.header(SINGLE_FRAME))) {
+            emitLast(processor, copyWithout(response, SIGNAL, SINGLE_FRAME).build());
+          } else {
+            emitComplete(processor);
+          }
         }
         if (signal == Signal.ERROR) {
           // decode error data to retrieve real error cause
@@ -195,6 +457,18 @@ private static void emitNext(Object processor, ServiceMessage message) {
     }
   }
 
+  private static void emitLast(Object processor, ServiceMessage message) {
+    if (processor instanceof Sinks.One) {
+      //noinspection unchecked
+      ((Sinks.One<ServiceMessage>) processor).emitValue(message, RETRY_NON_SERIALIZED);
+    }
+    if (processor instanceof Sinks.Many) {
+      //noinspection unchecked
+      ((Sinks.Many<ServiceMessage>) processor).emitNext(message, RETRY_NON_SERIALIZED);
+      ((Sinks.Many<?>) processor).emitComplete(RETRY_NON_SERIALIZED);
+    }
+  }
+
   private static void emitComplete(Object processor) {
     if (processor instanceof Sinks.One) {
       ((Sinks.One<?>) processor).emitEmpty(RETRY_NON_SERIALIZED);
@@ -0,0 +1,241 @@
+package io.scalecube.services.gateway.common;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Recycler-backed pool of json generators and parsers, each bound to a resettable stream that
+ * targets the current {@link ByteBuf}. Pooled objects are local to the event loop that takes
+ * them, so in steady state neither generator, parser, their buffers nor stream wrappers are
+ * allocated per message.
+ *
+ * <p>Jackson can't retarget a generator or a parser, instead each of them handles a sequence of
+ * root-level values: every message is one root-level object, and its stream is switched to the
+ * next buffer in between. Generator or parser that failed is dropped, not recycled.
+ */
+public final class JsonStreamPool {
+
+  /** Number of messages a parser goes through before it's dropped, bounds its symbol table. */
+  public static final int MAX_PARSER_USES = 1024;
+
+  private final JsonFactory jsonFactory;
+
+  private final Recycler<Writer> writers =
+      new Recycler<Writer>() {
+        @Override
+        protected Writer newObject(Handle<Writer> handle) {
+          return new Writer(handle);
+        }
+      };
+
+  private final Recycler<Reader> readers =
+      new Recycler<Reader>() {
+        @Override
+        protected Reader newObject(Handle<Reader> handle) {
+          return new Reader(handle);
+        }
+      };
+
+  public JsonStreamPool(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+  }
+
+  /**
+   * Takes writer that writes into a given buffer.
+   *
+   * @param target buffer to write to
+   * @return writer, must be closed
+   * @throws IOException in case generator couldn't be created
+   */
+  public Writer writer(ByteBuf target) throws IOException {
+    final Writer writer = writers.get();
+    writer.init(target);
+    return writer;
+  }
+
+  /**
+   * Takes reader that reads readable bytes of a given buffer.
+   *
+   * @param source buffer to read from
+   * @return reader, must be closed
+   * @throws IOException in case parser couldn't be created
+   */
+  public Reader reader(ByteBuf source) throws IOException {
+    final Reader reader = readers.get();
+    reader.init(source);
+    return reader;
+  }
+
+  public final class Writer implements Closeable {
+
+    private final Handle<Writer> handle;
+    private final TargetOutputStream stream = new TargetOutputStream();
+    private JsonGenerator generator;
+    private boolean flushed;
+
+    private Writer(Handle<Writer> handle) {
+      this.handle = handle;
+    }
+
+    private void init(ByteBuf target) throws IOException {
+      stream.target = target;
+      flushed = false;
+      if (generator == null) {
+        generator = jsonFactory.createGenerator((OutputStream) stream, JsonEncoding.UTF8);
+        generator.setRootValueSeparator(null);
+      }
+    }
+
+    public JsonGenerator generator() {
+      return generator;
+    }
+
+    /**
+     * Flushes everything written so far into the target buffer. Writer that wasn't flushed is
+     * considered failed and is not reused.
+     *
+     * @throws IOException in case of flush error
+     */
+    public void flush() throws IOException {
+      generator.flush();
+      flushed = true;
+    }
+
+    @Override
+    public void close() {
+      stream.target = null;
+      if (!flushed || generator.getOutputContext().getParent() != null) {
+        generator = null; // broken, don't reuse
+      }
+      handle.recycle(this);
+    }
+  }
+
+  public final class Reader implements Closeable {
+
+    private final Handle<Reader> handle;
+    private final SourceInputStream stream = new SourceInputStream();
+    private JsonParser parser;
+    private int uses;
+    private long base;
+    private boolean completed;
+
+    private Reader(Handle<Reader> handle) {
+      this.handle = handle;
+    }
+
+    private void init(ByteBuf source) throws IOException {
+      stream.source = source;
+      completed = false;
+      if (parser == null || uses >= MAX_PARSER_USES) {
+        // parser reads ahead on creation to detect encoding
+        stream.delivered = 0;
+        base = 0;
+        parser = jsonFactory.createParser((InputStream) stream);
+        uses = 0;
+      } else {
+        base = stream.delivered;
+      }
+      uses++;
+    }
+
+    public JsonParser parser() {
+      return parser;
+    }
+
+    /**
+     * Returns offset of a given location relative to the start of the current message.
+     *
+     * @param location location reported by the parser
+     * @return byte offset within the message
+     */
+    public long offset(JsonLocation location) {
+      return location.getByteOffset() - base;
+    }
+
+    /**
+     * Marks current message as read up to the end of its root object. Reader that wasn't
+     * completed is considered failed and is not reused.
+     */
+    public void complete() {
+      completed = true;
+    }
+
+    @Override
+    public void close() {
+      if (completed) {
+        try {
+          // trailing bytes of the message are ignored, the same as with a fresh parser
+          parser.releaseBuffered(OutputStream.nullOutputStream());
+          stream.source.skipBytes(stream.source.readableBytes());
+        } catch (Exception ex) {
+          parser = null;
+        }
+      } else {
+        parser = null; // broken, don't reuse
+      }
+      stream.source = null;
+      handle.recycle(this);
+    }
+  }
+
+  private static final class TargetOutputStream extends OutputStream {
+
+    private ByteBuf target;
+
+    @Override
+    public void write(int b) {
+      target.writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      target.writeBytes(b, off, len);
+    }
+  }
+
+  private static final class SourceInputStream extends InputStream {
+
+    private ByteBuf source;
+    private long delivered;
+
+    @Override
+    public int read() {
+      if (!source.isReadable()) {
+        return -1;
+      }
+      delivered++;
+      return source.readByte() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      final int readable = source.readableBytes();
+      if (readable == 0) {
+        return -1;
+      }
+      final int count = Math.min(readable, len);
+      source.readBytes(b, off, count);
+      delivered += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return source.readableBytes();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package io.scalecube.services.gateway.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring of last sent frames of a resumable session, numbered by sequence starting from 1.
+ * Bounded both by number of frames and by their bytes: oldest frames are released once ring is
+ * full or holds more than its byte budget, the newest frame is kept regardless, so ring holds at
+ * most {@code maxBytes} plus one frame. Not thread-safe, guarded by its owner.
+ *
+ * <p>Composite frame contents are copied, they are composed of response data that may be a slice
+ * of a much larger pooled buffer, which the ring would otherwise keep from going back to the pool.
+ * Other contents are kept as retained duplicates.
+ */
+public final class ReplayRing {
+
+  private final ByteBuf[] frames;
+  private final long maxBytes;
+
+  private long lastSeq; // sequence of the newest frame, 0 if none was sent
+  private int size;
+  private long bytes;
+
+  public ReplayRing(int capacity) {
+    this(capacity, Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity max number of frames
+   * @param maxBytes byte budget of frames
+   */
+  public ReplayRing(int capacity, long maxBytes) {
+    this.frames = new ByteBuf[capacity];
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Appends content of a frame being sent.
+   *
+   * @param content frame content, retained or copied by the ring
+   * @return sequence of the frame
+   */
+  public long append(ByteBuf content) {
+    if (size == frames.length) {
+      releaseOldest();
+    }
+    final ByteBuf frame =
+        content instanceof CompositeByteBuf ? content.copy() : content.retainedDuplicate();
+    frames[(int) (lastSeq++ % frames.length)] = frame;
+    size++;
+    bytes += frame.readableBytes();
+    while (bytes > maxBytes && size > 1) {
+      releaseOldest();
+    }
+    return lastSeq;
+  }
+
+  /**
+   * Returns whether all frames after a given position are still in the ring.
+   *
+   * @param position sequence of the last frame peer has received
+   * @return true if frames can be replayed
+   */
+  public boolean canReplayFrom(long position) {
+    return position >= lastSeq - size && position <= lastSeq;
+  }
+
+  /**
+   * Passes frames after a given position, oldest first, see {@link #canReplayFrom(long)}.
+   *
+   * @param position sequence of the last frame peer has received
+   * @param consumer consumer of retained duplicates of frame contents
+   */
+  public void replayFrom(long position, Consumer<ByteBuf> consumer) {
+    for (long seq = position + 1; seq <= lastSeq; seq++) {
+      consumer.accept(frames[(int) ((seq - 1) % frames.length)].retainedDuplicate());
+    }
+  }
+
+  public long lastSeq() {
+    return lastSeq;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long bytes() {
+    return bytes;
+  }
+
+  /**
+   * Releases all frames of the ring.
+   */
+  public void release() {
+    for (int i = 0; i < frames.length; i++) {
+      if (frames[i] != null) {
+        ReferenceCountUtil.safeRelease(frames[i]);
+        frames[i] = null;
+      }
+    }
+    size = 0;
+    bytes = 0;
+  }
+
+  private void releaseOldest() {
+    final int index = (int) ((lastSeq - size) % frames.length);
+    bytes -= frames[index].readableBytes();
+    ReferenceCountUtil.safeRelease(frames[index]);
+    frames[index] = null;
+    size--;
+  }
+}
@@ -0,0 +1,236 @@
+package io.scalecube.services.gateway.common;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import org.jctools.maps.NonBlockingHashMapLong;
+
+/**
+ * Registry of session streams by sid. Most sessions have only a few live streams at a time, so
+ * registry starts empty and keeps its first {@link #INLINE_CAPACITY} streams in a pair of small
+ * arrays, guarded by the registry itself. Beyond that it inflates to a concurrent map and stays
+ * such till {@link #removeAll(Consumer)}.
+ *
+ * @param <V> stream type
+ */
+public final class StreamRegistry<V> {
+
+  public static final int INLINE_CAPACITY = 8;
+
+  private static final int INITIAL_CAPACITY = 2;
+
+  // guarded by this, dropped once inflated
+  private long[] sids;
+  private Object[] streams;
+  private int size;
+
+  private volatile NonBlockingHashMapLong<V> inflated;
+
+  /**
+   * Returns stream by sid.
+   *
+   * @param sid sid
+   * @return stream, or null
+   */
+  public V get(long sid) {
+    final NonBlockingHashMapLong<V> map = inflated;
+    if (map != null) {
+      return map.get(sid);
+    }
+    synchronized (this) {
+      if (inflated != null) {
+        return inflated.get(sid);
+      }
+      final int index = indexOf(sid);
+      return index >= 0 ? stream(index) : null;
+    }
+  }
+
+  public boolean containsKey(long sid) {
+    return get(sid) != null;
+  }
+
+  /**
+   * Registers stream under sid, unless sid is taken already.
+   *
+   * @param sid sid
+   * @param stream stream
+   * @return stream registered under sid before, or null if given stream got registered
+   */
+  public V putIfAbsent(long sid, V stream) {
+    final NonBlockingHashMapLong<V> map = inflated;
+    if (map != null) {
+      return map.putIfAbsent(sid, stream);
+    }
+    synchronized (this) {
+      if (inflated != null) {
+        return inflated.putIfAbsent(sid, stream);
+      }
+      final int index = indexOf(sid);
+      if (index >= 0) {
+        return stream(index);
+      }
+      add(sid, stream);
+      return null;
+    }
+  }
+
+  /**
+   * Returns stream by sid, creates and registers it if there was none.
+   *
+   * @param sid sid
+   * @param factory stream factory
+   * @return stream
+   */
+  public V computeIfAbsent(long sid, LongFunction<V> factory) {
+    final NonBlockingHashMapLong<V> map = inflated;
+    if (map != null) {
+      return map.computeIfAbsent(sid, factory::apply);
+    }
+    synchronized (this) {
+      if (inflated != null) {
+        return inflated.computeIfAbsent(sid, factory::apply);
+      }
+      final int index = indexOf(sid);
+      if (index >= 0) {
+        return stream(index);
+      }
+      final V stream = factory.apply(sid);
+      add(sid, stream);
+      return stream;
+    }
+  }
+
+  /**
+   * Removes stream by sid.
+   *
+   * @param sid sid
+   * @return removed stream, or null
+   */
+  public V remove(long sid) {
+    final NonBlockingHashMapLong<V> map = inflated;
+    if (map != null) {
+      return map.remove(sid);
+    }
+    synchronized (this) {
+      if (inflated != null) {
+        return inflated.remove(sid);
+      }
+      final int index = indexOf(sid);
+      if (index < 0) {
+        return null;
+      }
+      final V stream = stream(index);
+      // keep it dense, last one takes place of removed one
+      final int last = --size;
+      sids[index] = sids[last];
+      streams[index] = streams[last];
+      streams[last] = null;
+      return stream;
+    }
+  }
+
+  /**
+   * Returns number of registered streams.
+   *
+   * @return number of streams
+   */
+  public int size() {
+    final NonBlockingHashMapLong<V> map = inflated;
+    if (map != null) {
+      return map.size();
+    }
+    synchronized (this) {
+      return inflated != null ? inflated.size() : size;
+    }
+  }
+
+  /**
+   * Applies action to every registered stream.
+   *
+   * @param action action
+   */
+  public void forEach(Consumer<? super V> action) {
+    for (V stream : snapshot(false)) {
+      action.accept(stream);
+    }
+  }
+
+  /**
+   * Removes all streams and applies action to each of them. Registry gets back to its initial
+   * footprint.
+   *
+   * @param action action
+   */
+  public void removeAll(Consumer<? super V> action) {
+    for (V stream : snapshot(true)) {
+      action.accept(stream);
+    }
+  }
+
+  // actions run outside of the lock, they may call back into registry
+  @SuppressWarnings("unchecked")
+  private synchronized V[] snapshot(boolean remove) {
+    final NonBlockingHashMapLong<V> map = inflated;
+    final Object[] snapshot;
+    if (map != null) {
+      snapshot = map.values().toArray();
+      if (remove) {
+        inflated = null;
+        map.clear();
+      }
+    } else {
+      snapshot = size > 0 ? Arrays.copyOf(streams, size) : new Object[0];
+      if (remove) {
+        sids = null;
+        streams = null;
+        size = 0;
+      }
+    }
+    return (V[]) snapshot;
+  }
+
+  private int indexOf(long sid) {
+    for (int i = 0; i < size; i++) {
+      if (sids[i] == sid) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V stream(int index) {
+    return (V) streams[index];
+  }
+
+  private void add(long sid, V stream) {
+    if (size == INLINE_CAPACITY) {
+      inflate().put(sid, stream);
+      return;
+    }
+    if (sids == null) {
+      sids = new long[INITIAL_CAPACITY];
+      streams = new Object[INITIAL_CAPACITY];
+    } else if (size == sids.length) {
+      final int capacity = Math.min(INLINE_CAPACITY, size * 2);
+      sids = Arrays.copyOf(sids, capacity);
+      streams = Arrays.copyOf(streams, capacity);
+    }
+    sids[size] = sid;
+    streams[size] = stream;
+    size++;
+  }
+
+  private NonBlockingHashMapLong<V> inflate() {
+    final NonBlockingHashMapLong<V> map = new NonBlockingHashMapLong<>(INLINE_CAPACITY * 2);
+    for (int i = 0; i < size; i++) {
+      map.put(sids[i], stream(i));
+    }
+    sids = null;
+    streams = null;
+    size = 0;
+    inflated = map;
+    return map;
+  }
+}
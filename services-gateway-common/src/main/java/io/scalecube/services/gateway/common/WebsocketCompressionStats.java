@@ -0,0 +1,140 @@
+package io.scalecube.services.gateway.common;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+/**
+ * Per-session counters of websocket payload bytes before (raw) and after (compressed)
+ * permessage-deflate. Only data frames are counted. If compression was not negotiated both pairs
+ * of counters are equal.
+ *
+ * <p>Counters are updated on the event loop of the session only and can be read from anywhere.
+ */
+public final class WebsocketCompressionStats {
+
+  private volatile long rawBytesRead;
+  private volatile long rawBytesWritten;
+  private volatile long compressedBytesRead;
+  private volatile long compressedBytesWritten;
+
+  private final ChannelHandler rawCounter = new Counter(true);
+  private final ChannelHandler compressedCounter = new Counter(false);
+
+  /**
+   * Returns number of payload bytes read, after inflate.
+   *
+   * @return raw bytes read
+   */
+  public long rawBytesRead() {
+    return rawBytesRead;
+  }
+
+  /**
+   * Returns number of payload bytes written, before deflate.
+   *
+   * @return raw bytes written
+   */
+  public long rawBytesWritten() {
+    return rawBytesWritten;
+  }
+
+  /**
+   * Returns number of payload bytes read off the wire, before inflate.
+   *
+   * @return compressed bytes read
+   */
+  public long compressedBytesRead() {
+    return compressedBytesRead;
+  }
+
+  /**
+   * Returns number of payload bytes written to the wire, after deflate.
+   *
+   * @return compressed bytes written
+   */
+  public long compressedBytesWritten() {
+    return compressedBytesWritten;
+  }
+
+  /**
+   * Returns handler to be placed between compression extension and application.
+   *
+   * @return handler
+   */
+  public ChannelHandler rawCounter() {
+    return rawCounter;
+  }
+
+  /**
+   * Returns handler to be placed between websocket frame codec and compression extension.
+   *
+   * @return handler
+   */
+  public ChannelHandler compressedCounter() {
+    return compressedCounter;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketCompressionStats{"
+        + "rawBytesRead="
+        + rawBytesRead
+        + ", rawBytesWritten="
+        + rawBytesWritten
+        + ", compressedBytesRead="
+        + compressedBytesRead
+        + ", compressedBytesWritten="
+        + compressedBytesWritten
+        + '}';
+  }
+
+  private static int dataBytes(Object msg) {
+    if (msg instanceof BinaryWebSocketFrame
+        || msg instanceof TextWebSocketFrame
+        || msg instanceof ContinuationWebSocketFrame) {
+      return ((WebSocketFrame) msg).content().readableBytes();
+    }
+    return 0;
+  }
+
+  private final class Counter extends ChannelDuplexHandler {
+
+    private final boolean raw;
+
+    private Counter(boolean raw) {
+      this.raw = raw;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      final int bytes = dataBytes(msg);
+      if (bytes > 0) {
+        if (raw) {
+          rawBytesRead += bytes;
+        } else {
+          compressedBytesRead += bytes;
+        }
+      }
+      ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      final int bytes = dataBytes(msg);
+      if (bytes > 0) {
+        if (raw) {
+          rawBytesWritten += bytes;
+        } else {
+          compressedBytesWritten += bytes;
+        }
+      }
+      ctx.write(msg, promise);
+    }
+  }
+}
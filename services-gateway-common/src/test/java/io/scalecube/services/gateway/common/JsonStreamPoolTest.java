@@ -0,0 +1,161 @@
+package io.scalecube.services.gateway.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class JsonStreamPoolTest {
+
+  private final JsonStreamPool pool = new JsonStreamPool(new JsonFactory());
+
+  @Test
+  void testWriterIsReused() throws Exception {
+    JsonGenerator generator = null;
+    for (int i = 0; i < 3; i++) {
+      ByteBuf byteBuf = Unpooled.buffer();
+      try (JsonStreamPool.Writer writer = pool.writer(byteBuf)) {
+        if (generator != null) {
+          assertSame(generator, writer.generator());
+        }
+        generator = writer.generator();
+        generator.writeStartObject();
+        generator.writeNumberField("sid", i);
+        generator.writeEndObject();
+        writer.flush();
+      }
+      assertEquals("{\"sid\":" + i + "}", byteBuf.toString(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void testWriterNotFlushedIsDropped() throws Exception {
+    JsonGenerator generator;
+    try (JsonStreamPool.Writer writer = pool.writer(Unpooled.buffer())) {
+      generator = writer.generator();
+      generator.writeStartObject();
+    }
+
+    ByteBuf byteBuf = Unpooled.buffer();
+    try (JsonStreamPool.Writer writer = pool.writer(byteBuf)) {
+      assertNotSame(generator, writer.generator());
+      writer.generator().writeStartObject();
+      writer.generator().writeEndObject();
+      writer.flush();
+    }
+    assertEquals("{}", byteBuf.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testReaderOffsetsAcrossMessages() throws Exception {
+    String[] inputs = {
+      "{\"d\": 123,\"sig\":422,\"sid\": 42,\"q\":\"/test/test\"}",
+      "{\"q\":\"/test/test\", \"sid\":1, \"x\":\"y\", \"d\":42}",
+      "  {\"d\":\"abc\"}  ",
+      "{\"q\":\"/test/test\", \"sid\":1, \"x\":\"y\", \"d\":[1, 2]}",
+    };
+    String[] expected = {"123", "42", "\"abc\"", "[1, 2]"};
+
+    for (int i = 0; i < inputs.length; i++) {
+      assertEquals(expected[i], readData(toByteBuf(inputs[i])));
+    }
+  }
+
+  @Test
+  void testReaderIsReused() throws Exception {
+    JsonParser parser;
+    try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{}"))) {
+      parser = reader.parser();
+      parser.nextToken();
+      parser.nextToken();
+      reader.complete();
+    }
+    try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{}"))) {
+      assertSame(parser, reader.parser());
+      reader.complete();
+    }
+  }
+
+  @Test
+  void testReaderFailedIsDropped() throws Exception {
+    JsonParser parser;
+    try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{\"d\":}"))) {
+      parser = reader.parser();
+      parser.nextToken();
+      assertThrows(JsonParseException.class, parser::nextToken);
+    }
+
+    ByteBuf byteBuf = toByteBuf("{\"d\":1}");
+    try (JsonStreamPool.Reader reader = pool.reader(byteBuf)) {
+      assertNotSame(parser, reader.parser());
+    }
+    assertEquals("1", readData(toByteBuf("{\"d\":1}")));
+  }
+
+  @Test
+  void testReaderIsRenewedAfterMaxUses() throws Exception {
+    JsonParser parser;
+    try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{}"))) {
+      parser = reader.parser();
+      readToEnd(reader);
+    }
+    for (int i = 1; i < JsonStreamPool.MAX_PARSER_USES; i++) {
+      try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{}"))) {
+        assertSame(parser, reader.parser());
+        readToEnd(reader);
+      }
+    }
+    try (JsonStreamPool.Reader reader = pool.reader(toByteBuf("{\"d\":true}"))) {
+      assertNotSame(parser, reader.parser());
+      readToEnd(reader);
+    }
+  }
+
+  private String readData(ByteBuf byteBuf) throws Exception {
+    int readerIndex = byteBuf.readerIndex();
+    long dataStart = 0;
+    long dataEnd = 0;
+    try (JsonStreamPool.Reader reader = pool.reader(byteBuf)) {
+      JsonParser parser = reader.parser();
+      assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        String fieldName = parser.getCurrentName();
+        JsonToken current = parser.nextToken();
+        if ("d".equals(fieldName)) {
+          dataStart = reader.offset(parser.getTokenLocation());
+          if (current.isStructStart()) {
+            parser.skipChildren();
+          } else if (current == JsonToken.VALUE_STRING) {
+            parser.getValueAsString();
+          }
+          dataEnd = reader.offset(parser.getCurrentLocation());
+        }
+      }
+      reader.complete();
+    }
+    return byteBuf.toString(
+        readerIndex + (int) dataStart, (int) (dataEnd - dataStart), StandardCharsets.UTF_8);
+  }
+
+  private static void readToEnd(JsonStreamPool.Reader reader) throws Exception {
+    JsonParser parser = reader.parser();
+    parser.nextToken();
+    parser.skipChildren();
+    reader.complete();
+  }
+
+  private static ByteBuf toByteBuf(String value) {
+    return Unpooled.copiedBuffer(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,127 @@
+package io.scalecube.services.gateway.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ReplayRingTest {
+
+  private final ReplayRing ring = new ReplayRing(4);
+
+  @Test
+  void testReplayFromPosition() {
+    List<ByteBuf> frames = append(3);
+
+    assertTrue(ring.canReplayFrom(0));
+    assertTrue(ring.canReplayFrom(3));
+    assertFalse(ring.canReplayFrom(4));
+    assertEquals(List.of("frame2", "frame3"), replayFrom(1));
+    assertEquals(List.of(), replayFrom(3));
+
+    ring.release();
+    frames.forEach(frame -> assertEquals(1, frame.refCnt()));
+  }
+
+  @Test
+  void testReleaseOverwrittenFrames() {
+    List<ByteBuf> frames = append(6);
+
+    assertEquals(6, ring.lastSeq());
+    assertEquals(4, ring.size());
+    assertFalse(ring.canReplayFrom(1));
+    assertTrue(ring.canReplayFrom(2));
+    assertEquals(List.of("frame3", "frame4", "frame5", "frame6"), replayFrom(2));
+    assertEquals(1, frames.get(0).refCnt());
+    assertEquals(1, frames.get(1).refCnt());
+    assertEquals(2, frames.get(2).refCnt());
+
+    ring.release();
+    frames.forEach(frame -> assertEquals(1, frame.refCnt()));
+  }
+
+  @Test
+  void testReleaseFramesOverByteBudget() {
+    ReplayRing budgeted = new ReplayRing(4, 12);
+    ByteBuf frame1 = Unpooled.copiedBuffer("frame1", StandardCharsets.UTF_8);
+    ByteBuf frame2 = Unpooled.copiedBuffer("frame2", StandardCharsets.UTF_8);
+    ByteBuf frame3 = Unpooled.copiedBuffer("frame3", StandardCharsets.UTF_8);
+
+    budgeted.append(frame1);
+    budgeted.append(frame2);
+    budgeted.append(frame3);
+
+    assertEquals(3, budgeted.lastSeq());
+    assertEquals(2, budgeted.size());
+    assertEquals(12, budgeted.bytes());
+    assertFalse(budgeted.canReplayFrom(0));
+    assertTrue(budgeted.canReplayFrom(1));
+    assertEquals(1, frame1.refCnt());
+    assertEquals(2, frame2.refCnt());
+
+    budgeted.release();
+    assertEquals(0, budgeted.bytes());
+    assertEquals(1, frame3.refCnt());
+  }
+
+  @Test
+  void testKeepNewestFrameOverByteBudget() {
+    ReplayRing budgeted = new ReplayRing(4, 4);
+    ByteBuf frame = Unpooled.copiedBuffer("frame1", StandardCharsets.UTF_8);
+
+    budgeted.append(frame);
+
+    assertEquals(1, budgeted.size());
+    assertTrue(budgeted.canReplayFrom(0));
+    budgeted.release();
+    assertEquals(1, frame.refCnt());
+  }
+
+  @Test
+  void testCopyCompositeFrame() {
+    ByteBuf data = Unpooled.copiedBuffer("1", StandardCharsets.UTF_8);
+    CompositeByteBuf frame =
+        Unpooled.compositeBuffer()
+            .addComponents(
+                true,
+                Unpooled.copiedBuffer("{\"d\":", StandardCharsets.UTF_8),
+                data,
+                Unpooled.copiedBuffer("}", StandardCharsets.UTF_8));
+
+    ring.append(frame);
+    frame.release();
+
+    // data isn't pinned by the ring
+    assertEquals(0, data.refCnt());
+    assertEquals(List.of("{\"d\":1}"), replayFrom(0));
+    ring.release();
+  }
+
+  private List<ByteBuf> append(int count) {
+    List<ByteBuf> frames = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      ByteBuf frame = Unpooled.copiedBuffer("frame" + i, StandardCharsets.UTF_8);
+      assertEquals(i, ring.append(frame));
+      frames.add(frame);
+    }
+    return frames;
+  }
+
+  private List<String> replayFrom(long position) {
+    List<String> replayed = new ArrayList<>();
+    ring.replayFrom(
+        position,
+        content -> {
+          replayed.add(content.toString(StandardCharsets.UTF_8));
+          content.release();
+        });
+    return replayed;
+  }
+}
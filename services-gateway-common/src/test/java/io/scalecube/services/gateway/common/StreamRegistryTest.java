@@ -0,0 +1,109 @@
+package io.scalecube.services.gateway.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+class StreamRegistryTest {
+
+  private final StreamRegistry<String> registry = new StreamRegistry<>();
+
+  @Test
+  void testPutGetRemove() {
+    assertNull(registry.putIfAbsent(1, "a"));
+    assertNull(registry.putIfAbsent(2, "b"));
+    assertEquals("a", registry.putIfAbsent(1, "c"));
+    assertEquals("a", registry.get(1));
+    assertEquals("b", registry.computeIfAbsent(2, sid -> "d"));
+    assertEquals("e", registry.computeIfAbsent(3, sid -> "e"));
+    assertEquals(3, registry.size());
+
+    assertEquals("a", registry.remove(1));
+    assertNull(registry.remove(1));
+    assertFalse(registry.containsKey(1));
+    assertEquals("b", registry.get(2));
+    assertEquals("e", registry.get(3));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  void testInflateBeyondInlineCapacity() {
+    final int count = StreamRegistry.INLINE_CAPACITY * 4;
+    for (int sid = 0; sid < count; sid++) {
+      assertNull(registry.putIfAbsent(sid, "s" + sid));
+    }
+    assertEquals(count, registry.size());
+    for (int sid = 0; sid < count; sid++) {
+      assertEquals("s" + sid, registry.get(sid));
+    }
+    assertEquals("s0", registry.remove(0));
+    assertFalse(registry.containsKey(0));
+    assertEquals(count - 1, registry.size());
+  }
+
+  @Test
+  void testRemoveAll() {
+    for (int sid = 0; sid < StreamRegistry.INLINE_CAPACITY + 1; sid++) {
+      registry.putIfAbsent(sid, "s" + sid);
+    }
+    List<String> removed = new ArrayList<>();
+    registry.removeAll(removed::add);
+
+    assertEquals(StreamRegistry.INLINE_CAPACITY + 1, removed.size());
+    assertEquals(0, registry.size());
+    assertNull(registry.putIfAbsent(1, "a"));
+    assertSame("a", registry.get(1));
+  }
+
+  @Test
+  void testFootprintPerSession() {
+    Assumptions.assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assumptions.assumeTrue(threadMxBean.isThreadAllocatedMemoryEnabled());
+
+    final int sessions = 10_000;
+    final String stream = "stream";
+    final List<Object> registries = new ArrayList<>(sessions);
+    final long threadId = Thread.currentThread().getId();
+
+    // warm up
+    newRegistries(sessions, stream, registries);
+    registries.clear();
+    new NonBlockingHashMapLong<String>(1024);
+
+    long before = threadMxBean.getThreadAllocatedBytes(threadId);
+    newRegistries(sessions, stream, registries);
+    long perSession = (threadMxBean.getThreadAllocatedBytes(threadId) - before) / sessions;
+
+    before = threadMxBean.getThreadAllocatedBytes(threadId);
+    registries.add(new NonBlockingHashMapLong<String>(1024));
+    long eagerMap = threadMxBean.getThreadAllocatedBytes(threadId) - before;
+
+    // registry with a few live streams is a couple of small arrays, eagerly sized concurrent map
+    // that it replaces takes over 16k per session
+    assertTrue(perSession < 256, "allocated per session: " + perSession);
+    assertTrue(eagerMap > 50 * perSession, "eager map: " + eagerMap);
+  }
+
+  private static void newRegistries(int sessions, String stream, List<Object> registries) {
+    for (int i = 0; i < sessions; i++) {
+      StreamRegistry<String> registry = new StreamRegistry<>();
+      registry.putIfAbsent(1, stream);
+      registry.putIfAbsent(3, stream);
+      registry.putIfAbsent(5, stream);
+      registry.remove(3);
+      registries.add(registry);
+    }
+  }
+}
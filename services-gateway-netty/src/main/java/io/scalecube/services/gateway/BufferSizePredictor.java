@@ -0,0 +1,182 @@
+package io.scalecube.services.gateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Predicts initial capacity of output buffers per qualifier, in the spirit of netty's {@code
+ * AdaptiveRecvByteBufAllocator}. Guess grows quickly once encoded message didn't fit into it and
+ * shrinks slowly after it was too big twice in a row.
+ *
+ * <p>Updates are racy by design: handle of a qualifier is shared by all event loops and worst case
+ * is a slightly off guess.
+ */
+public final class BufferSizePredictor {
+
+  public static final int DEFAULT_MINIMUM = 64;
+  public static final int DEFAULT_INITIAL = 256;
+  public static final int DEFAULT_MAXIMUM = 65536;
+
+  /** Upper bound on number of tracked qualifiers, all the rest share one handle. */
+  public static final int MAX_QUALIFIERS = 1024;
+
+  private static final int INDEX_INCREMENT = 4;
+  private static final int INDEX_DECREMENT = 1;
+
+  private static final int[] SIZE_TABLE;
+
+  static {
+    List<Integer> sizeTable = new ArrayList<>();
+    for (int i = 16; i < 512; i += 16) {
+      sizeTable.add(i);
+    }
+    for (int i = 512; i > 0; i <<= 1) {
+      sizeTable.add(i);
+    }
+    SIZE_TABLE = sizeTable.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private final int minIndex;
+  private final int maxIndex;
+  private final int initialIndex;
+
+  private final Map<String, Handle> handles = new ConcurrentHashMap<>();
+  private final Handle defaultHandle;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder resizes = new LongAdder();
+
+  public BufferSizePredictor() {
+    this(DEFAULT_MINIMUM, DEFAULT_INITIAL, DEFAULT_MAXIMUM);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param minimum inclusive lower bound of the guess
+   * @param initial initial guess
+   * @param maximum inclusive upper bound of the guess
+   */
+  public BufferSizePredictor(int minimum, int initial, int maximum) {
+    if (minimum <= 0 || initial < minimum || maximum < initial) {
+      throw new IllegalArgumentException(
+          "Invalid sizes: minimum=" + minimum + ", initial=" + initial + ", maximum=" + maximum);
+    }
+    int minIndex = sizeTableIndex(minimum);
+    this.minIndex = SIZE_TABLE[minIndex] < minimum ? minIndex + 1 : minIndex;
+    int maxIndex = sizeTableIndex(maximum);
+    this.maxIndex = SIZE_TABLE[maxIndex] > maximum ? maxIndex - 1 : maxIndex;
+    this.initialIndex = Math.max(this.minIndex, Math.min(sizeTableIndex(initial), this.maxIndex));
+    this.defaultHandle = new Handle();
+  }
+
+  /**
+   * Returns handle of a given qualifier.
+   *
+   * @param qualifier qualifier (optional)
+   * @return handle
+   */
+  public Handle handle(String qualifier) {
+    if (qualifier == null) {
+      return defaultHandle;
+    }
+    Handle handle = handles.get(qualifier);
+    if (handle != null) {
+      return handle;
+    }
+    if (handles.size() >= MAX_QUALIFIERS) {
+      return defaultHandle;
+    }
+    return handles.computeIfAbsent(qualifier, q -> new Handle());
+  }
+
+  /**
+   * Returns number of encoded messages that fit into predicted capacity.
+   *
+   * @return hits
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns number of encoded messages that outgrew predicted capacity, i.e. buffer had to be
+   * reallocated at least once.
+   *
+   * @return resizes
+   */
+  public long resizes() {
+    return resizes.sum();
+  }
+
+  private static int sizeTableIndex(int size) {
+    for (int low = 0, high = SIZE_TABLE.length - 1; ; ) {
+      if (high < low) {
+        return low;
+      }
+      if (high == low) {
+        return high;
+      }
+
+      int mid = low + high >>> 1;
+      int a = SIZE_TABLE[mid];
+      int b = SIZE_TABLE[mid + 1];
+      if (size > b) {
+        low = mid + 1;
+      } else if (size < a) {
+        high = mid - 1;
+      } else if (size == a) {
+        return mid;
+      } else {
+        return mid + 1;
+      }
+    }
+  }
+
+  public final class Handle {
+
+    private volatile int index = initialIndex;
+    private volatile boolean decreaseNow;
+
+    private Handle() {}
+
+    /**
+     * Returns predicted capacity.
+     *
+     * @return capacity
+     */
+    public int guess() {
+      return SIZE_TABLE[index];
+    }
+
+    /**
+     * Records actual number of bytes encoded into buffer allocated with {@link #guess()}.
+     *
+     * @param actual number of encoded bytes
+     */
+    public void record(int actual) {
+      final int index = this.index;
+      if (actual > SIZE_TABLE[index]) {
+        resizes.increment();
+        this.index = Math.min(index + INDEX_INCREMENT, maxIndex);
+        decreaseNow = false;
+        return;
+      }
+
+      hits.increment();
+      if (actual <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+        if (decreaseNow) {
+          this.index = Math.max(index - INDEX_DECREMENT, minIndex);
+          decreaseNow = false;
+        } else {
+          decreaseNow = true;
+        }
+      } else {
+        decreaseNow = false;
+      }
+    }
+  }
+}
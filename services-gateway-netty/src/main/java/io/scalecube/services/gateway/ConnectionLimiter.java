@@ -0,0 +1,225 @@
+package io.scalecube.services.gateway;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Applies {@link ConnectionLimits} to channels of a gateway server as they get initialized. Over
+ * the limits channel gets a handler that answers its first http request with 503 and closes it, so
+ * rejection costs no more than parsing of request headers.
+ */
+final class ConnectionLimiter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionLimiter.class);
+
+  private static final String HANDLER_NAME = "scalecube.connectionRejection";
+
+  // channel that never sends a request is closed after this timeout
+  private static final long REJECTION_TIMEOUT_MILLIS = 5000;
+
+  // how often idle address buckets are swept out
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final int maxConnections;
+  private final TokenBucket acceptBucket;
+  private final double addressAcceptRate;
+  private final int addressAcceptBurst;
+  private final ConcurrentMap<InetAddress, TokenBucket> addressBuckets;
+  private final RejectionHandler rejectionHandler;
+  private final ConnectionStats stats = new ConnectionStats();
+  private final AtomicInteger connections = new AtomicInteger();
+
+  private volatile long lastSweepTime = System.nanoTime();
+
+  ConnectionLimiter(ConnectionLimits limits) {
+    this.maxConnections = limits.maxConnections();
+    this.acceptBucket =
+        limits.acceptBurst() > 0
+            ? new TokenBucket(limits.acceptRate(), limits.acceptBurst())
+            : null;
+    this.addressAcceptRate = limits.addressAcceptRate();
+    this.addressAcceptBurst = limits.addressAcceptBurst();
+    this.addressBuckets = addressAcceptBurst > 0 ? new ConcurrentHashMap<>() : null;
+    long retryAfterMillis = limits.retryAfter().toMillis();
+    this.rejectionHandler =
+        new RejectionHandler(TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999));
+  }
+
+  ConnectionStats stats() {
+    return stats;
+  }
+
+  /**
+   * Accepts or rejects channel being initialized, to be called from {@code doOnChannelInit}.
+   *
+   * @param channel channel
+   * @param remoteAddress remote address
+   */
+  void onChannelInit(Channel channel, SocketAddress remoteAddress) {
+    if (connections.incrementAndGet() > maxConnections) {
+      connections.decrementAndGet();
+      stats.rejectedByMaxConnections.increment();
+      reject(channel, "maxConnections");
+      return;
+    }
+
+    long now = System.nanoTime();
+
+    // address first, so that a single flooding address doesn't drain overall rate
+    if (addressBuckets != null
+        && !tryAcquireAddress(
+            remoteAddress != null ? remoteAddress : channel.remoteAddress(), now)) {
+      connections.decrementAndGet();
+      stats.rejectedByAddressAcceptRate.increment();
+      reject(channel, "addressAcceptRate");
+      return;
+    }
+
+    if (acceptBucket != null && !acceptBucket.tryAcquire(now)) {
+      connections.decrementAndGet();
+      stats.rejectedByAcceptRate.increment();
+      reject(channel, "acceptRate");
+      return;
+    }
+
+    stats.connections.increment();
+    channel
+        .closeFuture()
+        .addListener(
+            future -> {
+              connections.decrementAndGet();
+              stats.connections.decrement();
+            });
+  }
+
+  private boolean tryAcquireAddress(SocketAddress remoteAddress, long now) {
+    if (!(remoteAddress instanceof InetSocketAddress)) {
+      return true;
+    }
+    InetAddress address = ((InetSocketAddress) remoteAddress).getAddress();
+    if (address == null) {
+      return true;
+    }
+
+    if (now - lastSweepTime > SWEEP_INTERVAL_NANOS) {
+      lastSweepTime = now;
+      // bucket that refilled to full burst is no different from a new one
+      addressBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    return addressBuckets
+        .computeIfAbsent(address, a -> new TokenBucket(addressAcceptRate, addressAcceptBurst))
+        .tryAcquire(now);
+  }
+
+  private void reject(Channel channel, String limit) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Rejecting connection {} on {}", channel, limit);
+    }
+    if (channel.pipeline().get(NettyPipeline.HttpCodec) == null) {
+      channel.close();
+      return;
+    }
+    channel.pipeline().addAfter(NettyPipeline.HttpCodec, HANDLER_NAME, rejectionHandler);
+  }
+
+  static final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final int burst;
+
+    private double tokens;
+    private long refillTime;
+
+    TokenBucket(double ratePerSecond, int burst) {
+      this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+      this.burst = burst;
+      this.tokens = burst;
+      this.refillTime = System.nanoTime();
+    }
+
+    synchronized boolean tryAcquire(long now) {
+      refill(now);
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+
+    synchronized boolean isFull(long now) {
+      refill(now);
+      return tokens >= burst;
+    }
+
+    private void refill(long now) {
+      long elapsed = now - refillTime;
+      if (elapsed > 0) {
+        tokens = Math.min(burst, tokens + elapsed * tokensPerNano);
+        refillTime = now;
+      }
+    }
+  }
+
+  @Sharable
+  static final class RejectionHandler extends ChannelInboundHandlerAdapter {
+
+    private final String retryAfter;
+
+    RejectionHandler(long retryAfterSeconds) {
+      this.retryAfter = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+      // handler is shared by rejected channels, so timer is kept by the channel itself
+      Runnable close = ctx::close;
+      ScheduledFuture<?> closeTimer =
+          ctx.executor().schedule(close, REJECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      // closed in time, don't keep channel referenced by the executor till timeout
+      ctx.channel().closeFuture().addListener(future -> closeTimer.cancel(false));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      try {
+        if (msg instanceof HttpRequest && ctx.channel().isActive()) {
+          FullHttpResponse response =
+              new DefaultFullHttpResponse(
+                  HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE);
+          response
+              .headers()
+              .set(HttpHeaderNames.RETRY_AFTER, retryAfter)
+              .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE)
+              .setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+          ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+      } finally {
+        // nothing of a rejected connection goes any further
+        ReferenceCountUtil.release(msg);
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package io.scalecube.services.gateway;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits on connections a gateway accepts: max number of open connections and token-bucket rates
+ * of accepting new ones, both overall and per remote address. Connection over a limit is answered
+ * with 503 (service unavailable) and {@code Retry-After} header to its very first http request,
+ * before websocket upgrade and before any session gets created. By default nothing is limited.
+ */
+public final class ConnectionLimits {
+
+  public static final int DEFAULT_MAX_CONNECTIONS = Integer.MAX_VALUE;
+  public static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+  private final int maxConnections;
+  private final double acceptRate;
+  private final int acceptBurst;
+  private final double addressAcceptRate;
+  private final int addressAcceptBurst;
+  private final Duration retryAfter;
+
+  private ConnectionLimits(Builder builder) {
+    this.maxConnections = builder.maxConnections;
+    this.acceptRate = builder.acceptRate;
+    this.acceptBurst = builder.acceptBurst;
+    this.addressAcceptRate = builder.addressAcceptRate;
+    this.addressAcceptBurst = builder.addressAcceptBurst;
+    this.retryAfter = builder.retryAfter;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int maxConnections() {
+    return maxConnections;
+  }
+
+  public double acceptRate() {
+    return acceptRate;
+  }
+
+  public int acceptBurst() {
+    return acceptBurst;
+  }
+
+  public double addressAcceptRate() {
+    return addressAcceptRate;
+  }
+
+  public int addressAcceptBurst() {
+    return addressAcceptBurst;
+  }
+
+  public Duration retryAfter() {
+    return retryAfter;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionLimits{"
+        + "maxConnections="
+        + maxConnections
+        + ", acceptRate="
+        + acceptRate
+        + ", acceptBurst="
+        + acceptBurst
+        + ", addressAcceptRate="
+        + addressAcceptRate
+        + ", addressAcceptBurst="
+        + addressAcceptBurst
+        + ", retryAfter="
+        + retryAfter
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private double acceptRate;
+    private int acceptBurst;
+    private double addressAcceptRate;
+    private int addressAcceptBurst;
+    private Duration retryAfter = DEFAULT_RETRY_AFTER;
+
+    private Builder() {}
+
+    /**
+     * Max number of open connections. Default is unlimited.
+     *
+     * @param maxConnections max connections
+     * @return builder
+     */
+    public Builder maxConnections(int maxConnections) {
+      if (maxConnections <= 0) {
+        throw new IllegalArgumentException("Invalid maxConnections: " + maxConnections);
+      }
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Rate of accepting new connections overall. Default is unlimited.
+     *
+     * @param acceptRate connections per second
+     * @param acceptBurst connections that can be accepted at once
+     * @return builder
+     */
+    public Builder acceptRate(double acceptRate, int acceptBurst) {
+      validateRate(acceptRate, acceptBurst);
+      this.acceptRate = acceptRate;
+      this.acceptBurst = acceptBurst;
+      return this;
+    }
+
+    /**
+     * Rate of accepting new connections from a single remote address. Default is unlimited.
+     *
+     * @param addressAcceptRate connections per second
+     * @param addressAcceptBurst connections that can be accepted at once
+     * @return builder
+     */
+    public Builder addressAcceptRate(double addressAcceptRate, int addressAcceptBurst) {
+      validateRate(addressAcceptRate, addressAcceptBurst);
+      this.addressAcceptRate = addressAcceptRate;
+      this.addressAcceptBurst = addressAcceptBurst;
+      return this;
+    }
+
+    /**
+     * Value of {@code Retry-After} header of rejection response, rounded up to seconds. Default is
+     * 1 second.
+     *
+     * @param retryAfter retry after
+     * @return builder
+     */
+    public Builder retryAfter(Duration retryAfter) {
+      Objects.requireNonNull(retryAfter, "retryAfter");
+      if (retryAfter.isNegative()) {
+        throw new IllegalArgumentException("Invalid retryAfter: " + retryAfter);
+      }
+      this.retryAfter = retryAfter;
+      return this;
+    }
+
+    public ConnectionLimits build() {
+      return new ConnectionLimits(this);
+    }
+
+    private static void validateRate(double rate, int burst) {
+      if (!(rate > 0) || Double.isInfinite(rate) || burst <= 0) {
+        throw new IllegalArgumentException("Invalid rate: " + rate + ", burst: " + burst);
+      }
+    }
+  }
+}
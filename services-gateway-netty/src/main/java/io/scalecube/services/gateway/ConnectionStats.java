@@ -0,0 +1,64 @@
+package io.scalecube.services.gateway;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of open and rejected connections of a gateway, see {@link ConnectionLimits}.
+ */
+public final class ConnectionStats {
+
+  final LongAdder connections = new LongAdder();
+  final LongAdder rejectedByMaxConnections = new LongAdder();
+  final LongAdder rejectedByAcceptRate = new LongAdder();
+  final LongAdder rejectedByAddressAcceptRate = new LongAdder();
+
+  /**
+   * Returns number of open connections.
+   *
+   * @return open connections
+   */
+  public long connections() {
+    return connections.sum();
+  }
+
+  /**
+   * Returns number of connections rejected for reaching {@link ConnectionLimits#maxConnections()}.
+   *
+   * @return rejected connections
+   */
+  public long rejectedByMaxConnections() {
+    return rejectedByMaxConnections.sum();
+  }
+
+  /**
+   * Returns number of connections rejected by overall accept rate.
+   *
+   * @return rejected connections
+   */
+  public long rejectedByAcceptRate() {
+    return rejectedByAcceptRate.sum();
+  }
+
+  /**
+   * Returns number of connections rejected by accept rate of their remote address.
+   *
+   * @return rejected connections
+   */
+  public long rejectedByAddressAcceptRate() {
+    return rejectedByAddressAcceptRate.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionStats{"
+        + "connections="
+        + connections()
+        + ", rejectedByMaxConnections="
+        + rejectedByMaxConnections()
+        + ", rejectedByAcceptRate="
+        + rejectedByAcceptRate()
+        + ", rejectedByAddressAcceptRate="
+        + rejectedByAddressAcceptRate()
+        + '}';
+  }
+}
@@ -76,6 +76,16 @@ default void onSessionError(GatewaySession session, Throwable throwable) {
     LOGGER.error("Exception occurred on session: {}, cause:", session.sessionId(), throwable);
   }
 
+  /**
+   * Slow consumer handler, called every time session becomes unwritable, i.e. its client doesn't
+   * keep up with reading responses.
+   *
+   * @param session websocket session (not null)
+   */
+  default void onSlowConsumer(GatewaySession session) {
+    LOGGER.debug("Slow consumer on session: {}", session.sessionId());
+  }
+
   /**
    * On connection open handler.
    *
@@ -13,14 +13,27 @@ public abstract class GatewayTemplate implements Gateway {
   private static final Logger LOGGER = LoggerFactory.getLogger(GatewayTemplate.class);
 
   protected final GatewayOptions options;
+  private final ConnectionLimiter connectionLimiter;
 
   protected GatewayTemplate(GatewayOptions options) {
+    this(options, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param options gateway options
+   * @param connectionLimits connection limits, applied by {@link #prepareHttpServer}, may be null
+   */
+  protected GatewayTemplate(GatewayOptions options, ConnectionLimits connectionLimits) {
     this.options =
         new GatewayOptions()
             .id(options.id())
             .port(options.port())
             .workerPool(options.workerPool())
             .call(options.call());
+    this.connectionLimiter =
+        connectionLimits != null ? new ConnectionLimiter(connectionLimits) : null;
   }
 
   @Override
@@ -29,21 +42,39 @@ public final String id() {
   }
 
   /**
-   * Builds generic http server with given parameters.
+   * Returns counters of open and rejected connections.
+   *
+   * @return connection stats, or null if gateway has no {@link ConnectionLimits}
+   */
+  public final ConnectionStats connectionStats() {
+    return connectionLimiter != null ? connectionLimiter.stats() : null;
+  }
+
+  /**
+   * Builds generic http server with given parameters. Connections over {@link ConnectionLimits}
+   * of the gateway are rejected right on channel init.
    *
    * @param loopResources loop resources
    * @param port listen port
    * @return http server
    */
   protected HttpServer prepareHttpServer(LoopResources loopResources, int port) {
-    return HttpServer.create()
-        .tcpConfiguration(
-            tcpServer -> {
-              if (loopResources != null) {
-                tcpServer = tcpServer.runOn(loopResources);
-              }
-              return tcpServer.bindAddress(() -> new InetSocketAddress(port));
-            });
+    HttpServer httpServer =
+        HttpServer.create()
+            .tcpConfiguration(
+                tcpServer -> {
+                  if (loopResources != null) {
+                    tcpServer = tcpServer.runOn(loopResources);
+                  }
+                  return tcpServer.bindAddress(() -> new InetSocketAddress(port));
+                });
+    if (connectionLimiter != null) {
+      httpServer =
+          httpServer.doOnChannelInit(
+              (observer, channel, remoteAddress) ->
+                  connectionLimiter.onChannelInit(channel, remoteAddress));
+    }
+    return httpServer;
   }
 
   /**
@@ -18,9 +18,21 @@ public final class ServiceMessageCodec {
   private static final Logger LOGGER = LoggerFactory.getLogger(ServiceMessageCodec.class);
 
   private final HeadersCodec headersCodec;
+  private final BufferSizePredictor sizePredictor;
 
   public ServiceMessageCodec(HeadersCodec headersCodec) {
+    this(headersCodec, new BufferSizePredictor());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param headersCodec headers codec
+   * @param sizePredictor predictor of initial capacity of encoded data
+   */
+  public ServiceMessageCodec(HeadersCodec headersCodec, BufferSizePredictor sizePredictor) {
     this.headersCodec = headersCodec;
+    this.sizePredictor = sizePredictor;
   }
 
   /**
@@ -41,10 +53,12 @@ public <T> T encodeAndTransform(
     if (message.hasData(ByteBuf.class)) {
       dataBuffer = message.data();
     } else if (message.hasData()) {
-      dataBuffer = ByteBufAllocator.DEFAULT.buffer();
+      final BufferSizePredictor.Handle sizeHandle = sizePredictor.handle(message.qualifier());
+      dataBuffer = ByteBufAllocator.DEFAULT.buffer(sizeHandle.guess());
       try {
         DataCodec dataCodec = DataCodec.getInstance(message.dataFormatOrDefault());
         dataCodec.encode(new ByteBufOutputStream(dataBuffer), message.data());
+        sizeHandle.record(dataBuffer.writerIndex());
       } catch (Throwable ex) {
         ReferenceCountUtil.safestRelease(dataBuffer);
         LOGGER.error("Failed to encode data on: {}, cause: {}", message, ex);
@@ -69,6 +83,15 @@ public <T> T encodeAndTransform(
     return transformer.apply(dataBuffer, headersBuffer);
   }
 
+  /**
+   * Returns predictor of initial capacity of encoded data.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
+  }
+
   /**
    * Decode buffers.
    *
@@ -7,6 +7,7 @@
 import io.scalecube.net.Address;
 import io.scalecube.services.exceptions.DefaultErrorMapper;
 import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
+import io.scalecube.services.gateway.BufferSizePredictor;
 import io.scalecube.services.gateway.Gateway;
 import io.scalecube.services.gateway.GatewayOptions;
 import io.scalecube.services.gateway.GatewayTemplate;
@@ -23,6 +24,7 @@
 public class HttpGateway extends GatewayTemplate {
 
   private final ServiceProviderErrorMapper errorMapper;
+  private final BufferSizePredictor sizePredictor;
 
   private DisposableServer server;
   private LoopResources loopResources;
@@ -41,6 +43,7 @@ public HttpGateway(GatewayOptions options) {
   public HttpGateway(GatewayOptions options, ServiceProviderErrorMapper errorMapper) {
     super(options);
     this.errorMapper = errorMapper;
+    this.sizePredictor = new BufferSizePredictor();
   }
 
   private HttpGateway(HttpGateway other) {
@@ -50,6 +53,7 @@ private HttpGateway(HttpGateway other) {
     this.corsEnabled = other.corsEnabled;
     this.corsConfigBuilder = copy(other.corsConfigBuilder);
     this.errorMapper = other.errorMapper;
+    this.sizePredictor = other.sizePredictor;
   }
 
   /**
@@ -114,11 +118,22 @@ private CorsConfigBuilder copy(CorsConfigBuilder other) {
     return corsConfigBuilder;
   }
 
+  /**
+   * Returns predictor of initial capacity of encoded responses, its hit and resize counters show
+   * how well responses are sized.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
+  }
+
   @Override
   public Mono<Gateway> start() {
     return Mono.defer(
         () -> {
-          HttpGatewayAcceptor acceptor = new HttpGatewayAcceptor(options.call(), errorMapper);
+          HttpGatewayAcceptor acceptor =
+              new HttpGatewayAcceptor(options.call(), errorMapper, sizePredictor);
 
           loopResources = LoopResources.create("http-gateway");
 
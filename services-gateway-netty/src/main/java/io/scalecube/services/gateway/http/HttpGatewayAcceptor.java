@@ -16,6 +16,7 @@
 import io.scalecube.services.api.ServiceMessage;
 import io.scalecube.services.exceptions.DefaultErrorMapper;
 import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
+import io.scalecube.services.gateway.BufferSizePredictor;
 import io.scalecube.services.gateway.ReferenceCountUtil;
 import io.scalecube.services.transport.api.DataCodec;
 import java.util.function.BiFunction;
@@ -36,14 +37,32 @@
 
   private final ServiceCall serviceCall;
   private final ServiceProviderErrorMapper errorMapper;
+  private final BufferSizePredictor sizePredictor;
 
   HttpGatewayAcceptor(ServiceCall serviceCall) {
     this(serviceCall, DefaultErrorMapper.INSTANCE);
   }
 
   HttpGatewayAcceptor(ServiceCall serviceCall, ServiceProviderErrorMapper errorMapper) {
+    this(serviceCall, errorMapper, new BufferSizePredictor());
+  }
+
+  HttpGatewayAcceptor(
+      ServiceCall serviceCall,
+      ServiceProviderErrorMapper errorMapper,
+      BufferSizePredictor sizePredictor) {
     this.serviceCall = serviceCall;
     this.errorMapper = errorMapper;
+    this.sizePredictor = sizePredictor;
+  }
+
+  /**
+   * Returns predictor of initial capacity of encoded responses.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
   }
 
   @Override
@@ -105,7 +124,7 @@ private Mono<Void> error(HttpServerResponse httpResponse, ServiceMessage respons
 
     ByteBuf content =
         response.hasData(ErrorData.class)
-            ? encodeData(response.data(), response.dataFormatOrDefault())
+            ? encodeData(response.qualifier(), response.data(), response.dataFormatOrDefault())
             : ((ByteBuf) response.data());
 
     // send with publisher (defer buffer cleanup to netty)
@@ -120,17 +139,19 @@ private Mono<Void> ok(HttpServerResponse httpResponse, ServiceMessage response)
     ByteBuf content =
         response.hasData(ByteBuf.class)
             ? ((ByteBuf) response.data())
-            : encodeData(response.data(), response.dataFormatOrDefault());
+            : encodeData(response.qualifier(), response.data(), response.dataFormatOrDefault());
 
     // send with publisher (defer buffer cleanup to netty)
     return httpResponse.status(OK).send(Mono.just(content)).then();
   }
 
-  private ByteBuf encodeData(Object data, String dataFormat) {
-    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+  private ByteBuf encodeData(String qualifier, Object data, String dataFormat) {
+    final BufferSizePredictor.Handle sizeHandle = sizePredictor.handle(qualifier);
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(sizeHandle.guess());
 
     try {
       DataCodec.getInstance(dataFormat).encode(new ByteBufOutputStream(byteBuf), data);
+      sizeHandle.record(byteBuf.writerIndex());
     } catch (Throwable t) {
       ReferenceCountUtil.safestRelease(byteBuf);
       LOGGER.error("Failed to encode data: {}", data, t);
@@ -7,6 +7,8 @@
 import io.scalecube.net.Address;
 import io.scalecube.services.exceptions.DefaultErrorMapper;
 import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
+import io.scalecube.services.gateway.BufferSizePredictor;
+import io.scalecube.services.gateway.ConnectionLimits;
 import io.scalecube.services.gateway.Gateway;
 import io.scalecube.services.gateway.GatewayOptions;
 import io.scalecube.services.gateway.GatewaySessionHandler;
@@ -25,6 +27,7 @@ public class RSocketGateway extends GatewayTemplate {
 
   private final GatewaySessionHandler sessionHandler;
   private final ServiceProviderErrorMapper errorMapper;
+  private final BufferSizePredictor sizePredictor = new BufferSizePredictor();
 
   private CloseableChannel server;
   private LoopResources loopResources;
@@ -52,17 +55,44 @@ public RSocketGateway(
       GatewayOptions options,
       GatewaySessionHandler sessionHandler,
       ServiceProviderErrorMapper errorMapper) {
-    super(options);
+    this(options, sessionHandler, errorMapper, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param options gateway options
+   * @param sessionHandler session handler
+   * @param errorMapper error mapper
+   * @param connectionLimits limits on connections (optional)
+   */
+  public RSocketGateway(
+      GatewayOptions options,
+      GatewaySessionHandler sessionHandler,
+      ServiceProviderErrorMapper errorMapper,
+      ConnectionLimits connectionLimits) {
+    super(options, connectionLimits);
     this.sessionHandler = sessionHandler;
     this.errorMapper = errorMapper;
   }
 
+  /**
+   * Returns predictor of initial capacity of encoded data, its hit and resize counters show how
+   * well data is sized.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
+  }
+
   @Override
   public Mono<Gateway> start() {
     return Mono.defer(
         () -> {
           RSocketGatewayAcceptor acceptor =
-              new RSocketGatewayAcceptor(options.call(), sessionHandler, errorMapper);
+              new RSocketGatewayAcceptor(
+                  options.call(), sessionHandler, errorMapper, sizePredictor);
 
           loopResources = LoopResources.create("rsocket-gateway");
 
@@ -5,6 +5,7 @@
 import io.rsocket.SocketAcceptor;
 import io.scalecube.services.ServiceCall;
 import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
+import io.scalecube.services.gateway.BufferSizePredictor;
 import io.scalecube.services.gateway.GatewaySessionHandler;
 import io.scalecube.services.gateway.ServiceMessageCodec;
 import io.scalecube.services.transport.api.HeadersCodec;
@@ -21,6 +22,7 @@ public class RSocketGatewayAcceptor implements SocketAcceptor {
   private final ServiceCall serviceCall;
   private final GatewaySessionHandler sessionHandler;
   private final ServiceProviderErrorMapper errorMapper;
+  private final BufferSizePredictor sizePredictor;
 
   /**
    * Creates new acceptor for RS gateway.
@@ -33,9 +35,35 @@ public RSocketGatewayAcceptor(
       ServiceCall serviceCall,
       GatewaySessionHandler sessionHandler,
       ServiceProviderErrorMapper errorMapper) {
+    this(serviceCall, sessionHandler, errorMapper, new BufferSizePredictor());
+  }
+
+  /**
+   * Creates new acceptor for RS gateway.
+   *
+   * @param serviceCall to call remote service
+   * @param sessionHandler handler for session events
+   * @param errorMapper error mapper
+   * @param sizePredictor predictor of initial capacity of encoded data
+   */
+  public RSocketGatewayAcceptor(
+      ServiceCall serviceCall,
+      GatewaySessionHandler sessionHandler,
+      ServiceProviderErrorMapper errorMapper,
+      BufferSizePredictor sizePredictor) {
     this.serviceCall = serviceCall;
     this.sessionHandler = sessionHandler;
     this.errorMapper = errorMapper;
+    this.sizePredictor = sizePredictor;
+  }
+
+  /**
+   * Returns predictor of initial capacity of encoded data.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
   }
 
   @Override
@@ -44,7 +72,7 @@ public Mono<RSocket> accept(ConnectionSetupPayload setup, RSocket rsocket) {
 
     // Prepare message codec together with headers from metainfo
     HeadersCodec headersCodec = HeadersCodec.getInstance(setup.metadataMimeType());
-    ServiceMessageCodec messageCodec = new ServiceMessageCodec(headersCodec);
+    ServiceMessageCodec messageCodec = new ServiceMessageCodec(headersCodec, sizePredictor);
     final RSocketGatewaySession gatewaySession =
         new RSocketGatewaySession(
             serviceCall,
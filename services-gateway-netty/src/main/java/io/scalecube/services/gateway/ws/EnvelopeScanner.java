@@ -0,0 +1,540 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteProcessor;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.scalecube.services.api.ServiceMessage;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level scanner of the gateway json envelope. Understands only the known envelope fields
+ * ({@code q, qid, sid, sig, i, rlimit, single, conflate, d}) in their common shape: qualifier and
+ * conflation key are strings without escapes, numeric fields are integers of at most 18 digits
+ * ({@code sig} within int range), {@code single} is a boolean (literal or string), {@code d} is any
+ * json value, scalar one being a valid json literal or number. For everything else {@link
+ * #scan(ByteBuf)} returns {@code false} and caller is expected to fall back to generic json
+ * parser. Object or array in {@code d} is only delimited here, not validated, malformed content of
+ * it is rejected by the service side decoder of the data. Instances are stateful and reused per
+ * thread, see {@link #current()}.
+ */
+final class EnvelopeScanner implements ByteProcessor {
+
+  private static final FastThreadLocal<EnvelopeScanner> SCANNER =
+      new FastThreadLocal<EnvelopeScanner>() {
+        @Override
+        protected EnvelopeScanner initialValue() {
+          return new EnvelopeScanner();
+        }
+      };
+
+  private static final ByteProcessor FIND_NON_WHITESPACE =
+      b -> b == ' ' || b == '\n' || b == '\r' || b == '\t';
+
+  private static final ByteProcessor FIND_VALUE_END =
+      b -> b != ',' && b != '}' && b != ' ' && b != '\n' && b != '\r' && b != '\t';
+
+  private static final ByteProcessor FIND_QUOTE_OR_BACKSLASH = b -> b != '"' && b != '\\';
+
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private static final int FIELD_QUALIFIER = 1;
+  private static final int FIELD_STREAM_ID = 2;
+  private static final int FIELD_SIGNAL = 3;
+  private static final int FIELD_INACTIVITY = 4;
+  private static final int FIELD_RATE_LIMIT = 5;
+  private static final int FIELD_DATA = 6;
+  private static final int FIELD_QUALIFIER_ID = 7;
+  private static final int FIELD_SINGLE_FRAME = 8;
+  private static final int FIELD_CONFLATE = 9;
+
+  // scan results
+  private int qualifierIndex;
+  private int qualifierLength;
+  private long qualifierId;
+  private boolean hasQualifierId;
+  private long sid;
+  private boolean hasSid;
+  private long signal;
+  private boolean hasSignal;
+  private long inactivity;
+  private boolean hasInactivity;
+  private long rateLimit;
+  private boolean hasRateLimit;
+  private boolean singleFrame;
+  private int conflateIndex;
+  private int conflateLength;
+  private int dataIndex;
+  private int dataLength;
+
+  // scan state
+  private int end;
+  private long number;
+
+  // value skipper state
+  private int depth;
+  private boolean inString;
+  private boolean escaped;
+
+  private EnvelopeScanner() {}
+
+  /**
+   * Returns scanner bound to the current thread.
+   *
+   * @return scanner
+   */
+  static EnvelopeScanner current() {
+    return SCANNER.get();
+  }
+
+  /**
+   * Scans readable bytes of a given buffer. Doesn't change buffer indices and doesn't allocate.
+   *
+   * @param byteBuf buffer
+   * @return true if envelope was recognized, false if it has to be parsed by generic parser
+   */
+  boolean scan(ByteBuf byteBuf) {
+    reset();
+    end = byteBuf.writerIndex();
+
+    int index = skipWhitespace(byteBuf, byteBuf.readerIndex());
+    if (index < 0 || byteBuf.getByte(index) != '{') {
+      return false;
+    }
+    index = skipWhitespace(byteBuf, index + 1);
+    if (index < 0) {
+      return false;
+    }
+    if (byteBuf.getByte(index) == '}') {
+      return true;
+    }
+
+    while (true) {
+      // field name
+      if (byteBuf.getByte(index) != '"') {
+        return false;
+      }
+      int nameEnd = findQuote(byteBuf, index + 1);
+      if (nameEnd < 0) {
+        return false;
+      }
+      int field = field(byteBuf, index + 1, nameEnd - index - 1);
+      if (field < 0) {
+        return false;
+      }
+      index = skipWhitespace(byteBuf, nameEnd + 1);
+      if (index < 0 || byteBuf.getByte(index) != ':') {
+        return false;
+      }
+      index = skipWhitespace(byteBuf, index + 1);
+      if (index < 0) {
+        return false;
+      }
+
+      // field value
+      index = field == FIELD_DATA ? scanData(byteBuf, index) : scanHeader(byteBuf, index, field);
+      if (index < 0) {
+        return false;
+      }
+
+      index = skipWhitespace(byteBuf, index);
+      if (index < 0) {
+        return false;
+      }
+      byte b = byteBuf.getByte(index);
+      if (b == '}') {
+        return true;
+      }
+      if (b != ',') {
+        return false;
+      }
+      index = skipWhitespace(byteBuf, index + 1);
+      if (index < 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Builds envelope out of last successful {@link #scan(ByteBuf)}. Data (if any) is a retained
+   * slice of a given buffer. Qualifier id that is known to a given table is resolved to qualifier,
+   * otherwise (or if qualifier is present too) it's left in message headers.
+   *
+   * @param byteBuf scanned buffer
+   * @param qualifiers qualifier table (optional)
+   * @return envelope
+   */
+  WebsocketEnvelope toEnvelope(ByteBuf byteBuf, QualifierTable qualifiers) {
+    ServiceMessage.Builder builder = ServiceMessage.builder();
+    if (qualifierIndex >= 0) {
+      builder.header(
+          GatewayMessages.QUALIFIER_FIELD,
+          byteBuf.toString(qualifierIndex, qualifierLength, StandardCharsets.UTF_8));
+    }
+    if (hasQualifierId) {
+      String qualifier =
+          qualifierIndex < 0 && qualifiers != null ? qualifiers.resolve(qualifierId) : null;
+      if (qualifier != null) {
+        builder.header(GatewayMessages.QUALIFIER_FIELD, qualifier);
+      } else {
+        builder.header(GatewayMessages.QUALIFIER_ID_FIELD, qualifierId);
+      }
+    }
+    if (dataLength > 0) {
+      builder.data(byteBuf.retainedSlice(dataIndex, dataLength));
+    }
+    return new WebsocketEnvelope(
+        hasSid ? sid : WebsocketEnvelope.NONE,
+        hasSignal ? (int) signal : WebsocketEnvelope.NO_SIGNAL,
+        hasInactivity ? inactivity : WebsocketEnvelope.NONE,
+        hasRateLimit ? rateLimit : WebsocketEnvelope.NONE,
+        singleFrame,
+        conflateIndex >= 0
+            ? byteBuf.toString(conflateIndex, conflateLength, StandardCharsets.UTF_8)
+            : null,
+        builder.build());
+  }
+
+  /**
+   * Validates last successful {@link #scan(ByteBuf)} as request of a given session, nothing is
+   * decoded for that.
+   *
+   * @param session session
+   * @return rejection, or null if request is valid so far
+   */
+  FrameRejection check(WebsocketGatewaySession session) {
+    return FrameRejection.check(
+        hasSid,
+        sid,
+        hasSignal ? (int) signal : WebsocketEnvelope.NO_SIGNAL,
+        qualifierIndex >= 0 || hasQualifierId,
+        session);
+  }
+
+  /**
+   * Returns sid found by last successful {@link #scan(ByteBuf)}.
+   *
+   * @return sid or {@link WebsocketEnvelope#NONE}
+   */
+  long sid() {
+    return hasSid ? sid : WebsocketEnvelope.NONE;
+  }
+
+  /**
+   * Value skipper, stops on the last byte of json string, object or array.
+   *
+   * @param value byte
+   * @return false if last byte of the value reached
+   */
+  @Override
+  public boolean process(byte value) {
+    if (inString) {
+      if (escaped) {
+        escaped = false;
+      } else if (value == '\\') {
+        escaped = true;
+      } else if (value == '"') {
+        inString = false;
+        return depth != 0;
+      }
+      return true;
+    }
+    switch (value) {
+      case '"':
+        inString = true;
+        return true;
+      case '{':
+      case '[':
+        depth++;
+        return true;
+      case '}':
+      case ']':
+        return --depth != 0;
+      default:
+        return true;
+    }
+  }
+
+  private void reset() {
+    qualifierIndex = -1;
+    qualifierLength = 0;
+    hasQualifierId = false;
+    hasSid = false;
+    hasSignal = false;
+    hasInactivity = false;
+    hasRateLimit = false;
+    singleFrame = false;
+    conflateIndex = -1;
+    conflateLength = 0;
+    dataIndex = 0;
+    dataLength = 0;
+  }
+
+  private int scanData(ByteBuf byteBuf, int index) {
+    byte b = byteBuf.getByte(index);
+    int valueEnd;
+    if (b == '"' || b == '{' || b == '[') {
+      depth = 0;
+      inString = false;
+      escaped = false;
+      int last = byteBuf.forEachByte(index, end - index, this);
+      if (last < 0) {
+        return -1;
+      }
+      valueEnd = last + 1;
+    } else {
+      valueEnd = findValueEnd(byteBuf, index);
+      if (valueEnd < 0) {
+        return -1;
+      }
+      if (isNull(byteBuf, index, valueEnd)) {
+        return valueEnd;
+      }
+      if (!isLiteral(byteBuf, index, valueEnd, "true")
+          && !isLiteral(byteBuf, index, valueEnd, "false")
+          && !isNumber(byteBuf, index, valueEnd)) {
+        return -1;
+      }
+    }
+    dataIndex = index;
+    dataLength = valueEnd - index;
+    return valueEnd;
+  }
+
+  private int scanHeader(ByteBuf byteBuf, int index, int field) {
+    if (field == FIELD_QUALIFIER) {
+      if (byteBuf.getByte(index) != '"') {
+        return scanNull(byteBuf, index);
+      }
+      int quote = findQuote(byteBuf, index + 1);
+      if (quote < 0) {
+        return -1;
+      }
+      qualifierIndex = index + 1;
+      qualifierLength = quote - index - 1;
+      return quote + 1;
+    }
+    if (field == FIELD_CONFLATE) {
+      if (byteBuf.getByte(index) != '"') {
+        return scanNull(byteBuf, index);
+      }
+      int quote = findQuote(byteBuf, index + 1);
+      if (quote < 0) {
+        return -1;
+      }
+      conflateIndex = index + 1;
+      conflateLength = quote - index - 1;
+      return quote + 1;
+    }
+    if (field == FIELD_SINGLE_FRAME) {
+      return scanBoolean(byteBuf, index);
+    }
+
+    int valueEnd = findValueEnd(byteBuf, index);
+    if (valueEnd < 0) {
+      return -1;
+    }
+    if (!parseLong(byteBuf, index, valueEnd)) {
+      return scanNull(byteBuf, index);
+    }
+    switch (field) {
+      case FIELD_STREAM_ID:
+        sid = number;
+        hasSid = true;
+        break;
+      case FIELD_SIGNAL:
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+          return -1;
+        }
+        signal = number;
+        hasSignal = true;
+        break;
+      case FIELD_INACTIVITY:
+        inactivity = number;
+        hasInactivity = true;
+        break;
+      case FIELD_RATE_LIMIT:
+        rateLimit = number;
+        hasRateLimit = true;
+        break;
+      case FIELD_QUALIFIER_ID:
+        qualifierId = number;
+        hasQualifierId = true;
+        break;
+      default:
+        return -1;
+    }
+    return valueEnd;
+  }
+
+  // boolean flag, either json literal or string, as client sends headers as strings
+  private int scanBoolean(ByteBuf byteBuf, int index) {
+    boolean quoted = byteBuf.getByte(index) == '"';
+    int valueStart = quoted ? index + 1 : index;
+    int valueEnd = quoted ? findQuote(byteBuf, valueStart) : findValueEnd(byteBuf, index);
+    if (valueEnd < 0) {
+      return -1;
+    }
+    if (isLiteral(byteBuf, valueStart, valueEnd, "true")) {
+      singleFrame = true;
+    } else if (!isLiteral(byteBuf, valueStart, valueEnd, "false")
+        && (quoted || !isNull(byteBuf, valueStart, valueEnd))) {
+      return -1;
+    }
+    return quoted ? valueEnd + 1 : valueEnd;
+  }
+
+  // null value is skipped, same as absent field
+  private int scanNull(ByteBuf byteBuf, int index) {
+    int valueEnd = findValueEnd(byteBuf, index);
+    return valueEnd >= 0 && isNull(byteBuf, index, valueEnd) ? valueEnd : -1;
+  }
+
+  private boolean parseLong(ByteBuf byteBuf, int index, int valueEnd) {
+    boolean negative = byteBuf.getByte(index) == '-';
+    int start = negative ? index + 1 : index;
+    int digits = valueEnd - start;
+    if (digits <= 0 || digits > MAX_LONG_DIGITS) {
+      return false;
+    }
+    long result = 0;
+    for (int i = start; i < valueEnd; i++) {
+      byte b = byteBuf.getByte(i);
+      if (b < '0' || b > '9') {
+        return false;
+      }
+      result = result * 10 + (b - '0');
+    }
+    number = negative ? -result : result;
+    return true;
+  }
+
+  private static int field(ByteBuf byteBuf, int index, int length) {
+    switch (length) {
+      case 1:
+        switch (byteBuf.getByte(index)) {
+          case 'q':
+            return FIELD_QUALIFIER;
+          case 'd':
+            return FIELD_DATA;
+          case 'i':
+            return FIELD_INACTIVITY;
+          default:
+            return -1;
+        }
+      case 3:
+        if (byteBuf.getByte(index) == 'q') {
+          return byteBuf.getByte(index + 1) == 'i' && byteBuf.getByte(index + 2) == 'd'
+              ? FIELD_QUALIFIER_ID
+              : -1;
+        }
+        if (byteBuf.getByte(index) != 's' || byteBuf.getByte(index + 1) != 'i') {
+          return -1;
+        }
+        switch (byteBuf.getByte(index + 2)) {
+          case 'd':
+            return FIELD_STREAM_ID;
+          case 'g':
+            return FIELD_SIGNAL;
+          default:
+            return -1;
+        }
+      case 6:
+        if (isLiteral(byteBuf, index, index + length, GatewayMessages.SINGLE_FRAME_FIELD)) {
+          return FIELD_SINGLE_FRAME;
+        }
+        return byteBuf.getByte(index) == 'r'
+                && byteBuf.getByte(index + 1) == 'l'
+                && byteBuf.getByte(index + 2) == 'i'
+                && byteBuf.getByte(index + 3) == 'm'
+                && byteBuf.getByte(index + 4) == 'i'
+                && byteBuf.getByte(index + 5) == 't'
+            ? FIELD_RATE_LIMIT
+            : -1;
+      case 8:
+        return isLiteral(byteBuf, index, index + length, GatewayMessages.CONFLATE_FIELD)
+            ? FIELD_CONFLATE
+            : -1;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean isNull(ByteBuf byteBuf, int index, int valueEnd) {
+    return valueEnd - index == 4
+        && byteBuf.getByte(index) == 'n'
+        && byteBuf.getByte(index + 1) == 'u'
+        && byteBuf.getByte(index + 2) == 'l'
+        && byteBuf.getByte(index + 3) == 'l';
+  }
+
+  private static boolean isLiteral(ByteBuf byteBuf, int index, int valueEnd, String literal) {
+    if (valueEnd - index != literal.length()) {
+      return false;
+    }
+    for (int i = 0; i < literal.length(); i++) {
+      if (byteBuf.getByte(index + i) != literal.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // json number: -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+  private static boolean isNumber(ByteBuf byteBuf, int index, int valueEnd) {
+    int i = index;
+    if (byteBuf.getByte(i) == '-') {
+      i++;
+    }
+    if (i < valueEnd && byteBuf.getByte(i) == '0') {
+      i++;
+    } else {
+      int digits = skipDigits(byteBuf, i, valueEnd);
+      if (digits == i) {
+        return false;
+      }
+      i = digits;
+    }
+    if (i < valueEnd && byteBuf.getByte(i) == '.') {
+      int digits = skipDigits(byteBuf, i + 1, valueEnd);
+      if (digits == i + 1) {
+        return false;
+      }
+      i = digits;
+    }
+    if (i < valueEnd && (byteBuf.getByte(i) == 'e' || byteBuf.getByte(i) == 'E')) {
+      i++;
+      if (i < valueEnd && (byteBuf.getByte(i) == '+' || byteBuf.getByte(i) == '-')) {
+        i++;
+      }
+      int digits = skipDigits(byteBuf, i, valueEnd);
+      if (digits == i) {
+        return false;
+      }
+      i = digits;
+    }
+    return i == valueEnd;
+  }
+
+  private static int skipDigits(ByteBuf byteBuf, int index, int valueEnd) {
+    int i = index;
+    while (i < valueEnd && byteBuf.getByte(i) >= '0' && byteBuf.getByte(i) <= '9') {
+      i++;
+    }
+    return i;
+  }
+
+  private int skipWhitespace(ByteBuf byteBuf, int index) {
+    return index < end ? byteBuf.forEachByte(index, end - index, FIND_NON_WHITESPACE) : -1;
+  }
+
+  private int findValueEnd(ByteBuf byteBuf, int index) {
+    return index < end ? byteBuf.forEachByte(index, end - index, FIND_VALUE_END) : -1;
+  }
+
+  // returns index of closing quote, or -1 if not found or string contains escapes
+  private int findQuote(ByteBuf byteBuf, int index) {
+    int quote =
+        index < end ? byteBuf.forEachByte(index, end - index, FIND_QUOTE_OR_BACKSLASH) : -1;
+    return quote >= 0 && byteBuf.getByte(quote) == '"' ? quote : -1;
+  }
+}
@@ -0,0 +1,82 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.exceptions.BadRequestException;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+
+/**
+ * Reasons an inbound frame can't be a valid request, checked by {@link
+ * WebsocketMessageCodec#decodeRequest(io.netty.buffer.ByteBuf, WebsocketGatewaySession)} while
+ * decoding. Rejected frame gets no message built, instead gateway answers with error response
+ * made of the reason's exception, precomputed unless error mapper puts {@link
+ * io.netty.buffer.ByteBuf} data in it. {@link #STREAM_LIMIT} is checked once qualifier is
+ * resolved, see {@link WebsocketStreamLimits}.
+ */
+public enum FrameRejection {
+  SID_MISSING("sid is missing"),
+  SID_IN_USE("sid is already registered"),
+  QUALIFIER_MISSING("qualifier is missing"),
+  STREAM_LIMIT("too many concurrent streams");
+
+  private final BadRequestException exception;
+
+  FrameRejection(String errorMessage) {
+    this.exception = new BadRequestException(errorMessage);
+  }
+
+  /**
+   * Returns exception the error response to this rejection is made of, the instance is shared.
+   *
+   * @return exception
+   */
+  public BadRequestException exception() {
+    return exception;
+  }
+
+  /**
+   * Validates decoded request against a given session.
+   *
+   * @param envelope decoded request
+   * @param session session
+   * @return given envelope, or rejected one with request data released
+   */
+  static WebsocketEnvelope validate(WebsocketEnvelope envelope, WebsocketGatewaySession session) {
+    final FrameRejection rejection =
+        check(
+            envelope.hasSid(),
+            envelope.sid(),
+            envelope.signal(),
+            envelope.qualifier() != null
+                || envelope.message().header(GatewayMessages.QUALIFIER_ID_FIELD) != null,
+            session);
+    if (rejection == null) {
+      return envelope;
+    }
+    ReferenceCountUtil.safestRelease(envelope.data());
+    return WebsocketEnvelope.rejected(envelope.sid(), rejection);
+  }
+
+  /**
+   * Checks request fields against a given session. CANCEL is checked only for sid, since it refers
+   * to a stream that is already registered.
+   *
+   * @param hasSid whether sid is present
+   * @param sid sid
+   * @param signal signal code or {@link WebsocketEnvelope#NO_SIGNAL}
+   * @param hasQualifier whether qualifier or qualifier id is present
+   * @param session session
+   * @return rejection, or null if request is valid so far
+   */
+  static FrameRejection check(
+      boolean hasSid, long sid, int signal, boolean hasQualifier, WebsocketGatewaySession session) {
+    if (!hasSid) {
+      return SID_MISSING;
+    }
+    if (signal == Signal.CANCEL.code()) {
+      return null;
+    }
+    if (session.containsSid(sid)) {
+      return SID_IN_USE;
+    }
+    return hasQualifier ? null : QUALIFIER_MISSING;
+  }
+}
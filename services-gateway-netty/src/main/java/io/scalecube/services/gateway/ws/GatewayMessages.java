@@ -6,11 +6,16 @@
 public final class GatewayMessages {
 
   static final String QUALIFIER_FIELD = "q";
+  static final String QUALIFIER_ID_FIELD = "qid";
   static final String STREAM_ID_FIELD = "sid";
   static final String DATA_FIELD = "d";
   static final String SIGNAL_FIELD = "sig";
   static final String INACTIVITY_FIELD = "i";
   static final String RATE_LIMIT_FIELD = "rlimit";
+  static final String CONFLATE_FIELD = "conflate";
+  static final String SINGLE_FRAME_FIELD = "single";
+
+  static final String ERROR_QUALIFIER = "scalecube/error";
 
   private GatewayMessages() {
     // Do not instantiate
@@ -21,14 +26,11 @@ private GatewayMessages() {
    *
    * @param sid sid
    * @param qualifier qualifier
-   * @return {@link ServiceMessage} instance as the cancel signal
+   * @return {@link WebsocketEnvelope} instance as the cancel signal
    */
-  public static ServiceMessage newCancelMessage(long sid, String qualifier) {
-    return ServiceMessage.builder()
-        .qualifier(qualifier)
-        .header(STREAM_ID_FIELD, sid)
-        .header(SIGNAL_FIELD, Signal.CANCEL.code())
-        .build();
+  public static WebsocketEnvelope newCancelEnvelope(long sid, String qualifier) {
+    return new WebsocketEnvelope(
+        sid, Signal.CANCEL.code(), ServiceMessage.builder().qualifier(qualifier).build());
   }
 
   /**
@@ -37,23 +39,31 @@ public static ServiceMessage newCancelMessage(long sid, String qualifier) {
    * @param errorMapper error mapper
    * @param request request
    * @param th cause
-   * @return {@link ServiceMessage} instance as the error signal
+   * @return {@link WebsocketEnvelope} instance as the error signal
    */
-  public static ServiceMessage toErrorResponse(
-      ServiceProviderErrorMapper errorMapper, ServiceMessage request, Throwable th) {
+  public static WebsocketEnvelope toErrorResponse(
+      ServiceProviderErrorMapper errorMapper, WebsocketEnvelope request, Throwable th) {
 
-    final String qualifier = request.qualifier() != null ? request.qualifier() : "scalecube/error";
-    final String sid = request.header(STREAM_ID_FIELD);
+    final String qualifier = request.qualifier() != null ? request.qualifier() : ERROR_QUALIFIER;
     final ServiceMessage errorMessage = errorMapper.toMessage(qualifier, th);
 
-    if (sid == null) {
-      return ServiceMessage.from(errorMessage).header(SIGNAL_FIELD, Signal.ERROR.code()).build();
-    }
+    return new WebsocketEnvelope(request.sid(), Signal.ERROR.code(), errorMessage);
+  }
 
-    return ServiceMessage.from(errorMessage)
-        .header(SIGNAL_FIELD, Signal.ERROR.code())
-        .header(STREAM_ID_FIELD, sid)
-        .build();
+  /**
+   * Returns error message by given arguments.
+   *
+   * @param errorMapper error mapper
+   * @param request request
+   * @param th cause
+   * @return {@link ServiceMessage} instance as the error signal
+   * @deprecated use {@link #toErrorResponse(ServiceProviderErrorMapper, WebsocketEnvelope,
+   *     Throwable)}
+   */
+  @Deprecated
+  public static ServiceMessage toErrorResponse(
+      ServiceProviderErrorMapper errorMapper, ServiceMessage request, Throwable th) {
+    return toErrorResponse(errorMapper, WebsocketEnvelope.from(request), th).toMessage();
   }
 
   /**
@@ -61,14 +71,32 @@ public static ServiceMessage toErrorResponse(
    *
    * @param sid sid
    * @param qualifier qualifier
-   * @return {@link ServiceMessage} instance as the complete signal
+   * @return {@link WebsocketEnvelope} instance as the complete signal
    */
-  public static ServiceMessage newCompleteMessage(long sid, String qualifier) {
-    return ServiceMessage.builder()
-        .qualifier(qualifier)
-        .header(STREAM_ID_FIELD, sid)
-        .header(SIGNAL_FIELD, Signal.COMPLETE.code())
-        .build();
+  public static WebsocketEnvelope newCompleteEnvelope(long sid, String qualifier) {
+    return new WebsocketEnvelope(
+        sid, Signal.COMPLETE.code(), ServiceMessage.builder().qualifier(qualifier).build());
+  }
+
+  /**
+   * Returns response message that completes the stream, it goes to clients that asked for single
+   * frame response instead of response and separate complete signal. It's marked with {@value
+   * #SINGLE_FRAME_FIELD} field, so that response without data and headers is still told apart from
+   * bare complete signal.
+   *
+   * @param sid sid
+   * @param message response
+   * @return {@link WebsocketEnvelope} instance as the response and the complete signal
+   */
+  public static WebsocketEnvelope newCompleteResponseEnvelope(long sid, ServiceMessage message) {
+    return new WebsocketEnvelope(
+        sid,
+        Signal.COMPLETE.code(),
+        WebsocketEnvelope.NONE,
+        WebsocketEnvelope.NONE,
+        true,
+        null,
+        message);
   }
 
   /**
@@ -77,17 +105,12 @@ public static ServiceMessage newCompleteMessage(long sid, String qualifier) {
    * @param sid sid
    * @param message request
    * @param isErrorResponse should the message be marked as an error?
-   * @return {@link ServiceMessage} instance as the response
+   * @return {@link WebsocketEnvelope} instance as the response
    */
-  public static ServiceMessage newResponseMessage(
+  public static WebsocketEnvelope newResponseEnvelope(
       long sid, ServiceMessage message, boolean isErrorResponse) {
-    if (isErrorResponse) {
-      return ServiceMessage.from(message)
-          .header(STREAM_ID_FIELD, sid)
-          .header(SIGNAL_FIELD, Signal.ERROR.code())
-          .build();
-    }
-    return ServiceMessage.from(message).header(STREAM_ID_FIELD, sid).build();
+    return new WebsocketEnvelope(
+        sid, isErrorResponse ? Signal.ERROR.code() : WebsocketEnvelope.NO_SIGNAL, message);
   }
 
   /**
@@ -95,7 +118,9 @@ public static ServiceMessage newResponseMessage(
    *
    * @param message message
    * @return incoming message
+   * @deprecated requests are validated while they are decoded, see {@link FrameRejection}
    */
+  @Deprecated
   public static ServiceMessage validateSid(ServiceMessage message) {
     if (message.header(STREAM_ID_FIELD) == null) {
       throw WebsocketContextException.badRequest("sid is missing", message);
@@ -110,7 +135,9 @@ public static ServiceMessage validateSid(ServiceMessage message) {
    * @param session session
    * @param message message
    * @return incoming message
+   * @deprecated requests are validated while they are decoded, see {@link FrameRejection}
    */
+  @Deprecated
   public static ServiceMessage validateSidOnSession(
       WebsocketGatewaySession session, ServiceMessage message) {
     long sid = getSid(message);
@@ -121,12 +148,64 @@ public static ServiceMessage validateSidOnSession(
     }
   }
 
+  /**
+   * Resolves qualifier id ({@code qid}) of a given message against qualifier table of the session.
+   * Message with both qualifier and qualifier id registers the qualifier, message with only
+   * qualifier id gets qualifier it was registered with. Qualifier id itself is not passed further.
+   *
+   * @param session session
+   * @param envelope message
+   * @return message with qualifier and without qualifier id
+   */
+  public static WebsocketEnvelope resolveQualifier(
+      WebsocketGatewaySession session, WebsocketEnvelope envelope) {
+    final ServiceMessage message = envelope.message();
+    final String header = message.header(QUALIFIER_ID_FIELD);
+    if (header == null) {
+      return envelope;
+    }
+
+    final long qid;
+    try {
+      qid = Long.parseLong(header);
+    } catch (NumberFormatException ex) {
+      throw WebsocketContextException.badRequest("qid is invalid", envelope);
+    }
+
+    String qualifier = message.qualifier();
+    if (qualifier == null) {
+      qualifier = session.qualifiers().resolve(qid);
+      if (qualifier == null) {
+        throw WebsocketContextException.badRequest("qid=" + qid + " is not registered", envelope);
+      }
+    } else {
+      try {
+        qualifier = session.qualifiers().register(qid, qualifier);
+      } catch (IllegalArgumentException ex) {
+        throw WebsocketContextException.badRequest(ex.getMessage(), envelope);
+      }
+    }
+
+    final ServiceMessage.Builder builder = ServiceMessage.builder().data(message.data());
+    message
+        .headers()
+        .forEach(
+            (name, value) -> {
+              if (!QUALIFIER_ID_FIELD.equals(name)) {
+                builder.header(name, value);
+              }
+            });
+    return envelope.withMessage(builder.qualifier(qualifier).build());
+  }
+
   /**
    * Verifies the qualifier existence in a given message.
    *
    * @param message message
    * @return incoming message
+   * @deprecated requests are validated while they are decoded, see {@link FrameRejection}
    */
+  @Deprecated
   public static ServiceMessage validateQualifier(ServiceMessage message) {
     if (message.qualifier() == null) {
       throw WebsocketContextException.badRequest("qualifier is missing", message);
@@ -135,13 +214,15 @@ public static ServiceMessage validateQualifier(ServiceMessage message) {
   }
 
   /**
-   * Returns sid from a given message.
+   * Returns signal from a given message.
    *
-   * @param message message
-   * @return sid
+   * @param envelope message
+   * @return signal
    */
-  public static long getSid(ServiceMessage message) {
-    return Long.parseLong(message.header(STREAM_ID_FIELD));
+  public static Signal getSignal(WebsocketEnvelope envelope) {
+    return envelope.signal() != WebsocketEnvelope.NO_SIGNAL
+        ? Signal.from(envelope.signal())
+        : null;
   }
 
   /**
@@ -149,9 +230,64 @@ public static long getSid(ServiceMessage message) {
    *
    * @param message message
    * @return signal
+   * @deprecated use {@link #getSignal(WebsocketEnvelope)}
    */
+  @Deprecated
   public static Signal getSignal(ServiceMessage message) {
     String header = message.header(SIGNAL_FIELD);
     return header != null ? Signal.from(Integer.parseInt(header)) : null;
   }
+
+  /**
+   * Returns cancel message by given arguments.
+   *
+   * @param sid sid
+   * @param qualifier qualifier
+   * @return {@link ServiceMessage} instance as the cancel signal
+   * @deprecated use {@link #newCancelEnvelope(long, String)}
+   */
+  @Deprecated
+  public static ServiceMessage newCancelMessage(long sid, String qualifier) {
+    return newCancelEnvelope(sid, qualifier).toMessage();
+  }
+
+  /**
+   * Returns complete message by given arguments.
+   *
+   * @param sid sid
+   * @param qualifier qualifier
+   * @return {@link ServiceMessage} instance as the complete signal
+   * @deprecated use {@link #newCompleteEnvelope(long, String)}
+   */
+  @Deprecated
+  public static ServiceMessage newCompleteMessage(long sid, String qualifier) {
+    return newCompleteEnvelope(sid, qualifier).toMessage();
+  }
+
+  /**
+   * Returns response message by given arguments.
+   *
+   * @param sid sid
+   * @param message request
+   * @param isErrorResponse should the message be marked as an error?
+   * @return {@link ServiceMessage} instance as the response
+   * @deprecated use {@link #newResponseEnvelope(long, ServiceMessage, boolean)}
+   */
+  @Deprecated
+  public static ServiceMessage newResponseMessage(
+      long sid, ServiceMessage message, boolean isErrorResponse) {
+    return newResponseEnvelope(sid, message, isErrorResponse).toMessage();
+  }
+
+  /**
+   * Returns sid from a given message.
+   *
+   * @param message message
+   * @return sid
+   * @deprecated use {@link WebsocketEnvelope#sid()}
+   */
+  @Deprecated
+  public static long getSid(ServiceMessage message) {
+    return Long.parseLong(message.header(STREAM_ID_FIELD));
+  }
 }
@@ -0,0 +1,206 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed wheel of stream inactivity timeouts, one per event loop, see {@link
+ * WebsocketStreamLimits#inactivityTimeout()}. Wheel is ticked by a single task of its event loop,
+ * which runs only while there are timeouts, so the cost of a timeout doesn't depend on how many
+ * others there are. Timeout fires once its stream has not been {@link Timeout#touch() touched} for
+ * a whole timeout, with tick precision.
+ *
+ * <p>Timeouts are scheduled on the event loop. Touch and cancel are safe from any thread, timeout
+ * cancelled off the event loop is dropped from the wheel next time its bucket is ticked.
+ */
+final class InactivityTimer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InactivityTimer.class);
+
+  static final long TICK_MILLIS = 100;
+  private static final int WHEEL_SIZE = 512; // power of two, ~51 seconds per revolution
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  private static final FastThreadLocal<InactivityTimer> TIMERS = new FastThreadLocal<>();
+
+  private final EventLoop eventLoop;
+  private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+  private final Runnable tickTask = this::tick;
+
+  private volatile long ticks;
+  private int size;
+  private boolean ticking;
+  private ScheduledFuture<?> tickFuture;
+
+  private InactivityTimer(EventLoop eventLoop) {
+    this.eventLoop = eventLoop;
+  }
+
+  /**
+   * Returns timer of a given event loop, to be called on that event loop.
+   *
+   * @param eventLoop event loop
+   * @return timer
+   */
+  static InactivityTimer of(EventLoop eventLoop) {
+    InactivityTimer timer = TIMERS.get();
+    if (timer == null) {
+      timer = new InactivityTimer(eventLoop);
+      TIMERS.set(timer);
+    }
+    return timer;
+  }
+
+  /**
+   * Schedules inactivity timeout, to be called on the event loop of this timer.
+   *
+   * @param timeoutMillis timeout in milliseconds
+   * @param onTimeout action on timeout, runs on the event loop
+   * @return timeout
+   */
+  Timeout schedule(long timeoutMillis, Runnable onTimeout) {
+    final Timeout timeout =
+        new Timeout(this, Math.max(1, (timeoutMillis + TICK_MILLIS - 1) / TICK_MILLIS), onTimeout);
+    timeout.touchedTick = ticks;
+    add(timeout, ticks + timeout.timeoutTicks);
+    if (tickFuture == null) {
+      tickFuture =
+          eventLoop.scheduleAtFixedRate(tickTask, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return timeout;
+  }
+
+  /**
+   * Returns number of scheduled timeouts, including cancelled ones not yet dropped from the wheel.
+   *
+   * @return number of timeouts
+   */
+  int size() {
+    return size;
+  }
+
+  private void tick() {
+    final long tick = ticks + 1;
+    ticks = tick;
+
+    ticking = true;
+    final int index = (int) (tick & WHEEL_MASK);
+    Timeout timeout = wheel[index];
+    while (timeout != null) {
+      final Timeout next = timeout.next;
+      if (timeout.cancelled) {
+        remove(timeout);
+      } else if (timeout.deadlineTick <= tick) {
+        remove(timeout);
+        final long deadlineTick = timeout.touchedTick + timeout.timeoutTicks;
+        if (deadlineTick <= tick) {
+          fire(timeout);
+        } else {
+          // touched since scheduled, wait for the rest of timeout
+          add(timeout, deadlineTick);
+        }
+      }
+      timeout = next;
+    }
+    ticking = false;
+
+    if (size == 0) {
+      tickFuture.cancel(false);
+      tickFuture = null;
+    }
+  }
+
+  private void fire(Timeout timeout) {
+    timeout.cancelled = true;
+    try {
+      timeout.onTimeout.run();
+    } catch (Throwable th) {
+      LOGGER.warn("Exception occurred on inactivity timeout: {}", th.toString());
+    }
+  }
+
+  private void add(Timeout timeout, long deadlineTick) {
+    timeout.deadlineTick = Math.max(deadlineTick, ticks + 1);
+    final int index = (int) (timeout.deadlineTick & WHEEL_MASK);
+    final Timeout head = wheel[index];
+    timeout.prev = null;
+    timeout.next = head;
+    if (head != null) {
+      head.prev = timeout;
+    }
+    wheel[index] = timeout;
+    timeout.index = index;
+    size++;
+  }
+
+  private void remove(Timeout timeout) {
+    if (timeout.index < 0) {
+      return;
+    }
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      wheel[timeout.index] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.index = -1;
+    size--;
+  }
+
+  /**
+   * Inactivity timeout of a stream.
+   */
+  static final class Timeout {
+
+    private final InactivityTimer timer;
+    private final long timeoutTicks;
+    private final Runnable onTimeout;
+
+    // event loop only
+    private long deadlineTick;
+    private int index = -1;
+    private Timeout prev;
+    private Timeout next;
+
+    private volatile long touchedTick;
+    private volatile boolean cancelled;
+
+    private Timeout(InactivityTimer timer, long timeoutTicks, Runnable onTimeout) {
+      this.timer = timer;
+      this.timeoutTicks = timeoutTicks;
+      this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Marks stream as active, postponing the timeout.
+     */
+    void touch() {
+      final long tick = timer.ticks;
+      if (touchedTick != tick) {
+        touchedTick = tick;
+      }
+    }
+
+    /**
+     * Cancels the timeout.
+     */
+    void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      // while ticking bucket is being walked, it will be dropped when its bucket is ticked
+      if (timer.eventLoop.inEventLoop() && !timer.ticking) {
+        timer.remove(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.ByteBuf;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+
+/**
+ * Reads inbound frames of a websocket session in batches, see {@link WebsocketStreamLimits}. Next
+ * part of a batch is asked for only while session streams in flight are below pause threshold,
+ * otherwise reading stays paused till they drop to resume threshold. Without demand reactor-netty
+ * turns channel autoRead off, so unread frames stay in the client socket. Since threshold is
+ * checked once per part of a batch, it can be exceeded by at most one batch of requests.
+ *
+ * <p>Frames are received on the session event loop, streams end on whatever thread.
+ */
+final class InboundFlowControl implements CoreSubscriber<ByteBuf> {
+
+  private static final AtomicIntegerFieldUpdater<InboundFlowControl> PAUSED =
+      AtomicIntegerFieldUpdater.newUpdater(InboundFlowControl.class, "paused");
+
+  private final int batchSize;
+  private final int replenish;
+  private final int pauseThreshold;
+  private final int resumeThreshold;
+  // shared with flow control of the previous connection of a resumed session
+  private final AtomicInteger streams;
+  private final BiConsumer<InboundFlowControl, ByteBuf> onFrame;
+  private final Consumer<Throwable> onError;
+
+  private Subscription subscription;
+  private int received;
+  private volatile int paused;
+
+  /**
+   * Constructor. Flow control of a session resumed on a new connection counts streams in flight
+   * along with those of the previous connection.
+   *
+   * @param limits stream limits
+   * @param previous flow control of the previous connection of the session (optional)
+   * @param onFrame frame handler, gets this flow control along with a frame
+   * @param onError error handler
+   */
+  InboundFlowControl(
+      WebsocketStreamLimits limits,
+      InboundFlowControl previous,
+      BiConsumer<InboundFlowControl, ByteBuf> onFrame,
+      Consumer<Throwable> onError) {
+    this.streams = previous != null ? previous.streams : new AtomicInteger();
+    this.batchSize = limits.readBatchSize();
+    // like limitRate, ask for more once 3/4 of what was asked for is received
+    this.replenish = batchSize - (batchSize >> 2);
+    this.pauseThreshold = limits.readPauseThreshold();
+    this.resumeThreshold = limits.readResumeThreshold();
+    this.onFrame = onFrame;
+    this.onError = onError;
+  }
+
+  /**
+   * Counts a stream in flight, to be called once service call is about to be made.
+   */
+  void onStreamStart() {
+    streams.incrementAndGet();
+  }
+
+  /**
+   * Counts a stream off, to be called once per {@link #onStreamStart()}.
+   */
+  void onStreamEnd() {
+    if (streams.decrementAndGet() <= resumeThreshold && paused == 1) {
+      resume();
+    }
+  }
+
+  /**
+   * Returns whether reading is paused.
+   *
+   * @return true if paused
+   */
+  boolean isPaused() {
+    return paused == 1;
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    if (Operators.validate(subscription, s)) {
+      subscription = s;
+      s.request(batchSize);
+    }
+  }
+
+  @Override
+  public void onNext(ByteBuf byteBuf) {
+    onFrame.accept(this, byteBuf);
+    if (++received == replenish) {
+      received = 0;
+      requestNext();
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    onError.accept(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    // no-op
+  }
+
+  private void requestNext() {
+    if (streams.get() < pauseThreshold) {
+      subscription.request(replenish);
+      return;
+    }
+    paused = 1;
+    // streams could have ended before pause was seen
+    if (streams.get() <= resumeThreshold) {
+      resume();
+    }
+  }
+
+  private void resume() {
+    if (PAUSED.compareAndSet(this, 1, 0)) {
+      subscription.request(replenish);
+    }
+  }
+}
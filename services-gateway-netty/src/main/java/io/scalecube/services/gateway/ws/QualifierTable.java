@@ -0,0 +1,89 @@
+package io.scalecube.services.gateway.ws;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-session dictionary of qualifiers. Client registers a qualifier once by sending request with
+ * both {@code q} and {@code qid}, after that it may send only {@code qid} and gateway resolves it
+ * to the very same interned qualifier string. Responses of the session carry {@code qid} instead
+ * of {@code q} for registered qualifiers, which also tells client that registration took place.
+ *
+ * <p>Registration happens on the session event loop, lookups may come from any thread.
+ */
+public final class QualifierTable {
+
+  public static final int MAX_SIZE = 1024;
+
+  private static final String[] EMPTY = new String[0];
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] qualifiers = EMPTY;
+
+  /**
+   * Registers qualifier under given id. Registering same qualifier under same id again is a no-op.
+   *
+   * @param qid qualifier id
+   * @param qualifier qualifier
+   * @return interned qualifier
+   * @throws IllegalArgumentException if id is out of range or already taken by other qualifier
+   */
+  public String register(long qid, String qualifier) {
+    if (qid < 0 || qid >= MAX_SIZE) {
+      throw new IllegalArgumentException("qid=" + qid + " is out of range [0, " + MAX_SIZE + ")");
+    }
+    final int index = (int) qid;
+    final String current = index < qualifiers.length ? qualifiers[index] : null;
+    if (current != null) {
+      if (!current.equals(qualifier)) {
+        throw new IllegalArgumentException("qid=" + qid + " is already registered");
+      }
+      return current;
+    }
+    if (ids.containsKey(qualifier)) {
+      throw new IllegalArgumentException("qualifier is already registered with other qid");
+    }
+
+    final String interned = qualifier.intern();
+    String[] copy = qualifiers;
+    if (index >= copy.length) {
+      copy = Arrays.copyOf(copy, Math.min(MAX_SIZE, Math.max(index + 1, copy.length * 2)));
+    } else {
+      copy = copy.clone();
+    }
+    copy[index] = interned;
+    qualifiers = copy;
+    ids.put(interned, index);
+    return interned;
+  }
+
+  /**
+   * Resolves qualifier by id.
+   *
+   * @param qid qualifier id
+   * @return qualifier, or null if id is not registered
+   */
+  public String resolve(long qid) {
+    final String[] qualifiers = this.qualifiers;
+    return qid >= 0 && qid < qualifiers.length ? qualifiers[(int) qid] : null;
+  }
+
+  /**
+   * Returns id of registered qualifier.
+   *
+   * @param qualifier qualifier
+   * @return qualifier id, or -1 if qualifier is not registered
+   */
+  public int idOf(String qualifier) {
+    if (qualifiers.length == 0) {
+      return -1;
+    }
+    final Integer qid = ids.get(qualifier);
+    return qid != null ? qid : -1;
+  }
+
+  public int size() {
+    return ids.size();
+  }
+}
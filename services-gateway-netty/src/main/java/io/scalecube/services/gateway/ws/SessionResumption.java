@@ -0,0 +1,154 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.scalecube.services.gateway.common.ReplayRing;
+import java.util.function.Function;
+
+/**
+ * Resumption state of a resumable websocket session, see {@link WebsocketResumption}. Tracks the
+ * channel session is attached to, counts data frames received from it, and writes outbound data
+ * frames through {@link ReplayRing}, so that they outlive the channel. Data frames that arrive on
+ * a channel session is no longer attached to are neither counted nor processed, so count server
+ * reports on resumption is exactly what it has processed.
+ *
+ * <p>Every detach bumps epoch of the state, so that expiry scheduled for a detach can tell if
+ * session was resumed since.
+ */
+final class SessionResumption {
+
+  private final String token;
+  private final ReplayRing ring;
+
+  // guarded by this
+  private Channel channel;
+  private long received;
+  private int epoch;
+  private boolean released;
+
+  SessionResumption(String token, int replayBufferSize, long replayBufferBytes) {
+    this.token = token;
+    this.ring = new ReplayRing(replayBufferSize, replayBufferBytes);
+  }
+
+  String token() {
+    return token;
+  }
+
+  /**
+   * Writes outbound data frame, keeping it for replay. While session is detached frame is only
+   * kept.
+   *
+   * @param frame frame
+   */
+  synchronized void write(WebSocketFrame frame) {
+    if (released) {
+      frame.release();
+      return;
+    }
+    ring.append(frame.content());
+    if (channel != null) {
+      channel.writeAndFlush(frame, channel.voidPromise());
+    } else {
+      frame.release();
+    }
+  }
+
+  /**
+   * Counts inbound data frame.
+   *
+   * @param channel channel frame came from
+   * @return true if session is attached to that channel and frame is to be processed
+   */
+  synchronized boolean onInbound(Channel channel) {
+    if (this.channel != channel) {
+      return false;
+    }
+    received++;
+    return true;
+  }
+
+  /**
+   * Returns number of inbound data frames processed by session.
+   *
+   * @return number of frames
+   */
+  synchronized long received() {
+    return received;
+  }
+
+  /**
+   * Detaches session from its channel, if any, and closes that channel, for session to be resumed
+   * on a new one.
+   *
+   * @param position number of data frames client has received
+   * @return epoch of detach, or -1 if frames client missed are gone
+   */
+  synchronized int claim(long position) {
+    if (released || !ring.canReplayFrom(position)) {
+      return -1;
+    }
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+    return ++epoch;
+  }
+
+  /**
+   * Attaches session to a channel and resends frames client missed.
+   *
+   * @param channel channel
+   * @param position number of data frames client has received
+   * @param newFrame frame factory
+   * @return true if attached, false if frames client missed are gone
+   */
+  synchronized boolean attach(
+      Channel channel, long position, Function<ByteBuf, WebSocketFrame> newFrame) {
+    if (released || !ring.canReplayFrom(position)) {
+      return false;
+    }
+    this.channel = channel;
+    ring.replayFrom(position, content -> channel.write(newFrame.apply(content)));
+    channel.flush();
+    return true;
+  }
+
+  /**
+   * Detaches session from a given channel.
+   *
+   * @param channel channel
+   * @return epoch of detach, or -1 if session wasn't attached to the channel
+   */
+  synchronized int detach(Channel channel) {
+    if (released || this.channel != channel) {
+      return -1;
+    }
+    this.channel = null;
+    return ++epoch;
+  }
+
+  /**
+   * Returns whether session stays detached since a given detach.
+   *
+   * @param epoch epoch of detach
+   * @return true if session wasn't resumed since
+   */
+  synchronized boolean isDetached(int epoch) {
+    return !released && channel == null && this.epoch == epoch;
+  }
+
+  synchronized boolean isReleased() {
+    return released;
+  }
+
+  /**
+   * Releases frames kept for replay, session can't be resumed after that.
+   */
+  synchronized void release() {
+    released = true;
+    channel = null;
+    ring.release();
+  }
+}
@@ -0,0 +1,198 @@
+package io.scalecube.services.gateway.ws;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.scalecube.services.api.ServiceMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes signal frames without data (COMPLETE, CANCEL) straight from precomputed byte templates.
+ * Such frames differ only by sid and qualifier, so neither {@link ServiceMessage} nor json
+ * generator is needed: qualifier bytes are computed once per qualifier and cached, the rest is
+ * constant.
+ */
+final class SignalFrameWriter {
+
+  /** Upper bound on number of cached qualifiers, the rest get their bytes computed per frame. */
+  static final int MAX_QUALIFIERS = 1024;
+
+  private static final byte[] OBJECT_START = {'{'};
+  private static final byte[] QUALIFIER_ID_FIELD = ascii("\"qid\":");
+  private static final byte[] STREAM_ID_FIELD = ascii("\"sid\":");
+  private static final byte[] SIGNAL_FIELD = ascii(",\"sig\":");
+  private static final byte[] OBJECT_END = {'}'};
+
+  private static final Map<String, Template> TEMPLATES = new ConcurrentHashMap<>();
+
+  private static final int MAX_LONG_DIGITS = 20;
+
+  private SignalFrameWriter() {
+    // Do not instantiate
+  }
+
+  /**
+   * Writes json signal frame: <code>{"q":"...","sid":1,"sig":1}</code>, or with {@code qid}
+   * instead of qualifier if it's registered in a given table.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   */
+  static ByteBuf writeJson(long sid, Signal signal, String qualifier, QualifierTable qualifiers) {
+    final int qid = qualifier != null && qualifiers != null ? qualifiers.idOf(qualifier) : -1;
+    final byte[] qualifierField =
+        qid < 0 && qualifier != null ? template(qualifier).jsonField : null;
+
+    int capacity =
+        OBJECT_START.length
+            + STREAM_ID_FIELD.length
+            + MAX_LONG_DIGITS
+            + SIGNAL_FIELD.length
+            + MAX_LONG_DIGITS
+            + OBJECT_END.length;
+    if (qid >= 0) {
+      capacity += QUALIFIER_ID_FIELD.length + MAX_LONG_DIGITS + 1;
+    } else if (qualifierField != null) {
+      capacity += qualifierField.length;
+    }
+
+    final ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(capacity);
+    byteBuf.writeBytes(OBJECT_START);
+    if (qid >= 0) {
+      byteBuf.writeBytes(QUALIFIER_ID_FIELD);
+      writeDecimal(byteBuf, qid);
+      byteBuf.writeByte(',');
+    } else if (qualifierField != null) {
+      byteBuf.writeBytes(qualifierField);
+    }
+    byteBuf.writeBytes(STREAM_ID_FIELD);
+    writeDecimal(byteBuf, sid);
+    byteBuf.writeBytes(SIGNAL_FIELD);
+    writeDecimal(byteBuf, signal.code());
+    byteBuf.writeBytes(OBJECT_END);
+    return byteBuf;
+  }
+
+  /**
+   * Writes signal frame in layout of {@link WebsocketBinaryServiceMessageCodec}.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   */
+  static ByteBuf writeBinary(long sid, Signal signal, String qualifier, QualifierTable qualifiers) {
+    final int qid = qualifier != null && qualifiers != null ? qualifiers.idOf(qualifier) : -1;
+    final byte[] qualifierBytes = qid < 0 && qualifier != null ? template(qualifier).utf8 : null;
+
+    // signal, sid, qualifier length and bytes, header count, and qid header if any
+    int capacity = 1 + MAX_LONG_DIGITS + 5 + 1;
+    if (qid >= 0) {
+      capacity += 1 + GatewayMessages.QUALIFIER_ID_FIELD.length() + 1 + MAX_LONG_DIGITS;
+    } else if (qualifierBytes != null) {
+      capacity += qualifierBytes.length;
+    }
+
+    final ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(capacity);
+    byteBuf.writeByte(signal.code());
+    writeVarint(byteBuf, sid + 1);
+    if (qualifierBytes != null) {
+      writeVarint(byteBuf, qualifierBytes.length);
+      byteBuf.writeBytes(qualifierBytes);
+    } else {
+      byteBuf.writeByte(0);
+    }
+    if (qid >= 0) {
+      byteBuf.writeByte(1);
+      byteBuf.writeByte(GatewayMessages.QUALIFIER_ID_FIELD.length());
+      byteBuf.writeCharSequence(GatewayMessages.QUALIFIER_ID_FIELD, StandardCharsets.US_ASCII);
+      final int start = byteBuf.writerIndex();
+      byteBuf.writeByte(0); // length placeholder, qid is at most 10 digits
+      writeDecimal(byteBuf, qid);
+      byteBuf.setByte(start, byteBuf.writerIndex() - start - 1);
+    } else {
+      byteBuf.writeByte(0);
+    }
+    return byteBuf;
+  }
+
+  /**
+   * Returns message of a signal frame as seen by {@link
+   * io.scalecube.services.gateway.GatewaySessionHandler#onResponse}, it's shared between frames
+   * of the same qualifier.
+   *
+   * @param qualifier qualifier (optional)
+   * @return message with qualifier only
+   */
+  static ServiceMessage message(String qualifier) {
+    return qualifier != null ? template(qualifier).message : Template.EMPTY_MESSAGE;
+  }
+
+  private static Template template(String qualifier) {
+    Template template = TEMPLATES.get(qualifier);
+    if (template != null) {
+      return template;
+    }
+    if (TEMPLATES.size() >= MAX_QUALIFIERS) {
+      return new Template(qualifier);
+    }
+    return TEMPLATES.computeIfAbsent(qualifier, Template::new);
+  }
+
+  private static void writeDecimal(ByteBuf byteBuf, long value) {
+    if (value < 0) {
+      byteBuf.writeCharSequence(Long.toString(value), StandardCharsets.US_ASCII);
+      return;
+    }
+    int digits = 1;
+    for (long i = value / 10; i > 0; i /= 10) {
+      digits++;
+    }
+    final int start = byteBuf.writerIndex();
+    byteBuf.ensureWritable(digits);
+    for (int i = start + digits - 1; i >= start; i--) {
+      byteBuf.setByte(i, (int) ('0' + value % 10));
+      value /= 10;
+    }
+    byteBuf.writerIndex(start + digits);
+  }
+
+  private static void writeVarint(ByteBuf byteBuf, long value) {
+    while ((value & ~0x7FL) != 0) {
+      byteBuf.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    byteBuf.writeByte((int) value);
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static final class Template {
+
+    private static final ServiceMessage EMPTY_MESSAGE = ServiceMessage.builder().build();
+
+    private final byte[] jsonField;
+    private final byte[] utf8;
+    private final ServiceMessage message;
+
+    private Template(String qualifier) {
+      final byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(qualifier);
+      final byte[] prefix = ascii("\"" + GatewayMessages.QUALIFIER_FIELD + "\":\"");
+      this.jsonField = new byte[prefix.length + quoted.length + 2];
+      System.arraycopy(prefix, 0, jsonField, 0, prefix.length);
+      System.arraycopy(quoted, 0, jsonField, prefix.length, quoted.length);
+      jsonField[jsonField.length - 2] = '"';
+      jsonField[jsonField.length - 1] = ',';
+      this.utf8 = qualifier.getBytes(StandardCharsets.UTF_8);
+      this.message = ServiceMessage.builder().qualifier(qualifier).build();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts concurrent streams of a websocket session against {@link WebsocketStreamLimits}. Permits
+ * are acquired on the session event loop, released from whatever thread the stream terminates on.
+ */
+final class StreamPermits {
+
+  private static final AttributeKey<StreamPermits> PERMITS_KEY =
+      AttributeKey.valueOf("scalecube.websocketStreamPermits");
+
+  private final Budget sessionBudget;
+  // read-only once built
+  private final Map<String, Budget> qualifierBudgets;
+
+  private StreamPermits(WebsocketStreamLimits limits) {
+    this.sessionBudget = new Budget(limits.maxStreams());
+    final Map<String, Integer> qualifierMaxStreams = limits.qualifierMaxStreams();
+    if (qualifierMaxStreams.isEmpty()) {
+      this.qualifierBudgets = null;
+    } else {
+      this.qualifierBudgets = new HashMap<>();
+      qualifierMaxStreams.forEach((q, max) -> qualifierBudgets.put(q, new Budget(max)));
+    }
+  }
+
+  /**
+   * Installs permits on a given channel, unless limits are not set.
+   *
+   * @param channel channel
+   * @param limits stream limits
+   */
+  static void install(Channel channel, WebsocketStreamLimits limits) {
+    if (!limits.isUnlimited()) {
+      channel.attr(PERMITS_KEY).set(new StreamPermits(limits));
+    }
+  }
+
+  /**
+   * Returns permits of a given channel.
+   *
+   * @param channel channel
+   * @return permits, or null if session is not limited
+   */
+  static StreamPermits get(Channel channel) {
+    return channel.attr(PERMITS_KEY).get();
+  }
+
+  /**
+   * Acquires permit for a stream of a given qualifier.
+   *
+   * @param qualifier qualifier
+   * @return budget the permit is to be released to, or null if limit is reached
+   */
+  Budget acquire(String qualifier) {
+    final Budget budget = qualifierBudgets != null ? qualifierBudgets.get(qualifier) : null;
+    final Budget actual = budget != null ? budget : sessionBudget;
+    return actual.tryAcquire() ? actual : null;
+  }
+
+  static final class Budget extends AtomicInteger {
+
+    private final int maxStreams;
+
+    private Budget(int maxStreams) {
+      this.maxStreams = maxStreams;
+    }
+
+    private boolean tryAcquire() {
+      if (incrementAndGet() > maxStreams) {
+        decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    void release() {
+      decrementAndGet();
+    }
+  }
+}
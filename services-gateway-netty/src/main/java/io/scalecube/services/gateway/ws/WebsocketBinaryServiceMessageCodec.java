@@ -0,0 +1,323 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.BufferSizePredictor;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary gateway envelope, negotiated by {@link #SUBPROTOCOL} and carried in binary websocket
+ * frames. Layout:
+ *
+ * <pre>
+ * signal     : 1 byte, signal code or 0 if there's no signal
+ * sid        : unsigned varint, sid + 1 or 0 if there's no sid
+ * qualifier  : unsigned varint length followed by utf8 bytes, zero length if no qualifier
+ * headers    : unsigned varint count followed by length-prefixed utf8 key/value pairs
+ * data       : rest of the frame as is
+ * </pre>
+ *
+ * <p>Qualifier registered in session {@link QualifierTable} goes as {@code qid} header instead.
+ */
+public final class WebsocketBinaryServiceMessageCodec implements WebsocketMessageCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-binary";
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(WebsocketBinaryServiceMessageCodec.class);
+
+  private static final int MAX_VARINT_BYTES = 10;
+
+  private final boolean releaseDataOnEncode;
+  private final BufferSizePredictor sizePredictor;
+
+  public WebsocketBinaryServiceMessageCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketBinaryServiceMessageCodec(boolean releaseDataOnEncode) {
+    this(releaseDataOnEncode, new BufferSizePredictor());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param releaseDataOnEncode whether to release message data on encode
+   * @param sizePredictor predictor of initial capacity of encoded frames
+   */
+  public WebsocketBinaryServiceMessageCodec(
+      boolean releaseDataOnEncode, BufferSizePredictor sizePredictor) {
+    this.releaseDataOnEncode = releaseDataOnEncode;
+    this.sizePredictor = sizePredictor;
+  }
+
+  /**
+   * Encodes {@link WebsocketEnvelope} to {@link ByteBuf}. If message data is {@link ByteBuf} it's
+   * not copied, instead result is {@link CompositeByteBuf} made of envelope and data.
+   *
+   * @param envelope - envelope to encode
+   * @param qualifiers - qualifier table of the session (optional)
+   * @throws MessageCodecException in case of error during encoding
+   */
+  @Override
+  public ByteBuf encode(WebsocketEnvelope envelope, QualifierTable qualifiers)
+      throws MessageCodecException {
+    final ServiceMessage message = envelope.message();
+    final BufferSizePredictor.Handle sizeHandle = sizePredictor.handle(message.qualifier());
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(sizeHandle.guess());
+    ByteBuf dataBin = null;
+    try {
+      final Map<String, String> headers = message.headers();
+      final String qualifier = headers.get(GatewayMessages.QUALIFIER_FIELD);
+      final int qid =
+          qualifier != null && qualifiers != null ? qualifiers.idOf(qualifier) : -1;
+
+      byteBuf.writeByte(envelope.signal());
+      writeVarint(byteBuf, envelope.hasSid() ? envelope.sid() + 1 : 0);
+      writeString(byteBuf, qid < 0 ? qualifier : null);
+
+      int count = 0;
+      for (String name : headers.keySet()) {
+        if (!WebsocketEnvelope.isGatewayField(name)
+            && !(qid < 0 && GatewayMessages.QUALIFIER_FIELD.equals(name))) {
+          count++;
+        }
+      }
+      count += envelope.inactivity() != WebsocketEnvelope.NONE ? 1 : 0;
+      count += envelope.rateLimit() != WebsocketEnvelope.NONE ? 1 : 0;
+      count += envelope.isSingleFrame() ? 1 : 0;
+      count += envelope.conflationKey() != null ? 1 : 0;
+      writeVarint(byteBuf, count);
+      for (Entry<String, String> header : headers.entrySet()) {
+        final String name = header.getKey();
+        if (WebsocketEnvelope.isGatewayField(name)) {
+          continue;
+        }
+        if (GatewayMessages.QUALIFIER_FIELD.equals(name)) {
+          if (qid >= 0) {
+            writeString(byteBuf, GatewayMessages.QUALIFIER_ID_FIELD);
+            writeString(byteBuf, Integer.toString(qid));
+          }
+          continue;
+        }
+        writeString(byteBuf, name);
+        writeString(byteBuf, header.getValue());
+      }
+      if (envelope.inactivity() != WebsocketEnvelope.NONE) {
+        writeString(byteBuf, GatewayMessages.INACTIVITY_FIELD);
+        writeString(byteBuf, Long.toString(envelope.inactivity()));
+      }
+      if (envelope.rateLimit() != WebsocketEnvelope.NONE) {
+        writeString(byteBuf, GatewayMessages.RATE_LIMIT_FIELD);
+        writeString(byteBuf, Long.toString(envelope.rateLimit()));
+      }
+      if (envelope.isSingleFrame()) {
+        writeString(byteBuf, GatewayMessages.SINGLE_FRAME_FIELD);
+        writeString(byteBuf, Boolean.TRUE.toString());
+      }
+      if (envelope.conflationKey() != null) {
+        writeString(byteBuf, GatewayMessages.CONFLATE_FIELD);
+        writeString(byteBuf, envelope.conflationKey());
+      }
+
+      // data
+      Object data = message.data();
+      if (data != null) {
+        if (data instanceof ByteBuf) {
+          if (((ByteBuf) data).isReadable()) {
+            dataBin = (ByteBuf) data;
+          }
+        } else {
+          WebsocketServiceMessageCodec.objectMapper.writeValue(
+              (OutputStream) new ByteBufOutputStream(byteBuf), data);
+        }
+      }
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      if (message.data() != null) {
+        ReferenceCountUtil.safestRelease(message.data());
+      }
+      LOGGER.error("Failed to encode gateway service message: {}", envelope, ex);
+      throw new MessageCodecException("Failed to encode gateway service message", ex);
+    }
+
+    sizeHandle.record(byteBuf.writerIndex());
+
+    if (dataBin == null) {
+      return byteBuf;
+    }
+
+    return ByteBufAllocator.DEFAULT
+        .compositeBuffer(2)
+        .addComponents(true, byteBuf, releaseDataOnEncode ? dataBin : dataBin.retain());
+  }
+
+  /**
+   * Decodes {@link ByteBuf} into {@link WebsocketEnvelope}. Given buffer is released, data of the
+   * resulting message (if any) is a retained slice of it.
+   *
+   * @param byteBuf - buffer with gateway service message to be decoded
+   * @param qualifiers - qualifier table of the session (optional)
+   * @return decoded {@code WebsocketEnvelope} instance
+   * @throws MessageCodecException - in case of issues during decoding
+   */
+  @Override
+  public WebsocketEnvelope decode(ByteBuf byteBuf, QualifierTable qualifiers)
+      throws MessageCodecException {
+    try {
+      ServiceMessage.Builder builder = ServiceMessage.builder();
+
+      final int signal = byteBuf.readUnsignedByte();
+      final long sid = readVarint(byteBuf);
+      final String qualifier = readString(byteBuf);
+      if (!qualifier.isEmpty()) {
+        builder.header(GatewayMessages.QUALIFIER_FIELD, qualifier);
+      }
+      long inactivity = WebsocketEnvelope.NONE;
+      long rateLimit = WebsocketEnvelope.NONE;
+      boolean singleFrame = false;
+      String conflationKey = null;
+      for (long i = readVarint(byteBuf); i > 0; i--) {
+        final String name = readString(byteBuf);
+        final String value = readString(byteBuf);
+        switch (name) {
+          case GatewayMessages.INACTIVITY_FIELD:
+            inactivity = Long.parseLong(value);
+            continue;
+          case GatewayMessages.RATE_LIMIT_FIELD:
+            rateLimit = Long.parseLong(value);
+            continue;
+          case GatewayMessages.SINGLE_FRAME_FIELD:
+            singleFrame = Boolean.parseBoolean(value);
+            continue;
+          case GatewayMessages.CONFLATE_FIELD:
+            conflationKey = value;
+            continue;
+          case GatewayMessages.QUALIFIER_ID_FIELD:
+            if (qualifier.isEmpty() && qualifiers != null) {
+              final String resolved = qualifiers.resolve(parseQualifierId(value));
+              if (resolved != null) {
+                builder.header(GatewayMessages.QUALIFIER_FIELD, resolved);
+                continue;
+              }
+            }
+            break;
+          default:
+            break;
+        }
+        builder.header(name, value);
+      }
+
+      // data
+      if (byteBuf.isReadable()) {
+        builder.data(byteBuf.retainedSlice());
+      }
+      return new WebsocketEnvelope(
+          sid != 0 ? WebsocketEnvelope.checkSid(sid - 1) : WebsocketEnvelope.NONE,
+          signal,
+          inactivity,
+          rateLimit,
+          singleFrame,
+          conflationKey,
+          builder.build());
+    } catch (Throwable ex) {
+      throw new MessageCodecException("Failed to decode gateway service message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(byteBuf);
+    }
+  }
+
+  /**
+   * Encodes signal frame without data straight from precomputed templates, see {@link
+   * SignalFrameWriter}.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   */
+  @Override
+  public ByteBuf encodeSignal(
+      long sid, Signal signal, String qualifier, QualifierTable qualifiers) {
+    return SignalFrameWriter.writeBinary(sid, signal, qualifier, qualifiers);
+  }
+
+  /**
+   * Returns predictor of initial capacity of encoded frames.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
+  }
+
+  @Override
+  public String subprotocol() {
+    return SUBPROTOCOL;
+  }
+
+  @Override
+  public boolean isBinary() {
+    return true;
+  }
+
+  private static long parseQualifierId(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      return -1; // left as is, rejected later on
+    }
+  }
+
+  private static void writeString(ByteBuf byteBuf, String value) {
+    if (value == null || value.isEmpty()) {
+      byteBuf.writeByte(0);
+      return;
+    }
+    int length = ByteBufUtil.utf8Bytes(value);
+    writeVarint(byteBuf, length);
+    ByteBufUtil.reserveAndWriteUtf8(byteBuf, value, length);
+  }
+
+  private static String readString(ByteBuf byteBuf) {
+    long length = readVarint(byteBuf);
+    if (length > byteBuf.readableBytes()) {
+      throw new IndexOutOfBoundsException("String length exceeds frame: " + length);
+    }
+    return length == 0
+        ? ""
+        : byteBuf.readCharSequence((int) length, StandardCharsets.UTF_8).toString();
+  }
+
+  private static void writeVarint(ByteBuf byteBuf, long value) {
+    while ((value & ~0x7FL) != 0) {
+      byteBuf.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    byteBuf.writeByte((int) value);
+  }
+
+  private static long readVarint(ByteBuf byteBuf) {
+    long result = 0;
+    for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+      byte b = byteBuf.readByte();
+      result |= (long) (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
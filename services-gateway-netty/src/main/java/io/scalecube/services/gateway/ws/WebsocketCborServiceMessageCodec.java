@@ -0,0 +1,33 @@
+package io.scalecube.services.gateway.ws;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.scalecube.services.gateway.BufferSizePredictor;
+
+/**
+ * Gateway envelope in CBOR, negotiated by {@link #SUBPROTOCOL}.
+ *
+ * @see WebsocketDataformatServiceMessageCodec
+ */
+public final class WebsocketCborServiceMessageCodec extends WebsocketDataformatServiceMessageCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-cbor";
+
+  public WebsocketCborServiceMessageCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketCborServiceMessageCodec(boolean releaseDataOnEncode) {
+    this(releaseDataOnEncode, new BufferSizePredictor());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param releaseDataOnEncode whether to release message data on encode
+   * @param sizePredictor predictor of initial capacity of encoded frames
+   */
+  public WebsocketCborServiceMessageCodec(
+      boolean releaseDataOnEncode, BufferSizePredictor sizePredictor) {
+    super(SUBPROTOCOL, new CBORFactory(), releaseDataOnEncode, sizePredictor);
+  }
+}
@@ -0,0 +1,194 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.netty.util.AttributeKey;
+import io.scalecube.services.gateway.common.WebsocketCompressionStats;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Settings of permessage-deflate websocket extension (RFC 7692). Extension is negotiated during
+ * handshake only with clients offering it, others get uncompressed frames as before.
+ *
+ * <p>Frames with payload smaller than {@link #minFrameSize()} are sent uncompressed, since for
+ * small gateway messages deflate overhead outweighs the savings.
+ */
+public final class WebsocketCompression {
+
+  public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+  public static final int DEFAULT_MIN_FRAME_SIZE = 256;
+
+  private static final AttributeKey<WebsocketCompressionStats> STATS_KEY =
+      AttributeKey.valueOf("scalecube.websocketCompressionStats");
+
+  private static final String COMPRESSED_COUNTER = "scalecube.wsCompressedCounter";
+  private static final String EXTENSION_HANDLER = "scalecube.wsExtensionHandler";
+  private static final String RAW_COUNTER = "scalecube.wsRawCounter";
+
+  private final int compressionLevel;
+  private final int minFrameSize;
+  private final boolean contextTakeover;
+
+  private WebsocketCompression(Builder builder) {
+    this.compressionLevel = builder.compressionLevel;
+    this.minFrameSize = builder.minFrameSize;
+    this.contextTakeover = builder.contextTakeover;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int compressionLevel() {
+    return compressionLevel;
+  }
+
+  public int minFrameSize() {
+    return minFrameSize;
+  }
+
+  public boolean contextTakeover() {
+    return contextTakeover;
+  }
+
+  /**
+   * Installs extension handler and byte counters right after http codec of a fresh channel, so
+   * that they see handshake request and response.
+   *
+   * @param channel channel
+   */
+  void configure(Channel channel) {
+    final ChannelPipeline pipeline = channel.pipeline();
+    if (pipeline.get(NettyPipeline.HttpCodec) == null) {
+      return;
+    }
+
+    final WebsocketCompressionStats stats = new WebsocketCompressionStats();
+    final WebSocketExtensionFilter encoderFilter = this::isBelowThreshold;
+    final WebSocketExtensionFilterProvider filterProvider =
+        new WebSocketExtensionFilterProvider() {
+          @Override
+          public WebSocketExtensionFilter encoderFilter() {
+            return encoderFilter;
+          }
+
+          @Override
+          public WebSocketExtensionFilter decoderFilter() {
+            return WebSocketExtensionFilter.NEVER_SKIP;
+          }
+        };
+
+    // server always honors client's wish of no context takeover, and asks client for the same
+    // if configured so
+    final PerMessageDeflateServerExtensionHandshaker handshaker =
+        new PerMessageDeflateServerExtensionHandshaker(
+            compressionLevel,
+            false,
+            PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+            true,
+            !contextTakeover,
+            filterProvider);
+
+    // deflate encoder and decoder get added right after extension handler on upgrade
+    pipeline
+        .addAfter(NettyPipeline.HttpCodec, COMPRESSED_COUNTER, stats.compressedCounter())
+        .addAfter(
+            COMPRESSED_COUNTER, EXTENSION_HANDLER, new WebSocketServerExtensionHandler(handshaker))
+        .addAfter(EXTENSION_HANDLER, RAW_COUNTER, stats.rawCounter());
+
+    channel.attr(STATS_KEY).set(stats);
+  }
+
+  /**
+   * Returns compression stats of a given channel.
+   *
+   * @param channel channel
+   * @return stats, or null if compression wasn't configured on the channel
+   */
+  static WebsocketCompressionStats stats(Channel channel) {
+    return channel.attr(STATS_KEY).get();
+  }
+
+  /**
+   * Returns whether frame would be sent uncompressed due to its size.
+   *
+   * @param frame frame
+   * @return true if frame is below the threshold
+   */
+  boolean isBelowThreshold(WebSocketFrame frame) {
+    return frame.content().readableBytes() < minFrameSize;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketCompression{"
+        + "compressionLevel="
+        + compressionLevel
+        + ", minFrameSize="
+        + minFrameSize
+        + ", contextTakeover="
+        + contextTakeover
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int minFrameSize = DEFAULT_MIN_FRAME_SIZE;
+    private boolean contextTakeover = true;
+
+    private Builder() {}
+
+    /**
+     * Deflate compression level, from 0 (no compression) to 9 (best compression). Default is
+     * {@value #DEFAULT_COMPRESSION_LEVEL}.
+     *
+     * @param compressionLevel compression level
+     * @return builder
+     */
+    public Builder compressionLevel(int compressionLevel) {
+      if (compressionLevel < 0 || compressionLevel > 9) {
+        throw new IllegalArgumentException("Invalid compressionLevel: " + compressionLevel);
+      }
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Minimal payload size of a frame to get compressed. Default is {@value
+     * #DEFAULT_MIN_FRAME_SIZE}.
+     *
+     * @param minFrameSize minimal frame size in bytes
+     * @return builder
+     */
+    public Builder minFrameSize(int minFrameSize) {
+      if (minFrameSize < 0) {
+        throw new IllegalArgumentException("Invalid minFrameSize: " + minFrameSize);
+      }
+      this.minFrameSize = minFrameSize;
+      return this;
+    }
+
+    /**
+     * Whether deflate context is kept between messages. Context takeover gives better ratio on
+     * similar messages at the cost of a compression window kept per session and direction.
+     * Default is {@code true}.
+     *
+     * @param contextTakeover whether to keep context between messages
+     * @return builder
+     */
+    public Builder contextTakeover(boolean contextTakeover) {
+      this.contextTakeover = contextTakeover;
+      return this;
+    }
+
+    public WebsocketCompression build() {
+      return new WebsocketCompression(this);
+    }
+  }
+}
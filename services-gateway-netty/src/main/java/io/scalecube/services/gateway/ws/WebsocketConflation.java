@@ -0,0 +1,206 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+/**
+ * Key-based conflation of a response stream, enabled by {@value GatewayMessages#CONFLATE_FIELD}
+ * envelope field of a request (see {@link WebsocketEnvelope#conflationKey()}), which never reaches
+ * the service. Its value is the name of response header that carries conflation key, empty value
+ * conflates whole stream to its latest response.
+ *
+ * <p>Service stream is consumed as fast as it emits, while responses are passed downstream only on
+ * demand. Demand of a websocket session stops while session is not writable (see {@link
+ * WebsocketOutboundGate}), meanwhile only the newest response per key is kept, in order of keys
+ * first seen. Error response is never conflated and goes last.
+ */
+final class WebsocketConflation {
+
+  private WebsocketConflation() {
+    // Do not instantiate
+  }
+
+  /**
+   * Applies conflation to a response stream.
+   *
+   * @param responses response stream
+   * @param keyHeader name of response header with conflation key, or empty string
+   * @return conflated response stream
+   */
+  static Flux<ServiceMessage> conflate(Flux<ServiceMessage> responses, String keyHeader) {
+    return new ConflatingFlux(responses, keyHeader);
+  }
+
+  private static final class ConflatingFlux extends FluxOperator<ServiceMessage, ServiceMessage> {
+
+    private final String keyHeader;
+
+    private ConflatingFlux(Flux<ServiceMessage> source, String keyHeader) {
+      super(source);
+      this.keyHeader = keyHeader;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super ServiceMessage> actual) {
+      source.subscribe(new ConflatingSubscriber(actual, keyHeader));
+    }
+  }
+
+  private static final class ConflatingSubscriber
+      implements CoreSubscriber<ServiceMessage>, Subscription {
+
+    private static final AtomicIntegerFieldUpdater<ConflatingSubscriber> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(ConflatingSubscriber.class, "wip");
+
+    private static final AtomicLongFieldUpdater<ConflatingSubscriber> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(ConflatingSubscriber.class, "requested");
+
+    private final CoreSubscriber<? super ServiceMessage> actual;
+    private final String keyHeader;
+
+    // guarded by this
+    private final Map<String, ServiceMessage> latest = new LinkedHashMap<>();
+    private ServiceMessage errorResponse;
+
+    private Subscription upstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile int wip;
+    private volatile long requested;
+
+    private ConflatingSubscriber(CoreSubscriber<? super ServiceMessage> actual, String keyHeader) {
+      this.actual = actual;
+      this.keyHeader = keyHeader;
+    }
+
+    @Override
+    public Context currentContext() {
+      return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (Operators.validate(upstream, s)) {
+        upstream = s;
+        actual.onSubscribe(this);
+        s.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(ServiceMessage response) {
+      ServiceMessage replaced;
+      synchronized (this) {
+        if (response.isError()) {
+          replaced = errorResponse;
+          errorResponse = response;
+        } else {
+          replaced = latest.put(keyHeader.isEmpty() ? null : response.header(keyHeader), response);
+        }
+      }
+      if (replaced != null) {
+        ReferenceCountUtil.safestRelease(replaced.data());
+      }
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      upstream.cancel();
+      drain();
+    }
+
+    private void drain() {
+      if (WIP.getAndIncrement(this) != 0) {
+        return;
+      }
+      int missed = 1;
+      for (; ; ) {
+        if (cancelled) {
+          clear();
+        } else {
+          final long r = requested;
+          long e = 0;
+          ServiceMessage response;
+          while (e != r && (response = poll()) != null) {
+            actual.onNext(response);
+            e++;
+          }
+          if (e != 0 && r != Long.MAX_VALUE) {
+            REQUESTED.addAndGet(this, -e);
+          }
+          if (done && isEmpty()) {
+            final Throwable throwable = error;
+            if (throwable != null) {
+              actual.onError(throwable);
+            } else {
+              actual.onComplete();
+            }
+            cancelled = true;
+          }
+        }
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    private synchronized ServiceMessage poll() {
+      final Iterator<ServiceMessage> iterator = latest.values().iterator();
+      if (iterator.hasNext()) {
+        final ServiceMessage response = iterator.next();
+        iterator.remove();
+        return response;
+      }
+      final ServiceMessage response = errorResponse;
+      errorResponse = null;
+      return response;
+    }
+
+    private synchronized boolean isEmpty() {
+      return latest.isEmpty() && errorResponse == null;
+    }
+
+    private void clear() {
+      ServiceMessage response;
+      while ((response = poll()) != null) {
+        ReferenceCountUtil.safestRelease(response.data());
+      }
+    }
+  }
+}
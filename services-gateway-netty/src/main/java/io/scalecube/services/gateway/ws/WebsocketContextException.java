@@ -5,37 +5,75 @@
 
 public class WebsocketContextException extends RuntimeException {
 
-  private final ServiceMessage request;
-  private final ServiceMessage response;
+  private final WebsocketEnvelope request;
+  private final WebsocketEnvelope response;
 
   private WebsocketContextException(
-      Throwable cause, ServiceMessage request, ServiceMessage response) {
-    super(cause);
+      Throwable cause, WebsocketEnvelope request, WebsocketEnvelope response) {
+    // only carries cause and request to the error response, own stack trace is of no use
+    super(cause != null ? cause.toString() : null, cause, false, false);
     this.request = request;
     this.response = response;
   }
 
-  public static WebsocketContextException badRequest(String errorMessage, ServiceMessage request) {
+  public static WebsocketContextException badRequest(
+      String errorMessage, WebsocketEnvelope request) {
     return new WebsocketContextException(
         new io.scalecube.services.exceptions.BadRequestException(errorMessage), request, null);
   }
 
-  public ServiceMessage request() {
+  /**
+   * Creates bad request exception.
+   *
+   * @param errorMessage error message
+   * @param request request
+   * @return exception
+   * @deprecated use {@link #badRequest(String, WebsocketEnvelope)}
+   */
+  @Deprecated
+  public static WebsocketContextException badRequest(String errorMessage, ServiceMessage request) {
+    return badRequest(errorMessage, WebsocketEnvelope.from(request));
+  }
+
+  public WebsocketEnvelope requestEnvelope() {
     return request;
   }
 
-  public ServiceMessage response() {
+  public WebsocketEnvelope responseEnvelope() {
     return response;
   }
 
   /**
-   * Releases request data if any.
+   * Returns request as a message, with gateway fields put back to its headers.
+   *
+   * @return request, or null
+   * @deprecated use {@link #requestEnvelope()}
+   */
+  @Deprecated
+  public ServiceMessage request() {
+    return request != null ? request.toMessage() : null;
+  }
+
+  /**
+   * Returns response as a message, with gateway fields put back to its headers.
+   *
+   * @return response, or null
+   * @deprecated use {@link #responseEnvelope()}
+   */
+  @Deprecated
+  public ServiceMessage response() {
+    return response != null ? response.toMessage() : null;
+  }
+
+  /**
+   * Releases request data if any. Request data is a retained slice of the inbound frame, so this
+   * also gives the frame back to the allocator.
    *
    * @return self
    */
   public WebsocketContextException releaseRequest() {
     if (request != null) {
-      ReferenceCountUtil.safestRelease(request.data());
+      ReferenceCountUtil.safestRelease(request.message().data());
     }
     return this;
   }
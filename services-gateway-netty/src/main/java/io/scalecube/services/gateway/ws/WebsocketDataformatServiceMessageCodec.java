@@ -0,0 +1,308 @@
+package io.scalecube.services.gateway.ws;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.BufferSizePredictor;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gateway envelope encoded with one of jackson binary dataformats and carried in binary websocket
+ * frames. Envelope has the same fields as json one, data goes as a structured value of the same
+ * dataformat.
+ *
+ * <p>Message data is json within the gateway, so it's transcoded token by token: json into the
+ * dataformat on encode and back into json on decode.
+ */
+public abstract class WebsocketDataformatServiceMessageCodec implements WebsocketMessageCodec {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(WebsocketDataformatServiceMessageCodec.class);
+
+  private static final JsonFactory JSON_FACTORY =
+      WebsocketServiceMessageCodec.objectMapper.getFactory();
+
+  private final String subprotocol;
+  private final ObjectMapper objectMapper;
+  private final boolean releaseDataOnEncode;
+  private final BufferSizePredictor sizePredictor;
+
+  /**
+   * Constructor.
+   *
+   * @param subprotocol websocket subprotocol of the dataformat
+   * @param jsonFactory factory of the dataformat
+   * @param releaseDataOnEncode whether to release message data on encode
+   * @param sizePredictor predictor of initial capacity of encoded frames
+   */
+  protected WebsocketDataformatServiceMessageCodec(
+      String subprotocol,
+      JsonFactory jsonFactory,
+      boolean releaseDataOnEncode,
+      BufferSizePredictor sizePredictor) {
+    this.subprotocol = subprotocol;
+    this.objectMapper = WebsocketServiceMessageCodec.objectMapper(jsonFactory);
+    this.releaseDataOnEncode = releaseDataOnEncode;
+    this.sizePredictor = sizePredictor;
+  }
+
+  /**
+   * Encodes {@link WebsocketEnvelope} to {@link ByteBuf}. Data of {@link ByteBuf} type is json and
+   * is transcoded into the dataformat.
+   *
+   * @param envelope - envelope to encode
+   * @param qualifiers - qualifier table of the session (optional)
+   * @throws MessageCodecException in case of error during encoding
+   */
+  @Override
+  public ByteBuf encode(WebsocketEnvelope envelope, QualifierTable qualifiers)
+      throws MessageCodecException {
+    final ServiceMessage message = envelope.message();
+    final BufferSizePredictor.Handle sizeHandle = sizePredictor.handle(message.qualifier());
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(sizeHandle.guess());
+    final JsonFactory jsonFactory = objectMapper.getFactory();
+    try (JsonGenerator generator =
+        jsonFactory.createGenerator((OutputStream) new ByteBufOutputStream(byteBuf))) {
+      generator.writeStartObject();
+
+      // headers
+      for (Entry<String, String> header : message.headers().entrySet()) {
+        String fieldName = header.getKey();
+        String value = header.getValue();
+        switch (fieldName) {
+          case GatewayMessages.QUALIFIER_FIELD:
+            int qid = qualifiers != null ? qualifiers.idOf(value) : -1;
+            if (qid >= 0) {
+              generator.writeNumberField(GatewayMessages.QUALIFIER_ID_FIELD, qid);
+            } else {
+              generator.writeStringField(fieldName, value);
+            }
+            break;
+          case GatewayMessages.QUALIFIER_ID_FIELD:
+            generator.writeNumberField(fieldName, Long.parseLong(value));
+            break;
+          case GatewayMessages.STREAM_ID_FIELD:
+          case GatewayMessages.SIGNAL_FIELD:
+          case GatewayMessages.INACTIVITY_FIELD:
+          case GatewayMessages.RATE_LIMIT_FIELD:
+          case GatewayMessages.SINGLE_FRAME_FIELD:
+          case GatewayMessages.CONFLATE_FIELD:
+            break; // envelope fields
+          default:
+            generator.writeStringField(fieldName, value);
+        }
+      }
+
+      // envelope fields
+      if (envelope.hasSid()) {
+        generator.writeNumberField(GatewayMessages.STREAM_ID_FIELD, envelope.sid());
+      }
+      if (envelope.signal() != WebsocketEnvelope.NO_SIGNAL) {
+        generator.writeNumberField(GatewayMessages.SIGNAL_FIELD, envelope.signal());
+      }
+      if (envelope.inactivity() != WebsocketEnvelope.NONE) {
+        generator.writeNumberField(GatewayMessages.INACTIVITY_FIELD, envelope.inactivity());
+      }
+      if (envelope.rateLimit() != WebsocketEnvelope.NONE) {
+        generator.writeNumberField(GatewayMessages.RATE_LIMIT_FIELD, envelope.rateLimit());
+      }
+      if (envelope.isSingleFrame()) {
+        generator.writeBooleanField(GatewayMessages.SINGLE_FRAME_FIELD, true);
+      }
+      if (envelope.conflationKey() != null) {
+        generator.writeStringField(GatewayMessages.CONFLATE_FIELD, envelope.conflationKey());
+      }
+
+      // data
+      Object data = message.data();
+      if (data instanceof ByteBuf) {
+        ByteBuf dataBin = (ByteBuf) data;
+        if (dataBin.isReadable()) {
+          generator.writeFieldName(GatewayMessages.DATA_FIELD);
+          InputStream dataStream = new ByteBufInputStream(dataBin.duplicate());
+          try (JsonParser parser = JSON_FACTORY.createParser(dataStream)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+          }
+        }
+      } else if (data != null) {
+        generator.writeObjectField(GatewayMessages.DATA_FIELD, data);
+      }
+
+      generator.writeEndObject();
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      ReferenceCountUtil.safestRelease(message.data());
+      LOGGER.error("Failed to encode gateway service message: {}", envelope, ex);
+      throw new MessageCodecException("Failed to encode gateway service message", ex);
+    }
+
+    sizeHandle.record(byteBuf.writerIndex());
+    if (releaseDataOnEncode) {
+      ReferenceCountUtil.safestRelease(message.data());
+    }
+    return byteBuf;
+  }
+
+  /**
+   * Decodes {@link ByteBuf} into {@link WebsocketEnvelope}. Given buffer is released, data of the
+   * resulting message (if any) is a new buffer with data transcoded into json.
+   *
+   * @param byteBuf - buffer with gateway service message to be decoded
+   * @param qualifiers - qualifier table of the session (optional)
+   * @return decoded {@code WebsocketEnvelope} instance
+   * @throws MessageCodecException - in case of issues during decoding
+   */
+  @Override
+  public WebsocketEnvelope decode(ByteBuf byteBuf, QualifierTable qualifiers)
+      throws MessageCodecException {
+    ByteBuf dataBin = null;
+    try (JsonParser parser =
+        objectMapper.getFactory().createParser((InputStream) new ByteBufInputStream(byteBuf))) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new MessageCodecException("Root should be object", null);
+      }
+
+      ServiceMessage.Builder builder = ServiceMessage.builder();
+      long sid = WebsocketEnvelope.NONE;
+      int signal = WebsocketEnvelope.NO_SIGNAL;
+      long inactivity = WebsocketEnvelope.NONE;
+      long rateLimit = WebsocketEnvelope.NONE;
+      boolean singleFrame = false;
+      String conflationKey = null;
+      String qualifier = null;
+      String qid = null;
+
+      JsonToken current;
+      while ((current = parser.nextToken()) != JsonToken.END_OBJECT) {
+        if (current != JsonToken.FIELD_NAME) {
+          throw new MessageCodecException("Unexpected token: " + current, null);
+        }
+        String fieldName = parser.getCurrentName();
+        current = parser.nextToken();
+        if (current == JsonToken.VALUE_NULL) {
+          continue;
+        }
+
+        switch (fieldName) {
+          case GatewayMessages.DATA_FIELD:
+            if (dataBin == null) {
+              dataBin = toJson(parser);
+            } else {
+              parser.skipChildren();
+            }
+            break;
+          case GatewayMessages.STREAM_ID_FIELD:
+            sid = WebsocketEnvelope.checkSid(longValue(parser, current));
+            break;
+          case GatewayMessages.SIGNAL_FIELD:
+            signal = (int) longValue(parser, current);
+            break;
+          case GatewayMessages.INACTIVITY_FIELD:
+            inactivity = longValue(parser, current);
+            break;
+          case GatewayMessages.RATE_LIMIT_FIELD:
+            rateLimit = longValue(parser, current);
+            break;
+          case GatewayMessages.SINGLE_FRAME_FIELD:
+            singleFrame = Boolean.parseBoolean(parser.getValueAsString());
+            break;
+          case GatewayMessages.CONFLATE_FIELD:
+            conflationKey = parser.getValueAsString();
+            break;
+          case GatewayMessages.QUALIFIER_FIELD:
+            qualifier = parser.getValueAsString();
+            break;
+          case GatewayMessages.QUALIFIER_ID_FIELD:
+            qid = parser.getValueAsString();
+            break;
+          default:
+            // headers
+            builder.header(fieldName, parser.getValueAsString());
+        }
+      }
+
+      if (qualifier != null) {
+        builder.header(GatewayMessages.QUALIFIER_FIELD, qualifier);
+      }
+      if (qid != null) {
+        String resolved =
+            qualifier == null && qualifiers != null ? qualifiers.resolve(parseLong(qid)) : null;
+        if (resolved != null) {
+          builder.header(GatewayMessages.QUALIFIER_FIELD, resolved);
+        } else {
+          builder.header(GatewayMessages.QUALIFIER_ID_FIELD, qid);
+        }
+      }
+      if (dataBin != null) {
+        builder.data(dataBin);
+      }
+      return new WebsocketEnvelope(
+          sid, signal, inactivity, rateLimit, singleFrame, conflationKey, builder.build());
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(dataBin);
+      throw new MessageCodecException("Failed to decode gateway service message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(byteBuf);
+    }
+  }
+
+  /**
+   * Returns predictor of initial capacity of encoded frames.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
+  }
+
+  @Override
+  public String subprotocol() {
+    return subprotocol;
+  }
+
+  @Override
+  public boolean isBinary() {
+    return true;
+  }
+
+  private static ByteBuf toJson(JsonParser parser) throws IOException {
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
+    try (JsonGenerator generator =
+        JSON_FACTORY.createGenerator(
+            (OutputStream) new ByteBufOutputStream(byteBuf), JsonEncoding.UTF8)) {
+      generator.copyCurrentStructure(parser);
+    } catch (Throwable ex) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      throw ex;
+    }
+    return byteBuf;
+  }
+
+  private static long longValue(JsonParser parser, JsonToken token) throws IOException {
+    return token.isNumeric() ? parser.getLongValue() : Long.parseLong(parser.getValueAsString());
+  }
+
+  private static long parseLong(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      return -1; // left as is, rejected later on
+    }
+  }
+}
@@ -0,0 +1,327 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.api.ServiceMessage;
+import java.util.Map;
+
+/**
+ * Gateway envelope of a websocket message. Stream id, signal, inactivity, rate limit and request
+ * flags (single frame response, conflation) are kept as typed fields all the way between codec and
+ * acceptor, while the wrapped {@link ServiceMessage} carries only qualifier, business headers and
+ * data.
+ */
+public final class WebsocketEnvelope {
+
+  /**
+   * Value of absent numeric field. A field can't carry this value itself, decoders reject it as
+   * sid, see {@link #checkSid(long)}.
+   */
+  public static final long NONE = Long.MIN_VALUE;
+
+  /** Value of absent signal. */
+  public static final int NO_SIGNAL = 0;
+
+  private static final ServiceMessage EMPTY_MESSAGE = ServiceMessage.builder().build();
+
+  private final long sid;
+  private final int signal;
+  private final long inactivity;
+  private final long rateLimit;
+  private final boolean singleFrame;
+  private final String conflationKey;
+  private final ServiceMessage message;
+  private final FrameRejection rejection;
+
+  /**
+   * Constructor.
+   *
+   * @param sid stream id or {@link #NONE}
+   * @param signal signal code or {@link #NO_SIGNAL}
+   * @param inactivity inactivity or {@link #NONE}
+   * @param rateLimit rate limit or {@link #NONE}
+   * @param message message with qualifier, business headers and data
+   */
+  public WebsocketEnvelope(
+      long sid, int signal, long inactivity, long rateLimit, ServiceMessage message) {
+    this(sid, signal, inactivity, rateLimit, false, null, message, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param sid stream id or {@link #NONE}
+   * @param signal signal code or {@link #NO_SIGNAL}
+   * @param inactivity inactivity or {@link #NONE}
+   * @param rateLimit rate limit or {@link #NONE}
+   * @param singleFrame whether last response goes along with COMPLETE in one frame
+   * @param conflationKey response header to conflate responses by, or null
+   * @param message message with qualifier, business headers and data
+   */
+  public WebsocketEnvelope(
+      long sid,
+      int signal,
+      long inactivity,
+      long rateLimit,
+      boolean singleFrame,
+      String conflationKey,
+      ServiceMessage message) {
+    this(sid, signal, inactivity, rateLimit, singleFrame, conflationKey, message, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param sid stream id or {@link #NONE}
+   * @param signal signal code or {@link #NO_SIGNAL}
+   * @param message message with qualifier, business headers and data
+   */
+  public WebsocketEnvelope(long sid, int signal, ServiceMessage message) {
+    this(sid, signal, NONE, NONE, false, null, message, null);
+  }
+
+  private WebsocketEnvelope(
+      long sid,
+      int signal,
+      long inactivity,
+      long rateLimit,
+      boolean singleFrame,
+      String conflationKey,
+      ServiceMessage message,
+      FrameRejection rejection) {
+    this.sid = sid;
+    this.signal = signal;
+    this.inactivity = inactivity;
+    this.rateLimit = rateLimit;
+    this.singleFrame = singleFrame;
+    this.conflationKey = conflationKey;
+    this.message = message;
+    this.rejection = rejection;
+  }
+
+  /**
+   * Creates envelope of a rejected request frame. It keeps only sid, so that error response could
+   * be correlated, and has empty message.
+   *
+   * @param sid stream id or {@link #NONE}
+   * @param rejection reason
+   * @return envelope
+   */
+  public static WebsocketEnvelope rejected(long sid, FrameRejection rejection) {
+    return new WebsocketEnvelope(
+        sid, NO_SIGNAL, NONE, NONE, false, null, EMPTY_MESSAGE, rejection);
+  }
+
+  /**
+   * Creates envelope out of message that keeps gateway fields in its headers. Gateway fields are
+   * not copied to the wrapped message.
+   *
+   * @param message message
+   * @return envelope
+   */
+  public static WebsocketEnvelope from(ServiceMessage message) {
+    final Map<String, String> headers = message.headers();
+    final String sid = headers.get(GatewayMessages.STREAM_ID_FIELD);
+    final String signal = headers.get(GatewayMessages.SIGNAL_FIELD);
+    final String inactivity = headers.get(GatewayMessages.INACTIVITY_FIELD);
+    final String rateLimit = headers.get(GatewayMessages.RATE_LIMIT_FIELD);
+    final String singleFrame = headers.get(GatewayMessages.SINGLE_FRAME_FIELD);
+    final String conflationKey = headers.get(GatewayMessages.CONFLATE_FIELD);
+
+    if (sid == null
+        && signal == null
+        && inactivity == null
+        && rateLimit == null
+        && singleFrame == null
+        && conflationKey == null) {
+      return new WebsocketEnvelope(NONE, NO_SIGNAL, message);
+    }
+
+    final ServiceMessage.Builder builder = ServiceMessage.builder().data(message.data());
+    headers.forEach(
+        (name, value) -> {
+          if (!isGatewayField(name)) {
+            builder.header(name, value);
+          }
+        });
+
+    return new WebsocketEnvelope(
+        sid != null ? Long.parseLong(sid) : NONE,
+        signal != null ? Integer.parseInt(signal) : NO_SIGNAL,
+        inactivity != null ? Long.parseLong(inactivity) : NONE,
+        rateLimit != null ? Long.parseLong(rateLimit) : NONE,
+        Boolean.parseBoolean(singleFrame),
+        conflationKey,
+        builder.build());
+  }
+
+  /**
+   * Returns whether given header name is one of gateway fields kept by envelope.
+   *
+   * @param name header name
+   * @return true if it's gateway field
+   */
+  public static boolean isGatewayField(String name) {
+    switch (name) {
+      case GatewayMessages.STREAM_ID_FIELD:
+      case GatewayMessages.SIGNAL_FIELD:
+      case GatewayMessages.INACTIVITY_FIELD:
+      case GatewayMessages.RATE_LIMIT_FIELD:
+      case GatewayMessages.SINGLE_FRAME_FIELD:
+      case GatewayMessages.CONFLATE_FIELD:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public long sid() {
+    return sid;
+  }
+
+  public boolean hasSid() {
+    return sid != NONE;
+  }
+
+  /**
+   * Checks decoded sid. Sid of {@link #NONE} value would be taken for absent one, so it's rejected
+   * instead.
+   *
+   * @param sid sid
+   * @return sid
+   * @throws IllegalArgumentException if sid is {@link #NONE}
+   */
+  static long checkSid(long sid) {
+    if (sid == NONE) {
+      throw new IllegalArgumentException("sid is out of range: " + sid);
+    }
+    return sid;
+  }
+
+  public int signal() {
+    return signal;
+  }
+
+  public long inactivity() {
+    return inactivity;
+  }
+
+  public long rateLimit() {
+    return rateLimit;
+  }
+
+  /**
+   * Returns whether request asks for its last response to go along with COMPLETE in one frame, see
+   * {@link WebsocketSingleFrame}.
+   *
+   * @return true if single frame response is requested
+   */
+  public boolean isSingleFrame() {
+    return singleFrame;
+  }
+
+  /**
+   * Returns name of response header to conflate responses of the request by, see {@link
+   * WebsocketConflation}.
+   *
+   * @return header name, empty to conflate whole stream, or null if not conflated
+   */
+  public String conflationKey() {
+    return conflationKey;
+  }
+
+  public ServiceMessage message() {
+    return message;
+  }
+
+  /**
+   * Returns reason request frame was rejected for, see {@link #rejected(long, FrameRejection)}.
+   *
+   * @return reason, or null if frame wasn't rejected
+   */
+  public FrameRejection rejection() {
+    return rejection;
+  }
+
+  public String qualifier() {
+    return message.qualifier();
+  }
+
+  public <T> T data() {
+    return message.data();
+  }
+
+  /**
+   * Returns envelope with same gateway fields and a given message.
+   *
+   * @param message message
+   * @return envelope
+   */
+  public WebsocketEnvelope withMessage(ServiceMessage message) {
+    return message == this.message
+        ? this
+        : new WebsocketEnvelope(
+            sid, signal, inactivity, rateLimit, singleFrame, conflationKey, message);
+  }
+
+  /**
+   * Returns message that keeps gateway fields in its headers, as they go on the wire.
+   *
+   * @return message
+   */
+  public ServiceMessage toMessage() {
+    if (sid == NONE
+        && signal == NO_SIGNAL
+        && inactivity == NONE
+        && rateLimit == NONE
+        && !singleFrame
+        && conflationKey == null) {
+      return message;
+    }
+    final ServiceMessage.Builder builder = ServiceMessage.from(message);
+    if (sid != NONE) {
+      builder.header(GatewayMessages.STREAM_ID_FIELD, sid);
+    }
+    if (signal != NO_SIGNAL) {
+      builder.header(GatewayMessages.SIGNAL_FIELD, signal);
+    }
+    if (inactivity != NONE) {
+      builder.header(GatewayMessages.INACTIVITY_FIELD, inactivity);
+    }
+    if (rateLimit != NONE) {
+      builder.header(GatewayMessages.RATE_LIMIT_FIELD, rateLimit);
+    }
+    if (singleFrame) {
+      builder.header(GatewayMessages.SINGLE_FRAME_FIELD, true);
+    }
+    if (conflationKey != null) {
+      builder.header(GatewayMessages.CONFLATE_FIELD, conflationKey);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("WebsocketEnvelope{");
+    if (sid != NONE) {
+      sb.append("sid=").append(sid).append(", ");
+    }
+    if (signal != NO_SIGNAL) {
+      sb.append("signal=").append(signal).append(", ");
+    }
+    if (inactivity != NONE) {
+      sb.append("inactivity=").append(inactivity).append(", ");
+    }
+    if (rateLimit != NONE) {
+      sb.append("rateLimit=").append(rateLimit).append(", ");
+    }
+    if (singleFrame) {
+      sb.append("singleFrame=true, ");
+    }
+    if (conflationKey != null) {
+      sb.append("conflationKey=").append(conflationKey).append(", ");
+    }
+    if (rejection != null) {
+      sb.append("rejection=").append(rejection).append(", ");
+    }
+    return sb.append("message=").append(message).append('}').toString();
+  }
+}
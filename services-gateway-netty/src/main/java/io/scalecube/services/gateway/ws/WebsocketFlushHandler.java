@@ -0,0 +1,122 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consolidates flushes of outbound data frames according to {@link WebsocketFlushPolicy}. Flush
+ * that comes after anything else than a data frame is passed through right away.
+ */
+final class WebsocketFlushHandler extends ChannelOutboundHandlerAdapter {
+
+  private final int maxPendingFrames;
+  private final long maxDelayNanos;
+  private final WebsocketFlushStats stats;
+  private final Runnable delayedFlushTask = this::delayedFlush;
+
+  private ChannelHandlerContext ctx;
+
+  private int pendingFrames;
+  private boolean urgent;
+  private boolean flushScheduled;
+  private ScheduledFuture<?> scheduledFlush;
+
+  WebsocketFlushHandler(WebsocketFlushPolicy policy, WebsocketFlushStats stats) {
+    this.maxPendingFrames = policy.maxPendingFrames();
+    this.maxDelayNanos = policy.maxDelay() != null ? policy.maxDelay().toNanos() : 0;
+    this.stats = stats;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    this.ctx = ctx;
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    if (pendingFrames > 0) {
+      flushNow(ctx);
+    }
+    cancelScheduledFlush();
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (isDataFrame(msg)) {
+      pendingFrames++;
+      stats.framesWritten++;
+    } else {
+      urgent = true;
+    }
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) {
+    if (urgent || pendingFrames >= maxPendingFrames) {
+      flushNow(ctx);
+    } else if (pendingFrames > 0) {
+      scheduleFlush(ctx);
+    }
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+    if (pendingFrames > 0) {
+      flushNow(ctx);
+    }
+    cancelScheduledFlush();
+    ctx.close(promise);
+  }
+
+  private void scheduleFlush(ChannelHandlerContext ctx) {
+    if (flushScheduled) {
+      return;
+    }
+    flushScheduled = true;
+    if (maxDelayNanos > 0) {
+      scheduledFlush =
+          ctx.executor().schedule(delayedFlushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+    } else {
+      ctx.executor().execute(delayedFlushTask);
+    }
+  }
+
+  private void delayedFlush() {
+    if (flushScheduled) {
+      scheduledFlush = null;
+      stats.delayedFlushes++;
+      flushNow(ctx);
+    }
+  }
+
+  private void flushNow(ChannelHandlerContext ctx) {
+    if (pendingFrames > 0) {
+      stats.flushes++;
+    }
+    pendingFrames = 0;
+    urgent = false;
+    cancelScheduledFlush();
+    ctx.flush();
+  }
+
+  private void cancelScheduledFlush() {
+    flushScheduled = false;
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  private static boolean isDataFrame(Object msg) {
+    return msg instanceof TextWebSocketFrame
+        || msg instanceof BinaryWebSocketFrame
+        || msg instanceof ContinuationWebSocketFrame;
+  }
+}
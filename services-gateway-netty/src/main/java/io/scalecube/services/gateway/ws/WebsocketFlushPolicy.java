@@ -0,0 +1,130 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.AttributeKey;
+import java.time.Duration;
+import java.util.Objects;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Policy of flushing outbound websocket frames of a session. Every flush is a write syscall, so for
+ * high-rate streams it pays off to write several frames and flush them at once.
+ *
+ * <p>Pending data frames get flushed as soon as {@link #maxPendingFrames()} of them are written.
+ * The rest is flushed either after {@link #maxDelay()}, if set, or once the event loop of the
+ * session has run its currently queued tasks. Control frames (ping, pong, close) and handshake
+ * response are always flushed right away. Default policy flushes every frame.
+ */
+public final class WebsocketFlushPolicy {
+
+  public static final int DEFAULT_MAX_PENDING_FRAMES = 1;
+
+  private static final AttributeKey<WebsocketFlushStats> STATS_KEY =
+      AttributeKey.valueOf("scalecube.websocketFlushStats");
+
+  private static final String FLUSH_HANDLER = "scalecube.wsFlushHandler";
+
+  private final int maxPendingFrames;
+  private final Duration maxDelay;
+
+  private WebsocketFlushPolicy(Builder builder) {
+    this.maxPendingFrames = builder.maxPendingFrames;
+    this.maxDelay = builder.maxDelay;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int maxPendingFrames() {
+    return maxPendingFrames;
+  }
+
+  public Duration maxDelay() {
+    return maxDelay;
+  }
+
+  /**
+   * Installs flush handler right after http codec of a fresh channel, so that it sees every
+   * outbound frame and every flush.
+   *
+   * @param channel channel
+   */
+  void configure(Channel channel) {
+    final ChannelPipeline pipeline = channel.pipeline();
+    if (pipeline.get(NettyPipeline.HttpCodec) == null) {
+      return;
+    }
+
+    final WebsocketFlushStats stats = new WebsocketFlushStats();
+    pipeline.addAfter(
+        NettyPipeline.HttpCodec, FLUSH_HANDLER, new WebsocketFlushHandler(this, stats));
+
+    channel.attr(STATS_KEY).set(stats);
+  }
+
+  /**
+   * Returns flush stats of a given channel.
+   *
+   * @param channel channel
+   * @return stats, or null if flush policy wasn't configured on the channel
+   */
+  static WebsocketFlushStats stats(Channel channel) {
+    return channel.attr(STATS_KEY).get();
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketFlushPolicy{"
+        + "maxPendingFrames="
+        + maxPendingFrames
+        + ", maxDelay="
+        + maxDelay
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private int maxPendingFrames = DEFAULT_MAX_PENDING_FRAMES;
+    private Duration maxDelay;
+
+    private Builder() {}
+
+    /**
+     * Number of written data frames that triggers a flush. Default is {@value
+     * #DEFAULT_MAX_PENDING_FRAMES}, that is every frame gets flushed. {@link Integer#MAX_VALUE}
+     * means frames are flushed only by timer or when event loop is done with its queued tasks.
+     *
+     * @param maxPendingFrames max number of frames written but not flushed
+     * @return builder
+     */
+    public Builder maxPendingFrames(int maxPendingFrames) {
+      if (maxPendingFrames <= 0) {
+        throw new IllegalArgumentException("Invalid maxPendingFrames: " + maxPendingFrames);
+      }
+      this.maxPendingFrames = maxPendingFrames;
+      return this;
+    }
+
+    /**
+     * Max time a written data frame may wait for a flush. If not set (default), frames are flushed
+     * once event loop is done with its currently queued tasks.
+     *
+     * @param maxDelay max flush delay
+     * @return builder
+     */
+    public Builder maxDelay(Duration maxDelay) {
+      Objects.requireNonNull(maxDelay, "maxDelay");
+      if (maxDelay.isNegative() || maxDelay.isZero()) {
+        throw new IllegalArgumentException("Invalid maxDelay: " + maxDelay);
+      }
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    public WebsocketFlushPolicy build() {
+      return new WebsocketFlushPolicy(this);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.scalecube.services.gateway.ws;
+
+/**
+ * Per-session counters of outbound websocket data frames and flushes of them, see {@link
+ * WebsocketFlushPolicy}. Ratio of the two is the average number of frames per write syscall.
+ *
+ * <p>Counters are updated on the event loop of the session only and can be read from anywhere.
+ */
+public final class WebsocketFlushStats {
+
+  volatile long framesWritten;
+  volatile long flushes;
+  volatile long delayedFlushes;
+
+  /**
+   * Returns number of data frames written.
+   *
+   * @return frames written
+   */
+  public long framesWritten() {
+    return framesWritten;
+  }
+
+  /**
+   * Returns number of flushes of pending data frames.
+   *
+   * @return flushes
+   */
+  public long flushes() {
+    return flushes;
+  }
+
+  /**
+   * Returns number of flushes done by timer or at the end of event loop run, rather than by
+   * reaching {@link WebsocketFlushPolicy#maxPendingFrames()}.
+   *
+   * @return delayed flushes
+   */
+  public long delayedFlushes() {
+    return delayedFlushes;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketFlushStats{"
+        + "framesWritten="
+        + framesWritten
+        + ", flushes="
+        + flushes
+        + ", delayedFlushes="
+        + delayedFlushes
+        + '}';
+  }
+}
@@ -0,0 +1,198 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.Connection;
+
+/**
+ * Aggregates fragmented websocket messages into a single frame and enforces {@link
+ * WebsocketFrameLimits}. Unfragmented frames pass through as they are. Bytes held in aggregation
+ * are accounted per session, see {@link #aggregatedBytes()}.
+ */
+final class WebsocketFrameAggregator extends ChannelInboundHandlerAdapter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketFrameAggregator.class);
+
+  private static final AttributeKey<WebsocketFrameAggregator> AGGREGATOR_KEY =
+      AttributeKey.valueOf("scalecube.websocketFrameAggregator");
+
+  private static final String AGGREGATOR = "scalecube.wsFrameAggregator";
+
+  private static final int MAX_COMPONENTS = 1024;
+
+  private final int maxMessageSize;
+  private final long aggregationTimeoutMillis;
+
+  private CompositeByteBuf content;
+  private boolean text;
+  private int rsv;
+  private ScheduledFuture<?> timeout;
+  private boolean closing;
+  private volatile long aggregatedBytes;
+
+  private WebsocketFrameAggregator(WebsocketFrameLimits limits) {
+    this.maxMessageSize = limits.maxMessageSize();
+    this.aggregationTimeoutMillis = limits.aggregationTimeout().toMillis();
+  }
+
+  /**
+   * Installs aggregator on a given websocket connection, right before reactor-netty's inbound
+   * bridge.
+   *
+   * @param connection connection
+   * @param limits limits
+   */
+  static void install(Connection connection, WebsocketFrameLimits limits) {
+    final WebsocketFrameAggregator aggregator = new WebsocketFrameAggregator(limits);
+    connection.addHandlerLast(AGGREGATOR, aggregator);
+    connection.channel().attr(AGGREGATOR_KEY).set(aggregator);
+  }
+
+  /**
+   * Returns aggregator of a given channel.
+   *
+   * @param channel channel
+   * @return aggregator, or null if it wasn't installed on the channel
+   */
+  static WebsocketFrameAggregator get(Channel channel) {
+    return channel.attr(AGGREGATOR_KEY).get();
+  }
+
+  /**
+   * Returns number of bytes currently held in aggregation of a fragmented message.
+   *
+   * @return number of bytes
+   */
+  long aggregatedBytes() {
+    return aggregatedBytes;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (closing && msg instanceof WebSocketFrame && !(msg instanceof CloseWebSocketFrame)) {
+      ReferenceCountUtil.release(msg);
+      return;
+    }
+    if (msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame) {
+      onDataFrame(ctx, (WebSocketFrame) msg);
+    } else if (msg instanceof ContinuationWebSocketFrame) {
+      onContinuationFrame(ctx, (ContinuationWebSocketFrame) msg);
+    } else {
+      ctx.fireChannelRead(msg);
+    }
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    reset();
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) {
+    reset();
+    ctx.fireChannelInactive();
+  }
+
+  private void onDataFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
+    if (content != null) {
+      frame.release();
+      close(ctx, WebSocketCloseStatus.PROTOCOL_ERROR, "Fragmented message is not finished");
+      return;
+    }
+    final int size = frame.content().readableBytes();
+    if (size > maxMessageSize) {
+      frame.release();
+      close(ctx, WebSocketCloseStatus.MESSAGE_TOO_BIG, "Max message size exceeded");
+      return;
+    }
+    if (frame.isFinalFragment()) {
+      ctx.fireChannelRead(frame);
+      return;
+    }
+
+    text = frame instanceof TextWebSocketFrame;
+    rsv = frame.rsv();
+    content = ctx.alloc().compositeBuffer(MAX_COMPONENTS);
+    content.addComponent(true, frame.content().retain());
+    frame.release();
+    aggregatedBytes = size;
+    timeout =
+        ctx.executor()
+            .schedule(() -> onTimeout(ctx), aggregationTimeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void onContinuationFrame(ChannelHandlerContext ctx, ContinuationWebSocketFrame frame) {
+    if (content == null) {
+      frame.release();
+      close(ctx, WebSocketCloseStatus.PROTOCOL_ERROR, "Unexpected continuation frame");
+      return;
+    }
+    final int size = frame.content().readableBytes();
+    if (aggregatedBytes + size > maxMessageSize) {
+      frame.release();
+      close(ctx, WebSocketCloseStatus.MESSAGE_TOO_BIG, "Max message size exceeded");
+      return;
+    }
+
+    content.addComponent(true, frame.content().retain());
+    aggregatedBytes += size;
+    final boolean isFinal = frame.isFinalFragment();
+    frame.release();
+    if (!isFinal) {
+      return;
+    }
+
+    final WebSocketFrame aggregated =
+        text
+            ? new TextWebSocketFrame(true, rsv, content)
+            : new BinaryWebSocketFrame(true, rsv, content);
+    content = null;
+    aggregatedBytes = 0;
+    timeout.cancel(false);
+    timeout = null;
+    ctx.fireChannelRead(aggregated);
+  }
+
+  private void onTimeout(ChannelHandlerContext ctx) {
+    timeout = null;
+    close(ctx, WebSocketCloseStatus.POLICY_VIOLATION, "Message aggregation timeout");
+  }
+
+  private void close(ChannelHandlerContext ctx, WebSocketCloseStatus status, String reason) {
+    reset();
+    if (closing) {
+      return;
+    }
+    closing = true;
+    LOGGER.debug("Closing websocket {} with status {}: {}", ctx.channel(), status.code(), reason);
+    ctx.writeAndFlush(new CloseWebSocketFrame(status.code(), reason))
+        .addListener(ChannelFutureListener.CLOSE);
+  }
+
+  private void reset() {
+    if (timeout != null) {
+      timeout.cancel(false);
+      timeout = null;
+    }
+    if (content != null) {
+      content.release();
+      content = null;
+    }
+    aggregatedBytes = 0;
+  }
+}
@@ -0,0 +1,116 @@
+package io.scalecube.services.gateway.ws;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits on inbound websocket frames and messages. Fragmented messages (text or binary frame
+ * followed by continuation frames) are aggregated before decoding, each session holding at most
+ * one message in aggregation. Session that exceeds a limit gets closed with a proper status code:
+ * 1009 (message too big) for frame or message size, 1008 (policy violation) for aggregation
+ * timeout.
+ */
+public final class WebsocketFrameLimits {
+
+  public static final int DEFAULT_MAX_FRAME_PAYLOAD_LENGTH = 65536;
+  public static final int DEFAULT_MAX_MESSAGE_SIZE = 1024 * 1024;
+  public static final Duration DEFAULT_AGGREGATION_TIMEOUT = Duration.ofSeconds(10);
+
+  private final int maxFramePayloadLength;
+  private final int maxMessageSize;
+  private final Duration aggregationTimeout;
+
+  private WebsocketFrameLimits(Builder builder) {
+    this.maxFramePayloadLength = builder.maxFramePayloadLength;
+    this.maxMessageSize = builder.maxMessageSize;
+    this.aggregationTimeout = builder.aggregationTimeout;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int maxFramePayloadLength() {
+    return maxFramePayloadLength;
+  }
+
+  public int maxMessageSize() {
+    return maxMessageSize;
+  }
+
+  public Duration aggregationTimeout() {
+    return aggregationTimeout;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketFrameLimits{"
+        + "maxFramePayloadLength="
+        + maxFramePayloadLength
+        + ", maxMessageSize="
+        + maxMessageSize
+        + ", aggregationTimeout="
+        + aggregationTimeout
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private int maxFramePayloadLength = DEFAULT_MAX_FRAME_PAYLOAD_LENGTH;
+    private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+    private Duration aggregationTimeout = DEFAULT_AGGREGATION_TIMEOUT;
+
+    private Builder() {}
+
+    /**
+     * Max payload length of a single frame, enforced by websocket frame decoder. Default is
+     * {@value #DEFAULT_MAX_FRAME_PAYLOAD_LENGTH}.
+     *
+     * @param maxFramePayloadLength max frame payload length in bytes
+     * @return builder
+     */
+    public Builder maxFramePayloadLength(int maxFramePayloadLength) {
+      if (maxFramePayloadLength <= 0) {
+        throw new IllegalArgumentException(
+            "Invalid maxFramePayloadLength: " + maxFramePayloadLength);
+      }
+      this.maxFramePayloadLength = maxFramePayloadLength;
+      return this;
+    }
+
+    /**
+     * Max size of a message, either single frame or aggregated out of fragments. This is also the
+     * most of direct memory a session can hold in aggregation. Default is {@value
+     * #DEFAULT_MAX_MESSAGE_SIZE}.
+     *
+     * @param maxMessageSize max message size in bytes
+     * @return builder
+     */
+    public Builder maxMessageSize(int maxMessageSize) {
+      if (maxMessageSize <= 0) {
+        throw new IllegalArgumentException("Invalid maxMessageSize: " + maxMessageSize);
+      }
+      this.maxMessageSize = maxMessageSize;
+      return this;
+    }
+
+    /**
+     * Max time between the first and the last fragment of a message. Default is 10 seconds.
+     *
+     * @param aggregationTimeout aggregation timeout
+     * @return builder
+     */
+    public Builder aggregationTimeout(Duration aggregationTimeout) {
+      Objects.requireNonNull(aggregationTimeout, "aggregationTimeout");
+      if (aggregationTimeout.isNegative() || aggregationTimeout.isZero()) {
+        throw new IllegalArgumentException("Invalid aggregationTimeout: " + aggregationTimeout);
+      }
+      this.aggregationTimeout = aggregationTimeout;
+      return this;
+    }
+
+    public WebsocketFrameLimits build() {
+      return new WebsocketFrameLimits(this);
+    }
+  }
+}
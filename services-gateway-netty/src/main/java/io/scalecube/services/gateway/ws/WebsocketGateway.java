@@ -1,8 +1,8 @@
 package io.scalecube.services.gateway.ws;
 
+import io.netty.channel.Channel;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.scalecube.net.Address;
-import io.scalecube.services.exceptions.DefaultErrorMapper;
 import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
 import io.scalecube.services.gateway.Gateway;
 import io.scalecube.services.gateway.GatewayOptions;
@@ -23,11 +23,10 @@ public class WebsocketGateway extends GatewayTemplate {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketGateway.class);
 
-  private final GatewaySessionHandler gatewayHandler;
-  private final Duration keepAliveInterval;
-  private final ServiceProviderErrorMapper errorMapper;
+  private final WebsocketGatewaySettings settings;
 
   private DisposableServer server;
+  private WebsocketGatewayAcceptor acceptor;
   private LoopResources loopResources;
 
   /**
@@ -36,11 +35,7 @@ public class WebsocketGateway extends GatewayTemplate {
    * @param options gateway options
    */
   public WebsocketGateway(GatewayOptions options) {
-    this(
-        options,
-        Duration.ZERO,
-        GatewaySessionHandler.DEFAULT_INSTANCE,
-        DefaultErrorMapper.INSTANCE);
+    this(options, WebsocketGatewaySettings.builder().build());
   }
 
   /**
@@ -50,11 +45,7 @@ public WebsocketGateway(GatewayOptions options) {
    * @param keepAliveInterval keep alive interval
    */
   public WebsocketGateway(GatewayOptions options, Duration keepAliveInterval) {
-    this(
-        options,
-        keepAliveInterval,
-        GatewaySessionHandler.DEFAULT_INSTANCE,
-        DefaultErrorMapper.INSTANCE);
+    this(options, WebsocketGatewaySettings.builder().keepAliveInterval(keepAliveInterval).build());
   }
 
   /**
@@ -64,7 +55,7 @@ public WebsocketGateway(GatewayOptions options, Duration keepAliveInterval) {
    * @param gatewayHandler gateway handler
    */
   public WebsocketGateway(GatewayOptions options, GatewaySessionHandler gatewayHandler) {
-    this(options, Duration.ZERO, gatewayHandler, DefaultErrorMapper.INSTANCE);
+    this(options, WebsocketGatewaySettings.builder().gatewayHandler(gatewayHandler).build());
   }
 
   /**
@@ -74,7 +65,7 @@ public WebsocketGateway(GatewayOptions options, GatewaySessionHandler gatewayHan
    * @param errorMapper error mapper
    */
   public WebsocketGateway(GatewayOptions options, ServiceProviderErrorMapper errorMapper) {
-    this(options, Duration.ZERO, GatewaySessionHandler.DEFAULT_INSTANCE, errorMapper);
+    this(options, WebsocketGatewaySettings.builder().errorMapper(errorMapper).build());
   }
 
   /**
@@ -90,22 +81,36 @@ public WebsocketGateway(
       Duration keepAliveInterval,
       GatewaySessionHandler gatewayHandler,
       ServiceProviderErrorMapper errorMapper) {
-    super(options);
-    this.keepAliveInterval = keepAliveInterval;
-    this.gatewayHandler = gatewayHandler;
-    this.errorMapper = errorMapper;
+    this(
+        options,
+        WebsocketGatewaySettings.builder()
+            .keepAliveInterval(keepAliveInterval)
+            .gatewayHandler(gatewayHandler)
+            .errorMapper(errorMapper)
+            .build());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param options gateway options
+   * @param settings websocket gateway settings
+   */
+  public WebsocketGateway(GatewayOptions options, WebsocketGatewaySettings settings) {
+    super(options, settings.connectionLimits());
+    this.settings = settings;
   }
 
   @Override
   public Mono<Gateway> start() {
     return Mono.defer(
         () -> {
-          WebsocketGatewayAcceptor acceptor =
-              new WebsocketGatewayAcceptor(options.call(), gatewayHandler, errorMapper);
+          acceptor = new WebsocketGatewayAcceptor(options.call(), settings);
 
           loopResources = LoopResources.create("websocket-gateway");
 
           return prepareHttpServer(loopResources, options.port())
+              .doOnChannelInit((observer, channel, remoteAddress) -> setupChannel(channel))
               .doOnConnection(this::setupKeepAlive)
               .handle(acceptor)
               .bind()
@@ -122,7 +127,10 @@ public Address address() {
 
   @Override
   public Mono<Void> stop() {
-    return Flux.concatDelayError(shutdownServer(server), shutdownLoopResources(loopResources))
+    return Flux.concatDelayError(
+            shutdownServer(server),
+            Mono.fromRunnable(this::expireSessions),
+            shutdownLoopResources(loopResources))
         .then();
   }
 
@@ -132,10 +140,26 @@ public String toString() {
         .add("server=" + server)
         .add("loopResources=" + loopResources)
         .add("options=" + options)
+        .add("settings=" + settings)
         .toString();
   }
 
+  private void expireSessions() {
+    if (acceptor != null) {
+      acceptor.expireSessions();
+    }
+  }
+
+  private void setupChannel(Channel channel) {
+    // flush handler goes first, so that compression handlers end up between it and http codec
+    settings.flushPolicy().configure(channel);
+    if (settings.compression() != null) {
+      settings.compression().configure(channel);
+    }
+  }
+
   private void setupKeepAlive(Connection connection) {
+    final Duration keepAliveInterval = settings.keepAliveInterval();
     if (keepAliveInterval != Duration.ZERO) {
       connection
           .onReadIdle(keepAliveInterval.toMillis(), () -> onReadIdle(connection))
@@ -1,17 +1,17 @@
 package io.scalecube.services.gateway.ws;
 
-import static io.scalecube.services.gateway.ws.GatewayMessages.RATE_LIMIT_FIELD;
-import static io.scalecube.services.gateway.ws.GatewayMessages.getSid;
 import static io.scalecube.services.gateway.ws.GatewayMessages.getSignal;
-import static io.scalecube.services.gateway.ws.GatewayMessages.newCancelMessage;
-import static io.scalecube.services.gateway.ws.GatewayMessages.newCompleteMessage;
-import static io.scalecube.services.gateway.ws.GatewayMessages.newResponseMessage;
+import static io.scalecube.services.gateway.ws.GatewayMessages.newCompleteResponseEnvelope;
+import static io.scalecube.services.gateway.ws.GatewayMessages.newResponseEnvelope;
+import static io.scalecube.services.gateway.ws.GatewayMessages.resolveQualifier;
 import static io.scalecube.services.gateway.ws.GatewayMessages.toErrorResponse;
-import static io.scalecube.services.gateway.ws.GatewayMessages.validateSidOnSession;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.ReferenceCounted;
 import io.scalecube.services.ServiceCall;
 import io.scalecube.services.api.ServiceMessage;
 import io.scalecube.services.exceptions.BadRequestException;
@@ -23,21 +23,34 @@
 import io.scalecube.services.exceptions.UnauthorizedException;
 import io.scalecube.services.gateway.GatewaySessionHandler;
 import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
 import reactor.netty.DisposableChannel;
 import reactor.netty.channel.AbortedException;
 import reactor.netty.http.server.HttpServerRequest;
 import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.WebsocketServerSpec;
 import reactor.netty.http.websocket.WebsocketInbound;
 import reactor.netty.http.websocket.WebsocketOutbound;
 import reactor.util.context.Context;
@@ -49,10 +62,35 @@
 
   private static final AtomicLong SESSION_ID_GENERATOR = new AtomicLong(System.currentTimeMillis());
 
-  private final WebsocketServiceMessageCodec messageCodec = new WebsocketServiceMessageCodec();
+  private static final ServiceUnavailableException INACTIVITY_TIMEOUT =
+      new ServiceUnavailableException("stream inactivity timeout");
+
+  private static final AtomicReferenceFieldUpdater<RequestStream, Subscription> SUBSCRIPTION =
+      AtomicReferenceFieldUpdater.newUpdater(
+          RequestStream.class, Subscription.class, "subscription");
+
+  private static final AtomicIntegerFieldUpdater<RequestStream> ACTIVE =
+      AtomicIntegerFieldUpdater.newUpdater(RequestStream.class, "active");
+
+  private static final AtomicIntegerFieldUpdater<RequestStream> TERMINATED =
+      AtomicIntegerFieldUpdater.newUpdater(RequestStream.class, "terminated");
+
+  private final WebsocketServerSpec defaultWebsocketSpec;
+  private final WebsocketServerSpec subprotocolWebsocketSpec;
+  private final WebsocketFrameLimits frameLimits;
+  private final WebsocketSlowConsumerPolicy slowConsumerPolicy;
+  private final WebsocketStreamLimits streamLimits;
+  private final long inactivityTimeout;
+  private final WebsocketMessageCodec defaultCodec;
+  private final Map<String, WebsocketMessageCodec> codecs = new LinkedHashMap<>();
   private final ServiceCall serviceCall;
   private final GatewaySessionHandler gatewayHandler;
   private final ServiceProviderErrorMapper errorMapper;
+  private final Map<FrameRejection, ServiceMessage> rejectionResponses =
+      new EnumMap<>(FrameRejection.class);
+  private final WebsocketResumption resumption;
+  private final Map<String, WebsocketGatewaySession> resumableSessions = new ConcurrentHashMap<>();
+  private final SecureRandom tokenRandom = new SecureRandom();
 
   /**
    * Constructor for websocket acceptor.
@@ -65,15 +103,62 @@ public WebsocketGatewayAcceptor(
       ServiceCall serviceCall,
       GatewaySessionHandler gatewayHandler,
       ServiceProviderErrorMapper errorMapper) {
+    this(
+        serviceCall,
+        WebsocketGatewaySettings.builder()
+            .gatewayHandler(gatewayHandler)
+            .errorMapper(errorMapper)
+            .build());
+  }
+
+  /**
+   * Constructor for websocket acceptor.
+   *
+   * @param serviceCall service call
+   * @param settings websocket gateway settings
+   */
+  public WebsocketGatewayAcceptor(ServiceCall serviceCall, WebsocketGatewaySettings settings) {
     this.serviceCall = Objects.requireNonNull(serviceCall, "serviceCall");
-    this.gatewayHandler = Objects.requireNonNull(gatewayHandler, "gatewayHandler");
-    this.errorMapper = Objects.requireNonNull(errorMapper, "errorMapper");
+    this.gatewayHandler = settings.gatewayHandler();
+    this.errorMapper = settings.errorMapper();
+    this.frameLimits = settings.frameLimits();
+    this.slowConsumerPolicy = settings.slowConsumerPolicy();
+    this.streamLimits = settings.streamLimits();
+    this.inactivityTimeout = streamLimits.inactivityTimeout().toMillis();
+    this.resumption = settings.resumption();
+    this.defaultCodec = settings.codecs().get(0);
+    settings.codecs().forEach(codec -> this.codecs.putIfAbsent(codec.subprotocol(), codec));
+    this.defaultWebsocketSpec =
+        WebsocketServerSpec.builder()
+            .maxFramePayloadLength(frameLimits.maxFramePayloadLength())
+            .build();
+    this.subprotocolWebsocketSpec =
+        WebsocketServerSpec.builder()
+            .protocols(String.join(",", this.codecs.keySet()))
+            .maxFramePayloadLength(frameLimits.maxFramePayloadLength())
+            .build();
+    for (FrameRejection rejection : FrameRejection.values()) {
+      final ServiceMessage response =
+          errorMapper.toMessage(GatewayMessages.ERROR_QUALIFIER, rejection.exception());
+      if (response.data() instanceof ReferenceCounted) {
+        // encoding releases buffer data, such response is mapped per rejected frame instead
+        ReferenceCountUtil.safestRelease(response.data());
+      } else {
+        rejectionResponses.put(rejection, response);
+      }
+    }
   }
 
   @Override
   public Publisher<Void> apply(HttpServerRequest httpRequest, HttpServerResponse httpResponse) {
     final Map<String, String> headers = computeHeaders(httpRequest.requestHeaders());
-    final long sessionId = SESSION_ID_GENERATOR.incrementAndGet();
+    final long position = resumePosition(httpRequest.requestHeaders());
+    final WebsocketGatewaySession resumable =
+        resumableSession(httpRequest.requestHeaders(), position);
+    // connection is authenticated under id of the session it resumes, new session that replaces
+    // a session which can't be resumed after all keeps that id
+    final long sessionId =
+        resumable != null ? resumable.sessionId() : SESSION_ID_GENERATOR.incrementAndGet();
 
     return gatewayHandler
         .onConnectionOpen(sessionId, headers)
@@ -86,20 +171,140 @@ public Publisher<Void> apply(HttpServerRequest httpRequest, HttpServerResponse h
                     .subscribe())
         .then(
             Mono.defer(
-                () ->
-                    httpResponse.sendWebsocket(
-                        (WebsocketInbound inbound, WebsocketOutbound outbound) ->
-                            onConnect(
-                                new WebsocketGatewaySession(
-                                    sessionId,
-                                    messageCodec,
-                                    headers,
-                                    inbound,
-                                    outbound,
-                                    gatewayHandler)))))
+                () -> {
+                  // session is taken over from its connection only once new one is authenticated
+                  final WebsocketGatewaySession resumed =
+                      resumable != null ? claimSession(resumable, position) : null;
+                  final String token =
+                      resumed != null
+                          ? resumed.resumption().token()
+                          : newToken(httpRequest.requestHeaders());
+                  if (token != null) {
+                    httpResponse.header(WebsocketResumption.RESUME_TOKEN_HEADER, token);
+                  }
+                  if (resumed != null) {
+                    httpResponse.header(
+                        WebsocketResumption.RESUME_POSITION_HEADER,
+                        Long.toString(resumed.resumption().received()));
+                  }
+                  return httpResponse.sendWebsocket(
+                      (WebsocketInbound inbound, WebsocketOutbound outbound) -> {
+                        inbound.withConnection(
+                            connection -> {
+                              WebsocketFrameAggregator.install(connection, frameLimits);
+                              WebsocketOutboundGate.install(connection, slowConsumerPolicy);
+                              if (resumed == null) {
+                                // resumed session keeps its permits
+                                StreamPermits.install(connection.channel(), streamLimits);
+                              }
+                            });
+                        if (resumed != null) {
+                          return onResume(resumed, headers, inbound, outbound, position);
+                        }
+                        return onConnect(
+                            new WebsocketGatewaySession(
+                                sessionId,
+                                selectCodec(inbound.selectedSubprotocol()),
+                                headers,
+                                inbound,
+                                outbound,
+                                gatewayHandler,
+                                token != null
+                                    ? new SessionResumption(
+                                        token,
+                                        resumption.replayBufferSize(),
+                                        resumption.replayBufferBytes())
+                                    : null));
+                      },
+                      websocketSpec(httpRequest));
+                }))
         .onErrorResume(throwable -> Mono.empty());
   }
 
+  private WebsocketServerSpec websocketSpec(HttpServerRequest httpRequest) {
+    // reactor-netty doesn't invoke websocket handler if server is configured with subprotocols
+    // but client didn't ask for any, so subprotocols are offered only to clients asking for them
+    return httpRequest.requestHeaders().contains(HttpHeaderNames.SEC_WEBSOCKET_PROTOCOL)
+        ? subprotocolWebsocketSpec
+        : defaultWebsocketSpec;
+  }
+
+  private WebsocketMessageCodec selectCodec(String subprotocol) {
+    // first codec is the default, also when client didn't ask for any subprotocol
+    final WebsocketMessageCodec codec = subprotocol != null ? codecs.get(subprotocol) : null;
+    return codec != null ? codec : defaultCodec;
+  }
+
+  private static long resumePosition(HttpHeaders httpHeaders) {
+    final String position = httpHeaders.get(WebsocketResumption.RESUME_POSITION_HEADER);
+    try {
+      return position != null ? Long.parseLong(position) : -1;
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  private String newToken(HttpHeaders httpHeaders) {
+    if (resumption == null || !httpHeaders.contains(WebsocketResumption.RESUMABLE_HEADER)) {
+      return null;
+    }
+    final byte[] bytes = new byte[18];
+    tokenRandom.nextBytes(bytes);
+    return Base64.getUrlEncoder().encodeToString(bytes);
+  }
+
+  private WebsocketGatewaySession resumableSession(HttpHeaders httpHeaders, long position) {
+    final String token = httpHeaders.get(WebsocketResumption.RESUME_TOKEN_HEADER);
+    if (resumption == null || token == null || position < 0) {
+      return null;
+    }
+    return resumableSessions.get(token);
+  }
+
+  private WebsocketGatewaySession claimSession(WebsocketGatewaySession session, long position) {
+    final int epoch = session.resumption().claim(position);
+    if (epoch < 0) {
+      // frames client missed are gone, session can't be resumed
+      expire(session);
+      return null;
+    }
+    // expires unless handshake gets through in time
+    scheduleExpiry(session, epoch);
+    return session;
+  }
+
+  private void scheduleExpiry(WebsocketGatewaySession session, int epoch) {
+    try {
+      session
+          .eventLoop()
+          .schedule(
+              () -> {
+                if (session.resumption().isDetached(epoch)) {
+                  expire(session);
+                }
+              },
+              resumption.gracePeriod().toMillis(),
+              TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException ex) {
+      // gateway is stopping
+      expire(session);
+    }
+  }
+
+  /**
+   * Expires all resumable sessions, to be called once gateway has stopped accepting connections.
+   */
+  void expireSessions() {
+    resumableSessions.values().forEach(this::expire);
+  }
+
+  private void expire(WebsocketGatewaySession session) {
+    if (resumableSessions.remove(session.resumption().token(), session)) {
+      session.expire();
+      gatewayHandler.onSessionClose(session);
+    }
+  }
+
   private static Map<String, String> computeHeaders(HttpHeaders httpHeaders) {
     // exception will be thrown on duplicate
     return httpHeaders.entries().stream().collect(Collectors.toMap(Entry::getKey, Entry::getValue));
@@ -126,10 +331,54 @@ private static int toStatusCode(Throwable throwable) {
   private Mono<Void> onConnect(WebsocketGatewaySession session) {
     gatewayHandler.onSessionOpen(session);
 
-    session
-        .receive()
-        .subscribe(
-            byteBuf -> {
+    receive(session);
+
+    if (session.resumption() != null) {
+      resumableSessions.put(session.resumption().token(), session);
+      return onDetach(session);
+    }
+    return session.onClose(() -> gatewayHandler.onSessionClose(session));
+  }
+
+  private Mono<Void> onResume(
+      WebsocketGatewaySession session,
+      Map<String, String> headers,
+      WebsocketInbound inbound,
+      WebsocketOutbound outbound,
+      long position) {
+    if (!session.resume(headers, inbound, outbound, position)) {
+      // frames client missed got pushed out of replay buffer meanwhile
+      expire(session);
+      return outbound.sendClose(1011, "Session can't be resumed").then();
+    }
+
+    receive(session);
+
+    return onDetach(session);
+  }
+
+  private Mono<Void> onDetach(WebsocketGatewaySession session) {
+    final Channel channel = session.channel();
+    return session.onClose(
+        () -> {
+          final int epoch = session.resumption().detach(channel);
+          if (epoch >= 0) {
+            scheduleExpiry(session, epoch);
+          } else if (session.resumption().isReleased()) {
+            expire(session);
+          }
+        });
+  }
+
+  private void receive(WebsocketGatewaySession session) {
+    final Channel channel = session.channel();
+    final SessionResumption resumption = session.resumption();
+
+    final InboundFlowControl flowControl =
+        new InboundFlowControl(
+            streamLimits,
+            session.inboundFlowControl(),
+            (inbound, byteBuf) -> {
               if (byteBuf == Unpooled.EMPTY_BUFFER) {
                 return;
               }
@@ -139,107 +388,327 @@ private Mono<Void> onConnect(WebsocketGatewaySession session) {
                 return;
               }
 
-              Mono.deferContextual(context -> onRequest(session, byteBuf, (Context) context))
-                  .contextWrite(context -> gatewayHandler.onRequest(session, byteBuf, context))
-                  .subscribe();
+              if (resumption != null && !resumption.onInbound(channel)) {
+                // session moved on to another connection
+                ReferenceCountUtil.safestRelease(byteBuf);
+                return;
+              }
+
+              onRequest(session, byteBuf);
             },
             th -> {
               if (!(th instanceof AbortedException)) {
                 gatewayHandler.onSessionError(session, th);
               }
             });
+    // streams in flight are counted by the session across its connections
+    session.inboundFlowControl(flowControl);
 
-    return session.onClose(() -> gatewayHandler.onSessionClose(session));
+    session.receive().subscribe(flowControl);
   }
 
-  private Mono<ServiceMessage> onRequest(
-      WebsocketGatewaySession session, ByteBuf byteBuf, Context context) {
+  private void onRequest(WebsocketGatewaySession session, ByteBuf byteBuf) {
+    final Context context;
+    try {
+      context = gatewayHandler.onRequest(session, byteBuf, Context.empty());
+    } catch (Throwable th) {
+      ReferenceCountUtil.safestRelease(byteBuf);
+      gatewayHandler.onError(session, th, Context.empty());
+      return;
+    }
+    new RequestStream(session, context).onRequest(byteBuf);
+  }
 
-    return Mono.fromCallable(() -> messageCodec.decode(byteBuf))
-        .map(GatewayMessages::validateSid)
-        .flatMap(message -> onCancel(session, message))
-        .map(message -> validateSidOnSession(session, (ServiceMessage) message))
-        .map(GatewayMessages::validateQualifier)
-        .map(message -> gatewayHandler.mapMessage(session, message, context))
-        .doOnNext(request -> onRequest(session, request, context))
-        .doOnError(
-            th -> {
-              if (!(th instanceof WebsocketContextException)) {
-                // decode failed at this point
-                gatewayHandler.onError(session, th, context);
-                return;
-              }
+  private ServiceMessage mapMessage(
+      WebsocketGatewaySession session, ServiceMessage message, Context context) {
+    try {
+      return gatewayHandler.mapMessage(session, message, context);
+    } catch (Throwable th) {
+      // request data is a slice of the inbound frame, don't let it leak
+      ReferenceCountUtil.safestRelease(message.data());
+      throw th;
+    }
+  }
+
+  /**
+   * Request frame and, if it opens a stream, the stream itself. Decodes and validates request,
+   * dispatches it to service call, maps responses and sends terminal signal, then deregisters the
+   * stream. It subscribes to send of responses on its own, terminal signal is sent by {@link
+   * TerminalSend}, both carry {@link Context} of the request. Stream that sends no response for its
+   * inactivity timeout is cancelled, and error response is sent instead of the rest of its
+   * responses. Completion, error, inactivity and cancel of the stream race to terminate it, only
+   * the first one of them takes effect.
+   *
+   * <p>Request data is owned by the stream only till it's dispatched, from then on it belongs to
+   * the service call, so none of the terminal paths releases it.
+   */
+  private final class RequestStream
+      implements CoreSubscriber<Void>, Function<ServiceMessage, WebsocketEnvelope>, Disposable {
 
-              WebsocketContextException wex = (WebsocketContextException) th;
-              wex.releaseRequest(); // release
+    private final WebsocketGatewaySession session;
+    private final Context context;
 
-              session
-                  .send(toErrorResponse(errorMapper, wex.request(), wex.getCause()))
-                  .contextWrite(context)
-                  .subscribe();
-            });
-  }
+    private WebsocketEnvelope request;
+    private StreamPermits.Budget budget;
+    private InactivityTimer.Timeout inactivity;
+    // not private, updated by SUBSCRIPTION, ACTIVE and TERMINATED of enclosing class
+    volatile Subscription subscription;
+    volatile int active;
+    volatile int terminated;
+    private volatile boolean receivedError;
+    private volatile boolean sentComplete;
 
-  private void onRequest(WebsocketGatewaySession session, ServiceMessage request, Context context) {
-    final long sid = getSid(request);
-    final AtomicBoolean receivedError = new AtomicBoolean(false);
+    private RequestStream(WebsocketGatewaySession session, Context context) {
+      this.session = session;
+      this.context = context;
+    }
+
+    private void onRequest(ByteBuf byteBuf) {
+      try {
+        WebsocketEnvelope envelope = session.codec().decodeRequest(byteBuf, session);
+        if (envelope.rejection() != null) {
+          onRejection(envelope.sid(), envelope.rejection());
+          return;
+        }
+        envelope = resolveQualifier(session, envelope);
+        if (getSignal(envelope) == Signal.CANCEL) {
+          onCancel(envelope);
+          return;
+        }
+        if (!start(envelope)) {
+          ReferenceCountUtil.safestRelease(envelope.data());
+          onRejection(envelope.sid(), FrameRejection.STREAM_LIMIT);
+          return;
+        }
+        request = envelope.withMessage(mapMessage(session, envelope.message(), context));
+        dispatch();
+      } catch (Throwable th) {
+        end();
+        if (!(th instanceof WebsocketContextException)) {
+          // decode or message mapping failed at this point (request data already released)
+          gatewayHandler.onError(session, th, context);
+          return;
+        }
 
-    Flux<ServiceMessage> serviceStream = serviceCall.requestMany(request);
-    final String limitRate = request.header(RATE_LIMIT_FIELD);
-    serviceStream =
-        limitRate != null ? serviceStream.limitRate(Integer.parseInt(limitRate)) : serviceStream;
+        WebsocketContextException wex = (WebsocketContextException) th;
+        wex.releaseRequest(); // release
 
-    Disposable disposable =
         session
-            .send(
-                serviceStream.map(
-                    response -> {
-                      boolean isErrorResponse = response.isError();
-                      if (isErrorResponse) {
-                        receivedError.set(true);
-                      }
-                      return newResponseMessage(sid, response, isErrorResponse);
-                    }))
-            .doOnError(
-                th -> {
-                  ReferenceCountUtil.safestRelease(request.data());
-                  receivedError.set(true);
-                  session
-                      .send(toErrorResponse(errorMapper, request, th))
-                      .contextWrite(context)
-                      .subscribe();
-                })
-            .doOnTerminate(
-                () -> {
-                  if (!receivedError.get()) {
-                    session
-                        .send(newCompleteMessage(sid, request.qualifier()))
-                        .contextWrite(context)
-                        .subscribe();
-                  }
-                })
-            .doFinally(signalType -> session.dispose(sid))
+            .send(toErrorResponse(errorMapper, wex.requestEnvelope(), wex.getCause()))
             .contextWrite(context)
             .subscribe();
+      }
+    }
 
-    session.register(sid, disposable);
-  }
+    private void onRejection(long sid, FrameRejection rejection) {
+      // rejected frame had nothing decoded but sid, error response is precomputed if it can be
+      ServiceMessage response = rejectionResponses.get(rejection);
+      if (response == null) {
+        response = errorMapper.toMessage(GatewayMessages.ERROR_QUALIFIER, rejection.exception());
+      }
+      session
+          .send(new WebsocketEnvelope(sid, Signal.ERROR.code(), response))
+          .contextWrite(context)
+          .subscribe();
+    }
 
-  private Mono<?> onCancel(WebsocketGatewaySession session, ServiceMessage message) {
-    if (getSignal(message) != Signal.CANCEL) {
-      return Mono.just(message);
+    private boolean start(WebsocketEnvelope envelope) {
+      final StreamPermits permits = session.streamPermits();
+      if (permits != null && (budget = permits.acquire(envelope.qualifier())) == null) {
+        return false;
+      }
+      session.inboundFlowControl().onStreamStart();
+      ACTIVE.lazySet(this, 1);
+      return true;
     }
 
-    // release data if CANCEL contains data (it shouldn't normally)
-    if (message.data() != null) {
-      ReferenceCountUtil.safestRelease(message.data());
+    private void end() {
+      if (ACTIVE.compareAndSet(this, 1, 0)) {
+        if (budget != null) {
+          budget.release();
+        }
+        if (inactivity != null) {
+          inactivity.cancel();
+        }
+        // session could have been resumed on a new connection meanwhile, it's reading of that
+        // connection which waits for streams to end
+        session.inboundFlowControl().onStreamEnd();
+      }
+    }
+
+    private void onCancel(WebsocketEnvelope envelope) {
+      // release data if CANCEL contains data (it shouldn't normally)
+      if (envelope.data() != null) {
+        ReferenceCountUtil.safestRelease(envelope.data());
+      }
+
+      // dispose by sid (if anything to dispose)
+      long sid = envelope.sid();
+      session.dispose(sid);
+
+      session
+          .sendSignal(sid, Signal.CANCEL, envelope.qualifier())
+          .contextWrite(context)
+          .subscribe();
+    }
+
+    private void dispatch() {
+      Flux<ServiceMessage> serviceStream = serviceCall.requestMany(request.message());
+      final long limitRate = request.rateLimit();
+      serviceStream =
+          limitRate != WebsocketEnvelope.NONE
+              ? serviceStream.limitRate((int) Math.min(limitRate, Integer.MAX_VALUE))
+              : serviceStream;
+      final String conflationKey = request.conflationKey();
+      serviceStream =
+          conflationKey != null
+              ? WebsocketConflation.conflate(serviceStream, conflationKey)
+              : serviceStream;
+
+      Flux<WebsocketEnvelope> responses = serviceStream.map(this);
+      if (request.isSingleFrame()) {
+        responses = completeOnLastResponse(responses);
+      }
+
+      final long timeout = request.inactivity() > 0 ? request.inactivity() : inactivityTimeout;
+      if (timeout > 0) {
+        inactivity = InactivityTimer.of(session.eventLoop()).schedule(timeout, this::onInactive);
+      }
+
+      session.sendMany(responses).subscribe(this);
+      session.register(request.sid(), this);
+    }
+
+    private Flux<WebsocketEnvelope> completeOnLastResponse(Flux<WebsocketEnvelope> responses) {
+      // last response is held back till stream terminates, then it goes along with COMPLETE signal
+      return WebsocketSingleFrame.completeOnLast(
+          responses,
+          response -> {
+            if (response.signal() != WebsocketEnvelope.NO_SIGNAL) {
+              return response;
+            }
+            sentComplete = true;
+            return newCompleteResponseEnvelope(response.sid(), response.message());
+          });
+    }
+
+    private boolean tryTerminate() {
+      return TERMINATED.compareAndSet(this, 0, 1);
+    }
+
+    private void onInactive() {
+      if (!tryTerminate()) {
+        return;
+      }
+      // cancels service call along with sending of its responses
+      Operators.terminate(SUBSCRIPTION, this);
+      end();
+      session.dispose(request.sid());
+      session
+          .send(toErrorResponse(errorMapper, request, INACTIVITY_TIMEOUT))
+          .contextWrite(context)
+          .subscribe();
+    }
+
+    @Override
+    public WebsocketEnvelope apply(ServiceMessage response) {
+      if (inactivity != null) {
+        inactivity.touch();
+      }
+      boolean isErrorResponse = response.isError();
+      if (isErrorResponse) {
+        receivedError = true;
+      }
+      return newResponseEnvelope(request.sid(), response, isErrorResponse);
+    }
+
+    @Override
+    public Context currentContext() {
+      return context;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (Operators.setOnce(SUBSCRIPTION, this, s)) {
+        s.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(Void unused) {
+      // no-op
     }
 
-    // dispose by sid (if anything to dispose)
-    long sid = getSid(message);
-    session.dispose(sid);
+    @Override
+    public void onError(Throwable throwable) {
+      if (!tryTerminate()) {
+        return;
+      }
+      session
+          .send(toErrorResponse(errorMapper, request, throwable))
+          .subscribe(new TerminalSend());
+    }
+
+    @Override
+    public void onComplete() {
+      if (!tryTerminate()) {
+        return;
+      }
+      if (receivedError || sentComplete) {
+        terminate();
+        return;
+      }
+      session
+          .sendSignal(request.sid(), Signal.COMPLETE, request.qualifier())
+          .subscribe(new TerminalSend());
+    }
 
-    // no need to subscribe here since flatMap will do
-    return session.send(newCancelMessage(sid, message.qualifier()));
+    @Override
+    public void dispose() {
+      // cancelled stream sends no terminal signal, unless it's being sent already
+      tryTerminate();
+      Operators.terminate(SUBSCRIPTION, this);
+      end();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return subscription == Operators.cancelledSubscription();
+    }
+
+    private void terminate() {
+      SUBSCRIPTION.lazySet(this, Operators.cancelledSubscription());
+      end();
+      session.dispose(request.sid());
+    }
+
+    /** Sends terminal signal of the stream, then deregisters the stream. */
+    private final class TerminalSend implements CoreSubscriber<Void> {
+
+      @Override
+      public Context currentContext() {
+        return context;
+      }
+
+      @Override
+      public void onSubscribe(Subscription s) {
+        s.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(Void unused) {
+        // no-op
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        terminate();
+      }
+
+      @Override
+      public void onComplete() {
+        terminate();
+      }
+    }
   }
 }
@@ -1,15 +1,20 @@
 package io.scalecube.services.gateway.ws;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.scalecube.services.api.ServiceMessage;
 import io.scalecube.services.gateway.GatewaySession;
 import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.common.StreamRegistry;
+import io.scalecube.services.gateway.common.WebsocketCompressionStats;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Predicate;
-import org.jctools.maps.NonBlockingHashMapLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -23,18 +28,30 @@ public final class WebsocketGatewaySession implements GatewaySession {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketGatewaySession.class);
 
+  // flushes get consolidated further down the pipeline, see WebsocketFlushPolicy
   private static final Predicate<Object> SEND_PREDICATE = f -> true;
 
-  private final Map<Long, Disposable> subscriptions = new NonBlockingHashMapLong<>(1024);
+  private final StreamRegistry<Disposable> subscriptions = new StreamRegistry<>();
 
   private final GatewaySessionHandler gatewayHandler;
 
-  private final WebsocketInbound inbound;
-  private final WebsocketOutbound outbound;
-  private final WebsocketServiceMessageCodec codec;
+  private final WebsocketMessageCodec codec;
+  private final QualifierTable qualifiers = new QualifierTable();
 
   private final long sessionId;
-  private final Map<String, String> headers;
+  private final SessionResumption resumption;
+
+  // replaced when session is resumed on a new connection
+  private volatile Map<String, String> headers;
+  private volatile WebsocketInbound inbound;
+  private volatile WebsocketOutbound outbound;
+  private volatile WebsocketCompressionStats compressionStats;
+  private volatile WebsocketFrameAggregator frameAggregator;
+  private volatile WebsocketFlushStats flushStats;
+  private volatile WebsocketOutboundGate outboundGate;
+  private volatile StreamPermits streamPermits;
+  private volatile InboundFlowControl inboundFlowControl;
+  private volatile Channel channel;
 
   /**
    * Create a new websocket session with given handshake, inbound and outbound channels.
@@ -48,19 +65,42 @@ public final class WebsocketGatewaySession implements GatewaySession {
    */
   public WebsocketGatewaySession(
       long sessionId,
-      WebsocketServiceMessageCodec codec,
+      WebsocketMessageCodec codec,
       Map<String, String> headers,
       WebsocketInbound inbound,
       WebsocketOutbound outbound,
       GatewaySessionHandler gatewayHandler) {
+    this(sessionId, codec, headers, inbound, outbound, gatewayHandler, null);
+  }
+
+  /**
+   * Create a new websocket session, resumable if resumption state is given.
+   *
+   * @param sessionId - session id
+   * @param codec - msg codec
+   * @param headers - headers
+   * @param inbound - Websocket inbound
+   * @param outbound - Websocket outbound
+   * @param gatewayHandler - gateway handler
+   * @param resumption - resumption state (optional)
+   */
+  WebsocketGatewaySession(
+      long sessionId,
+      WebsocketMessageCodec codec,
+      Map<String, String> headers,
+      WebsocketInbound inbound,
+      WebsocketOutbound outbound,
+      GatewaySessionHandler gatewayHandler,
+      SessionResumption resumption) {
     this.sessionId = sessionId;
     this.codec = codec;
-
     this.headers = Collections.unmodifiableMap(new HashMap<>(headers));
-    this.inbound =
-        (WebsocketInbound) inbound.withConnection(c -> c.onDispose(this::clearSubscriptions));
-    this.outbound = outbound;
     this.gatewayHandler = gatewayHandler;
+    this.resumption = resumption;
+    bind(inbound, outbound);
+    if (resumption != null) {
+      resumption.attach(channel, 0, this::newFrame);
+    }
   }
 
   @Override
@@ -88,11 +128,16 @@ public Flux<ByteBuf> receive() {
    * @param response response
    * @return mono void
    */
-  public Mono<Void> send(ServiceMessage response) {
+  public Mono<Void> send(WebsocketEnvelope response) {
     return Mono.deferContextual(
         context -> {
-          final TextWebSocketFrame frame = new TextWebSocketFrame(codec.encode(response));
-          gatewayHandler.onResponse(this, frame.content(), response, (Context) context);
+          final WebSocketFrame frame = newFrame(codec.encode(response, qualifiers));
+          gatewayHandler.onResponse(
+              this, frame.content(), response.message(), (Context) context);
+          if (resumption != null) {
+            resumption.write(frame);
+            return Mono.empty();
+          }
           // send with publisher (defer buffer cleanup to netty)
           return outbound
               .sendObject(frame)
@@ -101,38 +146,153 @@ public Mono<Void> send(ServiceMessage response) {
         });
   }
 
+  /**
+   * Method to send normal response.
+   *
+   * @param response response
+   * @return mono void
+   * @deprecated use {@link #send(WebsocketEnvelope)}
+   */
+  @Deprecated
+  public Mono<Void> send(ServiceMessage response) {
+    return send(WebsocketEnvelope.from(response));
+  }
+
   /**
    * Method to send normal response.
    *
    * @param messages messages
    * @return mono void
+   * @deprecated use {@link #sendMany(Flux)}
    */
+  @Deprecated
   public Mono<Void> send(Flux<ServiceMessage> messages) {
+    return sendMany(messages.map(WebsocketEnvelope::from));
+  }
+
+  /**
+   * Method to send stream of responses.
+   *
+   * @param messages messages
+   * @return mono void
+   */
+  public Mono<Void> sendMany(Flux<WebsocketEnvelope> messages) {
     return Mono.deferContextual(
         context -> {
-          // send with publisher (defer buffer cleanup to netty)
-          return outbound
-              .sendObject(
-                  messages.map(
+          final Flux<WebSocketFrame> frames =
+              gate(messages)
+                  .map(
                       response -> {
-                        final TextWebSocketFrame frame =
-                            new TextWebSocketFrame(codec.encode(response));
+                        final WebSocketFrame frame = newFrame(codec.encode(response, qualifiers));
                         gatewayHandler.onResponse(
-                            this, frame.content(), response, (Context) context);
+                            this, frame.content(), response.message(), (Context) context);
                         return frame;
-                      }),
-                  SEND_PREDICATE)
+                      });
+          if (resumption != null) {
+            // stream outlives connection, gate holds it back while session is detached
+            return frames
+                .doOnNext(resumption::write)
+                .then()
+                .doOnError(th -> gatewayHandler.onError(this, th, (Context) context));
+          }
+          // send with publisher (defer buffer cleanup to netty)
+          return outbound
+              .sendObject(frames, SEND_PREDICATE)
+              .then()
+              .doOnError(th -> gatewayHandler.onError(this, th, (Context) context));
+        });
+  }
+
+  /**
+   * Method to send signal without data, such as COMPLETE or CANCEL.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @return mono void
+   */
+  public Mono<Void> sendSignal(long sid, Signal signal, String qualifier) {
+    return Mono.deferContextual(
+        context -> {
+          final WebSocketFrame frame =
+              newFrame(codec.encodeSignal(sid, signal, qualifier, qualifiers));
+          gatewayHandler.onResponse(
+              this, frame.content(), SignalFrameWriter.message(qualifier), (Context) context);
+          if (resumption != null) {
+            resumption.write(frame);
+            return Mono.empty();
+          }
+          // send with publisher (defer buffer cleanup to netty)
+          return outbound
+              .sendObject(frame)
               .then()
               .doOnError(th -> gatewayHandler.onError(this, th, (Context) context));
         });
   }
 
+  /**
+   * Returns counters of raw and compressed payload bytes of this session.
+   *
+   * @return compression stats, or null if gateway was started without compression
+   */
+  public WebsocketCompressionStats compressionStats() {
+    return compressionStats;
+  }
+
+  /**
+   * Returns counters of outbound data frames and flushes of this session.
+   *
+   * @return flush stats, or null if channel wasn't set up by {@link WebsocketGateway}
+   */
+  public WebsocketFlushStats flushStats() {
+    return flushStats;
+  }
+
+  /**
+   * Returns number of stream messages this session dropped for its client being a slow consumer,
+   * see {@link WebsocketSlowConsumerPolicy.Action#DROP_OLDEST}.
+   *
+   * @return number of messages
+   */
+  public long droppedMessages() {
+    return outboundGate != null ? outboundGate.droppedMessages() : 0;
+  }
+
+  /**
+   * Returns number of inbound bytes this session holds in aggregation of a fragmented message,
+   * bounded by {@link WebsocketFrameLimits#maxMessageSize()}.
+   *
+   * @return number of bytes
+   */
+  public long aggregatedBytes() {
+    return frameAggregator != null ? frameAggregator.aggregatedBytes() : 0;
+  }
+
+  /**
+   * Returns codec negotiated for this session.
+   *
+   * @return codec
+   */
+  WebsocketMessageCodec codec() {
+    return codec;
+  }
+
+  /**
+   * Returns qualifier table of this session.
+   *
+   * @return qualifier table
+   */
+  QualifierTable qualifiers() {
+    return qualifiers;
+  }
+
   /**
    * Close the websocket session.
    *
    * @return mono void
    */
   public Mono<Void> close() {
+    endResumption();
     return outbound.sendClose().then();
   }
 
@@ -143,6 +303,7 @@ public Mono<Void> close() {
    * @return mono void
    */
   public Mono<Void> close(String reason) {
+    endResumption();
     return outbound.sendClose(1000, reason).then();
   }
 
@@ -206,18 +367,142 @@ public void register(Long streamId, Disposable disposable) {
     }
   }
 
+  /**
+   * Returns stream permits of this session.
+   *
+   * @return permits, or null if session is not limited
+   */
+  StreamPermits streamPermits() {
+    return streamPermits;
+  }
+
+  /**
+   * Returns inbound flow control of the connection this session is bound to.
+   *
+   * @return flow control, or null if session doesn't read yet
+   */
+  InboundFlowControl inboundFlowControl() {
+    return inboundFlowControl;
+  }
+
+  void inboundFlowControl(InboundFlowControl inboundFlowControl) {
+    this.inboundFlowControl = inboundFlowControl;
+  }
+
+  /**
+   * Returns event loop of this session.
+   *
+   * @return event loop
+   */
+  EventLoop eventLoop() {
+    return channel.eventLoop();
+  }
+
+  /**
+   * Returns channel session is bound to.
+   *
+   * @return channel
+   */
+  Channel channel() {
+    return channel;
+  }
+
+  /**
+   * Returns resumption state of this session.
+   *
+   * @return resumption state, or null if session is not resumable
+   */
+  SessionResumption resumption() {
+    return resumption;
+  }
+
+  /**
+   * Resumes this session on a new connection, resending frames client missed. Headers of the
+   * session become those of the handshake request of the new connection.
+   *
+   * @param headers handshake request headers of new connection
+   * @param inbound websocket inbound of new connection
+   * @param outbound websocket outbound of new connection
+   * @param position number of data frames client has received
+   * @return true if resumed, false if frames client missed are gone
+   */
+  boolean resume(
+      Map<String, String> headers,
+      WebsocketInbound inbound,
+      WebsocketOutbound outbound,
+      long position) {
+    this.headers = Collections.unmodifiableMap(new HashMap<>(headers));
+    bind(inbound, outbound);
+    return resumption.attach(channel, position, this::newFrame);
+  }
+
+  /**
+   * Ends resumable session which wasn't resumed in time, disposing its streams.
+   */
+  void expire() {
+    clearSubscriptions();
+    resumption.release();
+  }
+
+  private void endResumption() {
+    // session closed on purpose ends along with its connection
+    if (resumption != null) {
+      resumption.release();
+    }
+  }
+
+  private void bind(WebsocketInbound inbound, WebsocketOutbound outbound) {
+    final WebsocketOutboundGate previousGate = outboundGate;
+    this.inbound =
+        (WebsocketInbound)
+            inbound.withConnection(
+                c -> {
+                  if (resumption == null) {
+                    c.onDispose(this::clearSubscriptions);
+                  }
+                  compressionStats = WebsocketCompression.stats(c.channel());
+                  frameAggregator = WebsocketFrameAggregator.get(c.channel());
+                  flushStats = WebsocketFlushPolicy.stats(c.channel());
+                  if (streamPermits == null) {
+                    // permits are counted by the session across its connections
+                    streamPermits = StreamPermits.get(c.channel());
+                  }
+                  channel = c.channel();
+                  final WebsocketOutboundGate gate = WebsocketOutboundGate.get(c.channel());
+                  if (gate != null) {
+                    gate.onUnwritable(() -> gatewayHandler.onSlowConsumer(this));
+                    if (resumption != null) {
+                      gate.holdOnInactive();
+                    }
+                  }
+                  outboundGate = gate;
+                  if (previousGate != null && gate != null) {
+                    previousGate.handOver(gate);
+                  }
+                });
+    this.outbound = outbound;
+  }
+
+  private Flux<WebsocketEnvelope> gate(Flux<WebsocketEnvelope> messages) {
+    return outboundGate != null ? outboundGate.gate(messages) : messages;
+  }
+
+  private WebSocketFrame newFrame(ByteBuf content) {
+    return codec.isBinary() ? new BinaryWebSocketFrame(content) : new TextWebSocketFrame(content);
+  }
+
   private void clearSubscriptions() {
-    if (subscriptions.size() > 1) {
+    final int size = subscriptions.size();
+    if (size > 1) {
       if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Clear all {} subscriptions on session={}", subscriptions.size(), sessionId);
+        LOGGER.debug("Clear all {} subscriptions on session={}", size, sessionId);
       }
-    } else if (subscriptions.size() == 1) {
+    } else if (size == 1) {
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("Clear 1 subscription on session={}", sessionId);
       }
     }
-    subscriptions.forEach((sid, disposable) -> disposable.dispose());
-    subscriptions.clear();
+    subscriptions.removeAll(Disposable::dispose);
   }
 
   @Override
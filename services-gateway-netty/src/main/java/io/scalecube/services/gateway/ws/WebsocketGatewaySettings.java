@@ -0,0 +1,232 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.exceptions.DefaultErrorMapper;
+import io.scalecube.services.exceptions.ServiceProviderErrorMapper;
+import io.scalecube.services.gateway.ConnectionLimits;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Settings of {@link WebsocketGateway} and {@link WebsocketGatewayAcceptor}. Every setting has a
+ * default, so that gateway built out of {@code WebsocketGatewaySettings.builder().build()} behaves
+ * the same as one built out of {@link io.scalecube.services.gateway.GatewayOptions} alone.
+ */
+public final class WebsocketGatewaySettings {
+
+  private final Duration keepAliveInterval;
+  private final GatewaySessionHandler gatewayHandler;
+  private final ServiceProviderErrorMapper errorMapper;
+  private final List<WebsocketMessageCodec> codecs;
+  private final WebsocketCompression compression;
+  private final WebsocketFrameLimits frameLimits;
+  private final WebsocketFlushPolicy flushPolicy;
+  private final WebsocketSlowConsumerPolicy slowConsumerPolicy;
+  private final WebsocketStreamLimits streamLimits;
+  private final ConnectionLimits connectionLimits;
+  private final WebsocketResumption resumption;
+
+  private WebsocketGatewaySettings(Builder builder) {
+    this.keepAliveInterval = builder.keepAliveInterval;
+    this.gatewayHandler = builder.gatewayHandler;
+    this.errorMapper = builder.errorMapper;
+    this.codecs = builder.codecs;
+    this.compression = builder.compression;
+    this.frameLimits = builder.frameLimits;
+    this.flushPolicy = builder.flushPolicy;
+    this.slowConsumerPolicy = builder.slowConsumerPolicy;
+    this.streamLimits = builder.streamLimits;
+    this.connectionLimits = builder.connectionLimits;
+    this.resumption = builder.resumption;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Duration keepAliveInterval() {
+    return keepAliveInterval;
+  }
+
+  public GatewaySessionHandler gatewayHandler() {
+    return gatewayHandler;
+  }
+
+  public ServiceProviderErrorMapper errorMapper() {
+    return errorMapper;
+  }
+
+  public List<WebsocketMessageCodec> codecs() {
+    return codecs;
+  }
+
+  public WebsocketCompression compression() {
+    return compression;
+  }
+
+  public WebsocketFrameLimits frameLimits() {
+    return frameLimits;
+  }
+
+  public WebsocketFlushPolicy flushPolicy() {
+    return flushPolicy;
+  }
+
+  public WebsocketSlowConsumerPolicy slowConsumerPolicy() {
+    return slowConsumerPolicy;
+  }
+
+  public WebsocketStreamLimits streamLimits() {
+    return streamLimits;
+  }
+
+  public ConnectionLimits connectionLimits() {
+    return connectionLimits;
+  }
+
+  public WebsocketResumption resumption() {
+    return resumption;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketGatewaySettings{"
+        + "keepAliveInterval="
+        + keepAliveInterval
+        + ", codecs="
+        + codecs
+        + ", compression="
+        + compression
+        + ", frameLimits="
+        + frameLimits
+        + ", flushPolicy="
+        + flushPolicy
+        + ", slowConsumerPolicy="
+        + slowConsumerPolicy
+        + ", streamLimits="
+        + streamLimits
+        + ", connectionLimits="
+        + connectionLimits
+        + ", resumption="
+        + resumption
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private Duration keepAliveInterval = Duration.ZERO;
+    private GatewaySessionHandler gatewayHandler = GatewaySessionHandler.DEFAULT_INSTANCE;
+    private ServiceProviderErrorMapper errorMapper = DefaultErrorMapper.INSTANCE;
+    private List<WebsocketMessageCodec> codecs = WebsocketMessageCodec.defaultCodecs();
+    private WebsocketCompression compression;
+    private WebsocketFrameLimits frameLimits = WebsocketFrameLimits.builder().build();
+    private WebsocketFlushPolicy flushPolicy = WebsocketFlushPolicy.builder().build();
+    private WebsocketSlowConsumerPolicy slowConsumerPolicy =
+        WebsocketSlowConsumerPolicy.builder().build();
+    private WebsocketStreamLimits streamLimits = WebsocketStreamLimits.builder().build();
+    private ConnectionLimits connectionLimits;
+    private WebsocketResumption resumption;
+
+    private Builder() {}
+
+    /**
+     * Interval of keepalive pings sent on idle connections. Default is zero, no pings.
+     *
+     * @param keepAliveInterval keep alive interval
+     * @return builder
+     */
+    public Builder keepAliveInterval(Duration keepAliveInterval) {
+      Objects.requireNonNull(keepAliveInterval, "keepAliveInterval");
+      if (keepAliveInterval.isNegative()) {
+        throw new IllegalArgumentException("Invalid keepAliveInterval: " + keepAliveInterval);
+      }
+      this.keepAliveInterval = keepAliveInterval;
+      return this;
+    }
+
+    public Builder gatewayHandler(GatewaySessionHandler gatewayHandler) {
+      this.gatewayHandler = Objects.requireNonNull(gatewayHandler, "gatewayHandler");
+      return this;
+    }
+
+    public Builder errorMapper(ServiceProviderErrorMapper errorMapper) {
+      this.errorMapper = Objects.requireNonNull(errorMapper, "errorMapper");
+      return this;
+    }
+
+    /**
+     * Codecs selected by negotiated subprotocol, first one is the default. Default is {@link
+     * WebsocketMessageCodec#defaultCodecs()}.
+     *
+     * @param codecs codecs
+     * @return builder
+     */
+    public Builder codecs(List<WebsocketMessageCodec> codecs) {
+      if (codecs == null || codecs.isEmpty()) {
+        throw new IllegalArgumentException("codecs must not be empty");
+      }
+      this.codecs = Collections.unmodifiableList(new ArrayList<>(codecs));
+      return this;
+    }
+
+    /**
+     * Permessage-deflate settings. Default is null, no compression.
+     *
+     * @param compression compression settings (optional)
+     * @return builder
+     */
+    public Builder compression(WebsocketCompression compression) {
+      this.compression = compression;
+      return this;
+    }
+
+    public Builder frameLimits(WebsocketFrameLimits frameLimits) {
+      this.frameLimits = Objects.requireNonNull(frameLimits, "frameLimits");
+      return this;
+    }
+
+    public Builder flushPolicy(WebsocketFlushPolicy flushPolicy) {
+      this.flushPolicy = Objects.requireNonNull(flushPolicy, "flushPolicy");
+      return this;
+    }
+
+    public Builder slowConsumerPolicy(WebsocketSlowConsumerPolicy slowConsumerPolicy) {
+      this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy, "slowConsumerPolicy");
+      return this;
+    }
+
+    public Builder streamLimits(WebsocketStreamLimits streamLimits) {
+      this.streamLimits = Objects.requireNonNull(streamLimits, "streamLimits");
+      return this;
+    }
+
+    /**
+     * Limits on connections. Default is null, nothing is limited.
+     *
+     * @param connectionLimits connection limits (optional)
+     * @return builder
+     */
+    public Builder connectionLimits(ConnectionLimits connectionLimits) {
+      this.connectionLimits = connectionLimits;
+      return this;
+    }
+
+    /**
+     * Settings of resumable sessions. Default is null, sessions are not resumable.
+     *
+     * @param resumption resumption settings (optional)
+     * @return builder
+     */
+    public Builder resumption(WebsocketResumption resumption) {
+      this.resumption = resumption;
+      return this;
+    }
+
+    public WebsocketGatewaySettings build() {
+      return new WebsocketGatewaySettings(this);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoding/decoding of {@link WebsocketEnvelope} to/from websocket frame content. Gateway is given
+ * a list of codecs and selects one per websocket session by negotiated {@link #subprotocol()}, the
+ * first codec in the list is used for clients that didn't ask for any subprotocol.
+ */
+public interface WebsocketMessageCodec {
+
+  /**
+   * Returns codecs gateway goes with by default: json (the default one), binary envelope, CBOR and
+   * MessagePack.
+   *
+   * @return new codec instances
+   */
+  static List<WebsocketMessageCodec> defaultCodecs() {
+    return Arrays.asList(
+        new WebsocketServiceMessageCodec(),
+        new WebsocketBinaryServiceMessageCodec(),
+        new WebsocketCborServiceMessageCodec(),
+        new WebsocketMessagePackServiceMessageCodec());
+  }
+
+  /**
+   * Encodes {@link ServiceMessage} that keeps gateway fields in its headers to {@link ByteBuf}.
+   *
+   * @param message message to encode
+   * @return frame content
+   * @throws MessageCodecException in case of error during encoding
+   */
+  default ByteBuf encode(ServiceMessage message) throws MessageCodecException {
+    return encode(WebsocketEnvelope.from(message), null);
+  }
+
+  /**
+   * Encodes {@link WebsocketEnvelope} to {@link ByteBuf}, qualifiers registered in a given table
+   * are encoded by their ids.
+   *
+   * @param envelope envelope to encode
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   * @throws MessageCodecException in case of error during encoding
+   */
+  ByteBuf encode(WebsocketEnvelope envelope, QualifierTable qualifiers)
+      throws MessageCodecException;
+
+  /**
+   * Encodes signal frame without data, such as COMPLETE or CANCEL. Codecs may override it to write
+   * such frames straight from precomputed templates.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   * @throws MessageCodecException in case of error during encoding
+   */
+  default ByteBuf encodeSignal(
+      long sid, Signal signal, String qualifier, QualifierTable qualifiers)
+      throws MessageCodecException {
+    final ServiceMessage.Builder builder = ServiceMessage.builder();
+    if (qualifier != null) {
+      builder.qualifier(qualifier);
+    }
+    return encode(new WebsocketEnvelope(sid, signal.code(), builder.build()), qualifiers);
+  }
+
+  /**
+   * Decodes {@link ByteBuf} into {@link ServiceMessage} that keeps gateway fields in its headers.
+   * Given buffer is released by codec.
+   *
+   * @param byteBuf frame content
+   * @return decoded message
+   * @throws MessageCodecException in case of issues during decoding
+   */
+  default ServiceMessage decode(ByteBuf byteBuf) throws MessageCodecException {
+    return decode(byteBuf, null).toMessage();
+  }
+
+  /**
+   * Decodes {@link ByteBuf} into {@link WebsocketEnvelope}. Given buffer is released by codec.
+   * Known qualifier id is resolved by a given table, otherwise it's left in message headers as is.
+   *
+   * @param byteBuf frame content
+   * @param qualifiers qualifier table of the session (optional)
+   * @return decoded envelope
+   * @throws MessageCodecException in case of issues during decoding
+   */
+  WebsocketEnvelope decode(ByteBuf byteBuf, QualifierTable qualifiers)
+      throws MessageCodecException;
+
+  /**
+   * Decodes inbound request frame of a given session and validates it on the way. Frame that can't
+   * be a valid request is returned as {@link WebsocketEnvelope#rejected(long, FrameRejection)},
+   * its data released. Given buffer is released by codec.
+   *
+   * <p>By default frame is decoded in full and validated afterwards, codecs may override it to
+   * reject frames before message and data are built.
+   *
+   * @param byteBuf frame content
+   * @param session session
+   * @return decoded envelope, or rejected one
+   * @throws MessageCodecException in case of issues during decoding
+   */
+  default WebsocketEnvelope decodeRequest(ByteBuf byteBuf, WebsocketGatewaySession session)
+      throws MessageCodecException {
+    return FrameRejection.validate(decode(byteBuf, session.qualifiers()), session);
+  }
+
+  /**
+   * Returns websocket subprotocol this codec is negotiated by.
+   *
+   * @return subprotocol
+   */
+  String subprotocol();
+
+  /**
+   * Returns whether encoded messages should go in binary frames, or in text frames otherwise.
+   *
+   * @return true for binary frames
+   */
+  boolean isBinary();
+}
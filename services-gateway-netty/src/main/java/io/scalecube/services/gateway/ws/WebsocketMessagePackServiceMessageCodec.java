@@ -0,0 +1,34 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.gateway.BufferSizePredictor;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * Gateway envelope in MessagePack, negotiated by {@link #SUBPROTOCOL}.
+ *
+ * @see WebsocketDataformatServiceMessageCodec
+ */
+public final class WebsocketMessagePackServiceMessageCodec
+    extends WebsocketDataformatServiceMessageCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-msgpack";
+
+  public WebsocketMessagePackServiceMessageCodec() {
+    this(true /*always release by default*/);
+  }
+
+  public WebsocketMessagePackServiceMessageCodec(boolean releaseDataOnEncode) {
+    this(releaseDataOnEncode, new BufferSizePredictor());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param releaseDataOnEncode whether to release message data on encode
+   * @param sizePredictor predictor of initial capacity of encoded frames
+   */
+  public WebsocketMessagePackServiceMessageCodec(
+      boolean releaseDataOnEncode, BufferSizePredictor sizePredictor) {
+    super(SUBPROTOCOL, new MessagePackFactory(), releaseDataOnEncode, sizePredictor);
+  }
+}
@@ -0,0 +1,474 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import io.scalecube.services.gateway.ws.WebsocketSlowConsumerPolicy.Action;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.netty.Connection;
+import reactor.util.context.Context;
+
+/**
+ * Applies {@link WebsocketSlowConsumerPolicy} to a websocket session. Response streams are gated
+ * by channel writability: demand of a stream is forwarded upstream in batches, and only while
+ * channel is writable.
+ *
+ * <p>Batch size is the demand budget of the session, it's measured rather than guessed. Gate counts
+ * websocket frames and their bytes written to the channel, bytes that left outbound buffer of the
+ * channel are drained ones. Once per {@link #DRAIN_INTERVAL_NANOS} that's turned into frames
+ * drained per interval, by average frame size. If channel became unwritable meanwhile, client is
+ * what holds the session back, so the budget is set to what was drained. Otherwise drain only shows
+ * what services produced, and the budget grows by half, but not below what was drained. Budget is
+ * split evenly between streams of the session, so a stream asks service for its share of what
+ * client keeps up with, instead of a fixed {@code rlimit}.
+ *
+ * <p>Gate of a resumable session holds its streams once channel is closed, instead of letting them
+ * run into it, and {@link #handOver(WebsocketOutboundGate) hands them over} to gate of the channel
+ * session is resumed on.
+ */
+final class WebsocketOutboundGate extends ChannelDuplexHandler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketOutboundGate.class);
+
+  private static final AttributeKey<WebsocketOutboundGate> GATE_KEY =
+      AttributeKey.valueOf("scalecube.websocketOutboundGate");
+
+  private static final String GATE = "scalecube.wsOutboundGate";
+
+  // bounds of session demand budget
+  static final int MIN_BATCH = 4;
+  static final int INITIAL_BATCH = 32;
+  static final int MAX_BATCH = 1024;
+
+  // how often drain is measured, budget is what client drains in that time
+  static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  // outbound buffer counts that much on top of every pending message, see ChannelOutboundBuffer
+  private static final int ENTRY_OVERHEAD =
+      SystemPropertyUtil.getInt("io.netty.transport.outboundBufferEntrySizeOverhead", 96);
+
+  // close frame can get stuck behind unwritten frames of a slow consumer
+  private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+  private static final AtomicLongFieldUpdater<WebsocketOutboundGate> DROPPED_MESSAGES =
+      AtomicLongFieldUpdater.newUpdater(WebsocketOutboundGate.class, "droppedMessages");
+
+  private final Channel channel;
+  private final WebsocketSlowConsumerPolicy policy;
+  private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+
+  private Runnable onUnwritable;
+  private boolean closing;
+  private volatile boolean holdOnInactive;
+  // gate of the channel session was resumed on
+  private volatile WebsocketOutboundGate next;
+  private volatile long droppedMessages;
+  // streams of the session, passed on to gate of the channel session is resumed on
+  private volatile AtomicInteger streams = new AtomicInteger();
+  private volatile int batch = INITIAL_BATCH;
+  // bumped every time channel becomes unwritable
+  private volatile int unwritableEpoch;
+  // frames and their payload bytes written to the channel, event loop is the only writer
+  private volatile long writtenFrames;
+  private volatile long writtenBytes;
+  // state of the last drain sample, guarded by this
+  private long sampledAt = System.nanoTime();
+  private long sampledFrames;
+  private long sampledBytes;
+  private long sampledDrainedBytes;
+  private int sampledEpoch;
+  private long frameSize = 1;
+
+  private WebsocketOutboundGate(Channel channel, WebsocketSlowConsumerPolicy policy) {
+    this.channel = channel;
+    this.policy = policy;
+  }
+
+  /**
+   * Installs gate on a given websocket connection and applies write buffer water marks of the
+   * policy to the channel.
+   *
+   * @param connection connection
+   * @param policy slow consumer policy
+   */
+  static void install(Connection connection, WebsocketSlowConsumerPolicy policy) {
+    final Channel channel = connection.channel();
+    channel
+        .config()
+        .setWriteBufferWaterMark(
+            new WriteBufferWaterMark(policy.lowWaterMark(), policy.highWaterMark()));
+    final WebsocketOutboundGate gate = new WebsocketOutboundGate(channel, policy);
+    connection.addHandlerLast(GATE, gate);
+    channel.attr(GATE_KEY).set(gate);
+  }
+
+  /**
+   * Returns gate of a given channel.
+   *
+   * @param channel channel
+   * @return gate, or null if it wasn't installed on the channel
+   */
+  static WebsocketOutboundGate get(Channel channel) {
+    return channel.attr(GATE_KEY).get();
+  }
+
+  /**
+   * Sets callback to run on event loop every time channel becomes unwritable.
+   *
+   * @param onUnwritable callback
+   */
+  void onUnwritable(Runnable onUnwritable) {
+    this.onUnwritable = onUnwritable;
+  }
+
+  /**
+   * Makes gate hold waiting streams once channel is closed, till they are handed over.
+   */
+  void holdOnInactive() {
+    this.holdOnInactive = true;
+  }
+
+  /**
+   * Hands streams of this gate over to gate of the channel session was resumed on.
+   *
+   * @param next gate of the new channel
+   */
+  void handOver(WebsocketOutboundGate next) {
+    next.streams = streams;
+    this.next = next;
+    Runnable waiter;
+    while ((waiter = waiters.poll()) != null) {
+      next.await(waiter);
+    }
+  }
+
+  /**
+   * Returns number of stream messages dropped by {@link Action#DROP_OLDEST}.
+   *
+   * @return number of messages
+   */
+  long droppedMessages() {
+    return droppedMessages;
+  }
+
+  /**
+   * Returns current demand budget of the session.
+   *
+   * @return batch size
+   */
+  int batch() {
+    return batch;
+  }
+
+  /**
+   * Measures drain of the channel if interval since the last measurement is over, and sizes
+   * demand budget of the session after it.
+   *
+   * @param now current {@link System#nanoTime()}
+   * @return demand budget of the session
+   */
+  synchronized int sample(long now) {
+    final long elapsed = now - sampledAt;
+    if (elapsed < DRAIN_INTERVAL_NANOS) {
+      return batch;
+    }
+    final long frames = writtenFrames;
+    final long bytes = writtenBytes;
+    if (frames != sampledFrames) {
+      frameSize = Math.max(1, (bytes - sampledBytes) / (frames - sampledFrames));
+    }
+    final long drainedBytes = bytes - pendingBytes();
+    final long drainedFrames = Math.max(0, drainedBytes - sampledDrainedBytes) / frameSize;
+    final long drained = drainedFrames * DRAIN_INTERVAL_NANOS / elapsed;
+    final int epoch = unwritableEpoch;
+    final long budget = epoch != sampledEpoch ? drained : Math.max(drained, batch + (batch >> 1));
+    sampledAt = now;
+    sampledFrames = frames;
+    sampledBytes = bytes;
+    sampledDrainedBytes = drainedBytes;
+    sampledEpoch = epoch;
+    batch = (int) Math.max(MIN_BATCH, Math.min(MAX_BATCH, budget));
+    return batch;
+  }
+
+  /**
+   * Applies policy to a response stream.
+   *
+   * @param messages response stream
+   * @return gated response stream
+   */
+  Flux<WebsocketEnvelope> gate(Flux<WebsocketEnvelope> messages) {
+    final Flux<WebsocketEnvelope> source =
+        policy.action() == Action.DROP_OLDEST
+            ? messages.onBackpressureBuffer(
+                policy.maxQueuedMessages(), this::onDropped, BufferOverflowStrategy.DROP_OLDEST)
+            : messages;
+    return new GatedFlux(source, this);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (msg instanceof WebSocketFrame) {
+      // outbound writes run on event loop
+      writtenFrames++;
+      writtenBytes += ((WebSocketFrame) msg).content().readableBytes() + ENTRY_OVERHEAD;
+    }
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+    if (channel.isWritable()) {
+      resume();
+    } else {
+      onBecameUnwritable(ctx);
+    }
+    ctx.fireChannelWritabilityChanged();
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) {
+    if (!holdOnInactive) {
+      // let waiting streams run into closed channel and terminate
+      resume();
+    }
+    ctx.fireChannelInactive();
+  }
+
+  private void onBecameUnwritable(ChannelHandlerContext ctx) {
+    // event loop is the only writer of epoch
+    unwritableEpoch++;
+    if (onUnwritable != null) {
+      onUnwritable.run();
+    }
+    if (policy.action() != Action.DISCONNECT || closing) {
+      return;
+    }
+    closing = true;
+    LOGGER.debug(
+        "Closing websocket {} with status {}: slow consumer", channel, policy.closeStatus());
+    ctx.writeAndFlush(new CloseWebSocketFrame(policy.closeStatus(), "Slow consumer"))
+        .addListener(ChannelFutureListener.CLOSE);
+    // forced close in case peer never answers, not needed once channel is closed anyway
+    Runnable close = channel::close;
+    ScheduledFuture<?> closeTimer =
+        ctx.executor().schedule(close, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    channel.closeFuture().addListener(future -> closeTimer.cancel(false));
+  }
+
+  private void onDropped(WebsocketEnvelope envelope) {
+    DROPPED_MESSAGES.incrementAndGet(this);
+    ReferenceCountUtil.safestRelease(envelope.data());
+  }
+
+  private WebsocketOutboundGate current() {
+    WebsocketOutboundGate gate = this;
+    while (gate.next != null) {
+      gate = gate.next;
+    }
+    if (gate != this && next != gate) {
+      // don't keep gates of channels in between
+      next = gate;
+    }
+    return gate;
+  }
+
+  private long pendingBytes() {
+    // encoded frames are a bit larger, compressed ones are smaller, but being off by a roughly
+    // constant amount doesn't change how much got drained in between samples
+    final ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+    return buffer != null ? buffer.totalPendingWriteBytes() : 0;
+  }
+
+  private boolean isOpen() {
+    return channel.isWritable() || (!channel.isActive() && !holdOnInactive);
+  }
+
+  private void await(Runnable waiter) {
+    waiters.offer(waiter);
+    final WebsocketOutboundGate next = this.next;
+    if (next != null) {
+      // handed over while waiter was being queued
+      handOver(next);
+    } else if (isOpen()) {
+      // channel could have become writable before waiter was queued
+      resume();
+    }
+  }
+
+  private void resume() {
+    // resumed stream writes right away and can make channel unwritable again, rest of waiters
+    // (and that stream itself, once queued back) stay till next writability change
+    Runnable waiter;
+    while (isOpen() && (waiter = waiters.poll()) != null) {
+      waiter.run();
+    }
+  }
+
+  private static final class GatedFlux extends FluxOperator<WebsocketEnvelope, WebsocketEnvelope> {
+
+    private final WebsocketOutboundGate gate;
+
+    private GatedFlux(Flux<WebsocketEnvelope> source, WebsocketOutboundGate gate) {
+      super(source);
+      this.gate = gate;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super WebsocketEnvelope> actual) {
+      source.subscribe(new GatedSubscriber<>(actual, gate));
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final class GatedSubscriber<T>
+      implements CoreSubscriber<T>, Subscription, Runnable {
+
+    private static final AtomicIntegerFieldUpdater<GatedSubscriber> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(GatedSubscriber.class, "wip");
+
+    private static final AtomicIntegerFieldUpdater<GatedSubscriber> OUTSTANDING =
+        AtomicIntegerFieldUpdater.newUpdater(GatedSubscriber.class, "outstanding");
+
+    private static final AtomicIntegerFieldUpdater<GatedSubscriber> WAITING =
+        AtomicIntegerFieldUpdater.newUpdater(GatedSubscriber.class, "waiting");
+
+    private static final AtomicLongFieldUpdater<GatedSubscriber> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(GatedSubscriber.class, "requested");
+
+    private static final AtomicIntegerFieldUpdater<GatedSubscriber> ENDED =
+        AtomicIntegerFieldUpdater.newUpdater(GatedSubscriber.class, "ended");
+
+    private final CoreSubscriber<? super T> actual;
+    private final WebsocketOutboundGate gate;
+
+    private Subscription upstream;
+    // streams of the session this one is counted in
+    private AtomicInteger streams;
+    private volatile boolean cancelled;
+    private volatile int wip;
+    private volatile int outstanding;
+    private volatile int waiting;
+    private volatile long requested;
+    private volatile int ended;
+
+    private GatedSubscriber(CoreSubscriber<? super T> actual, WebsocketOutboundGate gate) {
+      this.actual = actual;
+      this.gate = gate;
+    }
+
+    @Override
+    public Context currentContext() {
+      return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (Operators.validate(upstream, s)) {
+        upstream = s;
+        streams = gate.current().streams;
+        streams.incrementAndGet();
+        actual.onSubscribe(this);
+      }
+    }
+
+    @Override
+    public void onNext(T t) {
+      actual.onNext(t);
+      if (OUTSTANDING.decrementAndGet(this) == 0) {
+        drain();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      end();
+      actual.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      end();
+      actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      end();
+      upstream.cancel();
+    }
+
+    private void end() {
+      if (ENDED.compareAndSet(this, 0, 1)) {
+        streams.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void run() {
+      waiting = 0;
+      drain();
+    }
+
+    private void drain() {
+      if (WIP.getAndIncrement(this) != 0) {
+        return;
+      }
+      int missed = 1;
+      for (; ; ) {
+        final long r = requested;
+        if (!cancelled && outstanding == 0 && r > 0) {
+          final WebsocketOutboundGate gate = this.gate.current();
+          if (gate.isOpen()) {
+            // share of session budget
+            final int batch = gate.sample(System.nanoTime()) / Math.max(1, streams.get());
+            final int n = (int) Math.min(r, Math.max(1, batch));
+            if (r != Long.MAX_VALUE) {
+              REQUESTED.addAndGet(this, -n);
+            }
+            OUTSTANDING.addAndGet(this, n);
+            upstream.request(n);
+          } else if (WAITING.compareAndSet(this, 0, 1)) {
+            gate.await(this);
+          }
+        }
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package io.scalecube.services.gateway.ws;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Settings of resumable websocket sessions. Session is resumable if client asks for it with {@link
+ * #RESUMABLE_HEADER} in handshake request, then server issues a token for it in {@link
+ * #RESUME_TOKEN_HEADER} of handshake response.
+ *
+ * <p>Once connection of a resumable session is lost, its streams stay subscribed for {@link
+ * #gracePeriod()}, backpressured, and session can be resumed on a new connection by a handshake
+ * request with its token in {@link #RESUME_TOKEN_HEADER} and number of data frames client has
+ * received in {@link #RESUME_POSITION_HEADER}. Server answers with the same token and number of
+ * data frames it has received in {@link #RESUME_POSITION_HEADER}, then resends frames client
+ * missed, and client does the same. Each side keeps its last {@link #replayBufferSize()} sent data
+ * frames for that. Session whose token is unknown or whose missed frames are gone is not resumed,
+ * handshake proceeds with a new session and a new token instead.
+ *
+ * <p>Frames kept by a server session take at most {@link #replayBufferBytes()} plus the last frame,
+ * older ones are dropped to stay within that. Frames with response data are kept as copies, so
+ * that pooled buffers of service responses are not held for replay.
+ */
+public final class WebsocketResumption {
+
+  public static final String RESUMABLE_HEADER = "X-Resumable";
+  public static final String RESUME_TOKEN_HEADER = "X-Resume-Token";
+  public static final String RESUME_POSITION_HEADER = "X-Resume-Position";
+
+  public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofSeconds(30);
+  public static final int DEFAULT_REPLAY_BUFFER_SIZE = 1024;
+  public static final long DEFAULT_REPLAY_BUFFER_BYTES = 1024 * 1024;
+
+  private final Duration gracePeriod;
+  private final int replayBufferSize;
+  private final long replayBufferBytes;
+
+  private WebsocketResumption(Builder builder) {
+    this.gracePeriod = builder.gracePeriod;
+    this.replayBufferSize = builder.replayBufferSize;
+    this.replayBufferBytes = builder.replayBufferBytes;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Duration gracePeriod() {
+    return gracePeriod;
+  }
+
+  public int replayBufferSize() {
+    return replayBufferSize;
+  }
+
+  public long replayBufferBytes() {
+    return replayBufferBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketResumption{"
+        + "gracePeriod="
+        + gracePeriod
+        + ", replayBufferSize="
+        + replayBufferSize
+        + ", replayBufferBytes="
+        + replayBufferBytes
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private Duration gracePeriod = DEFAULT_GRACE_PERIOD;
+    private int replayBufferSize = DEFAULT_REPLAY_BUFFER_SIZE;
+    private long replayBufferBytes = DEFAULT_REPLAY_BUFFER_BYTES;
+
+    private Builder() {}
+
+    /**
+     * Time a session is kept for resumption after its connection is lost. Default is 30 seconds.
+     *
+     * @param gracePeriod grace period
+     * @return builder
+     */
+    public Builder gracePeriod(Duration gracePeriod) {
+      Objects.requireNonNull(gracePeriod, "gracePeriod");
+      if (gracePeriod.isNegative() || gracePeriod.isZero()) {
+        throw new IllegalArgumentException("Invalid gracePeriod: " + gracePeriod);
+      }
+      this.gracePeriod = gracePeriod;
+      return this;
+    }
+
+    /**
+     * Number of last sent data frames a session keeps to resend on resumption. Default is {@value
+     * #DEFAULT_REPLAY_BUFFER_SIZE}.
+     *
+     * @param replayBufferSize number of frames
+     * @return builder
+     */
+    public Builder replayBufferSize(int replayBufferSize) {
+      if (replayBufferSize <= 0) {
+        throw new IllegalArgumentException("Invalid replayBufferSize: " + replayBufferSize);
+      }
+      this.replayBufferSize = replayBufferSize;
+      return this;
+    }
+
+    /**
+     * Byte budget of data frames a session keeps to resend on resumption, the last frame is kept
+     * even if it alone is over the budget. Default is {@value #DEFAULT_REPLAY_BUFFER_BYTES}.
+     *
+     * @param replayBufferBytes number of bytes
+     * @return builder
+     */
+    public Builder replayBufferBytes(long replayBufferBytes) {
+      if (replayBufferBytes <= 0) {
+        throw new IllegalArgumentException("Invalid replayBufferBytes: " + replayBufferBytes);
+      }
+      this.replayBufferBytes = replayBufferBytes;
+      return this;
+    }
+
+    public WebsocketResumption build() {
+      return new WebsocketResumption(this);
+    }
+  }
+}
@@ -5,7 +5,7 @@
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
@@ -16,46 +16,73 @@
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.scalecube.services.api.ServiceMessage;
 import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.BufferSizePredictor;
 import io.scalecube.services.gateway.ReferenceCountUtil;
-import java.io.InputStream;
-import java.io.OutputStream;
+import io.scalecube.services.gateway.common.JsonStreamPool;
 import java.util.Map.Entry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public final class WebsocketServiceMessageCodec {
+public final class WebsocketServiceMessageCodec implements WebsocketMessageCodec {
+
+  public static final String SUBPROTOCOL = "scalecube-json";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketServiceMessageCodec.class);
 
-  private static final ObjectMapper objectMapper = objectMapper();
+  static final ObjectMapper objectMapper = objectMapper(null);
 
   private static final MappingJsonFactory jsonFactory = new MappingJsonFactory(objectMapper);
 
+  private static final JsonStreamPool streamPool = new JsonStreamPool(jsonFactory);
+
+  private static final ByteBuf END_OBJECT =
+      Unpooled.unreleasableBuffer(Unpooled.directBuffer(1, 1).writeByte('}').asReadOnly());
+
   private final boolean releaseDataOnEncode;
+  private final BufferSizePredictor sizePredictor;
 
   public WebsocketServiceMessageCodec() {
     this(true /*always release by default*/);
   }
 
   public WebsocketServiceMessageCodec(boolean releaseDataOnEncode) {
+    this(releaseDataOnEncode, new BufferSizePredictor());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param releaseDataOnEncode whether to release message data on encode
+   * @param sizePredictor predictor of initial capacity of encoded frames
+   */
+  public WebsocketServiceMessageCodec(
+      boolean releaseDataOnEncode, BufferSizePredictor sizePredictor) {
     this.releaseDataOnEncode = releaseDataOnEncode;
+    this.sizePredictor = sizePredictor;
   }
 
   /**
-   * Encodes {@link ServiceMessage} to {@link ByteBuf}.
+   * Encodes {@link WebsocketEnvelope} to {@link ByteBuf}. If message data is {@link ByteBuf} it's
+   * not copied, instead result is {@link CompositeByteBuf} made of json envelope prefix, data and
+   * closing brace.
    *
-   * @param message - message to encode
+   * @param envelope - envelope to encode
+   * @param qualifiers - qualifier table of the session (optional)
    * @throws MessageCodecException in case of error during encoding
    */
-  public ByteBuf encode(ServiceMessage message) throws MessageCodecException {
-    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer();
-    try (JsonGenerator generator =
-        jsonFactory.createGenerator(
-            (OutputStream) new ByteBufOutputStream(byteBuf), JsonEncoding.UTF8)) {
+  @Override
+  public ByteBuf encode(WebsocketEnvelope envelope, QualifierTable qualifiers)
+      throws MessageCodecException {
+    final ServiceMessage message = envelope.message();
+    final BufferSizePredictor.Handle sizeHandle = sizePredictor.handle(message.qualifier());
+    ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(sizeHandle.guess());
+    ByteBuf dataBin = null;
+    try (JsonStreamPool.Writer writer = streamPool.writer(byteBuf)) {
+      final JsonGenerator generator = writer.generator();
       generator.writeStartObject();
 
       // headers
@@ -63,33 +90,57 @@ public ByteBuf encode(ServiceMessage message) throws MessageCodecException {
         String fieldName = header.getKey();
         String value = header.getValue();
         switch (fieldName) {
+          case GatewayMessages.QUALIFIER_FIELD:
+            int qid = qualifiers != null ? qualifiers.idOf(value) : -1;
+            if (qid >= 0) {
+              generator.writeNumberField(GatewayMessages.QUALIFIER_ID_FIELD, qid);
+            } else {
+              generator.writeStringField(fieldName, value);
+            }
+            break;
+          case GatewayMessages.QUALIFIER_ID_FIELD:
+            generator.writeNumberField(fieldName, Long.parseLong(value));
+            break;
           case GatewayMessages.STREAM_ID_FIELD:
           case GatewayMessages.SIGNAL_FIELD:
           case GatewayMessages.INACTIVITY_FIELD:
           case GatewayMessages.RATE_LIMIT_FIELD:
-            generator.writeNumberField(fieldName, Long.parseLong(value));
-            break;
+          case GatewayMessages.SINGLE_FRAME_FIELD:
+          case GatewayMessages.CONFLATE_FIELD:
+            break; // envelope fields
           default:
             generator.writeStringField(fieldName, value);
         }
       }
 
+      // envelope fields
+      if (envelope.hasSid()) {
+        generator.writeNumberField(GatewayMessages.STREAM_ID_FIELD, envelope.sid());
+      }
+      if (envelope.signal() != WebsocketEnvelope.NO_SIGNAL) {
+        generator.writeNumberField(GatewayMessages.SIGNAL_FIELD, envelope.signal());
+      }
+      if (envelope.inactivity() != WebsocketEnvelope.NONE) {
+        generator.writeNumberField(GatewayMessages.INACTIVITY_FIELD, envelope.inactivity());
+      }
+      if (envelope.rateLimit() != WebsocketEnvelope.NONE) {
+        generator.writeNumberField(GatewayMessages.RATE_LIMIT_FIELD, envelope.rateLimit());
+      }
+      if (envelope.isSingleFrame()) {
+        generator.writeBooleanField(GatewayMessages.SINGLE_FRAME_FIELD, true);
+      }
+      if (envelope.conflationKey() != null) {
+        generator.writeStringField(GatewayMessages.CONFLATE_FIELD, envelope.conflationKey());
+      }
+
       // data
       Object data = message.data();
       if (data != null) {
         if (data instanceof ByteBuf) {
-          ByteBuf dataBin = (ByteBuf) data;
-          if (dataBin.isReadable()) {
-            try {
-              generator.writeFieldName(GatewayMessages.DATA_FIELD);
-              generator.writeRaw(":");
-              generator.flush();
-              byteBuf.writeBytes(dataBin);
-            } finally {
-              if (releaseDataOnEncode) {
-                ReferenceCountUtil.safestRelease(dataBin);
-              }
-            }
+          if (((ByteBuf) data).isReadable()) {
+            generator.writeFieldName(GatewayMessages.DATA_FIELD);
+            generator.writeRaw(":");
+            dataBin = (ByteBuf) data;
           }
         } else {
           generator.writeObjectField(GatewayMessages.DATA_FIELD, data);
@@ -97,33 +148,140 @@ public ByteBuf encode(ServiceMessage message) throws MessageCodecException {
       }
 
       generator.writeEndObject();
+      writer.flush();
+      if (dataBin != null) {
+        // closing brace goes after data
+        byteBuf.writerIndex(byteBuf.writerIndex() - 1);
+      }
     } catch (Throwable ex) {
       ReferenceCountUtil.safestRelease(byteBuf);
       if (message.data() != null) {
         ReferenceCountUtil.safestRelease(message.data());
       }
-      LOGGER.error("Failed to encode gateway service message: {}", message, ex);
+      LOGGER.error("Failed to encode gateway service message: {}", envelope, ex);
       throw new MessageCodecException("Failed to encode gateway service message", ex);
     }
-    return byteBuf;
+
+    sizeHandle.record(byteBuf.writerIndex());
+
+    if (dataBin == null) {
+      return byteBuf;
+    }
+
+    return ByteBufAllocator.DEFAULT
+        .compositeBuffer(3)
+        .addComponents(
+            true,
+            byteBuf,
+            releaseDataOnEncode ? dataBin : dataBin.retain(),
+            END_OBJECT.duplicate());
+  }
+
+  /**
+   * Encodes signal frame without data straight from precomputed templates, see {@link
+   * SignalFrameWriter}.
+   *
+   * @param sid sid
+   * @param signal signal
+   * @param qualifier qualifier (optional)
+   * @param qualifiers qualifier table of the session (optional)
+   * @return frame content
+   */
+  @Override
+  public ByteBuf encodeSignal(
+      long sid, Signal signal, String qualifier, QualifierTable qualifiers) {
+    return SignalFrameWriter.writeJson(sid, signal, qualifier, qualifiers);
+  }
+
+  /**
+   * Returns predictor of initial capacity of encoded frames.
+   *
+   * @return size predictor
+   */
+  public BufferSizePredictor sizePredictor() {
+    return sizePredictor;
   }
 
   /**
-   * Decodes {@link ByteBuf} into {@link ServiceMessage}.
+   * Decodes {@link ByteBuf} into {@link WebsocketEnvelope}. Given buffer is released, data of the
+   * resulting message (if any) is a retained slice of it, so whoever owns the message is
+   * responsible for releasing its data.
    *
    * @param byteBuf - buffer with gateway service message to be decoded
-   * @return decoded {@code ServiceMessage} instance
+   * @param qualifiers - qualifier table of the session (optional)
+   * @return decoded {@code WebsocketEnvelope} instance
    * @throws MessageCodecException - in case of issues during decoding
    */
-  public ServiceMessage decode(ByteBuf byteBuf) throws MessageCodecException {
-    try (InputStream stream = new ByteBufInputStream(byteBuf, true)) {
-      JsonParser jp = jsonFactory.createParser(stream);
+  @Override
+  public WebsocketEnvelope decode(ByteBuf byteBuf, QualifierTable qualifiers)
+      throws MessageCodecException {
+    final EnvelopeScanner scanner = EnvelopeScanner.current();
+    if (!scanner.scan(byteBuf)) {
+      return parse(byteBuf);
+    }
+    try {
+      return scanner.toEnvelope(byteBuf, qualifiers);
+    } catch (Throwable ex) {
+      throw new MessageCodecException("Failed to decode gateway service message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(byteBuf);
+    }
+  }
+
+  /**
+   * Decodes request frame, frames in common envelope shape are validated right after scanning, so
+   * rejected ones get neither message nor data slice built.
+   *
+   * @param byteBuf frame content
+   * @param session session
+   * @return decoded envelope, or rejected one
+   * @throws MessageCodecException in case of issues during decoding
+   */
+  @Override
+  public WebsocketEnvelope decodeRequest(ByteBuf byteBuf, WebsocketGatewaySession session)
+      throws MessageCodecException {
+    final EnvelopeScanner scanner = EnvelopeScanner.current();
+    if (!scanner.scan(byteBuf)) {
+      return FrameRejection.validate(parse(byteBuf), session);
+    }
+    try {
+      final FrameRejection rejection = scanner.check(session);
+      return rejection == null
+          ? scanner.toEnvelope(byteBuf, session.qualifiers())
+          : WebsocketEnvelope.rejected(scanner.sid(), rejection);
+    } catch (Throwable ex) {
+      throw new MessageCodecException("Failed to decode gateway service message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(byteBuf);
+    }
+  }
+
+  @Override
+  public String subprotocol() {
+    return SUBPROTOCOL;
+  }
+
+  @Override
+  public boolean isBinary() {
+    return false;
+  }
+
+  private static WebsocketEnvelope parse(ByteBuf byteBuf) throws MessageCodecException {
+    final int readerIndex = byteBuf.readerIndex();
+    try (JsonStreamPool.Reader reader = streamPool.reader(byteBuf)) {
+      JsonParser jp = reader.parser();
       ServiceMessage.Builder result = ServiceMessage.builder();
 
       JsonToken current = jp.nextToken();
       if (current != JsonToken.START_OBJECT) {
         throw new MessageCodecException("Root should be object", null);
       }
+      long sid = WebsocketEnvelope.NONE;
+      int signal = WebsocketEnvelope.NO_SIGNAL;
+      long inactivity = WebsocketEnvelope.NONE;
+      long rateLimit = WebsocketEnvelope.NONE;
+      boolean singleFrame = false;
+      String conflationKey = null;
       long dataStart = 0;
       long dataEnd = 0;
       while ((jp.nextToken()) != JsonToken.END_OBJECT) {
@@ -133,33 +291,64 @@ public ServiceMessage decode(ByteBuf byteBuf) throws MessageCodecException {
           continue;
         }
 
-        if (fieldName.equals(GatewayMessages.DATA_FIELD)) {
-          dataStart = jp.getTokenLocation().getByteOffset();
-          if (current.isScalarValue()) {
-            if (!current.isNumeric() && !current.isBoolean()) {
-              jp.getValueAsString();
+        switch (fieldName) {
+          case GatewayMessages.DATA_FIELD:
+            dataStart = reader.offset(jp.getTokenLocation());
+            if (current.isScalarValue()) {
+              if (!current.isNumeric() && !current.isBoolean()) {
+                jp.getValueAsString();
+              }
+            } else if (current.isStructStart()) {
+              jp.skipChildren();
             }
-          } else if (current.isStructStart()) {
-            jp.skipChildren();
-          }
-          dataEnd = jp.getCurrentLocation().getByteOffset();
-        } else {
-          // headers
-          result.header(fieldName, jp.getValueAsString());
+            dataEnd = reader.offset(jp.getCurrentLocation());
+            break;
+          case GatewayMessages.STREAM_ID_FIELD:
+            sid = WebsocketEnvelope.checkSid(Long.parseLong(jp.getValueAsString()));
+            break;
+          case GatewayMessages.SIGNAL_FIELD:
+            signal = Integer.parseInt(jp.getValueAsString());
+            break;
+          case GatewayMessages.INACTIVITY_FIELD:
+            inactivity = Long.parseLong(jp.getValueAsString());
+            break;
+          case GatewayMessages.RATE_LIMIT_FIELD:
+            rateLimit = Long.parseLong(jp.getValueAsString());
+            break;
+          case GatewayMessages.SINGLE_FRAME_FIELD:
+            singleFrame = Boolean.parseBoolean(jp.getValueAsString());
+            break;
+          case GatewayMessages.CONFLATE_FIELD:
+            conflationKey = jp.getValueAsString();
+            break;
+          default:
+            // headers
+            result.header(fieldName, jp.getValueAsString());
         }
       }
-      // data
+      reader.complete();
+      // data (zero-copy, slice keeps the frame alive until data is released)
       if (dataEnd > dataStart) {
-        result.data(byteBuf.copy((int) dataStart, (int) (dataEnd - dataStart)));
+        result.data(
+            byteBuf.retainedSlice(readerIndex + (int) dataStart, (int) (dataEnd - dataStart)));
       }
-      return result.build();
+      return new WebsocketEnvelope(
+          sid, signal, inactivity, rateLimit, singleFrame, conflationKey, result.build());
     } catch (Throwable ex) {
       throw new MessageCodecException("Failed to decode gateway service message", ex);
+    } finally {
+      ReferenceCountUtil.safestRelease(byteBuf);
     }
   }
 
-  private static ObjectMapper objectMapper() {
-    ObjectMapper mapper = new ObjectMapper();
+  /**
+   * Returns object mapper configured the way gateway encodes message data.
+   *
+   * @param jsonFactory factory of the dataformat, json if null
+   * @return object mapper
+   */
+  static ObjectMapper objectMapper(JsonFactory jsonFactory) {
+    ObjectMapper mapper = new ObjectMapper(jsonFactory);
     mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
     mapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
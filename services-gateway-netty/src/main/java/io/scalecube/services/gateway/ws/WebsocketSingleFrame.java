@@ -0,0 +1,172 @@
+package io.scalecube.services.gateway.ws;
+
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+/**
+ * Single frame responses, enabled by {@value GatewayMessages#SINGLE_FRAME_FIELD} envelope field of
+ * a request (see {@link WebsocketEnvelope#isSingleFrame()}), which never reaches the service.
+ * Response stream is looked one response ahead: every response is held back till the next one
+ * comes, so that the last one is known as such once stream completes and can carry COMPLETE signal
+ * itself.
+ *
+ * <p>Held response is the only one kept, its data is released if stream fails or gets cancelled.
+ * Last response goes only on demand, completion waits for it.
+ */
+final class WebsocketSingleFrame {
+
+  private WebsocketSingleFrame() {
+    // Do not instantiate
+  }
+
+  /**
+   * Applies one response lookahead to a response stream.
+   *
+   * @param responses response stream
+   * @param lastMapper maps the last response of a completed stream
+   * @return response stream
+   */
+  static Flux<WebsocketEnvelope> completeOnLast(
+      Flux<WebsocketEnvelope> responses, UnaryOperator<WebsocketEnvelope> lastMapper) {
+    return new LookaheadFlux(responses, lastMapper);
+  }
+
+  private static final class LookaheadFlux
+      extends FluxOperator<WebsocketEnvelope, WebsocketEnvelope> {
+
+    private final UnaryOperator<WebsocketEnvelope> lastMapper;
+
+    private LookaheadFlux(
+        Flux<WebsocketEnvelope> source, UnaryOperator<WebsocketEnvelope> lastMapper) {
+      super(source);
+      this.lastMapper = lastMapper;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super WebsocketEnvelope> actual) {
+      source.subscribe(new LookaheadSubscriber(actual, lastMapper));
+    }
+  }
+
+  private static final class LookaheadSubscriber
+      implements CoreSubscriber<WebsocketEnvelope>, Subscription {
+
+    private static final Object TERMINATED = new Object();
+
+    private static final AtomicReferenceFieldUpdater<LookaheadSubscriber, Object> HELD =
+        AtomicReferenceFieldUpdater.newUpdater(LookaheadSubscriber.class, Object.class, "held");
+
+    private static final AtomicLongFieldUpdater<LookaheadSubscriber> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(LookaheadSubscriber.class, "requested");
+
+    private final CoreSubscriber<? super WebsocketEnvelope> actual;
+    private final UnaryOperator<WebsocketEnvelope> lastMapper;
+
+    private Subscription upstream;
+    private boolean requestedAhead;
+    // held response, or TERMINATED once nothing is to be emitted anymore
+    private volatile Object held;
+    private volatile boolean done;
+    private volatile long requested;
+
+    private LookaheadSubscriber(
+        CoreSubscriber<? super WebsocketEnvelope> actual,
+        UnaryOperator<WebsocketEnvelope> lastMapper) {
+      this.actual = actual;
+      this.lastMapper = lastMapper;
+    }
+
+    @Override
+    public Context currentContext() {
+      return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (Operators.validate(upstream, s)) {
+        upstream = s;
+        actual.onSubscribe(this);
+      }
+    }
+
+    @Override
+    public void onNext(WebsocketEnvelope response) {
+      final Object previous = held;
+      if (previous == TERMINATED || !HELD.compareAndSet(this, previous, response)) {
+        // cancelled meanwhile
+        release(response);
+        return;
+      }
+      if (previous != null) {
+        if (requested != Long.MAX_VALUE) {
+          REQUESTED.decrementAndGet(this);
+        }
+        actual.onNext((WebsocketEnvelope) previous);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      release(HELD.getAndSet(this, TERMINATED));
+      actual.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      done = true;
+      tryComplete();
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        if (!requestedAhead) {
+          // first response goes out only when the second one comes in
+          requestedAhead = true;
+          upstream.request(Operators.addCap(n, 1));
+        } else {
+          upstream.request(n);
+        }
+        tryComplete();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      upstream.cancel();
+      release(HELD.getAndSet(this, TERMINATED));
+    }
+
+    private void tryComplete() {
+      if (!done) {
+        return;
+      }
+      final Object last = held;
+      if (last == TERMINATED || (last != null && requested == 0)) {
+        // last response waits for demand
+        return;
+      }
+      if (HELD.compareAndSet(this, last, TERMINATED)) {
+        if (last != null) {
+          actual.onNext(lastMapper.apply((WebsocketEnvelope) last));
+        }
+        actual.onComplete();
+      }
+    }
+
+    private static void release(Object response) {
+      if (response instanceof WebsocketEnvelope) {
+        ReferenceCountUtil.safestRelease(((WebsocketEnvelope) response).data());
+      }
+    }
+  }
+}
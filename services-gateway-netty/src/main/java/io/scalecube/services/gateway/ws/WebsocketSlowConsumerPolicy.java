@@ -0,0 +1,164 @@
+package io.scalecube.services.gateway.ws;
+
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import java.util.Objects;
+
+/**
+ * Policy for sessions whose clients read slower than gateway writes. Outbound budget of a session
+ * is bounded by write buffer water marks: channel becomes unwritable once more than {@link
+ * #highWaterMark()} bytes are pending, and writable again when they drop below {@link
+ * #lowWaterMark()}. What happens to response streams meanwhile is defined by {@link #action()}.
+ */
+public final class WebsocketSlowConsumerPolicy {
+
+  public static final int DEFAULT_LOW_WATER_MARK = 32 * 1024;
+  public static final int DEFAULT_HIGH_WATER_MARK = 64 * 1024;
+  public static final int DEFAULT_MAX_QUEUED_MESSAGES = 256;
+  public static final int DEFAULT_CLOSE_STATUS = 1008;
+
+  public enum Action {
+    /**
+     * Stop requesting from service streams until session is writable again.
+     */
+    BACKPRESSURE,
+    /**
+     * Keep consuming service streams, keeping at most {@link
+     * WebsocketSlowConsumerPolicy#maxQueuedMessages()} latest messages per stream until session is
+     * writable again. Dropped are only data messages, never signals.
+     */
+    DROP_OLDEST,
+    /**
+     * Close session with {@link WebsocketSlowConsumerPolicy#closeStatus()} as soon as it becomes
+     * unwritable.
+     */
+    DISCONNECT
+  }
+
+  private final Action action;
+  private final int lowWaterMark;
+  private final int highWaterMark;
+  private final int maxQueuedMessages;
+  private final int closeStatus;
+
+  private WebsocketSlowConsumerPolicy(Builder builder) {
+    this.action = builder.action;
+    this.lowWaterMark = builder.lowWaterMark;
+    this.highWaterMark = builder.highWaterMark;
+    this.maxQueuedMessages = builder.maxQueuedMessages;
+    this.closeStatus = builder.closeStatus;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Action action() {
+    return action;
+  }
+
+  public int lowWaterMark() {
+    return lowWaterMark;
+  }
+
+  public int highWaterMark() {
+    return highWaterMark;
+  }
+
+  public int maxQueuedMessages() {
+    return maxQueuedMessages;
+  }
+
+  public int closeStatus() {
+    return closeStatus;
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketSlowConsumerPolicy{"
+        + "action="
+        + action
+        + ", lowWaterMark="
+        + lowWaterMark
+        + ", highWaterMark="
+        + highWaterMark
+        + ", maxQueuedMessages="
+        + maxQueuedMessages
+        + ", closeStatus="
+        + closeStatus
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private Action action = Action.BACKPRESSURE;
+    private int lowWaterMark = DEFAULT_LOW_WATER_MARK;
+    private int highWaterMark = DEFAULT_HIGH_WATER_MARK;
+    private int maxQueuedMessages = DEFAULT_MAX_QUEUED_MESSAGES;
+    private int closeStatus = DEFAULT_CLOSE_STATUS;
+
+    private Builder() {}
+
+    /**
+     * Action taken on unwritable session. Default is {@link Action#BACKPRESSURE}.
+     *
+     * @param action action
+     * @return builder
+     */
+    public Builder action(Action action) {
+      this.action = Objects.requireNonNull(action, "action");
+      return this;
+    }
+
+    /**
+     * Write buffer water marks of a session. Defaults are {@value #DEFAULT_LOW_WATER_MARK} and
+     * {@value #DEFAULT_HIGH_WATER_MARK}.
+     *
+     * @param lowWaterMark low water mark in bytes
+     * @param highWaterMark high water mark in bytes
+     * @return builder
+     */
+    public Builder writeBufferWaterMark(int lowWaterMark, int highWaterMark) {
+      if (lowWaterMark < 0 || highWaterMark < lowWaterMark) {
+        throw new IllegalArgumentException(
+            "Invalid writeBufferWaterMark: [" + lowWaterMark + ", " + highWaterMark + "]");
+      }
+      this.lowWaterMark = lowWaterMark;
+      this.highWaterMark = highWaterMark;
+      return this;
+    }
+
+    /**
+     * Max number of messages per stream kept by {@link Action#DROP_OLDEST}. Default is {@value
+     * #DEFAULT_MAX_QUEUED_MESSAGES}.
+     *
+     * @param maxQueuedMessages max queued messages
+     * @return builder
+     */
+    public Builder maxQueuedMessages(int maxQueuedMessages) {
+      if (maxQueuedMessages <= 0) {
+        throw new IllegalArgumentException("Invalid maxQueuedMessages: " + maxQueuedMessages);
+      }
+      this.maxQueuedMessages = maxQueuedMessages;
+      return this;
+    }
+
+    /**
+     * Close status used by {@link Action#DISCONNECT}. Default is {@value #DEFAULT_CLOSE_STATUS}
+     * (policy violation).
+     *
+     * @param closeStatus close status code
+     * @return builder
+     */
+    public Builder closeStatus(int closeStatus) {
+      if (!WebSocketCloseStatus.isValidStatusCode(closeStatus)) {
+        throw new IllegalArgumentException("Invalid closeStatus: " + closeStatus);
+      }
+      this.closeStatus = closeStatus;
+      return this;
+    }
+
+    public WebsocketSlowConsumerPolicy build() {
+      return new WebsocketSlowConsumerPolicy(this);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package io.scalecube.services.gateway.ws;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Limits on concurrent streams of a websocket session. Request that would open a stream beyond a
+ * limit is rejected right away with {@link FrameRejection#STREAM_LIMIT} error response, before it
+ * reaches service call.
+ *
+ * <p>Streams of a qualifier that has its own limit are counted against that limit only, streams of
+ * all other qualifiers share the session-wide limit. Qualifiers are matched as they are in request,
+ * after resolving qualifier id. By default sessions are not limited.
+ *
+ * <p>Inbound frames of a session are read in batches of {@link #readBatchSize()}. Once the number
+ * of session streams in flight reaches {@link #readPauseThreshold()}, session stops reading its
+ * channel and resumes when streams in flight drop to {@link #readResumeThreshold()}, so that a
+ * client sending faster than services respond runs into its TCP window instead of gateway heap.
+ * Note that a paused session doesn't read CANCEL frames either. Reads are never paused by default.
+ *
+ * <p>Stream that sends no response to client for {@link #inactivityTimeout()} is cancelled and
+ * client gets error response for it. Request can set its own timeout in milliseconds with {@code
+ * "i"} field, which takes precedence. Streams never time out by default.
+ */
+public final class WebsocketStreamLimits {
+
+  public static final int DEFAULT_MAX_STREAMS = Integer.MAX_VALUE;
+  public static final int DEFAULT_READ_BATCH_SIZE = 64;
+  public static final int DEFAULT_READ_PAUSE_THRESHOLD = Integer.MAX_VALUE;
+  public static final Duration DEFAULT_INACTIVITY_TIMEOUT = Duration.ZERO;
+
+  private final int maxStreams;
+  private final Map<String, Integer> qualifierMaxStreams;
+  private final int readBatchSize;
+  private final int readPauseThreshold;
+  private final int readResumeThreshold;
+  private final Duration inactivityTimeout;
+
+  private WebsocketStreamLimits(Builder builder) {
+    this.maxStreams = builder.maxStreams;
+    this.readBatchSize = builder.readBatchSize;
+    this.readPauseThreshold = builder.readPauseThreshold;
+    this.readResumeThreshold = builder.readResumeThreshold;
+    this.inactivityTimeout = builder.inactivityTimeout;
+    this.qualifierMaxStreams =
+        Collections.unmodifiableMap(new HashMap<>(builder.qualifierMaxStreams));
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int maxStreams() {
+    return maxStreams;
+  }
+
+  public Map<String, Integer> qualifierMaxStreams() {
+    return qualifierMaxStreams;
+  }
+
+  public int readBatchSize() {
+    return readBatchSize;
+  }
+
+  public int readPauseThreshold() {
+    return readPauseThreshold;
+  }
+
+  public int readResumeThreshold() {
+    return readResumeThreshold;
+  }
+
+  public Duration inactivityTimeout() {
+    return inactivityTimeout;
+  }
+
+  boolean isUnlimited() {
+    return maxStreams == DEFAULT_MAX_STREAMS && qualifierMaxStreams.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketStreamLimits{"
+        + "maxStreams="
+        + maxStreams
+        + ", qualifierMaxStreams="
+        + qualifierMaxStreams
+        + ", readBatchSize="
+        + readBatchSize
+        + ", readPauseThreshold="
+        + readPauseThreshold
+        + ", readResumeThreshold="
+        + readResumeThreshold
+        + ", inactivityTimeout="
+        + inactivityTimeout
+        + '}';
+  }
+
+  public static final class Builder {
+
+    private int maxStreams = DEFAULT_MAX_STREAMS;
+    private final Map<String, Integer> qualifierMaxStreams = new HashMap<>();
+    private int readBatchSize = DEFAULT_READ_BATCH_SIZE;
+    private int readPauseThreshold = DEFAULT_READ_PAUSE_THRESHOLD;
+    private int readResumeThreshold = DEFAULT_READ_PAUSE_THRESHOLD / 2;
+    private Duration inactivityTimeout = DEFAULT_INACTIVITY_TIMEOUT;
+
+    private Builder() {}
+
+    /**
+     * Max concurrent streams of a session, not counting streams of qualifiers with their own
+     * limit. Default is unlimited.
+     *
+     * @param maxStreams max concurrent streams
+     * @return builder
+     */
+    public Builder maxStreams(int maxStreams) {
+      if (maxStreams <= 0) {
+        throw new IllegalArgumentException("Invalid maxStreams: " + maxStreams);
+      }
+      this.maxStreams = maxStreams;
+      return this;
+    }
+
+    /**
+     * Max concurrent streams of a session for a given qualifier, overrides session-wide limit.
+     *
+     * @param qualifier qualifier
+     * @param maxStreams max concurrent streams of the qualifier
+     * @return builder
+     */
+    public Builder maxStreams(String qualifier, int maxStreams) {
+      Objects.requireNonNull(qualifier, "qualifier");
+      if (maxStreams <= 0) {
+        throw new IllegalArgumentException(
+            "Invalid maxStreams: " + maxStreams + " for qualifier: " + qualifier);
+      }
+      this.qualifierMaxStreams.put(qualifier, maxStreams);
+      return this;
+    }
+
+    /**
+     * Number of inbound frames a session asks for at a time. Default is {@value
+     * #DEFAULT_READ_BATCH_SIZE}.
+     *
+     * @param readBatchSize number of frames
+     * @return builder
+     */
+    public Builder readBatchSize(int readBatchSize) {
+      if (readBatchSize <= 0) {
+        throw new IllegalArgumentException("Invalid readBatchSize: " + readBatchSize);
+      }
+      this.readBatchSize = readBatchSize;
+      return this;
+    }
+
+    /**
+     * Numbers of session streams in flight to pause and to resume reading of inbound frames at.
+     * Default is to never pause.
+     *
+     * @param readPauseThreshold streams in flight to pause reading at
+     * @param readResumeThreshold streams in flight to resume reading at
+     * @return builder
+     */
+    public Builder readThresholds(int readPauseThreshold, int readResumeThreshold) {
+      if (readPauseThreshold <= 0
+          || readResumeThreshold < 0
+          || readResumeThreshold >= readPauseThreshold) {
+        throw new IllegalArgumentException(
+            "Invalid readPauseThreshold: "
+                + readPauseThreshold
+                + ", readResumeThreshold: "
+                + readResumeThreshold);
+      }
+      this.readPauseThreshold = readPauseThreshold;
+      this.readResumeThreshold = readResumeThreshold;
+      return this;
+    }
+
+    /**
+     * Time a stream can go without sending a response before it's cancelled, unless request sets
+     * its own. Zero means no timeout, which is the default. Timeouts are checked with precision of
+     * {@value InactivityTimer#TICK_MILLIS} milliseconds.
+     *
+     * @param inactivityTimeout inactivity timeout
+     * @return builder
+     */
+    public Builder inactivityTimeout(Duration inactivityTimeout) {
+      Objects.requireNonNull(inactivityTimeout, "inactivityTimeout");
+      if (inactivityTimeout.isNegative()) {
+        throw new IllegalArgumentException("Invalid inactivityTimeout: " + inactivityTimeout);
+      }
+      this.inactivityTimeout = inactivityTimeout;
+      return this;
+    }
+
+    public WebsocketStreamLimits build() {
+      return new WebsocketStreamLimits(this);
+    }
+  }
+}
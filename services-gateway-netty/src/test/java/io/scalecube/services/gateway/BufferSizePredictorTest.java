@@ -0,0 +1,73 @@
+package io.scalecube.services.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.scalecube.services.gateway.BufferSizePredictor.Handle;
+import org.junit.jupiter.api.Test;
+
+class BufferSizePredictorTest {
+
+  private final BufferSizePredictor predictor = new BufferSizePredictor();
+
+  @Test
+  void testInitialGuess() {
+    assertEquals(BufferSizePredictor.DEFAULT_INITIAL, predictor.handle("q").guess());
+    assertEquals(BufferSizePredictor.DEFAULT_INITIAL, predictor.handle(null).guess());
+  }
+
+  @Test
+  void testHandlePerQualifier() {
+    assertSame(predictor.handle("q1"), predictor.handle("q1"));
+    assertNotSame(predictor.handle("q1"), predictor.handle("q2"));
+  }
+
+  @Test
+  void testGrowsUntilFits() {
+    Handle handle = predictor.handle("q");
+
+    int resizes = 0;
+    while (handle.guess() < 10000) {
+      handle.record(10000);
+      resizes++;
+    }
+
+    assertEquals(resizes, predictor.resizes());
+    assertEquals(0, predictor.hits());
+
+    handle.record(10000);
+    assertEquals(1, predictor.hits());
+  }
+
+  @Test
+  void testShrinksSlowly() {
+    Handle handle = predictor.handle("q");
+    handle.record(10000);
+    int guess = handle.guess();
+
+    handle.record(10);
+    assertEquals(guess, handle.guess());
+
+    handle.record(10);
+    assertTrue(handle.guess() < guess);
+    assertEquals(2, predictor.hits());
+  }
+
+  @Test
+  void testBounds() {
+    BufferSizePredictor predictor = new BufferSizePredictor(128, 256, 1024);
+    Handle handle = predictor.handle("q");
+
+    for (int i = 0; i < 100; i++) {
+      handle.record(1 << 20);
+    }
+    assertEquals(1024, handle.guess());
+
+    for (int i = 0; i < 100; i++) {
+      handle.record(1);
+    }
+    assertEquals(128, handle.guess());
+  }
+}
@@ -0,0 +1,103 @@
+package io.scalecube.services.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import reactor.netty.NettyPipeline;
+
+class ConnectionLimiterTest {
+
+  private static final String REJECTION_HANDLER = "scalecube.connectionRejection";
+
+  @Test
+  void testRejectedChannelIsClosedOnTimeout() {
+    EmbeddedChannel channel = new EmbeddedChannel(new ConnectionLimiter.RejectionHandler(1));
+
+    assertTrue(channel.runScheduledPendingTasks() > 0);
+    channel.advanceTimeBy(5, TimeUnit.SECONDS);
+    channel.runScheduledPendingTasks();
+
+    assertFalse(channel.isActive());
+  }
+
+  @Test
+  void testClosedChannelKeepsCloseTimerOfOtherChannel() {
+    ConnectionLimiter.RejectionHandler handler = new ConnectionLimiter.RejectionHandler(1);
+    EmbeddedChannel channel1 = new EmbeddedChannel(handler);
+    EmbeddedChannel channel2 = new EmbeddedChannel(handler);
+
+    channel1.close();
+    channel2.advanceTimeBy(5, TimeUnit.SECONDS);
+    channel2.runScheduledPendingTasks();
+
+    assertFalse(channel2.isActive());
+  }
+
+  @Test
+  void testRejectOverAcceptRate() {
+    ConnectionLimiter limiter =
+        new ConnectionLimiter(ConnectionLimits.builder().acceptRate(0.001, 2).build());
+
+    EmbeddedChannel channel1 = initChannel(limiter);
+    EmbeddedChannel channel2 = initChannel(limiter);
+    EmbeddedChannel channel3 = initChannel(limiter);
+
+    assertNull(channel1.pipeline().get(REJECTION_HANDLER));
+    assertNull(channel2.pipeline().get(REJECTION_HANDLER));
+    assertNotNull(channel3.pipeline().get(REJECTION_HANDLER));
+
+    // closing accepted connection doesn't give its token back
+    channel1.close();
+    EmbeddedChannel channel4 = initChannel(limiter);
+
+    assertNotNull(channel4.pipeline().get(REJECTION_HANDLER));
+    assertEquals(2, limiter.stats().rejectedByAcceptRate());
+    assertEquals(0, limiter.stats().rejectedByMaxConnections());
+    assertEquals(1, limiter.stats().connections());
+  }
+
+  @Test
+  void testRespondWithRetryAfter() {
+    ConnectionLimiter limiter =
+        new ConnectionLimiter(
+            ConnectionLimits.builder()
+                .maxConnections(1)
+                .retryAfter(Duration.ofMillis(1500))
+                .build());
+
+    initChannel(limiter);
+    EmbeddedChannel channel = initChannel(limiter);
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/"));
+
+    FullHttpResponse response = channel.readOutbound();
+    try {
+      assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status());
+      assertEquals("2", response.headers().get(HttpHeaderNames.RETRY_AFTER));
+    } finally {
+      response.release();
+    }
+    assertFalse(channel.isActive());
+    assertEquals(1, limiter.stats().rejectedByMaxConnections());
+  }
+
+  private static EmbeddedChannel initChannel(ConnectionLimiter limiter) {
+    EmbeddedChannel channel = new EmbeddedChannel();
+    channel.pipeline().addLast(NettyPipeline.HttpCodec, new ChannelInboundHandlerAdapter());
+    limiter.onChannelInit(channel, null);
+    return channel;
+  }
+}
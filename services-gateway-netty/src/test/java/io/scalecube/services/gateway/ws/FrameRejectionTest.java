@@ -0,0 +1,139 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.ReferenceCountUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import reactor.core.Disposables;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+class FrameRejectionTest {
+
+  private static final long SID_IN_USE = 7;
+
+  private WebsocketGatewaySession session;
+
+  static Stream<WebsocketMessageCodec> codecs() {
+    return WebsocketMessageCodec.defaultCodecs().stream();
+  }
+
+  @BeforeEach
+  void setUp() {
+    session =
+        new WebsocketGatewaySession(
+            1,
+            new WebsocketServiceMessageCodec(),
+            Collections.emptyMap(),
+            mock(WebsocketInbound.class),
+            mock(WebsocketOutbound.class),
+            GatewaySessionHandler.DEFAULT_INSTANCE);
+    session.register(SID_IN_USE, Disposables.single());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testValidRequest(WebsocketMessageCodec codec) {
+    WebsocketEnvelope actual =
+        codec.decodeRequest(encode(codec, 1, WebsocketEnvelope.NO_SIGNAL, TestInputs.Q), session);
+
+    assertNull(actual.rejection());
+    assertEquals(1, actual.sid());
+    assertEquals(TestInputs.Q, actual.qualifier());
+    assertEquals("{\"text\":\"x\"}", ((ByteBuf) actual.data()).toString(StandardCharsets.UTF_8));
+    ((ByteBuf) actual.data()).release();
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testSidMissing(WebsocketMessageCodec codec) {
+    ByteBuf frame =
+        encode(codec, WebsocketEnvelope.NONE, WebsocketEnvelope.NO_SIGNAL, TestInputs.Q);
+
+    assertRejected(codec, frame, WebsocketEnvelope.NONE, FrameRejection.SID_MISSING);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testSidInUse(WebsocketMessageCodec codec) {
+    ByteBuf frame = encode(codec, SID_IN_USE, WebsocketEnvelope.NO_SIGNAL, TestInputs.Q);
+
+    assertRejected(codec, frame, SID_IN_USE, FrameRejection.SID_IN_USE);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testQualifierMissing(WebsocketMessageCodec codec) {
+    ByteBuf frame = encode(codec, 2, WebsocketEnvelope.NO_SIGNAL, null);
+
+    assertRejected(codec, frame, 2, FrameRejection.QUALIFIER_MISSING);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testCancelOfSidInUse(WebsocketMessageCodec codec) {
+    WebsocketEnvelope actual =
+        codec.decodeRequest(encode(codec, SID_IN_USE, Signal.CANCEL.code(), null), session);
+
+    assertNull(actual.rejection());
+    assertEquals(SID_IN_USE, actual.sid());
+    ReferenceCountUtil.safestRelease(actual.data());
+  }
+
+  @Test
+  void testJsonFallbackIsValidated() {
+    // escaped qualifier makes json codec fall back from envelope scanner to json parser
+    ByteBuf frame =
+        Unpooled.copiedBuffer(
+            "{\"q\":\"\\/test\", \"sid\":" + SID_IN_USE + ", \"d\":{\"a\":1}}",
+            StandardCharsets.UTF_8);
+
+    assertRejected(
+        new WebsocketServiceMessageCodec(), frame, SID_IN_USE, FrameRejection.SID_IN_USE);
+  }
+
+  @Test
+  void testRejectionMessages() {
+    assertEquals("sid is missing", FrameRejection.SID_MISSING.exception().getMessage());
+    assertEquals("sid is already registered", FrameRejection.SID_IN_USE.exception().getMessage());
+    assertEquals("qualifier is missing", FrameRejection.QUALIFIER_MISSING.exception().getMessage());
+  }
+
+  private void assertRejected(
+      WebsocketMessageCodec codec, ByteBuf frame, long sid, FrameRejection rejection) {
+    WebsocketEnvelope actual = codec.decodeRequest(frame, session);
+
+    assertSame(rejection, actual.rejection());
+    assertEquals(sid, actual.sid());
+    assertNull(actual.qualifier());
+    assertNull(actual.data());
+    assertEquals(0, frame.refCnt(), "frame is released");
+  }
+
+  private static ByteBuf encode(WebsocketMessageCodec codec, long sid, int signal, String q) {
+    ServiceMessage.Builder builder =
+        ServiceMessage.builder()
+            .data(Unpooled.copiedBuffer("{\"text\":\"x\"}", StandardCharsets.UTF_8));
+    if (q != null) {
+      builder.qualifier(q);
+    }
+    ByteBuf frame = codec.encode(new WebsocketEnvelope(sid, signal, builder.build()), null);
+    // codecs may compose frame out of several buffers, decoders see one contiguous frame
+    ByteBuf copy = Unpooled.copiedBuffer(frame);
+    frame.release();
+    return copy;
+  }
+}
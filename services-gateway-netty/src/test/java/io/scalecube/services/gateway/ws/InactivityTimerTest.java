@@ -0,0 +1,87 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class InactivityTimerTest {
+
+  private static final long TIMEOUT_MILLIS = 300;
+
+  private final EventLoop eventLoop = new DefaultEventLoop();
+
+  @AfterEach
+  void tearDown() {
+    eventLoop.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testFireAfterTimeout() throws Exception {
+    CountDownLatch fired = new CountDownLatch(1);
+    long start = System.nanoTime();
+
+    InactivityTimer timer =
+        onEventLoop(
+            () -> {
+              InactivityTimer t = InactivityTimer.of(eventLoop);
+              t.schedule(TIMEOUT_MILLIS, fired::countDown);
+              return t;
+            });
+
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= TIMEOUT_MILLIS);
+    assertEquals(0, (int) onEventLoop(timer::size));
+  }
+
+  @Test
+  void testTouchPostponesTimeout() throws Exception {
+    CountDownLatch fired = new CountDownLatch(1);
+
+    InactivityTimer.Timeout timeout =
+        onEventLoop(() -> InactivityTimer.of(eventLoop).schedule(TIMEOUT_MILLIS, fired::countDown));
+
+    // touched from another thread, well within the timeout
+    for (int i = 0; i < 6; i++) {
+      TimeUnit.MILLISECONDS.sleep(TIMEOUT_MILLIS / 3);
+      timeout.touch();
+    }
+    assertEquals(1, fired.getCount());
+
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testCancel() throws Exception {
+    CountDownLatch fired = new CountDownLatch(2);
+
+    InactivityTimer timer = onEventLoop(() -> InactivityTimer.of(eventLoop));
+    InactivityTimer.Timeout onLoop =
+        onEventLoop(() -> timer.schedule(TIMEOUT_MILLIS, fired::countDown));
+    InactivityTimer.Timeout offLoop =
+        onEventLoop(() -> timer.schedule(TIMEOUT_MILLIS, fired::countDown));
+
+    onEventLoop(
+        () -> {
+          onLoop.cancel();
+          return null;
+        });
+    offLoop.cancel();
+
+    // cancelled on event loop is gone right away, otherwise when its bucket is ticked
+    assertEquals(1, (int) onEventLoop(timer::size));
+    assertFalse(fired.await(TIMEOUT_MILLIS * 3, TimeUnit.MILLISECONDS));
+    assertEquals(0, (int) onEventLoop(timer::size));
+  }
+
+  private <T> T onEventLoop(Callable<T> callable) throws Exception {
+    return eventLoop.submit(callable).get(5, TimeUnit.SECONDS);
+  }
+}
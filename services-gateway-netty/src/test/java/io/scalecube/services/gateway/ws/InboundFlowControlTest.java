@@ -0,0 +1,124 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+class InboundFlowControlTest {
+
+  private static final int BATCH_SIZE = 8;
+  private static final int REPLENISH = 6;
+
+  private final WebsocketStreamLimits limits =
+      WebsocketStreamLimits.builder().readBatchSize(BATCH_SIZE).readThresholds(4, 1).build();
+  private final List<Long> requests = new ArrayList<>();
+  private int frames;
+  private InboundFlowControl inbound;
+
+  @BeforeEach
+  void setUp() {
+    inbound = newFlowControl(null, requests);
+  }
+
+  @Test
+  void testRequestInBatches() {
+    assertEquals(List.of((long) BATCH_SIZE), requests);
+
+    receive(REPLENISH - 1);
+    inbound.onStreamEnd();
+    inbound.onStreamEnd();
+    inbound.onStreamEnd();
+    inbound.onStreamEnd();
+    receive(1);
+
+    assertEquals(List.of((long) BATCH_SIZE, (long) REPLENISH), requests);
+    assertFalse(inbound.isPaused());
+  }
+
+  @Test
+  void testPauseAndResume() {
+    receive(REPLENISH);
+
+    assertTrue(inbound.isPaused());
+    assertEquals(List.of((long) BATCH_SIZE), requests);
+
+    // rest of the batch still comes in while paused
+    receive(BATCH_SIZE - REPLENISH);
+    for (int i = 0; i < BATCH_SIZE - 2; i++) {
+      inbound.onStreamEnd();
+    }
+    assertTrue(inbound.isPaused());
+
+    inbound.onStreamEnd();
+
+    assertFalse(inbound.isPaused());
+    assertEquals(List.of((long) BATCH_SIZE, (long) REPLENISH), requests);
+    assertEquals(BATCH_SIZE, frames);
+  }
+
+  @Test
+  void testCountStreamsAcrossConnections() {
+    receive(REPLENISH);
+    final List<Long> resumedRequests = new ArrayList<>();
+    final InboundFlowControl resumed = newFlowControl(inbound, resumedRequests);
+
+    receive(resumed, REPLENISH);
+    assertTrue(resumed.isPaused());
+
+    // streams of both connections are in flight
+    for (int i = 0; i < 2 * REPLENISH - 2; i++) {
+      resumed.onStreamEnd();
+    }
+    assertTrue(resumed.isPaused());
+
+    resumed.onStreamEnd();
+
+    assertFalse(resumed.isPaused());
+    assertEquals(List.of((long) BATCH_SIZE, (long) REPLENISH), resumedRequests);
+  }
+
+  private InboundFlowControl newFlowControl(InboundFlowControl previous, List<Long> requests) {
+    final InboundFlowControl flowControl =
+        new InboundFlowControl(
+            limits,
+            previous,
+            (fc, byteBuf) -> {
+              frames++;
+              fc.onStreamStart();
+            },
+            th -> {});
+    flowControl.onSubscribe(
+        new Subscription() {
+          @Override
+          public void request(long n) {
+            requests.add(n);
+          }
+
+          @Override
+          public void cancel() {}
+        });
+    return flowControl;
+  }
+
+  private void receive(int count) {
+    receive(inbound, count);
+  }
+
+  private static void receive(InboundFlowControl flowControl, int count) {
+    for (int i = 0; i < count; i++) {
+      flowControl.onNext(frame());
+    }
+  }
+
+  private static ByteBuf frame() {
+    return Unpooled.wrappedBuffer(new byte[] {'{', '}'});
+  }
+}
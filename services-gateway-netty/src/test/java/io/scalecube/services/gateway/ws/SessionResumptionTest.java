@@ -0,0 +1,135 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SessionResumptionTest {
+
+  private final SessionResumption resumption = new SessionResumption("token", 2, Long.MAX_VALUE);
+  private final EmbeddedChannel channel = new EmbeddedChannel();
+  private final EmbeddedChannel newChannel = new EmbeddedChannel();
+
+  @AfterEach
+  void tearDown() {
+    resumption.release();
+    channel.finishAndReleaseAll();
+    newChannel.finishAndReleaseAll();
+  }
+
+  @Test
+  void testWriteToAttachedChannel() {
+    assertTrue(resumption.attach(channel, 0, TextWebSocketFrame::new));
+
+    resumption.write(frame("frame1"));
+
+    assertEquals(List.of("frame1"), sent(channel));
+  }
+
+  @Test
+  void testReplayFramesWrittenWhileDetached() {
+    resumption.attach(channel, 0, TextWebSocketFrame::new);
+    resumption.write(frame("frame1"));
+    assertTrue(resumption.detach(channel) > 0);
+
+    WebSocketFrame kept = frame("frame2");
+    resumption.write(kept);
+    assertTrue(resumption.attach(newChannel, 1, TextWebSocketFrame::new));
+
+    assertEquals(List.of("frame1"), sent(channel));
+    assertEquals(List.of("frame2"), sent(newChannel));
+    assertEquals(1, kept.refCnt());
+  }
+
+  @Test
+  void testClaimClosesAttachedChannel() {
+    resumption.attach(channel, 0, TextWebSocketFrame::new);
+    resumption.write(frame("frame1"));
+    resumption.write(frame("frame2"));
+
+    final int epoch = resumption.claim(1);
+
+    assertTrue(epoch > 0);
+    assertFalse(channel.isOpen());
+    assertTrue(resumption.isDetached(epoch));
+
+    assertTrue(resumption.attach(newChannel, 1, TextWebSocketFrame::new));
+    assertFalse(resumption.isDetached(epoch));
+    assertEquals(List.of("frame2"), sent(newChannel));
+  }
+
+  @Test
+  void testRejectOnceMissedFramesAreGone() {
+    resumption.write(frame("frame1"));
+    resumption.write(frame("frame2"));
+    resumption.write(frame("frame3"));
+
+    assertEquals(-1, resumption.claim(0));
+    assertFalse(resumption.attach(newChannel, 0, TextWebSocketFrame::new));
+    assertTrue(resumption.attach(newChannel, 1, TextWebSocketFrame::new));
+    assertEquals(List.of("frame2", "frame3"), sent(newChannel));
+  }
+
+  @Test
+  void testCountInboundOfAttachedChannelOnly() {
+    resumption.attach(channel, 0, TextWebSocketFrame::new);
+
+    assertTrue(resumption.onInbound(channel));
+    assertFalse(resumption.onInbound(newChannel));
+    resumption.claim(0);
+    assertFalse(resumption.onInbound(channel));
+
+    assertEquals(1, resumption.received());
+  }
+
+  @Test
+  void testDetachOnlyFromAttachedChannel() {
+    resumption.attach(channel, 0, TextWebSocketFrame::new);
+
+    assertEquals(-1, resumption.detach(newChannel));
+    assertTrue(resumption.detach(channel) > 0);
+    assertEquals(-1, resumption.detach(channel));
+  }
+
+  @Test
+  void testReleaseFrames() {
+    WebSocketFrame kept = frame("frame1");
+    resumption.write(kept);
+
+    resumption.release();
+    WebSocketFrame late = frame("frame2");
+    resumption.write(late);
+
+    assertTrue(resumption.isReleased());
+    assertEquals(0, kept.refCnt());
+    assertEquals(0, late.refCnt());
+    assertEquals(-1, resumption.claim(0));
+    assertFalse(resumption.attach(newChannel, 0, TextWebSocketFrame::new));
+  }
+
+  private static WebSocketFrame frame(String text) {
+    return new TextWebSocketFrame(Unpooled.copiedBuffer(text, StandardCharsets.UTF_8));
+  }
+
+  private static List<String> sent(EmbeddedChannel channel) {
+    final List<String> frames = new ArrayList<>();
+    WebSocketFrame frame;
+    while ((frame = channel.readOutbound()) != null) {
+      frames.add(frame.content().toString(StandardCharsets.UTF_8));
+      frame.release();
+    }
+    assertNull(channel.readOutbound());
+    return frames;
+  }
+}
@@ -0,0 +1,100 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SignalFrameWriterTest {
+
+  static Stream<WebsocketMessageCodec> codecs() {
+    return Stream.of(new WebsocketServiceMessageCodec(), new WebsocketBinaryServiceMessageCodec());
+  }
+
+  @Test
+  void testWriteJson() {
+    ByteBuf byteBuf = SignalFrameWriter.writeJson(TestInputs.SID, Signal.COMPLETE, "q/a", null);
+
+    assertEquals(
+        "{\"q\":\"q/a\",\"sid\":" + TestInputs.SID + ",\"sig\":1}",
+        byteBuf.toString(StandardCharsets.UTF_8));
+    byteBuf.release();
+  }
+
+  @Test
+  void testWriteJsonEscapesQualifier() {
+    ByteBuf byteBuf = SignalFrameWriter.writeJson(0, Signal.CANCEL, "q\"\\\u00fc", null);
+
+    assertEquals(
+        "{\"q\":\"q\\\"\\\\\u00fc\",\"sid\":0,\"sig\":3}", byteBuf.toString(StandardCharsets.UTF_8));
+    byteBuf.release();
+  }
+
+  @Test
+  void testWriteJsonRegisteredQualifier() {
+    QualifierTable qualifiers = new QualifierTable();
+    qualifiers.register(12, "q/a");
+
+    ByteBuf byteBuf = SignalFrameWriter.writeJson(5, Signal.COMPLETE, "q/a", qualifiers);
+
+    assertEquals("{\"qid\":12,\"sid\":5,\"sig\":1}", byteBuf.toString(StandardCharsets.UTF_8));
+    byteBuf.release();
+  }
+
+  @Test
+  void testMessageIsShared() {
+    assertSame(SignalFrameWriter.message("q/a"), SignalFrameWriter.message("q/a"));
+    assertEquals("q/a", SignalFrameWriter.message("q/a").qualifier());
+    assertNull(SignalFrameWriter.message(null).qualifier());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testEncodeSignalDecodes(WebsocketMessageCodec codec) {
+    for (Signal signal : new Signal[] {Signal.COMPLETE, Signal.CANCEL}) {
+      for (long sid : new long[] {0, 9, 10, 127, 128, 1234567890123L, Long.MAX_VALUE - 1}) {
+        WebsocketEnvelope actual =
+            codec.decode(codec.encodeSignal(sid, signal, TestInputs.Q, null), null);
+
+        assertEquals(sid, actual.sid());
+        assertEquals(signal.code(), actual.signal());
+        assertEquals(TestInputs.Q, actual.qualifier());
+        assertEquals(1, actual.message().headers().size());
+        assertNull(actual.data());
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testEncodeSignalRegisteredQualifier(WebsocketMessageCodec codec) {
+    QualifierTable qualifiers = new QualifierTable();
+    String qualifier = qualifiers.register(300, TestInputs.Q);
+
+    ByteBuf byteBuf = codec.encodeSignal(7, Signal.COMPLETE, TestInputs.Q, qualifiers);
+    WebsocketEnvelope actual = codec.decode(byteBuf.retainedDuplicate(), null);
+    WebsocketEnvelope resolved = codec.decode(byteBuf, qualifiers);
+
+    assertNull(actual.qualifier());
+    assertEquals("300", actual.message().header(GatewayMessages.QUALIFIER_ID_FIELD));
+    assertSame(qualifier, resolved.qualifier());
+    assertEquals(7, resolved.sid());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void testEncodeSignalWithoutQualifier(WebsocketMessageCodec codec) {
+    WebsocketEnvelope actual =
+        codec.decode(codec.encodeSignal(3, Signal.CANCEL, null, null), null);
+
+    assertEquals(3, actual.sid());
+    assertEquals(Signal.CANCEL.code(), actual.signal());
+    assertNull(actual.qualifier());
+  }
+}
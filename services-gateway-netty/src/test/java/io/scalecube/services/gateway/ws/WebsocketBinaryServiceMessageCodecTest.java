@@ -0,0 +1,135 @@
+package io.scalecube.services.gateway.ws;
+
+import static io.scalecube.services.gateway.ws.GatewayMessages.CONFLATE_FIELD;
+import static io.scalecube.services.gateway.ws.GatewayMessages.RATE_LIMIT_FIELD;
+import static io.scalecube.services.gateway.ws.GatewayMessages.SIGNAL_FIELD;
+import static io.scalecube.services.gateway.ws.GatewayMessages.STREAM_ID_FIELD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class WebsocketBinaryServiceMessageCodecTest {
+
+  private final WebsocketBinaryServiceMessageCodec codec = new WebsocketBinaryServiceMessageCodec();
+
+  @Test
+  public void testEncodeDecode() {
+    ByteBuf data = toByteBuf("{\"text\":\"hello\"}");
+    ServiceMessage message =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .header(STREAM_ID_FIELD, Long.MAX_VALUE - 1)
+            .header(SIGNAL_FIELD, Signal.ERROR.code())
+            .header(RATE_LIMIT_FIELD, 256)
+            .header("business", "value")
+            .data(data)
+            .build();
+
+    ServiceMessage actual = codec.decode(codec.encode(message));
+
+    assertEquals(TestInputs.Q, actual.qualifier());
+    assertEquals(String.valueOf(Long.MAX_VALUE - 1), actual.header(STREAM_ID_FIELD));
+    assertEquals(String.valueOf(Signal.ERROR.code()), actual.header(SIGNAL_FIELD));
+    assertEquals("256", actual.header(RATE_LIMIT_FIELD));
+    assertEquals("value", actual.header("business"));
+    assertEquals(5, actual.headers().size());
+
+    ByteBuf actualData = actual.data();
+    assertEquals("{\"text\":\"hello\"}", actualData.toString(StandardCharsets.UTF_8));
+    actualData.release();
+    assertEquals(0, data.refCnt());
+  }
+
+  @Test
+  public void testEncodeDecodeObjectData() {
+    ServiceMessage message =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .header(STREAM_ID_FIELD, TestInputs.SID)
+            .data(new TestInputs.Entity("test", 123, true))
+            .build();
+
+    ServiceMessage actual = codec.decode(codec.encode(message));
+
+    assertEquals(TestInputs.Q, actual.qualifier());
+    assertEquals(String.valueOf(TestInputs.SID), actual.header(STREAM_ID_FIELD));
+    ByteBuf actualData = actual.data();
+    assertEquals(
+        "{\"text\":\"test\",\"number\":123,\"check\":true}",
+        actualData.toString(StandardCharsets.UTF_8));
+    actualData.release();
+  }
+
+  @Test
+  public void testEncodeDecodeNoSidNoData() {
+    ServiceMessage message = ServiceMessage.builder().header(SIGNAL_FIELD, 1).build();
+
+    ServiceMessage actual = codec.decode(codec.encode(message));
+
+    assertNull(actual.qualifier());
+    assertNull(actual.header(STREAM_ID_FIELD));
+    assertEquals("1", actual.header(SIGNAL_FIELD));
+    assertNull(actual.data());
+  }
+
+  @Test
+  public void testEncodeDecodeEnvelope() {
+    WebsocketEnvelope envelope =
+        new WebsocketEnvelope(
+            TestInputs.SID,
+            Signal.COMPLETE.code(),
+            1000,
+            WebsocketEnvelope.NONE,
+            ServiceMessage.builder().qualifier(TestInputs.Q).header("business", "value").build());
+
+    WebsocketEnvelope actual = codec.decode(codec.encode(envelope, null), null);
+
+    assertEquals(TestInputs.SID, actual.sid());
+    assertEquals(Signal.COMPLETE.code(), actual.signal());
+    assertEquals(1000, actual.inactivity());
+    assertEquals(WebsocketEnvelope.NONE, actual.rateLimit());
+    assertEquals(TestInputs.Q, actual.qualifier());
+    // only business headers are left in the message
+    assertEquals(2, actual.message().headers().size());
+    assertEquals("value", actual.message().header("business"));
+  }
+
+  @Test
+  public void testEncodeDecodeConflationKey() {
+    WebsocketEnvelope envelope =
+        new WebsocketEnvelope(
+            TestInputs.SID,
+            WebsocketEnvelope.NO_SIGNAL,
+            WebsocketEnvelope.NONE,
+            WebsocketEnvelope.NONE,
+            false,
+            "key",
+            ServiceMessage.builder().qualifier(TestInputs.Q).build());
+
+    WebsocketEnvelope actual = codec.decode(codec.encode(envelope, null), null);
+
+    assertEquals("key", actual.conflationKey());
+    assertFalse(actual.isSingleFrame());
+    assertNull(actual.message().header(CONFLATE_FIELD));
+  }
+
+  @Test
+  public void testDecodeTruncated() {
+    ByteBuf input = ByteBufAllocator.DEFAULT.buffer().writeByte(0).writeByte(1).writeByte(100);
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input));
+    assertEquals(0, input.refCnt());
+  }
+
+  private static ByteBuf toByteBuf(String data) {
+    return ByteBufAllocator.DEFAULT.buffer().writeBytes(data.getBytes(StandardCharsets.UTF_8));
+  }
+}
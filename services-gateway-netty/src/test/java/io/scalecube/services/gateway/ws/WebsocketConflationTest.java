@@ -0,0 +1,97 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.scalecube.services.api.ServiceMessage;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class WebsocketConflationTest {
+
+  private static final String KEY = "symbol";
+
+  private final Sinks.Many<ServiceMessage> sink = Sinks.many().unicast().onBackpressureError();
+
+  @Test
+  void testPassThroughOnDemand() {
+    StepVerifier.create(WebsocketConflation.conflate(sink.asFlux(), KEY))
+        .then(() -> emit("a", "1"))
+        .assertNext(message -> assertPrice("a", "1", message))
+        .then(() -> emit("a", "2"))
+        .assertNext(message -> assertPrice("a", "2", message))
+        .then(sink::tryEmitComplete)
+        .verifyComplete();
+  }
+
+  @Test
+  void testKeepLatestPerKeyWithoutDemand() {
+    StepVerifier.create(WebsocketConflation.conflate(sink.asFlux(), KEY), 0)
+        .then(() -> emit("a", "1"))
+        .then(() -> emit("b", "1"))
+        .then(() -> emit("a", "2"))
+        .then(() -> emit("c", "1"))
+        .then(() -> emit("b", "2"))
+        .then(sink::tryEmitComplete)
+        .thenRequest(Long.MAX_VALUE)
+        .assertNext(message -> assertPrice("a", "2", message))
+        .assertNext(message -> assertPrice("b", "2", message))
+        .assertNext(message -> assertPrice("c", "1", message))
+        .verifyComplete();
+  }
+
+  @Test
+  void testConflateWholeStreamWithEmptyKey() {
+    StepVerifier.create(WebsocketConflation.conflate(sink.asFlux(), ""), 0)
+        .then(() -> emit("a", "1"))
+        .then(() -> emit("b", "1"))
+        .then(() -> emit("c", "1"))
+        .thenRequest(1)
+        .assertNext(message -> assertPrice("c", "1", message))
+        .then(sink::tryEmitComplete)
+        .verifyComplete();
+  }
+
+  @Test
+  void testErrorResponseGoesLast() {
+    ServiceMessage errorResponse = ServiceMessage.error("test", 500, 500, "Internal error");
+
+    StepVerifier.create(WebsocketConflation.conflate(sink.asFlux(), KEY), 0)
+        .then(() -> emit("a", "1"))
+        .then(() -> sink.tryEmitNext(errorResponse))
+        .then(() -> emit("b", "1"))
+        .then(sink::tryEmitComplete)
+        .thenRequest(Long.MAX_VALUE)
+        .assertNext(message -> assertPrice("a", "1", message))
+        .assertNext(message -> assertPrice("b", "1", message))
+        .expectNext(errorResponse)
+        .verifyComplete();
+  }
+
+  @Test
+  void testReleaseConflatedData() {
+    ByteBuf first = Unpooled.copiedBuffer("1", StandardCharsets.UTF_8);
+    ByteBuf second = Unpooled.copiedBuffer("2", StandardCharsets.UTF_8);
+
+    StepVerifier.create(WebsocketConflation.conflate(sink.asFlux(), KEY), 0)
+        .then(() -> emit("a", first))
+        .then(() -> emit("a", second))
+        .thenCancel()
+        .verify();
+
+    assertEquals(0, first.refCnt());
+    assertEquals(0, second.refCnt());
+  }
+
+  private void emit(String key, Object price) {
+    sink.tryEmitNext(ServiceMessage.builder().header(KEY, key).data(price).build());
+  }
+
+  private static void assertPrice(String key, String price, ServiceMessage message) {
+    assertEquals(key, message.header(KEY));
+    assertEquals(price, message.data());
+  }
+}
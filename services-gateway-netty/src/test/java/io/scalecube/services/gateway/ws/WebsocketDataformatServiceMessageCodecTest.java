@@ -0,0 +1,119 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class WebsocketDataformatServiceMessageCodecTest {
+
+  static Stream<WebsocketMessageCodec> codecs() {
+    return Stream.of(
+        new WebsocketCborServiceMessageCodec(), new WebsocketMessagePackServiceMessageCodec());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  public void testEncodeDecode(WebsocketMessageCodec codec) {
+    ByteBuf data = toByteBuf("{\"text\":\"hello\",\"number\":-123,\"price\":1.5,\"list\":[1,2]}");
+    WebsocketEnvelope envelope =
+        new WebsocketEnvelope(
+            TestInputs.SID,
+            Signal.ERROR.code(),
+            100,
+            256,
+            ServiceMessage.builder()
+                .qualifier(TestInputs.Q)
+                .header("business", "value")
+                .data(data)
+                .build());
+
+    ByteBuf byteBuf = codec.encode(envelope, null);
+    // check before decode, pooled buffer instance may be recycled for decoded data
+    assertEquals(0, data.refCnt());
+
+    WebsocketEnvelope actual = codec.decode(byteBuf, null);
+
+    assertEquals(TestInputs.SID, actual.sid());
+    assertEquals(Signal.ERROR.code(), actual.signal());
+    assertEquals(100, actual.inactivity());
+    assertEquals(256, actual.rateLimit());
+    assertEquals(TestInputs.Q, actual.qualifier());
+    assertEquals("value", actual.message().header("business"));
+    assertEquals(2, actual.message().headers().size());
+
+    // data goes back as json
+    ByteBuf actualData = actual.data();
+    assertEquals(
+        "{\"text\":\"hello\",\"number\":-123,\"price\":1.5,\"list\":[1,2]}",
+        actualData.toString(StandardCharsets.UTF_8));
+    actualData.release();
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  public void testEncodeDecodeObjectData(WebsocketMessageCodec codec) {
+    ServiceMessage message =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .data(new TestInputs.Entity("test", 123, true))
+            .build();
+
+    WebsocketEnvelope actual =
+        codec.decode(codec.encode(new WebsocketEnvelope(1, 0, message), null), null);
+
+    assertEquals(1, actual.sid());
+    assertEquals(WebsocketEnvelope.NO_SIGNAL, actual.signal());
+    ByteBuf actualData = actual.data();
+    assertEquals(
+        "{\"text\":\"test\",\"number\":123,\"check\":true}",
+        actualData.toString(StandardCharsets.UTF_8));
+    actualData.release();
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  public void testEncodeDecodeRegisteredQualifier(WebsocketMessageCodec codec) {
+    QualifierTable qualifiers = new QualifierTable();
+    String qualifier = qualifiers.register(7, TestInputs.Q);
+    ServiceMessage message = ServiceMessage.builder().qualifier(TestInputs.Q).build();
+
+    ByteBuf byteBuf = codec.encode(new WebsocketEnvelope(1, 0, message), qualifiers);
+    WebsocketEnvelope actual = codec.decode(byteBuf.retainedDuplicate(), null);
+    WebsocketEnvelope resolved = codec.decode(byteBuf, qualifiers);
+
+    assertNull(actual.qualifier());
+    assertEquals("7", actual.message().header(GatewayMessages.QUALIFIER_ID_FIELD));
+    assertSame(qualifier, resolved.qualifier());
+    assertNull(resolved.message().header(GatewayMessages.QUALIFIER_ID_FIELD));
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  public void testDecodeNotObject(WebsocketMessageCodec codec) {
+    ByteBuf input = ByteBufAllocator.DEFAULT.buffer().writeByte(0x01);
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input, null));
+    assertEquals(0, input.refCnt());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  public void testIsBinary(WebsocketMessageCodec codec) {
+    assertTrue(codec.isBinary());
+  }
+
+  private static ByteBuf toByteBuf(String data) {
+    return ByteBufAllocator.DEFAULT.buffer().writeBytes(data.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,169 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.NettyPipeline;
+
+class WebsocketFlushPolicyTest {
+
+  private EmbeddedChannel channel;
+  private FlushRecorder recorder;
+
+  @AfterEach
+  void tearDown() {
+    if (channel != null) {
+      channel.finishAndReleaseAll();
+    }
+  }
+
+  @Test
+  void testDefaultPolicyFlushesEveryFrame() {
+    WebsocketFlushStats stats = setUp(WebsocketFlushPolicy.builder().build());
+
+    writeAndFlush(3);
+
+    assertEquals(3, recorder.flushed);
+    assertEquals(3, stats.framesWritten());
+    assertEquals(3, stats.flushes());
+    assertEquals(0, stats.delayedFlushes());
+  }
+
+  @Test
+  void testFlushEveryFramesAndRestWhenIdle() {
+    WebsocketFlushStats stats = setUp(WebsocketFlushPolicy.builder().maxPendingFrames(4).build());
+
+    writeAndFlush(10);
+
+    assertEquals(8, recorder.flushed);
+    assertEquals(2, stats.flushes());
+
+    channel.runPendingTasks();
+
+    assertEquals(10, recorder.flushed);
+    assertEquals(10, stats.framesWritten());
+    assertEquals(3, stats.flushes());
+    assertEquals(1, stats.delayedFlushes());
+  }
+
+  @Test
+  void testFlushWhenIdle() {
+    WebsocketFlushStats stats =
+        setUp(WebsocketFlushPolicy.builder().maxPendingFrames(Integer.MAX_VALUE).build());
+
+    writeAndFlush(100);
+
+    assertEquals(0, recorder.flushed);
+
+    channel.runPendingTasks();
+
+    assertEquals(100, recorder.flushed);
+    assertEquals(1, stats.flushes());
+    assertEquals(1, stats.delayedFlushes());
+  }
+
+  @Test
+  void testFlushOnMaxDelay() {
+    WebsocketFlushStats stats =
+        setUp(
+            WebsocketFlushPolicy.builder()
+                .maxPendingFrames(Integer.MAX_VALUE)
+                .maxDelay(Duration.ofMillis(10))
+                .build());
+    channel.freezeTime();
+
+    writeAndFlush(5);
+    channel.runPendingTasks();
+
+    assertEquals(0, recorder.flushed);
+
+    channel.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+    channel.runPendingTasks();
+
+    assertEquals(5, recorder.flushed);
+    assertEquals(1, stats.flushes());
+    assertEquals(1, stats.delayedFlushes());
+  }
+
+  @Test
+  void testControlFrameFlushesPendingFrames() {
+    WebsocketFlushStats stats =
+        setUp(WebsocketFlushPolicy.builder().maxPendingFrames(Integer.MAX_VALUE).build());
+
+    writeAndFlush(2);
+    channel.writeAndFlush(new PingWebSocketFrame());
+
+    assertEquals(3, recorder.flushed);
+    assertEquals(2, stats.framesWritten());
+    assertEquals(1, stats.flushes());
+    assertEquals(0, stats.delayedFlushes());
+  }
+
+  @Test
+  void testCloseFlushesPendingFrames() {
+    WebsocketFlushStats stats =
+        setUp(WebsocketFlushPolicy.builder().maxPendingFrames(Integer.MAX_VALUE).build());
+
+    writeAndFlush(2);
+    channel.close();
+
+    assertEquals(2, recorder.flushed);
+    assertEquals(1, stats.flushes());
+  }
+
+  @Test
+  void testInvalidPolicy() {
+    assertThrows(
+        IllegalArgumentException.class, () -> WebsocketFlushPolicy.builder().maxPendingFrames(0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WebsocketFlushPolicy.builder().maxDelay(Duration.ZERO));
+  }
+
+  private WebsocketFlushStats setUp(WebsocketFlushPolicy policy) {
+    channel = new EmbeddedChannel();
+    recorder = new FlushRecorder();
+    channel.pipeline().addLast(NettyPipeline.HttpCodec, recorder);
+    policy.configure(channel);
+    return WebsocketFlushPolicy.stats(channel);
+  }
+
+  private void writeAndFlush(int frames) {
+    for (int i = 0; i < frames; i++) {
+      channel.writeAndFlush(new TextWebSocketFrame("{\"sid\":" + i + "}"));
+    }
+  }
+
+  /**
+   * Stands for http codec, counts frames that got flushed. Writes don't reach embedded channel
+   * itself, since it runs pending tasks on every write and flush.
+   */
+  private static class FlushRecorder extends ChannelOutboundHandlerAdapter {
+
+    private int written;
+    private int flushed;
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      ReferenceCountUtil.release(msg);
+      written++;
+      promise.setSuccess();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+      flushed = written;
+    }
+  }
+}
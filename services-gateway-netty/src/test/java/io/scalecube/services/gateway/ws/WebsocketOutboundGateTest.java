@@ -0,0 +1,145 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+
+class WebsocketOutboundGateTest {
+
+  private static final long INTERVAL = WebsocketOutboundGate.DRAIN_INTERVAL_NANOS;
+
+  private EmbeddedChannel channel;
+  private WebsocketOutboundGate gate;
+  // far enough ahead for samples taken by streams themselves to never be due
+  private long now;
+
+  @BeforeEach
+  void setUp() {
+    channel = new EmbeddedChannel();
+    WebsocketOutboundGate.install(
+        Connection.from(channel), WebsocketSlowConsumerPolicy.builder().build());
+    gate = WebsocketOutboundGate.get(channel);
+    now = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+    gate.sample(now);
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void testGrowBudgetWhileWritable() {
+    final int batch = gate.batch();
+
+    assertEquals(batch * 3 / 2, gate.sample(now += INTERVAL));
+    assertEquals(batch * 3 / 2 * 3 / 2, gate.sample(now += INTERVAL));
+  }
+
+  @Test
+  void testGrowBudgetNotBelowDrainWhileWritable() {
+    writeFrames(300);
+
+    assertEquals(300, gate.sample(now += INTERVAL));
+  }
+
+  @Test
+  void testSizeBudgetByDrainOnUnwritable() {
+    writeFrames(20);
+    makeUnwritable();
+
+    assertEquals(20, gate.sample(now += INTERVAL));
+  }
+
+  @Test
+  void testSizeBudgetByDrainRate() {
+    writeFrames(100);
+    makeUnwritable();
+
+    // drained over two intervals, budget is per interval
+    assertEquals(50, gate.sample(now += 2 * INTERVAL));
+  }
+
+  @Test
+  void testShrinkToMinBatch() {
+    makeUnwritable();
+
+    assertEquals(WebsocketOutboundGate.MIN_BATCH, gate.sample(now += INTERVAL));
+  }
+
+  @Test
+  void testNotCountPendingFramesAsDrained() {
+    writeFrames(20);
+    for (int i = 0; i < 10; i++) {
+      channel.write(new TextWebSocketFrame("frame"));
+    }
+    makeUnwritable();
+
+    assertEquals(20, gate.sample(now += INTERVAL));
+  }
+
+  @Test
+  void testSampleOncePerInterval() {
+    final int batch = gate.batch();
+    writeFrames(300);
+
+    assertEquals(batch, gate.sample(now + INTERVAL / 2));
+  }
+
+  @Test
+  void testSplitBudgetAcrossStreams() {
+    final int batch = gate.batch();
+    final List<Long> first = new ArrayList<>();
+    final List<Long> second = new ArrayList<>();
+
+    Disposable stream1 = gate.gate(pending(first)).subscribe();
+    Disposable stream2 = gate.gate(pending(second)).subscribe();
+    stream1.dispose();
+    final List<Long> third = new ArrayList<>();
+    Disposable stream3 = gate.gate(pending(third)).subscribe();
+    stream2.dispose();
+    stream3.dispose();
+
+    assertEquals(batch, first.get(0));
+    assertEquals(batch / 2, second.get(0));
+    assertEquals(batch / 2, third.get(0));
+  }
+
+  @Test
+  void testPassThroughAllResponses() {
+    assertEquals(10_000, (long) gate.gate(responses(10_000)).count().block());
+  }
+
+  private void writeFrames(int count) {
+    for (int i = 0; i < count; i++) {
+      channel.write(new TextWebSocketFrame("frame"));
+    }
+    channel.flush();
+  }
+
+  private void makeUnwritable() {
+    // no pending bytes of its own, those would count against drain
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+    channel.runPendingTasks();
+    assertFalse(channel.isWritable());
+  }
+
+  private static Flux<WebsocketEnvelope> pending(List<Long> requests) {
+    return Flux.<WebsocketEnvelope>never().doOnRequest(requests::add);
+  }
+
+  private static Flux<WebsocketEnvelope> responses(int count) {
+    return Flux.range(0, count).map(i -> GatewayMessages.newCompleteEnvelope(i, "q"));
+  }
+}
@@ -3,10 +3,13 @@
 import static io.scalecube.services.gateway.ws.GatewayMessages.DATA_FIELD;
 import static io.scalecube.services.gateway.ws.GatewayMessages.INACTIVITY_FIELD;
 import static io.scalecube.services.gateway.ws.GatewayMessages.QUALIFIER_FIELD;
+import static io.scalecube.services.gateway.ws.GatewayMessages.QUALIFIER_ID_FIELD;
 import static io.scalecube.services.gateway.ws.GatewayMessages.SIGNAL_FIELD;
 import static io.scalecube.services.gateway.ws.GatewayMessages.STREAM_ID_FIELD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -20,15 +23,22 @@
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
 import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.MessageCodecException;
+import io.scalecube.services.gateway.ReferenceCountUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 public class WebsocketServiceMessageCodecTest {
 
@@ -211,6 +221,263 @@ public void testDecodeArrayData() {
     assertEquals(expectedData, ((ByteBuf) message.data()).toString(StandardCharsets.UTF_8));
   }
 
+  @Test
+  public void testDecodeDataIsSliceOfInput() {
+    String expectedData = "{\"text\":\"someValue\"}";
+    String stringData =
+        String.format(
+            TestInputs.STRING_DATA_PATTERN_Q_SIG_SID_D,
+            TestInputs.Q,
+            TestInputs.SIG,
+            TestInputs.SID,
+            expectedData);
+
+    ByteBuf input = toByteBuf(stringData);
+
+    ServiceMessage message = codec.decode(input);
+
+    ByteBuf data = message.data();
+    assertEquals(expectedData, data.toString(StandardCharsets.UTF_8));
+    assertSame(input, data.unwrap());
+    assertEquals(1, input.refCnt());
+
+    data.release();
+    assertEquals(0, input.refCnt());
+  }
+
+  @Test
+  public void testDecodeNoDataReleasesInput() {
+    ByteBuf input = toByteBuf(TestInputs.NO_DATA);
+
+    ServiceMessage message = codec.decode(input);
+
+    assertNull(message.data());
+    assertEquals(0, input.refCnt());
+  }
+
+  @Test
+  public void testDecodeStringDataWithEscapes() {
+    String expectedData = "{\"text\":\"}\\\"{[\", \"list\":[\"]\"]}";
+    String stringData =
+        String.format(
+            TestInputs.STRING_DATA_PATTERN_D_SIG_SID_Q,
+            expectedData,
+            TestInputs.SIG,
+            TestInputs.SID,
+            TestInputs.Q);
+
+    ServiceMessage message = codec.decode(toByteBuf(stringData));
+
+    assertEquals(TestInputs.Q, message.qualifier());
+    assertEquals(TestInputs.SID, Long.parseLong(message.header(STREAM_ID_FIELD)));
+    assertEquals(expectedData, ((ByteBuf) message.data()).toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDecodeUnknownHeader() {
+    String stringData = "{\"q\":\"" + TestInputs.Q + "\", \"sid\":1, \"x\":\"y\", \"d\":42}";
+
+    ServiceMessage message = codec.decode(toByteBuf(stringData));
+
+    assertEquals(TestInputs.Q, message.qualifier());
+    assertEquals("1", message.header(STREAM_ID_FIELD));
+    assertEquals("y", message.header("x"));
+    assertEquals("42", ((ByteBuf) message.data()).toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDecodeEscapedQualifier() {
+    String stringData = "{\"q\":\"\\/test\\/test\", \"sid\":1}";
+
+    ServiceMessage message = codec.decode(toByteBuf(stringData));
+
+    assertEquals(TestInputs.Q, message.qualifier());
+    assertEquals("1", message.header(STREAM_ID_FIELD));
+  }
+
+  @Test
+  public void testDecodeNullHeaders() {
+    String stringData = "{\"q\":null, \"sid\":null, \"sig\":3}";
+
+    ServiceMessage message = codec.decode(toByteBuf(stringData));
+
+    assertNull(message.qualifier());
+    assertNull(message.header(STREAM_ID_FIELD));
+    assertEquals("3", message.header(SIGNAL_FIELD));
+  }
+
+  @Test
+  public void testDecodeMalformed() {
+    ByteBuf input = toByteBuf("{\"q\":\"" + TestInputs.Q + "\", \"d\":{\"id\":1}");
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input));
+    assertEquals(0, input.refCnt());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"tXYZ", "12abc", "nul", "truex", "-", "01", "1.", "1e", "--1", ".5"})
+  public void testDecodeMalformedScalarData(String data) {
+    ByteBuf input = toByteBuf("{\"q\":\"" + TestInputs.Q + "\", \"d\":" + data + "}");
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input));
+    assertEquals(0, input.refCnt());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"0", "-1", "1.5", "2e10", "-0.1E-3", "true", "false"})
+  public void testDecodeScalarData(String data) {
+    ByteBuf input = toByteBuf("{\"q\":\"" + TestInputs.Q + "\", \"d\":" + data + "}");
+
+    ServiceMessage message = codec.decode(input);
+
+    assertEquals(data, ((ByteBuf) message.data()).toString(StandardCharsets.UTF_8));
+    ReferenceCountUtil.safestRelease(message.data());
+  }
+
+  @Test
+  public void testDecodeSignalOutOfRange() {
+    ByteBuf input = toByteBuf("{\"q\":\"" + TestInputs.Q + "\", \"sig\":4294967297}");
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input));
+    assertEquals(0, input.refCnt());
+  }
+
+  @Test
+  public void testDecodeSidOfAbsentValue() {
+    ByteBuf input = toByteBuf("{\"q\":\"" + TestInputs.Q + "\", \"sid\":" + Long.MIN_VALUE + "}");
+
+    assertThrows(MessageCodecException.class, () -> codec.decode(input, null));
+    assertEquals(0, input.refCnt());
+  }
+
+  @Test
+  public void testDecodeRegisteredQualifierId() {
+    QualifierTable qualifiers = new QualifierTable();
+    String qualifier = qualifiers.register(7, TestInputs.Q);
+
+    WebsocketEnvelope envelope = codec.decode(toByteBuf("{\"qid\":7, \"sid\":1}"), qualifiers);
+
+    assertSame(qualifier, envelope.qualifier());
+    assertNull(envelope.message().header(QUALIFIER_ID_FIELD));
+    assertEquals(1, envelope.sid());
+  }
+
+  @Test
+  public void testDecodeUnknownQualifierId() {
+    ServiceMessage message =
+        codec.decode(toByteBuf("{\"qid\":7, \"sid\":1}"), new QualifierTable()).message();
+
+    assertNull(message.qualifier());
+    assertEquals("7", message.header(QUALIFIER_ID_FIELD));
+  }
+
+  @Test
+  public void testDecodeQualifierWithQualifierId() {
+    QualifierTable qualifiers = new QualifierTable();
+    String stringData = "{\"q\":\"" + TestInputs.Q + "\", \"qid\":7, \"sid\":1}";
+
+    ServiceMessage message = codec.decode(toByteBuf(stringData), qualifiers).message();
+
+    // registration is up to the gateway, codec leaves both as is
+    assertEquals(TestInputs.Q, message.qualifier());
+    assertEquals("7", message.header(QUALIFIER_ID_FIELD));
+    assertNull(qualifiers.resolve(7));
+  }
+
+  @Test
+  public void testEncodeRegisteredQualifier() {
+    QualifierTable qualifiers = new QualifierTable();
+    qualifiers.register(7, TestInputs.Q);
+    ServiceMessage expected =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .header(STREAM_ID_FIELD, TestInputs.SID)
+            .build();
+
+    // decoded without qualifier table to see what went on the wire
+    ServiceMessage actual =
+        codec.decode(codec.encode(WebsocketEnvelope.from(expected), qualifiers));
+
+    assertNull(actual.qualifier());
+    assertEquals("7", actual.header(QUALIFIER_ID_FIELD));
+    assertEquals(String.valueOf(TestInputs.SID), actual.header(STREAM_ID_FIELD));
+  }
+
+  @Test
+  public void testDecodeGatewayFieldsAsPrimitives() {
+    String stringData =
+        "{\"q\":\"" + TestInputs.Q + "\", \"sid\":1, \"sig\":2, \"i\":3, \"rlimit\":4, "
+            + "\"h\":\"v\"}";
+
+    WebsocketEnvelope envelope = codec.decode(toByteBuf(stringData), null);
+
+    assertEquals(1, envelope.sid());
+    assertEquals(2, envelope.signal());
+    assertEquals(3, envelope.inactivity());
+    assertEquals(4, envelope.rateLimit());
+    assertEquals(TestInputs.Q, envelope.qualifier());
+    // only business headers are left in the message
+    assertEquals(2, envelope.message().headers().size());
+    assertEquals("v", envelope.message().header("h"));
+  }
+
+  @Test
+  public void testDecodeRequestFlagsAsEnvelopeFields() {
+    String stringData =
+        "{\"q\":\"" + TestInputs.Q + "\", \"sid\":1, \"single\":\"true\", \"conflate\":\"k\", "
+            + "\"h\":\"v\"}";
+
+    WebsocketEnvelope envelope = codec.decode(toByteBuf(stringData), null);
+
+    assertTrue(envelope.isSingleFrame());
+    assertEquals("k", envelope.conflationKey());
+    assertEquals(2, envelope.message().headers().size());
+    assertEquals("v", envelope.message().header("h"));
+  }
+
+  @Test
+  public void testDecodeRequestFlagsAsEnvelopeFieldsOnFallback() {
+    // escaped qualifier isn't taken by the scanner
+    String stringData = "{\"q\":\"\\/test\\/test\", \"single\":true, \"conflate\":\"\"}";
+
+    WebsocketEnvelope envelope = codec.decode(toByteBuf(stringData), null);
+
+    assertTrue(envelope.isSingleFrame());
+    assertEquals("", envelope.conflationKey());
+    assertEquals(TestInputs.Q, envelope.qualifier());
+    assertEquals(1, envelope.message().headers().size());
+  }
+
+  @Test
+  public void testDecodeGatewayFieldsAsPrimitivesWithData() {
+    String stringData = "{\"sig\":\"2\", \"d\":{\"a\":1}, \"sid\":\"1\"}";
+
+    WebsocketEnvelope envelope = codec.decode(toByteBuf(stringData), null);
+
+    assertEquals(1, envelope.sid());
+    assertEquals(2, envelope.signal());
+    assertEquals(WebsocketEnvelope.NONE, envelope.inactivity());
+    assertEquals(WebsocketEnvelope.NONE, envelope.rateLimit());
+    assertTrue(envelope.message().headers().isEmpty());
+    ReferenceCountUtil.safestRelease(envelope.data());
+  }
+
+  @Test
+  public void testEncodeEnvelope() throws Exception {
+    WebsocketEnvelope envelope =
+        new WebsocketEnvelope(
+            TestInputs.SID,
+            TestInputs.SIG,
+            ServiceMessage.builder().qualifier(TestInputs.Q).header("h", "v").build());
+
+    String actual = codec.encode(envelope, null).toString(StandardCharsets.UTF_8);
+
+    // gateway fields go as numbers
+    assertTrue(actual.contains("\"sid\":" + TestInputs.SID), actual);
+    assertTrue(actual.contains("\"sig\":" + TestInputs.SIG), actual);
+    assertTrue(actual.contains("\"h\":\"v\""), actual);
+  }
+
   @Test
   public void testEncodePojoData() throws Exception {
     TestInputs.Entity data = new TestInputs.Entity("test", 123, true);
@@ -273,6 +540,77 @@ public void testEncodeBooleanData() throws Exception {
     assertEquals(data, actual.data());
   }
 
+  @Test
+  public void testEncodeDoesNotCopyData() throws Exception {
+    ByteBuf data = toByteBuf(new TestInputs.Entity("test", 123, true));
+    ServiceMessage expected =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .header(STREAM_ID_FIELD, TestInputs.SID)
+            .data(data)
+            .build();
+    ByteBuf bb = codec.encode(expected);
+
+    assertTrue(bb instanceof CompositeByteBuf);
+    assertSame(data, ((CompositeByteBuf) bb).internalComponent(1).unwrap());
+    assertEquals(TestInputs.Q, fromByteBuf(bb, TestInputs.Entity.class).qualifier());
+
+    bb.release();
+    assertEquals(0, data.refCnt());
+  }
+
+  @Test
+  public void testEncodeNoData() throws Exception {
+    ServiceMessage expected =
+        ServiceMessage.builder()
+            .qualifier(TestInputs.Q)
+            .header(STREAM_ID_FIELD, TestInputs.SID)
+            .header(SIGNAL_FIELD, TestInputs.SIG)
+            .build();
+    ByteBuf bb = codec.encode(expected);
+
+    ServiceMessage actual = fromByteBuf(bb, Object.class);
+
+    assertEquals(expected.qualifier(), actual.qualifier());
+    assertEquals(expected.header(SIGNAL_FIELD), actual.header(SIGNAL_FIELD));
+    assertEquals(expected.header(STREAM_ID_FIELD), actual.header(STREAM_ID_FIELD));
+    assertNull(actual.data());
+  }
+
+  @Test
+  public void testSteadyStateCodecAllocation() {
+    Assumptions.assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assumptions.assumeTrue(threadMxBean.isThreadAllocatedMemoryEnabled());
+
+    ServiceMessage message =
+        ServiceMessage.builder().qualifier(TestInputs.Q).header("sid", TestInputs.SID).build();
+    // unknown header makes decoder fall back from envelope scanner to json parser
+    ByteBuf input =
+        toByteBuf("{\"q\":\"" + TestInputs.Q + "\",\"x\":\"y\",\"d\":{\"a\":[1,2]}}");
+
+    int warmup = 20_000;
+    int iterations = 20_000;
+    for (int i = 0; i < warmup; i++) {
+      codec.encode(message).release();
+      codec.decode(input.retainedDuplicate());
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadMxBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < iterations; i++) {
+      codec.encode(message).release();
+      codec.decode(input.retainedDuplicate());
+    }
+    long perMessage = (threadMxBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+    // what's left is message, envelope, headers and data slice themselves, generators and parsers
+    // come from the pool, see JsonStreamPoolBenchmark in gateway benchmarks for the comparison
+    assertTrue(perMessage < 2048, "allocated per message: " + perMessage);
+  }
+
   private ByteBuf toByteBuf(String data) {
     ByteBuf bb = ByteBufAllocator.DEFAULT.buffer();
     bb.writeBytes(data.getBytes());
@@ -0,0 +1,99 @@
+package io.scalecube.services.gateway.ws;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.scalecube.services.api.ServiceMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class WebsocketSingleFrameTest {
+
+  private final Sinks.Many<WebsocketEnvelope> sink = Sinks.many().unicast().onBackpressureBuffer();
+
+  @Test
+  void testLastResponseCarriesComplete() {
+    StepVerifier.create(completeOnLast(sink.asFlux()))
+        .then(() -> emit("a"))
+        .then(() -> emit("b"))
+        .assertNext(response -> assertResponse("a", WebsocketEnvelope.NO_SIGNAL, response))
+        .then(sink::tryEmitComplete)
+        .assertNext(response -> assertResponse("b", Signal.COMPLETE.code(), response))
+        .verifyComplete();
+  }
+
+  @Test
+  void testEmptyStreamCompletes() {
+    StepVerifier.create(completeOnLast(Flux.empty())).verifyComplete();
+  }
+
+  @Test
+  void testLastResponseWaitsForDemand() {
+    StepVerifier.create(completeOnLast(sink.asFlux()), 0)
+        .then(() -> emit("a"))
+        .then(() -> emit("b"))
+        .then(sink::tryEmitComplete)
+        .thenRequest(1)
+        .assertNext(response -> assertResponse("a", WebsocketEnvelope.NO_SIGNAL, response))
+        .expectNoEvent(Duration.ofMillis(50))
+        .thenRequest(1)
+        .assertNext(response -> assertResponse("b", Signal.COMPLETE.code(), response))
+        .verifyComplete();
+  }
+
+  @Test
+  void testErrorReleasesHeldResponse() {
+    ByteBuf data = toByteBuf("a");
+
+    StepVerifier.create(completeOnLast(sink.asFlux()))
+        .then(() -> sink.tryEmitNext(response(data)))
+        .then(() -> sink.tryEmitError(new RuntimeException("test")))
+        .verifyErrorMessage("test");
+
+    assertEquals(0, data.refCnt());
+  }
+
+  @Test
+  void testCancelReleasesHeldResponse() {
+    ByteBuf data = toByteBuf("a");
+
+    StepVerifier.create(completeOnLast(sink.asFlux()))
+        .then(() -> sink.tryEmitNext(response(data)))
+        .thenCancel()
+        .verify();
+
+    assertEquals(0, data.refCnt());
+  }
+
+  private static Flux<WebsocketEnvelope> completeOnLast(Flux<WebsocketEnvelope> responses) {
+    return WebsocketSingleFrame.completeOnLast(
+        responses,
+        response ->
+            GatewayMessages.newCompleteResponseEnvelope(response.sid(), response.message()));
+  }
+
+  private void emit(String value) {
+    sink.tryEmitNext(response(toByteBuf(value)));
+  }
+
+  private static WebsocketEnvelope response(ByteBuf data) {
+    return new WebsocketEnvelope(
+        1, WebsocketEnvelope.NO_SIGNAL, ServiceMessage.builder().qualifier("q").data(data).build());
+  }
+
+  private static void assertResponse(String value, int signal, WebsocketEnvelope response) {
+    ByteBuf data = response.data();
+    assertEquals(value, data.toString(StandardCharsets.UTF_8));
+    assertEquals(signal, response.signal());
+    data.release();
+  }
+
+  private static ByteBuf toByteBuf(String value) {
+    return Unpooled.copiedBuffer(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,113 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.scalecube.services.ServiceInfo;
+import io.scalecube.services.examples.GreetingRequest;
+import io.scalecube.services.examples.GreetingResponse;
+import io.scalecube.services.examples.GreetingService;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.exceptions.InternalServiceException;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.transport.api.ClientTransport;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+/**
+ * Requests to a local websocket gateway over each of its codecs, subclasses pick client transport
+ * of the codec.
+ */
+abstract class AbstractWebsocketCodecLocalGatewayTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+  private GreetingService service;
+
+  @BeforeEach
+  void initService() {
+    service = extension().client().api(GreetingService.class);
+  }
+
+  protected abstract WebsocketLocalGatewayExtension extension();
+
+  static WebsocketLocalGatewayExtension newExtension(
+      Function<GatewayClientSettings, ClientTransport> clientSupplier) {
+    return new WebsocketLocalGatewayExtension(
+        ServiceInfo.fromServiceInstance(new GreetingServiceImpl()).build(),
+        WebsocketGateway::new,
+        clientSupplier);
+  }
+
+  @Test
+  void shouldReturnSingleResponseWithSimpleRequest() {
+    StepVerifier.create(service.one("hello"))
+        .expectNext("Echo:hello")
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnSingleResponseWithSimpleLongDataRequest() {
+    String data = new String(new char[500]);
+    StepVerifier.create(service.one(data))
+        .expectNext("Echo:" + data)
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnSingleResponseWithPojoRequest() {
+    StepVerifier.create(service.pojoOne(new GreetingRequest("hello")))
+        .expectNextMatches(response -> "Echo:hello".equals(response.getText()))
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnManyResponsesWithPojoRequest() {
+    int expectedResponseNum = 3;
+    List<GreetingResponse> expected =
+        IntStream.range(0, expectedResponseNum)
+            .mapToObj(i -> new GreetingResponse("Greeting (" + i + ") to: hello"))
+            .collect(Collectors.toList());
+
+    StepVerifier.create(service.pojoMany(new GreetingRequest("hello")).take(expectedResponseNum))
+        .expectNextSequence(expected)
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnErrorDataWhenServiceFails() {
+    StepVerifier.create(service.failingOne("hello"))
+        .expectErrorMatches(throwable -> throwable instanceof InternalServiceException)
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnErrorDataWhenRequestDataIsEmpty() {
+    StepVerifier.create(service.one(null))
+        .expectErrorMatches(
+            throwable ->
+                "Expected service request data of type: class java.lang.String, but received: null"
+                    .equals(throwable.getMessage()))
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  public void testManyStreamBlockFirst() {
+    for (int i = 0; i < 100; i++) {
+      //noinspection ConstantConditions
+      long first = service.manyStream(30L).filter(k -> k != 0).take(1).blockFirst();
+      assertEquals(1, first);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package io.scalecube.services.gateway.websocket;
+
+import io.scalecube.services.gateway.transport.GatewayClientTransports;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class WebsocketBinaryLocalGatewayTest extends AbstractWebsocketCodecLocalGatewayTest {
+
+  @RegisterExtension
+  static WebsocketLocalGatewayExtension extension =
+      newExtension(GatewayClientTransports::websocketBinaryGatewayClientTransport);
+
+  @Override
+  protected WebsocketLocalGatewayExtension extension() {
+    return extension;
+  }
+}
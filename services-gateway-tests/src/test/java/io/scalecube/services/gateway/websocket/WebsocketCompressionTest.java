@@ -0,0 +1,179 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.ServiceCall;
+import io.scalecube.services.examples.GreetingService;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.TestGatewaySessionHandler;
+import io.scalecube.services.gateway.common.WebsocketCompressionStats;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import io.scalecube.services.gateway.transport.GatewayClientTransport;
+import io.scalecube.services.gateway.transport.GatewayClientTransports;
+import io.scalecube.services.gateway.transport.StaticAddressRouter;
+import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClient;
+import io.scalecube.services.gateway.ws.WebsocketCompression;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySession;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+class WebsocketCompressionTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+  private static final String LARGE_TEXT =
+      IntStream.range(0, 200).mapToObj(i -> "hello" + i % 10).collect(Collectors.joining(" "));
+
+  private static final TestGatewaySessionHandler sessionHandler = new TestGatewaySessionHandler();
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+  private static LoopResources loopResources;
+
+  private WebsocketGatewayClient client;
+
+  @BeforeAll
+  static void beforeAll() {
+    loopResources = LoopResources.create("websocket-gateway-client");
+
+    gateway =
+        Microservices.builder()
+            .services(new GreetingServiceImpl())
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("WS"),
+                        WebsocketGatewaySettings.builder()
+                            .gatewayHandler(sessionHandler)
+                            .compression(WebsocketCompression.builder().build())
+                            .build()))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+    if (loopResources != null) {
+      loopResources.disposeLater().block();
+    }
+  }
+
+  @AfterEach
+  void afterEach() {
+    if (client != null) {
+      client.close();
+    }
+  }
+
+  @Test
+  void shouldCompressLargeMessages() {
+    GreetingService service = service(GatewayClientSettings.builder().compression(true));
+
+    StepVerifier.create(service.one(LARGE_TEXT))
+        .expectNext("Echo:" + LARGE_TEXT)
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    WebsocketCompressionStats gatewayStats = gatewayStats();
+    assertTrue(gatewayStats.compressedBytesRead() < gatewayStats.rawBytesRead(), "read");
+    assertTrue(gatewayStats.compressedBytesWritten() < gatewayStats.rawBytesWritten(), "written");
+
+    WebsocketCompressionStats clientStats = client.compressionStats().block(TIMEOUT);
+    assertNotNull(clientStats);
+    assertEquals(gatewayStats.compressedBytesRead(), clientStats.compressedBytesWritten());
+    assertEquals(gatewayStats.compressedBytesWritten(), clientStats.compressedBytesRead());
+    assertTrue(clientStats.compressedBytesWritten() < clientStats.rawBytesWritten());
+  }
+
+  @Test
+  void shouldNotCompressSmallMessages() {
+    GreetingService service = service(GatewayClientSettings.builder().compression(true));
+
+    StepVerifier.create(service.one("hello"))
+        .expectNext("Echo:hello")
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    WebsocketCompressionStats gatewayStats = gatewayStats();
+    assertTrue(gatewayStats.rawBytesRead() > 0);
+    assertEquals(gatewayStats.rawBytesRead(), gatewayStats.compressedBytesRead());
+    assertEquals(gatewayStats.rawBytesWritten(), gatewayStats.compressedBytesWritten());
+  }
+
+  @Test
+  void shouldCompressWithoutContextTakeover() {
+    GreetingService service =
+        service(
+            GatewayClientSettings.builder()
+                .compression(true)
+                .compressionLevel(9)
+                .compressionMinFrameSize(0)
+                .compressionContextTakeover(false));
+
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.create(service.one(LARGE_TEXT))
+          .expectNext("Echo:" + LARGE_TEXT)
+          .expectComplete()
+          .verify(TIMEOUT);
+    }
+
+    WebsocketCompressionStats gatewayStats = gatewayStats();
+    assertTrue(gatewayStats.compressedBytesRead() < gatewayStats.rawBytesRead());
+    assertTrue(gatewayStats.compressedBytesWritten() < gatewayStats.rawBytesWritten());
+  }
+
+  @Test
+  void shouldWorkWithClientWithoutCompression() {
+    GreetingService service = service(GatewayClientSettings.builder());
+
+    StepVerifier.create(service.one(LARGE_TEXT))
+        .expectNext("Echo:" + LARGE_TEXT)
+        .expectComplete()
+        .verify(TIMEOUT);
+
+    WebsocketCompressionStats gatewayStats = gatewayStats();
+    assertTrue(gatewayStats.rawBytesRead() > 0);
+    assertEquals(gatewayStats.rawBytesRead(), gatewayStats.compressedBytesRead());
+    assertEquals(gatewayStats.rawBytesWritten(), gatewayStats.compressedBytesWritten());
+    assertNull(client.compressionStats().block(TIMEOUT));
+  }
+
+  private GreetingService service(GatewayClientSettings.Builder settings) {
+    client =
+        new WebsocketGatewayClient(
+            settings.address(gatewayAddress).build(),
+            GatewayClientTransports.WEBSOCKET_CLIENT_CODEC,
+            loopResources);
+
+    return new ServiceCall()
+        .transport(new GatewayClientTransport(client))
+        .router(new StaticAddressRouter(gatewayAddress))
+        .api(GreetingService.class);
+  }
+
+  private WebsocketCompressionStats gatewayStats() {
+    WebsocketGatewaySession session = (WebsocketGatewaySession) sessionHandler.lastSession();
+    assertNotNull(session);
+    WebsocketCompressionStats stats = session.compressionStats();
+    assertNotNull(stats);
+    return stats;
+  }
+}
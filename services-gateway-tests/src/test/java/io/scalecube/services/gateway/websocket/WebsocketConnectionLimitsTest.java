@@ -0,0 +1,136 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.ConnectionLimits;
+import io.scalecube.services.gateway.ConnectionStats;
+import io.scalecube.services.gateway.GatewayOptions;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+
+class WebsocketConnectionLimitsTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static Microservices gateway;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("MC"),
+                        ConnectionLimits.builder()
+                            .maxConnections(1)
+                            .retryAfter(Duration.ofMillis(1500))
+                            .build()))
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("AR"),
+                        ConnectionLimits.builder().addressAcceptRate(0.01, 2).build()))
+            .startAwait();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldRejectConnectionsBeyondMaxConnections() throws Exception {
+    ConnectionStats stats = stats("MC");
+
+    Disposable connection =
+        HttpClient.create()
+            .port(gateway.gateway("MC").address().port())
+            .websocket()
+            .uri("/")
+            .handle((in, out) -> out.neverComplete())
+            .subscribe();
+    try {
+      awaitEquals(1, stats::connections);
+
+      HttpClientResponse response = get("MC");
+
+      assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status());
+      assertEquals("2", response.responseHeaders().get(HttpHeaderNames.RETRY_AFTER));
+      assertEquals(1, stats.rejectedByMaxConnections());
+    } finally {
+      connection.dispose();
+    }
+
+    awaitEquals(0, stats::connections);
+    connect("MC");
+  }
+
+  @Test
+  void shouldRejectConnectionsBeyondAddressAcceptRate() {
+    ConnectionStats stats = stats("AR");
+
+    connect("AR");
+    connect("AR");
+
+    HttpClientResponse response = get("AR");
+
+    assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status());
+    assertEquals("1", response.responseHeaders().get(HttpHeaderNames.RETRY_AFTER));
+    assertEquals(1, stats.rejectedByAddressAcceptRate());
+    assertEquals(0, stats.rejectedByAcceptRate());
+  }
+
+  private static ConnectionStats stats(String gatewayId) {
+    return ((WebsocketGateway) gateway.gateway(gatewayId)).connectionStats();
+  }
+
+  private static void connect(String gatewayId) {
+    HttpClient.newConnection()
+        .port(gateway.gateway(gatewayId).address().port())
+        .websocket()
+        .uri("/")
+        .handle((in, out) -> out.sendClose())
+        .then()
+        .block(TIMEOUT);
+  }
+
+  private static HttpClientResponse get(String gatewayId) {
+    return HttpClient.newConnection()
+        .port(gateway.gateway(gatewayId).address().port())
+        .get()
+        .uri("/")
+        .responseSingle((response, body) -> Mono.just(response))
+        .block(TIMEOUT);
+  }
+
+  private static void awaitEquals(long expected, LongSupplier actual) throws Exception {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (actual.getAsLong() != expected && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(expected, actual.getAsLong());
+  }
+
+  private static WebsocketGateway newGateway(
+      GatewayOptions options, ConnectionLimits connectionLimits) {
+    return new WebsocketGateway(
+        options, WebsocketGatewaySettings.builder().connectionLimits(connectionLimits).build());
+  }
+}
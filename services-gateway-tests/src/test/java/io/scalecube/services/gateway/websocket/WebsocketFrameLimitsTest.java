@@ -0,0 +1,153 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.ws.WebsocketFrameLimits;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+class WebsocketFrameLimitsTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static final int MAX_FRAME_PAYLOAD_LENGTH = 512;
+  private static final int MAX_MESSAGE_SIZE = 1024;
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new GreetingServiceImpl())
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("WS"),
+                        WebsocketGatewaySettings.builder()
+                            .frameLimits(
+                                WebsocketFrameLimits.builder()
+                                    .maxFramePayloadLength(MAX_FRAME_PAYLOAD_LENGTH)
+                                    .maxMessageSize(MAX_MESSAGE_SIZE)
+                                    .aggregationTimeout(Duration.ofMillis(500))
+                                    .build())
+                            .build()))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldAggregateFragmentedMessage() {
+    String response =
+        connect(
+                (in, out) ->
+                    out.sendObject(
+                            Flux.just(
+                                new TextWebSocketFrame(false, 0, "{\"q\":\"greeting/one\","),
+                                new ContinuationWebSocketFrame(false, 0, "\"sid\":1,\"d\":\"hel"),
+                                new ContinuationWebSocketFrame(true, 0, "lo\"}")))
+                        .then()
+                        .thenMany(in.receive().asString())
+                        .next())
+            .block(TIMEOUT);
+
+    assertTrue(response.contains("Echo:hello"), response);
+  }
+
+  @Test
+  void shouldCloseOnTooLargeFrame() {
+    int status =
+        closeStatus(Flux.just(new TextWebSocketFrame(request(MAX_FRAME_PAYLOAD_LENGTH + 1))));
+
+    assertEquals(WebSocketCloseStatus.MESSAGE_TOO_BIG.code(), status);
+  }
+
+  @Test
+  void shouldCloseOnTooLargeMessage() {
+    String chunk = pad(MAX_FRAME_PAYLOAD_LENGTH - 10);
+    int status =
+        closeStatus(
+            Flux.just(
+                new TextWebSocketFrame(false, 0, "{\"q\":\"greeting/one\",\"sid\":1,\"d\":\""),
+                new ContinuationWebSocketFrame(false, 0, chunk),
+                new ContinuationWebSocketFrame(false, 0, chunk),
+                new ContinuationWebSocketFrame(true, 0, "\"}")));
+
+    assertEquals(WebSocketCloseStatus.MESSAGE_TOO_BIG.code(), status);
+  }
+
+  @Test
+  void shouldCloseOnAggregationTimeout() {
+    int status =
+        closeStatus(
+            Flux.just(new TextWebSocketFrame(false, 0, "{\"q\":\"greeting/one\",\"sid\":1,")));
+
+    assertEquals(WebSocketCloseStatus.POLICY_VIOLATION.code(), status);
+  }
+
+  @Test
+  void shouldCloseOnUnexpectedContinuation() {
+    int status = closeStatus(Flux.just(new ContinuationWebSocketFrame(true, 0, "{}")));
+
+    assertEquals(WebSocketCloseStatus.PROTOCOL_ERROR.code(), status);
+  }
+
+  private static int closeStatus(Flux<WebSocketFrame> frames) {
+    return connect(
+            (in, out) ->
+                out.sendObject(frames)
+                    .then()
+                    .thenMany(in.receiveCloseStatus().map(WebSocketCloseStatus::code))
+                    .next())
+        .block(TIMEOUT);
+  }
+
+  private static <T> Mono<T> connect(
+      BiFunction<WebsocketInbound, WebsocketOutbound, Mono<T>> handler) {
+    return HttpClient.create()
+        .port(gatewayAddress.port())
+        .websocket()
+        .uri("/")
+        .handle(handler::apply)
+        .next();
+  }
+
+  private static String request(int size) {
+    String prefix = "{\"q\":\"greeting/one\",\"sid\":1,\"d\":\"";
+    return prefix + pad(size - prefix.length() - 2) + "\"}";
+  }
+
+  private static String pad(int size) {
+    char[] chars = new char[size];
+    Arrays.fill(chars, 'a');
+    return new String(chars);
+  }
+}
@@ -3,8 +3,10 @@
 import io.scalecube.services.ServiceInfo;
 import io.scalecube.services.gateway.AbstractLocalGatewayExtension;
 import io.scalecube.services.gateway.GatewayOptions;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
 import io.scalecube.services.gateway.transport.GatewayClientTransports;
 import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.transport.api.ClientTransport;
 import java.util.function.Function;
 
 class WebsocketLocalGatewayExtension extends AbstractLocalGatewayExtension {
@@ -21,9 +23,13 @@ class WebsocketLocalGatewayExtension extends AbstractLocalGatewayExtension {
 
   WebsocketLocalGatewayExtension(
       ServiceInfo serviceInfo, Function<GatewayOptions, WebsocketGateway> gatewaySupplier) {
-    super(
-        serviceInfo,
-        opts -> gatewaySupplier.apply(opts.id(GATEWAY_ALIAS_NAME)),
-        GatewayClientTransports::websocketGatewayClientTransport);
+    this(serviceInfo, gatewaySupplier, GatewayClientTransports::websocketGatewayClientTransport);
+  }
+
+  WebsocketLocalGatewayExtension(
+      ServiceInfo serviceInfo,
+      Function<GatewayOptions, WebsocketGateway> gatewaySupplier,
+      Function<GatewayClientSettings, ClientTransport> clientSupplier) {
+    super(serviceInfo, opts -> gatewaySupplier.apply(opts.id(GATEWAY_ALIAS_NAME)), clientSupplier);
   }
 }
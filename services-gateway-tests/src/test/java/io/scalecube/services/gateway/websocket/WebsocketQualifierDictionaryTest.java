@@ -0,0 +1,91 @@
+package io.scalecube.services.gateway.websocket;
+
+import io.scalecube.services.ServiceInfo;
+import io.scalecube.services.examples.GreetingRequest;
+import io.scalecube.services.examples.GreetingResponse;
+import io.scalecube.services.examples.GreetingService;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.exceptions.InternalServiceException;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import io.scalecube.services.gateway.transport.GatewayClientTransports;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class WebsocketQualifierDictionaryTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+  @RegisterExtension
+  static WebsocketLocalGatewayExtension extension =
+      new WebsocketLocalGatewayExtension(
+          ServiceInfo.fromServiceInstance(new GreetingServiceImpl()).build(),
+          WebsocketGateway::new,
+          settings ->
+              GatewayClientTransports.websocketGatewayClientTransport(
+                  GatewayClientSettings.from(settings).qualifierDictionary(true).build()));
+
+  private GreetingService service;
+
+  @BeforeEach
+  void initService() {
+    service = extension.client().api(GreetingService.class);
+  }
+
+  @Test
+  void shouldReturnResponsesOnRepeatedRequests() {
+    // first request registers qualifier, following ones refer to it by id
+    for (int i = 0; i < 10; i++) {
+      StepVerifier.create(service.one("hello" + i))
+          .expectNext("Echo:hello" + i)
+          .expectComplete()
+          .verify(TIMEOUT);
+    }
+  }
+
+  @Test
+  void shouldReturnResponsesOnConcurrentRequests() {
+    int count = 100;
+    List<String> expected =
+        IntStream.range(0, count).mapToObj(i -> "Echo:hello" + i).collect(Collectors.toList());
+
+    StepVerifier.create(
+            Flux.range(0, count).flatMapSequential(i -> service.one("hello" + i)).collectList())
+        .expectNext(expected)
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnManyResponsesWithPojoRequest() {
+    int expectedResponseNum = 3;
+    List<GreetingResponse> expected =
+        IntStream.range(0, expectedResponseNum)
+            .mapToObj(i -> new GreetingResponse("Greeting (" + i + ") to: hello"))
+            .collect(Collectors.toList());
+
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.create(service.pojoMany(new GreetingRequest("hello")).take(expectedResponseNum))
+          .expectNextSequence(expected)
+          .expectComplete()
+          .verify(TIMEOUT);
+    }
+  }
+
+  @Test
+  void shouldReturnErrorDataWhenServiceFails() {
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.create(service.failingOne("hello"))
+          .expectErrorMatches(throwable -> throwable instanceof InternalServiceException)
+          .verify(TIMEOUT);
+    }
+  }
+}
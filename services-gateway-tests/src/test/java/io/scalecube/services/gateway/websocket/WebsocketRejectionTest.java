@@ -0,0 +1,82 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.exceptions.DefaultErrorMapper;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+class WebsocketRejectionTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new GreetingServiceImpl())
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("WS"),
+                        WebsocketGatewaySettings.builder()
+                            .errorMapper(WebsocketRejectionTest::toBufferMessage)
+                            .build()))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldAnswerEveryRejectedFrameWhenErrorDataIsBuffer() {
+    List<String> responses =
+        HttpClient.create()
+            .port(gatewayAddress.port())
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Flux.just("{\"sid\":1,\"d\":1}", "{\"sid\":2,\"d\":2}"))
+                        .then()
+                        .thenMany(in.receive().asString().take(2)))
+            .collectList()
+            .block(TIMEOUT);
+
+    assertEquals(2, responses.size(), responses.toString());
+    for (String response : responses) {
+      assertTrue(response.contains("qualifier is missing"), response);
+    }
+  }
+
+  private static ServiceMessage toBufferMessage(String qualifier, Throwable throwable) {
+    ServiceMessage message = DefaultErrorMapper.INSTANCE.toMessage(qualifier, throwable);
+    String data = "{\"errorCode\":400,\"errorMessage\":\"" + throwable.getMessage() + "\"}";
+    return ServiceMessage.from(message)
+        .data(Unpooled.copiedBuffer(data, StandardCharsets.UTF_8))
+        .build();
+  }
+}
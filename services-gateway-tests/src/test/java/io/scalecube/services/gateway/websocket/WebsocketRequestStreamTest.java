@@ -0,0 +1,277 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.exceptions.ForbiddenException;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.GatewaySession;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.context.Context;
+
+class WebsocketRequestStreamTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static final String CONTEXT_KEY = "requestStreamTest";
+  private static final int RESPONSES = 3;
+  private static final int RACES = 50;
+
+  private static final AtomicLong lastSessionId = new AtomicLong();
+  private static final Map<Long, Queue<Object>> responseContexts = new ConcurrentHashMap<>();
+  private static final Map<Long, Queue<Object>> errorContexts = new ConcurrentHashMap<>();
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new RequestServiceImpl())
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("WS"),
+                        WebsocketGatewaySettings.builder()
+                            .gatewayHandler(new ContextHandler())
+                            .build()))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldSendResponsesThenComplete() {
+    List<String> frames = exchange(RESPONSES + 1, request("many", 1));
+
+    for (int i = 0; i < RESPONSES; i++) {
+      assertTrue(frames.get(i).contains("many" + i), frames.get(i));
+      assertFalse(frames.get(i).contains("\"sig\""), frames.get(i));
+    }
+    assertTrue(frames.get(RESPONSES).contains("\"sig\":1"), frames.get(RESPONSES));
+  }
+
+  @Test
+  void shouldSendResponsesThenError() {
+    List<String> frames = exchange(2, request("fail", 1));
+
+    assertTrue(frames.get(0).contains("fail0"), frames.get(0));
+    assertFalse(frames.get(0).contains("\"sig\""), frames.get(0));
+    assertTrue(frames.get(1).contains("\"sig\":2"), frames.get(1));
+    assertTrue(frames.get(1).contains("failed"), frames.get(1));
+  }
+
+  @Test
+  void shouldPropagateContextToResponses() {
+    exchange(RESPONSES + 3, request("many", 1), request("fail", 2));
+
+    // responses and terminal signals of both streams
+    List<Object> contexts = contexts(responseContexts);
+    assertEquals(RESPONSES + 3, contexts.size(), contexts.toString());
+  }
+
+  @Test
+  void shouldPropagateContextToErrorHandler() {
+    // rejected request is handled before the next one is read
+    exchange(RESPONSES + 1, request("reject", 1), request("many", 2));
+
+    List<Object> contexts = contexts(errorContexts);
+    assertEquals(1, contexts.size(), contexts.toString());
+  }
+
+  @Test
+  void shouldTerminateStreamOnceWhenCancelRacesComplete() {
+    String[] requests = new String[2 * RACES];
+    for (int i = 0; i < RACES; i++) {
+      long sid = i + 1;
+      requests[2 * i] = request("one", sid);
+      requests[2 * i + 1] = "{\"q\":\"request/one\",\"sid\":" + sid + ",\"sig\":3}";
+    }
+
+    AtomicInteger cancels = new AtomicInteger();
+    List<String> frames =
+        HttpClient.create()
+            .port(gatewayAddress.port())
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Flux.fromArray(requests))
+                        .then()
+                        .thenMany(
+                            in.receive()
+                                .asString()
+                                .takeUntil(
+                                    frame ->
+                                        frame.contains("\"sig\":3")
+                                            && cancels.incrementAndGet() == RACES)))
+            .collectList()
+            .block(TIMEOUT);
+
+    for (int i = 0; i < RACES; i++) {
+      String sid = "\"sid\":" + (i + 1) + ",";
+      List<String> stream =
+          frames.stream().filter(frame -> frame.contains(sid)).collect(Collectors.toList());
+
+      assertEquals(1, count(stream, "\"sig\":3"), stream.toString());
+      assertTrue(count(stream, "\"sig\":1") <= 1, stream.toString());
+      assertEquals(0, count(stream, "\"sig\":2"), stream.toString());
+      int complete = indexOf(stream, "\"sig\":1");
+      int data = indexOf(stream, "\"d\"");
+      assertTrue(complete < 0 || data < complete, stream.toString());
+    }
+  }
+
+  private static List<Object> contexts(Map<Long, Queue<Object>> contexts) {
+    long sessionId = lastSessionId.get();
+    Queue<Object> values = contexts.get(sessionId);
+    List<Object> list = values != null ? new ArrayList<>(values) : new ArrayList<>();
+    for (Object value : list) {
+      assertEquals(contextValue(sessionId), value);
+    }
+    return list;
+  }
+
+  private static long count(List<String> frames, String token) {
+    return frames.stream().filter(frame -> frame.contains(token)).count();
+  }
+
+  private static int indexOf(List<String> frames, String token) {
+    for (int i = 0; i < frames.size(); i++) {
+      if (frames.get(i).contains(token)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String contextValue(long sessionId) {
+    return "session-" + sessionId;
+  }
+
+  private static String request(String method, long sid) {
+    return "{\"q\":\"request/" + method + "\",\"sid\":" + sid + ",\"d\":\"" + method + "\"}";
+  }
+
+  private static List<String> exchange(int responses, String... requests) {
+    return HttpClient.create()
+        .port(gatewayAddress.port())
+        .websocket()
+        .uri("/")
+        .handle(
+            (in, out) ->
+                out.sendString(Flux.fromArray(requests))
+                    .then()
+                    .thenMany(in.receive().asString().take(responses)))
+        .collectList()
+        .block(TIMEOUT);
+  }
+
+  private static class ContextHandler implements GatewaySessionHandler {
+
+    @Override
+    public void onSessionOpen(GatewaySession session) {
+      lastSessionId.set(session.sessionId());
+    }
+
+    @Override
+    public Context onRequest(GatewaySession session, ByteBuf byteBuf, Context context) {
+      return context.put(CONTEXT_KEY, contextValue(session.sessionId()));
+    }
+
+    @Override
+    public ServiceMessage mapMessage(
+        GatewaySession session, ServiceMessage message, Context context) {
+      if (message.qualifier().endsWith("/reject")) {
+        throw new ForbiddenException("rejected");
+      }
+      return message;
+    }
+
+    @Override
+    public void onResponse(
+        GatewaySession session, ByteBuf byteBuf, ServiceMessage message, Context context) {
+      responseContexts
+          .computeIfAbsent(session.sessionId(), id -> new ConcurrentLinkedQueue<>())
+          .add(context.getOrDefault(CONTEXT_KEY, "none"));
+    }
+
+    @Override
+    public void onError(GatewaySession session, Throwable throwable, Context context) {
+      errorContexts
+          .computeIfAbsent(session.sessionId(), id -> new ConcurrentLinkedQueue<>())
+          .add(context.getOrDefault(CONTEXT_KEY, "none"));
+    }
+  }
+
+  @Service("request")
+  public interface RequestService {
+
+    @ServiceMethod
+    Mono<String> one(String request);
+
+    @ServiceMethod
+    Flux<String> many(String request);
+
+    @ServiceMethod
+    Flux<String> fail(String request);
+
+    @ServiceMethod
+    Mono<String> reject(String request);
+  }
+
+  public static class RequestServiceImpl implements RequestService {
+
+    @Override
+    public Mono<String> one(String request) {
+      return Mono.just(request);
+    }
+
+    @Override
+    public Flux<String> many(String request) {
+      return Flux.range(0, RESPONSES).map(i -> request + i);
+    }
+
+    @Override
+    public Flux<String> fail(String request) {
+      return Flux.just(request + 0).concatWith(Flux.error(new ForbiddenException("failed")));
+    }
+
+    @Override
+    public Mono<String> reject(String request) {
+      return Mono.just(request);
+    }
+  }
+}
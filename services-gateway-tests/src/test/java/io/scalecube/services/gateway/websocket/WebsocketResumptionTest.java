@@ -0,0 +1,436 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.ServiceCall;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.exceptions.UnauthorizedException;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.GatewayOptions;
+import io.scalecube.services.gateway.GatewaySession;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.transport.GatewayClient;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import io.scalecube.services.gateway.transport.GatewayClientTransport;
+import io.scalecube.services.gateway.transport.GatewayClientTransports;
+import io.scalecube.services.gateway.transport.StaticAddressRouter;
+import io.scalecube.services.gateway.transport.websocket.WebsocketGatewayClient;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import io.scalecube.services.gateway.ws.WebsocketResumption;
+import io.scalecube.services.gateway.ws.WebsocketStreamLimits;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpServer;
+import reactor.util.context.Context;
+
+class WebsocketResumptionTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration GRACE_PERIOD = Duration.ofMillis(500);
+  private static final int TICKS = 50;
+
+  private static final AtomicInteger subscriptions = new AtomicInteger();
+  private static final AtomicInteger cancellations = new AtomicInteger();
+  private static final Queue<Map<String, String>> requestHeaders = new ConcurrentLinkedQueue<>();
+
+  private static Microservices gateway;
+
+  private final Set<Connection> proxyConnections = ConcurrentHashMap.newKeySet();
+  private DisposableServer proxy;
+  private GatewayClient client;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new TickServiceImpl())
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("RS"),
+                        WebsocketResumption.builder().gracePeriod(GRACE_PERIOD).build()))
+            .gateway(options -> newGateway(options.id("NR"), null))
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("AU"),
+                        WebsocketGatewaySettings.builder()
+                            .resumption(WebsocketResumption.builder().build())
+                            .gatewayHandler(new AuthGatewayHandler())
+                            .build()))
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("SL"),
+                        WebsocketGatewaySettings.builder()
+                            .resumption(WebsocketResumption.builder().build())
+                            .streamLimits(WebsocketStreamLimits.builder().maxStreams(1).build())
+                            .build()))
+            .startAwait();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    subscriptions.set(0);
+    cancellations.set(0);
+    requestHeaders.clear();
+  }
+
+  @AfterEach
+  void afterEach() {
+    if (client != null) {
+      client.close();
+      client.onClose().block(TIMEOUT);
+    }
+    if (proxy != null) {
+      proxy.disposeNow();
+    }
+  }
+
+  @Test
+  void shouldResumeStreamAfterConnectionLoss() throws Exception {
+    TickService service = service("RS");
+    List<Long> received = new CopyOnWriteArrayList<>();
+
+    CompletableFuture<List<Long>> ticks =
+        service.ticks(TICKS).doOnNext(received::add).collectList().toFuture();
+
+    awaitAtLeast(5, received::size);
+    dropConnections();
+
+    List<Long> expected = LongStream.range(0, TICKS).boxed().collect(Collectors.toList());
+    assertEquals(expected, ticks.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    assertEquals(1, subscriptions.get());
+    assertEquals(0, cancellations.get());
+
+    // session goes on for new requests too
+    assertEquals(3, service.ticks(3).collectList().block(TIMEOUT).size());
+  }
+
+  @Test
+  void shouldFailStreamIfGatewayDoesNotResume() throws Exception {
+    TickService service = service("NR");
+    List<Long> received = new CopyOnWriteArrayList<>();
+
+    CompletableFuture<List<Long>> ticks =
+        service.ticks(TICKS).doOnNext(received::add).collectList().toFuture();
+
+    awaitAtLeast(5, received::size);
+    dropConnections();
+
+    ExecutionException ex =
+        assertThrows(
+            ExecutionException.class, () -> ticks.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    assertTrue(ex.getCause() instanceof IOException, ex.getCause().toString());
+    awaitAtLeast(1, cancellations::get);
+  }
+
+  @Test
+  void shouldExpireSessionAfterGracePeriod() throws Exception {
+    Address address = gateway.gateway("RS").address();
+
+    String token =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(headers -> headers.set(WebsocketResumption.RESUMABLE_HEADER, true))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Mono.just("{\"q\":\"tick/ticks\",\"sid\":1,\"d\":1000}"))
+                        .then()
+                        .thenMany(
+                            in.receive().take(1).map(frame -> resumeToken(in))))
+            .blockLast(TIMEOUT);
+    assertNotNull(token);
+
+    // stream outlives connection till grace period is over
+    assertEquals(0, cancellations.get());
+    awaitAtLeast(1, cancellations::get);
+
+    String newToken =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(
+                headers ->
+                    headers
+                        .set(WebsocketResumption.RESUME_TOKEN_HEADER, token)
+                        .set(WebsocketResumption.RESUME_POSITION_HEADER, 1))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendClose().then(Mono.justOrEmpty(resumeToken(in))))
+            .blockLast(TIMEOUT);
+    assertNotEquals(token, newToken);
+  }
+
+  @Test
+  void shouldNotTakeOverSessionOnUnauthenticatedConnection() throws Exception {
+    Address address = gateway.gateway("AU").address();
+    CompletableFuture<String> token = new CompletableFuture<>();
+
+    CompletableFuture<Long> frames =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(headers -> headers.set(WebsocketResumption.RESUMABLE_HEADER, true))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(
+                            Mono.just("{\"q\":\"tick/ticks\",\"sid\":1,\"d\":" + TICKS + "}"))
+                        .then()
+                        .thenMany(
+                            in.receive()
+                                .doOnNext(frame -> token.complete(resumeToken(in)))
+                                // data frames and complete signal
+                                .take(TICKS + 1)
+                                .count()))
+            .next()
+            .toFuture();
+
+    String resumeToken = token.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    assertThrows(
+        Exception.class,
+        () ->
+            HttpClient.newConnection()
+                .port(address.port())
+                .headers(
+                    headers ->
+                        headers
+                            .set(WebsocketResumption.RESUME_TOKEN_HEADER, resumeToken)
+                            .set(WebsocketResumption.RESUME_POSITION_HEADER, 0)
+                            .set(AuthGatewayHandler.DENY_HEADER, true))
+                .websocket()
+                .uri("/")
+                .handle((in, out) -> out.sendClose())
+                .blockLast(TIMEOUT));
+
+    // session stays on its connection
+    assertEquals(TICKS + 1, frames.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    assertEquals(0, cancellations.get());
+  }
+
+  @Test
+  void shouldTakeHeadersOfResumingConnection() throws Exception {
+    Address address = gateway.gateway("AU").address();
+
+    String token =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(headers -> headers.set(WebsocketResumption.RESUMABLE_HEADER, true))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Mono.just("{\"q\":\"tick/ticks\",\"sid\":1,\"d\":1}"))
+                        .then()
+                        .thenMany(in.receive().take(1).map(frame -> resumeToken(in))))
+            .blockLast(TIMEOUT);
+    assertNotNull(token);
+
+    HttpClient.newConnection()
+        .port(address.port())
+        .headers(
+            headers ->
+                headers
+                    .set(WebsocketResumption.RESUME_TOKEN_HEADER, token)
+                    .set(WebsocketResumption.RESUME_POSITION_HEADER, 1)
+                    .set("X-Resumed", true))
+        .websocket()
+        .uri("/")
+        .handle(
+            (in, out) ->
+                out.sendString(Mono.just("{\"q\":\"tick/ticks\",\"sid\":2,\"d\":1}"))
+                    .then()
+                    .thenMany(
+                        in.receive().asString().filter(frame -> frame.contains("\"sid\":2"))))
+        .blockFirst(TIMEOUT);
+
+    List<Map<String, String>> headers = new ArrayList<>(requestHeaders);
+    assertEquals(2, headers.size());
+    assertFalse(headers.get(0).containsKey("X-Resumed"));
+    assertTrue(headers.get(1).containsKey("X-Resumed"));
+  }
+
+  @Test
+  void shouldKeepStreamLimitsOfResumedSession() throws Exception {
+    Address address = gateway.gateway("SL").address();
+
+    String token =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(headers -> headers.set(WebsocketResumption.RESUMABLE_HEADER, true))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Mono.just("{\"q\":\"tick/ticks\",\"sid\":1,\"d\":1000}"))
+                        .then()
+                        .thenMany(in.receive().take(1).map(frame -> resumeToken(in))))
+            .blockLast(TIMEOUT);
+    assertNotNull(token);
+
+    String response =
+        HttpClient.newConnection()
+            .port(address.port())
+            .headers(
+                headers ->
+                    headers
+                        .set(WebsocketResumption.RESUME_TOKEN_HEADER, token)
+                        .set(WebsocketResumption.RESUME_POSITION_HEADER, 1))
+            .websocket()
+            .uri("/")
+            .handle(
+                (in, out) ->
+                    out.sendString(Mono.just("{\"q\":\"tick/ticks\",\"sid\":2,\"d\":1}"))
+                        .then()
+                        .thenMany(
+                            in.receive().asString().filter(frame -> frame.contains("\"sid\":2"))))
+            .blockFirst(TIMEOUT);
+
+    // stream of the previous connection still holds the only permit
+    assertNotNull(response);
+    assertTrue(response.contains("\"sig\":2"), response);
+  }
+
+  private TickService service(String gatewayId) {
+    Address proxyAddress = startProxy(gateway.gateway(gatewayId).address());
+    client =
+        new WebsocketGatewayClient(
+            GatewayClientSettings.builder().address(proxyAddress).resumable(true).build(),
+            GatewayClientTransports.WEBSOCKET_CLIENT_CODEC);
+    return new ServiceCall()
+        .transport(new GatewayClientTransport(client))
+        .router(new StaticAddressRouter(proxyAddress))
+        .api(TickService.class);
+  }
+
+  private Address startProxy(Address target) {
+    proxy =
+        TcpServer.create()
+            .host("localhost")
+            .port(0)
+            .doOnConnection(proxyConnections::add)
+            .handle(
+                (in, out) ->
+                    TcpClient.newConnection()
+                        .host(target.host())
+                        .port(target.port())
+                        .doOnConnected(proxyConnections::add)
+                        .connect()
+                        .flatMap(
+                            upstream ->
+                                out.send(upstream.inbound().receive().retain())
+                                    .then()
+                                    .and(upstream.outbound().send(in.receive().retain()))
+                                    .doFinally(s -> upstream.dispose())))
+            .bindNow();
+    return Address.create("localhost", proxy.port());
+  }
+
+  private void dropConnections() {
+    proxyConnections.forEach(Connection::dispose);
+    proxyConnections.clear();
+  }
+
+  private static String resumeToken(WebsocketInbound inbound) {
+    // headers of websocket client inbound are handshake response headers
+    return inbound.headers().get(WebsocketResumption.RESUME_TOKEN_HEADER);
+  }
+
+  private static void awaitAtLeast(int expected, IntSupplier actual) throws Exception {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (actual.getAsInt() < expected && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertTrue(actual.getAsInt() >= expected, "actual: " + actual.getAsInt());
+  }
+
+  private static WebsocketGateway newGateway(
+      GatewayOptions options, WebsocketResumption resumption) {
+    return new WebsocketGateway(
+        options, WebsocketGatewaySettings.builder().resumption(resumption).build());
+  }
+
+  private static class AuthGatewayHandler implements GatewaySessionHandler {
+
+    private static final String DENY_HEADER = "X-Deny";
+
+    @Override
+    public Mono<Void> onConnectionOpen(long sessionId, Map<String, String> headers) {
+      return headers.containsKey(DENY_HEADER)
+          ? Mono.error(new UnauthorizedException("Denied"))
+          : Mono.empty();
+    }
+
+    @Override
+    public Context onRequest(GatewaySession session, ByteBuf byteBuf, Context context) {
+      requestHeaders.add(session.headers());
+      return context;
+    }
+  }
+
+  @Service("tick")
+  public interface TickService {
+
+    @ServiceMethod
+    Flux<Long> ticks(Integer count);
+  }
+
+  public static class TickServiceImpl implements TickService {
+
+    @Override
+    public Flux<Long> ticks(Integer count) {
+      return Flux.interval(Duration.ofMillis(20))
+          .take(count)
+          .doOnSubscribe(s -> subscriptions.incrementAndGet())
+          .doOnCancel(cancellations::incrementAndGet);
+    }
+  }
+}
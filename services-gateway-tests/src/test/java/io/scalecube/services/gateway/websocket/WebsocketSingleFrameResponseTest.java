@@ -0,0 +1,173 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.ServiceCall;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.examples.GreetingRequest;
+import io.scalecube.services.examples.GreetingResponse;
+import io.scalecube.services.examples.GreetingService;
+import io.scalecube.services.examples.GreetingServiceImpl;
+import io.scalecube.services.exceptions.InternalServiceException;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.transport.GatewayClientSettings;
+import io.scalecube.services.gateway.transport.GatewayClientTransports;
+import io.scalecube.services.gateway.transport.StaticAddressRouter;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+
+class WebsocketSingleFrameResponseTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+  private static ServiceCall serviceCall;
+  private static GreetingService service;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new GreetingServiceImpl(), new HeaderServiceImpl())
+            .gateway(options -> new WebsocketGateway(options.id("WS")))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+
+    serviceCall =
+        new ServiceCall()
+            .transport(
+                GatewayClientTransports.websocketGatewayClientTransport(
+                    GatewayClientSettings.builder()
+                        .address(gatewayAddress)
+                        .singleFrameResponse(true)
+                        .build()))
+            .router(new StaticAddressRouter(gatewayAddress));
+    service = serviceCall.api(GreetingService.class);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldSendResponseAndCompleteInOneFrame() {
+    List<String> frames =
+        receive("{\"q\":\"greeting/one\",\"sid\":1,\"d\":\"hello\",\"single\":true}");
+
+    assertEquals(1, frames.size(), frames.toString());
+    assertTrue(frames.get(0).contains("\"sig\":1"), frames.get(0));
+    assertTrue(frames.get(0).contains("Echo:hello"), frames.get(0));
+  }
+
+  @Test
+  void shouldSendResponseAndCompleteInTwoFramesByDefault() {
+    List<String> frames = receive("{\"q\":\"greeting/one\",\"sid\":1,\"d\":\"hello\"}");
+
+    assertEquals(2, frames.size(), frames.toString());
+    assertFalse(frames.get(0).contains("\"sig\""), frames.get(0));
+    assertTrue(frames.get(1).contains("\"sig\":1"), frames.get(1));
+  }
+
+  @Test
+  void shouldReturnSingleResponse() {
+    StepVerifier.create(service.one("hello"))
+        .expectNext("Echo:hello")
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnSinglePojoResponse() {
+    StepVerifier.create(service.pojoOne(new GreetingRequest("hello")))
+        .expectNext(new GreetingResponse("Echo:hello"))
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnEmptyResponse() {
+    StepVerifier.create(service.emptyOne("hello")).expectComplete().verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnResponseWithoutData() {
+    ServiceMessage request = ServiceMessage.builder().qualifier("header/one").build();
+
+    StepVerifier.create(serviceCall.requestOne(request))
+        .assertNext(
+            response -> {
+              assertEquals("value", response.header("h"));
+              assertNull(response.data());
+              assertNull(response.header("sig"));
+              assertNull(response.header("single"));
+            })
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnErrorDataWhenServiceFails() {
+    StepVerifier.create(service.failingOne("hello"))
+        .expectErrorMatches(throwable -> throwable instanceof InternalServiceException)
+        .verify(TIMEOUT);
+  }
+
+  @Test
+  void shouldReturnManyResponses() {
+    StepVerifier.create(service.many("hello").take(3))
+        .expectNextCount(3)
+        .expectComplete()
+        .verify(TIMEOUT);
+  }
+
+  private static List<String> receive(String request) {
+    return HttpClient.create()
+        .port(gatewayAddress.port())
+        .websocket()
+        .uri("/")
+        .handle(
+            (in, out) ->
+                out.sendString(Mono.just(request))
+                    .then()
+                    .thenMany(
+                        in.receive()
+                            .asString()
+                            .takeUntil(frame -> frame.contains("\"sig\":1"))))
+        .collectList()
+        .block(TIMEOUT);
+  }
+
+  @Service("header")
+  public interface HeaderService {
+
+    @ServiceMethod
+    Mono<ServiceMessage> one();
+  }
+
+  public static class HeaderServiceImpl implements HeaderService {
+
+    @Override
+    public Mono<ServiceMessage> one() {
+      // response of headers only, without data
+      return Mono.just(ServiceMessage.builder().header("h", "value").build());
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.GatewayOptions;
+import io.scalecube.services.gateway.GatewaySession;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySession;
+import io.scalecube.services.gateway.ws.WebsocketSlowConsumerPolicy;
+import io.scalecube.services.gateway.ws.WebsocketSlowConsumerPolicy.Action;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+class WebsocketSlowConsumerTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  // enough to fill socket buffers of a client that doesn't read
+  private static final int COUNT = 20_000;
+  private static final String PAYLOAD = String.join("", Collections.nCopies(1024, "a"));
+
+  private static final SlowConsumerHandler backpressureHandler = new SlowConsumerHandler();
+  private static final SlowConsumerHandler dropOldestHandler = new SlowConsumerHandler();
+  private static final SlowConsumerHandler disconnectHandler = new SlowConsumerHandler();
+
+  private static Microservices gateway;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new PayloadServiceImpl())
+            .gateway(opts -> newGateway(opts.id("BP"), Action.BACKPRESSURE, backpressureHandler))
+            .gateway(opts -> newGateway(opts.id("DO"), Action.DROP_OLDEST, dropOldestHandler))
+            .gateway(opts -> newGateway(opts.id("DC"), Action.DISCONNECT, disconnectHandler))
+            .startAwait();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldBackpressureStream() {
+    List<String> frames = receive(gateway.gateway("BP").address(), backpressureHandler);
+
+    assertTrue(backpressureHandler.slowConsumerCount.get() > 0, "slow consumer");
+    assertEquals(COUNT + 1, frames.size(), "all messages and complete");
+    assertTrue(isComplete(frames.get(frames.size() - 1)));
+    assertEquals(0, backpressureHandler.session().droppedMessages());
+  }
+
+  @Test
+  void shouldDropOldestMessages() {
+    List<String> frames = receive(gateway.gateway("DO").address(), dropOldestHandler);
+
+    assertTrue(dropOldestHandler.slowConsumerCount.get() > 0, "slow consumer");
+    assertTrue(isComplete(frames.get(frames.size() - 1)), "complete is never dropped");
+    long dropped = dropOldestHandler.session().droppedMessages();
+    assertTrue(dropped > 0, "dropped: " + dropped);
+    assertEquals(COUNT, frames.size() - 1 + dropped);
+  }
+
+  @Test
+  void shouldDisconnectSlowConsumer() {
+    List<String> frames = receive(gateway.gateway("DC").address(), disconnectHandler);
+
+    assertTrue(disconnectHandler.slowConsumerCount.get() > 0, "slow consumer");
+    assertTrue(frames.size() < COUNT, "received: " + frames.size());
+    assertFalse(frames.stream().anyMatch(WebsocketSlowConsumerTest::isComplete));
+  }
+
+  private static WebsocketGateway newGateway(
+      GatewayOptions options,
+      Action action,
+      GatewaySessionHandler sessionHandler) {
+    return new WebsocketGateway(
+        options,
+        WebsocketGatewaySettings.builder()
+            .gatewayHandler(sessionHandler)
+            .slowConsumerPolicy(
+                WebsocketSlowConsumerPolicy.builder().action(action).maxQueuedMessages(64).build())
+            .build());
+  }
+
+  /**
+   * Requests a stream over a plain blocking socket and doesn't read it till gateway reports slow
+   * consumer, then reads frames till complete or close. A websocket client built on netty wouldn't do, since it keeps
+   * on reading socket while there is demand.
+   */
+  private static List<String> receive(Address address, SlowConsumerHandler handler) {
+    String request = "{\"q\":\"payload/many\",\"sid\":1,\"d\":" + COUNT + "}";
+    List<String> frames = new ArrayList<>();
+    try (Socket socket = new Socket()) {
+      socket.setReceiveBufferSize(4096);
+      socket.setSoTimeout((int) TIMEOUT.toMillis());
+      socket.connect(new InetSocketAddress(address.host(), address.port()));
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      OutputStream out = socket.getOutputStream();
+
+      out.write(
+          ("GET / HTTP/1.1\r\n"
+                  + "Host: localhost\r\n"
+                  + "Upgrade: websocket\r\n"
+                  + "Connection: Upgrade\r\n"
+                  + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                  + "Sec-WebSocket-Version: 13\r\n\r\n")
+              .getBytes(StandardCharsets.US_ASCII));
+      skipHandshakeResponse(in);
+      writeTextFrame(out, request);
+
+      long deadline = System.nanoTime() + TIMEOUT.toNanos();
+      while (handler.slowConsumerCount.get() == 0 && System.nanoTime() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+
+      for (; ; ) {
+        int opcode;
+        byte[] payload;
+        try {
+          opcode = in.readUnsignedByte() & 0x0F;
+          int length = in.readUnsignedByte() & 0x7F;
+          long extendedLength =
+              length == 126 ? in.readUnsignedShort() : length == 127 ? in.readLong() : length;
+          payload = new byte[(int) extendedLength];
+          in.readFully(payload);
+        } catch (EOFException | SocketException e) {
+          return frames;
+        }
+        if (opcode == 0x8) {
+          return frames;
+        }
+        String frame = new String(payload, StandardCharsets.UTF_8);
+        frames.add(frame);
+        if (isComplete(frame)) {
+          return frames;
+        }
+      }
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void skipHandshakeResponse(DataInputStream in) throws IOException {
+    int matched = 0;
+    while (matched < 4) {
+      int b = in.readUnsignedByte();
+      matched = b == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : b == '\r' ? 1 : 0;
+    }
+  }
+
+  private static void writeTextFrame(OutputStream out, String text) throws IOException {
+    byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+    // client frames must be masked, zero mask key leaves payload as is
+    out.write(new byte[] {(byte) 0x81, (byte) (0x80 | payload.length), 0, 0, 0, 0});
+    out.write(payload);
+    out.flush();
+  }
+
+  private static boolean isComplete(String frame) {
+    return frame.contains("\"sig\":1");
+  }
+
+  @Service("payload")
+  public interface PayloadService {
+
+    @ServiceMethod
+    Flux<String> many(Integer count);
+  }
+
+  public static class PayloadServiceImpl implements PayloadService {
+
+    @Override
+    public Flux<String> many(Integer count) {
+      return Flux.range(0, count).map(i -> PAYLOAD);
+    }
+  }
+
+  private static class SlowConsumerHandler implements GatewaySessionHandler {
+
+    private final AtomicInteger slowConsumerCount = new AtomicInteger();
+    private final AtomicReference<GatewaySession> session = new AtomicReference<>();
+
+    @Override
+    public void onSessionOpen(GatewaySession s) {
+      session.set(s);
+    }
+
+    @Override
+    public void onSlowConsumer(GatewaySession s) {
+      slowConsumerCount.incrementAndGet();
+    }
+
+    WebsocketGatewaySession session() {
+      return (WebsocketGatewaySession) session.get();
+    }
+  }
+}
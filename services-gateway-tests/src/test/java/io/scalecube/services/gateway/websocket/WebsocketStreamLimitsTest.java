@@ -0,0 +1,316 @@
+package io.scalecube.services.gateway.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.net.Address;
+import io.scalecube.services.Microservices;
+import io.scalecube.services.annotations.Service;
+import io.scalecube.services.annotations.ServiceMethod;
+import io.scalecube.services.api.ServiceMessage;
+import io.scalecube.services.gateway.BaseTest;
+import io.scalecube.services.gateway.GatewayOptions;
+import io.scalecube.services.gateway.GatewaySession;
+import io.scalecube.services.gateway.GatewaySessionHandler;
+import io.scalecube.services.gateway.ws.WebsocketGateway;
+import io.scalecube.services.gateway.ws.WebsocketGatewaySettings;
+import io.scalecube.services.gateway.ws.WebsocketStreamLimits;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.context.Context;
+
+class WebsocketStreamLimitsTest extends BaseTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static final String STREAM_LIMIT_ERROR = "too many concurrent streams";
+  private static final String INACTIVITY_ERROR = "stream inactivity timeout";
+  private static final int TICKS = 6;
+
+  private static final int READ_BATCH_SIZE = 4;
+  private static final int READ_PAUSE_THRESHOLD = 8;
+
+  private static final AtomicInteger holdCalls = new AtomicInteger();
+  private static final Queue<ByteBuf> requestData = new ConcurrentLinkedQueue<>();
+
+  private static Microservices gateway;
+  private static Address gatewayAddress;
+
+  @BeforeAll
+  static void beforeAll() {
+    gateway =
+        Microservices.builder()
+            .services(new StreamServiceImpl())
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("WS"),
+                        WebsocketStreamLimits.builder()
+                            .maxStreams(2)
+                            .maxStreams("stream/subscribe", 3)
+                            .build()))
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("RP"),
+                        WebsocketStreamLimits.builder()
+                            .readBatchSize(READ_BATCH_SIZE)
+                            .readThresholds(READ_PAUSE_THRESHOLD, READ_PAUSE_THRESHOLD / 2)
+                            .build()))
+            .gateway(
+                options ->
+                    newGateway(
+                        options.id("IT"),
+                        WebsocketStreamLimits.builder()
+                            .inactivityTimeout(Duration.ofMillis(300))
+                            .build()))
+            .gateway(
+                options ->
+                    new WebsocketGateway(
+                        options.id("RD"),
+                        WebsocketGatewaySettings.builder()
+                            .gatewayHandler(new RequestDataHandler())
+                            .streamLimits(
+                                WebsocketStreamLimits.builder()
+                                    .inactivityTimeout(Duration.ofMillis(300))
+                                    .build())
+                            .build()))
+            .startAwait();
+    gatewayAddress = gateway.gateway("WS").address();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (gateway != null) {
+      gateway.shutdown().block();
+    }
+  }
+
+  @Test
+  void shouldRejectStreamBeyondSessionLimit() {
+    List<String> frames = exchange(1, request("open", 1), request("open", 2), request("open", 3));
+
+    assertRejected(3, frames.get(0));
+  }
+
+  @Test
+  void shouldCountQualifierLimitSeparately() {
+    List<String> frames =
+        exchange(
+            2,
+            request("subscribe", 1),
+            request("subscribe", 2),
+            request("subscribe", 3),
+            request("open", 4),
+            request("open", 5),
+            request("subscribe", 6),
+            request("open", 7));
+
+    assertRejected(6, frames.get(0));
+    assertRejected(7, frames.get(1));
+  }
+
+  @Test
+  void shouldReleasePermitOnCancel() {
+    List<String> frames =
+        exchange(
+            3,
+            request("open", 1),
+            request("open", 2),
+            request("echo", 3),
+            "{\"q\":\"stream/open\",\"sid\":1,\"sig\":3}",
+            request("echo", 4));
+
+    assertRejected(3, frames.get(0));
+    assertTrue(frames.get(1).contains("\"sid\":1") && frames.get(1).contains("\"sig\":3"));
+    assertTrue(frames.get(2).contains("\"sid\":4") && frames.get(2).contains("echo"));
+  }
+
+  @Test
+  void shouldPauseReadingOnTooManyStreamsInFlight() throws Exception {
+    String[] requests = new String[100];
+    for (int i = 0; i < requests.length; i++) {
+      requests[i] = request("hold", i + 1);
+    }
+
+    Disposable connection =
+        HttpClient.create()
+            .port(gateway.gateway("RP").address().port())
+            .websocket()
+            .uri("/")
+            .handle((in, out) -> out.sendString(Flux.fromArray(requests)).neverComplete())
+            .subscribe();
+    try {
+      long deadline = System.nanoTime() + TIMEOUT.toNanos();
+      while (holdCalls.get() < READ_PAUSE_THRESHOLD && System.nanoTime() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      // give gateway a chance to read more than it should
+      TimeUnit.MILLISECONDS.sleep(500);
+
+      int calls = holdCalls.get();
+      assertTrue(calls >= READ_PAUSE_THRESHOLD, "calls: " + calls);
+      assertTrue(calls <= READ_PAUSE_THRESHOLD + READ_BATCH_SIZE, "calls: " + calls);
+    } finally {
+      connection.dispose();
+    }
+  }
+
+  @Test
+  void shouldCancelInactiveStream() {
+    List<String> frames = exchange(gateway.gateway("IT").address(), 1, request("open", 1));
+
+    assertInactive(1, frames.get(0));
+  }
+
+  @Test
+  void shouldCancelStreamInactiveForRequestedTimeout() {
+    List<String> frames =
+        exchange(
+            gatewayAddress,
+            3,
+            "{\"q\":\"stream/open\",\"sid\":1,\"i\":200,\"d\":\"open\"}",
+            request("echo", 2));
+
+    // echo response and its COMPLETE go first
+    assertTrue(frames.get(1).contains("\"sid\":2"), frames.get(1));
+    assertInactive(1, frames.get(2));
+  }
+
+  @Test
+  void shouldNotReleaseRequestDataOfInactiveStreamTwice() {
+    requestData.clear();
+
+    List<String> frames = exchange(gateway.gateway("RD").address(), 1, request("open", 1));
+
+    assertInactive(1, frames.get(0));
+    assertEquals(1, requestData.size());
+    ByteBuf data = requestData.poll();
+    // service consumed its reference, the one retained by the handler is all that's left
+    assertEquals(1, data.refCnt());
+    assertTrue(data.release(), "leaked: " + data.refCnt());
+  }
+
+  @Test
+  void shouldNotCancelActiveStream() {
+    List<String> frames = exchange(gateway.gateway("IT").address(), TICKS + 1, request("tick", 1));
+
+    for (int i = 0; i < TICKS; i++) {
+      assertTrue(frames.get(i).contains("tick"), frames.get(i));
+    }
+    assertTrue(frames.get(TICKS).contains("\"sig\":1"), frames.get(TICKS));
+  }
+
+  private static WebsocketGateway newGateway(
+      GatewayOptions options, WebsocketStreamLimits streamLimits) {
+    return new WebsocketGateway(
+        options, WebsocketGatewaySettings.builder().streamLimits(streamLimits).build());
+  }
+
+  private static void assertRejected(long sid, String frame) {
+    assertTrue(frame.contains("\"sid\":" + sid), frame);
+    assertTrue(frame.contains("\"sig\":2"), frame);
+    assertTrue(frame.contains(STREAM_LIMIT_ERROR), frame);
+  }
+
+  private static void assertInactive(long sid, String frame) {
+    assertTrue(frame.contains("\"sid\":" + sid), frame);
+    assertTrue(frame.contains("\"sig\":2"), frame);
+    assertTrue(frame.contains(INACTIVITY_ERROR), frame);
+  }
+
+  private static String request(String method, long sid) {
+    return "{\"q\":\"stream/" + method + "\",\"sid\":" + sid + ",\"d\":\"" + method + "\"}";
+  }
+
+  private static List<String> exchange(int responses, String... requests) {
+    return exchange(gatewayAddress, responses, requests);
+  }
+
+  private static List<String> exchange(Address address, int responses, String... requests) {
+    return HttpClient.create()
+        .port(address.port())
+        .websocket()
+        .uri("/")
+        .handle(
+            (in, out) ->
+                out.sendString(Flux.fromArray(requests))
+                    .then()
+                    .thenMany(in.receive().asString().take(responses)))
+        .collectList()
+        .block(TIMEOUT);
+  }
+
+  private static class RequestDataHandler implements GatewaySessionHandler {
+
+    @Override
+    public ServiceMessage mapMessage(
+        GatewaySession session, ServiceMessage message, Context context) {
+      if (message.data() instanceof ByteBuf) {
+        // keeps reference of its own to see what's left of the data once stream is over
+        requestData.add(((ByteBuf) message.data()).retain());
+      }
+      return message;
+    }
+  }
+
+  @Service("stream")
+  public interface StreamService {
+
+    @ServiceMethod
+    Mono<String> open(String request);
+
+    @ServiceMethod
+    Mono<String> subscribe(String request);
+
+    @ServiceMethod
+    Mono<String> echo(String request);
+
+    @ServiceMethod
+    Mono<String> hold(String request);
+
+    @ServiceMethod
+    Flux<String> tick(String request);
+  }
+
+  public static class StreamServiceImpl implements StreamService {
+
+    @Override
+    public Mono<String> open(String request) {
+      return Mono.never();
+    }
+
+    @Override
+    public Mono<String> subscribe(String request) {
+      return Mono.never();
+    }
+
+    @Override
+    public Mono<String> echo(String request) {
+      return Mono.just(request);
+    }
+
+    @Override
+    public Mono<String> hold(String request) {
+      return Mono.<String>never().doOnSubscribe(s -> holdCalls.incrementAndGet());
+    }
+
+    @Override
+    public Flux<String> tick(String request) {
+      // each tick comes well within inactivity timeout, all of them take longer than that
+      return Flux.interval(Duration.ofMillis(100)).map(i -> request).take(TICKS);
+    }
+  }
+}